@@ -0,0 +1,218 @@
+package com.toptalprep;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the batch operations of the hash tables (findAll() and
+ * containsAll()), which probe the keys of a batch in stages, with the
+ * same number of single key finds.
+ *
+ * Every benchmark invocation looks up LOOKUP_COUNT random keys, all of
+ * them mapped, in a table holding size random Long keys. The single key
+ * finds wait for the cache misses of one key at a time, while the batch
+ * operations load the cells of the whole batch before comparing any key,
+ * so their misses overlap. The batch operations therefore win for a
+ * table that only fits in RAM, while for a table that fits in the cache
+ * the extra passes over the batch would make them slower than the single
+ * key operations. The tables therefore probe the batches in stages only
+ * once their array reaches HashTableBase.STAGED_BATCH_MIN_LENGTH cells,
+ * and look the keys of the smaller tables up one by one.
+ *
+ * The benchmark is parameterized by:
+ * - implementation: the table under test, and
+ * - size: the number of keys, from a table that fits in the L2 cache
+ *   to one that only fits in RAM.
+ *
+ * Build and run it from the coding-practice/java directory with:
+ *
+ * mvn -pl benchmarks -am package -DskipTests
+ * java -cp benchmarks/target/benchmarks.jar com.toptalprep.BatchLookupBenchmark
+ *
+ * All the JMH options are accepted, e.g. add -p implementation=SWISS to
+ * run a subset of the combinations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class BatchLookupBenchmark {
+	/**
+	 * The tables under test.
+	 */
+	public enum Implementation {
+		LINEAR_PROBE,
+		ROBIN_HOOD,
+		SWISS,
+		CUCKOO,
+		HOPSCOTCH,
+		SEPARATE_CHAINING
+	}
+
+	/**
+	 * The number of keys looked up by an invocation.
+	 */
+	private static final int LOOKUP_COUNT = 1 << 12;
+
+	/**
+	 * The number of LOOKUP_COUNT key arrays generated up front, which the
+	 * invocations cycle through.
+	 */
+	private static final int LOOKUP_ROUNDS = 256;
+
+	// The @Param fields are named after the -p options that set them
+	@Param
+	public Implementation implementation;
+
+	@Param({"4096", "4194304"})
+	public int size;
+
+	private HashTable<Long, Long> m_table;
+	private Long[][] m_lookups;
+	private Long[] m_out;
+	private int m_next_round;
+
+	/**
+	 * Generates the keys and the lookups, and fills the table.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		Long[] keys = new Long[size];
+		for (int i = 0; i < size; ++i) {
+			keys[i] = random.nextLong();
+		}
+
+		switch (implementation) {
+		case LINEAR_PROBE:
+			m_table = new HashTableLinearProbe<Long, Long>();
+			break;
+
+		case ROBIN_HOOD:
+			m_table = new HashTableRobinHood<Long, Long>();
+			break;
+
+		case SWISS:
+			m_table = new HashTableSwiss<Long, Long>();
+			break;
+
+		case CUCKOO:
+			m_table = new HashTableCuckoo<Long, Long>();
+			break;
+
+		case HOPSCOTCH:
+			m_table = new HashTableHopscotch<Long, Long>();
+			break;
+
+		default:
+			m_table = new HashTableSeparateChaining<Long, Long>();
+		}
+		m_table.mapAll(keys, keys);
+
+		m_lookups = new Long[LOOKUP_ROUNDS][LOOKUP_COUNT];
+		for (Long[] lookups : m_lookups) {
+			for (int i = 0; i < LOOKUP_COUNT; ++i) {
+				lookups[i] = keys[random.nextInt(size)];
+			}
+		}
+		m_out = new Long[LOOKUP_COUNT];
+		m_next_round = 0;
+	}
+
+	private Long[] nextLookups() {
+		Long[] lookups = m_lookups[m_next_round];
+		m_next_round = (m_next_round + 1) % LOOKUP_ROUNDS;
+		return lookups;
+	}
+
+	/**
+	 * Finds the keys one at a time.
+	 *
+	 * @return The sum of the values found, so that JMH consumes the result.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(LOOKUP_COUNT)
+	public long find() {
+		long checksum = 0;
+		for (Long key : nextLookups()) {
+			checksum += m_table.find(key);
+		}
+		return checksum;
+	}
+
+	/**
+	 * Finds the keys with a single findAll().
+	 *
+	 * @return The sum of the values found, so that JMH consumes the result.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(LOOKUP_COUNT)
+	public long findAll() {
+		m_table.findAll(nextLookups(), m_out);
+
+		long checksum = 0;
+		for (Long value : m_out) {
+			checksum += value;
+		}
+		return checksum;
+	}
+
+	/**
+	 * Checks the keys one at a time.
+	 *
+	 * @return True if all the keys are mapped.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(LOOKUP_COUNT)
+	public boolean containsKey() {
+		boolean found_all = true;
+		for (Long key : nextLookups()) {
+			found_all &= m_table.containsKey(key);
+		}
+		return found_all;
+	}
+
+	/**
+	 * Checks the keys with a single containsAll().
+	 *
+	 * @return True if all the keys are mapped.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(LOOKUP_COUNT)
+	public boolean containsAll() {
+		return m_table.containsAll(nextLookups());
+	}
+
+	/**
+	 * Runs the benchmark, passing the command line arguments to JMH.
+	 */
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(BatchLookupBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,180 @@
+package com.toptalprep;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the {@link HashTableBase.HashMixer} and
+ * {@link HashTableBase.IndexReducer} combinations on poorly distributed
+ * Long keys (sequential IDs and IDs with a power of 2 stride), using a
+ * HashTableLinearProbe.
+ *
+ * The benchmark is parameterized by:
+ * - mixer and reducer: the combination under test, and
+ * - stride: the difference between two consecutive keys.
+ *
+ * The mapAndFind benchmark maps all the keys into a new table, starting
+ * with a small one so that the re-sizes are included, and then finds
+ * them all. The find benchmark looks the keys up in a table holding all
+ * of them at load factor of 0.5, and also reports the clustering as the
+ * average_probes counter: the average number of cells probed to find a
+ * key. The combinations that place the keys in a single cluster (e.g.
+ * the IDENTITY mixer with the FAST_RANGE reducer) are orders of
+ * magnitude slower than the rest. Build and run it from the
+ * coding-practice/java directory with:
+ *
+ * mvn -pl benchmarks -am package -DskipTests
+ * java -cp benchmarks/target/benchmarks.jar com.toptalprep.HashStrategyBenchmark
+ *
+ * All the JMH options are accepted, e.g. add -p mixer=MURMUR3,FIBONACCI
+ * to run a subset of the combinations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class HashStrategyBenchmark {
+	/**
+	 * The number of keys. It's a power of 2 so that the find benchmark
+	 * cycles through the keys by masking the index.
+	 */
+	private static final int KEY_COUNT = 1 << 16;
+	private static final int TABLE_CAPACITY = 2 * KEY_COUNT;
+
+	// The @Param fields are named after the -p options that set them
+	@Param
+	public HashTableBase.HashMixer mixer;
+
+	@Param
+	public HashTableBase.IndexReducer reducer;
+
+	@Param({"1", "1024"})
+	public long stride;
+
+	private Long[] m_keys;
+	private HashTableLinearProbe<Long, Long> m_table;
+	private double m_average_probes;
+	private int m_next_key;
+
+	/**
+	 * The average number of cells probed to find a key, reported next to
+	 * the throughput of the find benchmark. JMH zeroes the counter before
+	 * every iteration, so it's set once the iteration ends.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Clustering {
+		public double average_probes;
+
+		@TearDown(Level.Iteration)
+		public void report(HashStrategyBenchmark benchmark) {
+			average_probes = benchmark.m_average_probes;
+		}
+	}
+
+	/**
+	 * Generates the keys, fills the table and measures the clustering.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		m_keys = new Long[KEY_COUNT];
+		for (int i = 0; i < KEY_COUNT; ++i) {
+			m_keys[i] = i * stride;
+		}
+
+		m_table = new HashTableLinearProbe<Long, Long>(TABLE_CAPACITY, 0.75f, mixer, reducer);
+		for (Long key : m_keys) {
+			m_table.map(key, key);
+		}
+		m_average_probes = measureClustering();
+		m_next_key = 0;
+	}
+
+	/**
+	 * Places the keys into an array of TABLE_CAPACITY cells using linear
+	 * probing and returns the average number of probed cells per key.
+	 */
+	private double measureClustering() {
+		boolean[] occupied = new boolean[TABLE_CAPACITY];
+
+		long probe_count = 0;
+		for (Long key : m_keys) {
+			int index = m_table.mapHashToIndex(m_table.computeHash(key), TABLE_CAPACITY);
+			++probe_count;
+			while (occupied[index]) {
+				index = (index + 1) % TABLE_CAPACITY;
+				++probe_count;
+			}
+			occupied[index] = true;
+		}
+		return (double) probe_count / m_keys.length;
+	}
+
+	/**
+	 * Maps and then finds all the keys.
+	 *
+	 * @return The sum of the values found, so that JMH consumes the result.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(2 * KEY_COUNT)
+	public long mapAndFind() {
+		HashTableLinearProbe<Long, Long> table = new HashTableLinearProbe<Long, Long>(16, 0.75f, mixer, reducer);
+		for (Long key : m_keys) {
+			table.map(key, key);
+		}
+
+		long checksum = 0;
+		for (Long key : m_keys) {
+			checksum += table.find(key);
+		}
+		return checksum;
+	}
+
+	/**
+	 * Finds the next key.
+	 *
+	 * @param clustering  The counter reported next to the throughput.
+	 *
+	 * @return The value found, so that JMH consumes the result.
+	 */
+	@Benchmark
+	public Long find(Clustering clustering) {
+		Long key = m_keys[m_next_key];
+		m_next_key = (m_next_key + 1) & (KEY_COUNT - 1);
+		return m_table.find(key);
+	}
+
+	/**
+	 * Runs the benchmark, passing the command line arguments to JMH.
+	 */
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(HashStrategyBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
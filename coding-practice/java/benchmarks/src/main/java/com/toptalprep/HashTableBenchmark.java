@@ -0,0 +1,315 @@
+package com.toptalprep;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares HashTableLinearProbe, HashTableQuadraticProbe,
+ * HashTableDoubleHashing and HashTableSeparateChaining with
+ * java.util.HashMap.
+ *
+ * Every benchmark invocation performs a single operation on a table
+ * holding size Long keys. A read finds a key, a write unmaps a key and
+ * maps it back, so the size of the table doesn't change. The keys and
+ * the operations are generated up front, so the measured code doesn't
+ * allocate anything but the mappings created by the writes.
+ *
+ * The benchmark is parameterized by:
+ * - implementation: the table under test,
+ * - distribution: the keys and the order in which they're accessed
+ *   (see {@link KeyDistribution}),
+ * - load_factor: the load factor the table is constructed with,
+ * - size: the number of keys, from a table that fits in the L1 cache
+ *   to one that only fits in RAM, and
+ * - read_percent: the percentage of the operations that are reads.
+ *
+ * Throughput and sampled latency (including its percentiles) are
+ * reported for every combination, together with the allocation rate
+ * measured by the GC profiler. Build and run it from the
+ * coding-practice/java directory with:
+ *
+ * mvn -pl benchmarks -am package -DskipTests
+ * java -jar benchmarks/target/benchmarks.jar
+ *
+ * All the JMH options are accepted, e.g. add
+ * -p implementation=LINEAR_PROBE,JAVA_HASH_MAP -p size=65536 to run a
+ * subset of the combinations, as all of them take hours.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class HashTableBenchmark {
+	/**
+	 * The tables under test.
+	 */
+	public enum Implementation {
+		LINEAR_PROBE,
+		QUADRATIC_PROBE,
+		DOUBLE_HASHING,
+		SEPARATE_CHAINING,
+		JAVA_HASH_MAP
+	}
+
+	/**
+	 * The keys and the order in which the operations access them.
+	 */
+	public enum KeyDistribution {
+		/**
+		 * Random keys accessed in random order.
+		 */
+		UNIFORM,
+
+		/**
+		 * Keys 0, 1, 2, ... accessed in that order.
+		 */
+		SEQUENTIAL,
+
+		/**
+		 * Random keys accessed with Zipfian frequencies (exponent
+		 * ZIPF_EXPONENT), so that few keys take most of the operations.
+		 */
+		ZIPFIAN,
+
+		/**
+		 * Random keys accessed in random order, whose hash codes are
+		 * equal in groups of COLLISION_GROUP_SIZE keys.
+		 */
+		COLLIDING
+	}
+
+	/**
+	 * The common interface of the hash tables and the HashMap.
+	 */
+	private interface Table {
+		Long find(Long key);
+
+		void map(Long key, Long value);
+
+		void unmap(Long key);
+	}
+
+	/**
+	 * The number of operations generated up front. It's a power of 2 so
+	 * that the invocations cycle through them by masking the index.
+	 */
+	private static final int OPERATION_COUNT = 1 << 20;
+
+	private static final double ZIPF_EXPONENT = 0.99;
+	private static final int COLLISION_GROUP_SIZE = 8;
+	private static final int INITIAL_CAPACITY = 16;
+
+	// The @Param fields are named after the -p options that set them
+	@Param
+	public Implementation implementation;
+
+	@Param
+	public KeyDistribution distribution;
+
+	@Param({"0.5", "0.75"})
+	public float load_factor;
+
+	// About 60 bytes per key (the key, the mapping and the array cell)
+	// make these an L1, L2, L3 and RAM resident table respectively
+	@Param({"256", "8192", "131072", "4194304"})
+	public int size;
+
+	@Param({"100", "90", "50"})
+	public int read_percent;
+
+	private Table m_table;
+	private Long[] m_keys;
+	private int[] m_key_indices;
+	private boolean[] m_reads;
+	private int m_next_operation;
+
+	/**
+	 * Generates the keys and the operations, and fills the table.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		m_keys = generateKeys(random);
+		m_key_indices = generateKeyIndices(random);
+		m_reads = new boolean[OPERATION_COUNT];
+		for (int i = 0; i < OPERATION_COUNT; ++i) {
+			m_reads[i] = random.nextInt(100) < read_percent;
+		}
+
+		m_table = newTable();
+		for (Long key : m_keys) {
+			m_table.map(key, key);
+		}
+		m_next_operation = 0;
+	}
+
+	private Long[] generateKeys(Random random) {
+		Long[] keys = new Long[size];
+		for (int i = 0; i < size; ++i) {
+			switch (distribution) {
+			case SEQUENTIAL:
+				keys[i] = (long) i;
+				break;
+
+			case COLLIDING:
+				// Long.hashCode() XORs the upper and the lower half, so the
+				// keys of a group only differ in the upper half and in the
+				// lower half by the same bits
+				int group = i / COLLISION_GROUP_SIZE;
+				long member = i % COLLISION_GROUP_SIZE;
+				int hash = group * 0x9E3779B9;
+				keys[i] = (member << 32) | ((hash ^ member) & 0xFFFFFFFFL);
+				break;
+
+			default:
+				keys[i] = random.nextLong();
+			}
+		}
+		return keys;
+	}
+
+	private int[] generateKeyIndices(Random random) {
+		int[] key_indices = new int[OPERATION_COUNT];
+		switch (distribution) {
+		case SEQUENTIAL:
+			for (int i = 0; i < OPERATION_COUNT; ++i) {
+				key_indices[i] = i % size;
+			}
+			break;
+
+		case ZIPFIAN:
+			// The cumulative distribution of the key ranks, sampled by a
+			// binary search
+			double[] cumulative = new double[size];
+			double sum = 0;
+			for (int i = 0; i < size; ++i) {
+				sum += 1.0 / Math.pow(i + 1, ZIPF_EXPONENT);
+				cumulative[i] = sum;
+			}
+			for (int i = 0; i < OPERATION_COUNT; ++i) {
+				int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+				key_indices[i] = Math.min(rank >= 0 ? rank : -rank - 1, size - 1);
+			}
+			break;
+
+		default:
+			for (int i = 0; i < OPERATION_COUNT; ++i) {
+				key_indices[i] = random.nextInt(size);
+			}
+		}
+		return key_indices;
+	}
+
+	private Table newTable() {
+		if (implementation == Implementation.JAVA_HASH_MAP) {
+			HashMap<Long, Long> map = new HashMap<Long, Long>(INITIAL_CAPACITY, load_factor);
+			return new Table() {
+				@Override
+				public Long find(Long key) {
+					return map.get(key);
+				}
+
+				@Override
+				public void map(Long key, Long value) {
+					map.put(key, value);
+				}
+
+				@Override
+				public void unmap(Long key) {
+					map.remove(key);
+				}
+			};
+		}
+
+		HashTable<Long, Long> table;
+		switch (implementation) {
+		case LINEAR_PROBE:
+			table = new HashTableLinearProbe<Long, Long>(INITIAL_CAPACITY, load_factor);
+			break;
+
+		case QUADRATIC_PROBE:
+			table = new HashTableQuadraticProbe<Long, Long>(INITIAL_CAPACITY, load_factor);
+			break;
+
+		case DOUBLE_HASHING:
+			table = new HashTableDoubleHashing<Long, Long>(INITIAL_CAPACITY, load_factor);
+			break;
+
+		default:
+			table = new HashTableSeparateChaining<Long, Long>(INITIAL_CAPACITY, load_factor);
+		}
+		return new Table() {
+			@Override
+			public Long find(Long key) {
+				return table.find(key);
+			}
+
+			@Override
+			public void map(Long key, Long value) {
+				table.map(key, value);
+			}
+
+			@Override
+			public void unmap(Long key) {
+				table.unmap(key);
+			}
+		};
+	}
+
+	/**
+	 * Performs the next generated operation.
+	 *
+	 * @return The value found by a read, or the key written by a write, so
+	 *         that JMH consumes the result.
+	 */
+	@Benchmark
+	public Long operation() {
+		int operation = m_next_operation;
+		m_next_operation = (operation + 1) & (OPERATION_COUNT - 1);
+
+		Long key = m_keys[m_key_indices[operation]];
+		if (m_reads[operation]) {
+			return m_table.find(key);
+		}
+		m_table.unmap(key);
+		m_table.map(key, key);
+		return key;
+	}
+
+	/**
+	 * Runs the benchmark with the GC profiler, passing the command line
+	 * arguments to JMH.
+	 */
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(HashTableBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,920 @@
+package com.toptalprep;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Hash table that maps byte sequence keys to byte sequence values and
+ * stores them outside of the Java heap.
+ *
+ * The keys and values are passed in and returned as ByteBuffers, where
+ * the bytes between the buffer's position and limit form the key or the
+ * value. The bytes are copied to records in direct ByteBuffer slabs of
+ * slab_size bytes each, so the garbage collector only sees the few slab
+ * objects no matter how many mappings the table holds. A record consists
+ * of the key length, the value length (-1 for the NULL value), the key
+ * bytes and the value bytes.
+ *
+ * The records are never modified once written. Mapping a new value to
+ * a key writes a new record and the previous one becomes garbage, which
+ * is reclaimed by {@link #compact()} once it takes more space than the
+ * live records do. Hence, the lookups can return zero-copy read-only
+ * views of the slabs: a view returned by any method keeps showing the
+ * same bytes even after the table is modified (the view keeps its slab
+ * alive even if the table no longer uses it).
+ *
+ * The index that maps the keys to the records is an open addressing
+ * table that uses linear probing, where the unmapped cells are marked
+ * as REMOVED the same way {@link HashTableOpenAddressing} marks them
+ * with REMOVED_KEY. Every index cell holds the 64-bit hash of the key and
+ * the reference to its record (the slab number and the offset within
+ * the slab), so the probes only read the key bytes of the records whose
+ * hash matches and re-sizing the index doesn't touch the records at all.
+ * The index is kept in a long array on the heap, or in direct ByteBuffer
+ * segments in the {@link IndexStorage#OFF_HEAP} mode.
+ *
+ * The lookups accept any ByteBuffer, heap or direct, of any byte order.
+ * Their position and limit are never modified.
+ *
+ * NULL keys are not allowed.
+ */
+public class ByteBufferHashTable implements HashTable<ByteBuffer, ByteBuffer> {
+	/**
+	 * Determines where the index is stored.
+	 */
+	public enum IndexStorage implements HashTableOption {
+		/**
+		 * The index is stored in a long array. The array holds no
+		 * references, so the garbage collector doesn't scan it.
+		 */
+		ON_HEAP,
+
+		/**
+		 * The index is stored in direct ByteBuffers of up to 2^16 cells
+		 * each. A ByteBuffer can't be bigger than 2GB, so the index is
+		 * split into segments to hold up to 2^30 cells, twice as many as
+		 * the on-heap index can.
+		 */
+		OFF_HEAP
+	}
+
+	/**
+	 * The default size of the slabs that store the records.
+	 */
+	public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+	/**
+	 * The size of the record header (the key length and the value length).
+	 */
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	/**
+	 * The size of an index cell (the key hash and the record reference)
+	 * in the {@link IndexStorage#OFF_HEAP} mode.
+	 */
+	private static final int CELL_SIZE = 16;
+
+	/**
+	 * The cell i of the {@link IndexStorage#OFF_HEAP} index is the cell
+	 * (i & INDEX_SEGMENT_MASK) of the segment (i >>> INDEX_SEGMENT_SHIFT).
+	 */
+	private static final int INDEX_SEGMENT_SHIFT = 16;
+	private static final int INDEX_SEGMENT_MASK = (1 << INDEX_SEGMENT_SHIFT) - 1;
+
+	/**
+	 * The maximal number of index cells in the {@link IndexStorage#OFF_HEAP}
+	 * mode, which is the largest power of 2 an int can hold.
+	 */
+	protected static final int MAX_OFF_HEAP_CAPACITY = 1 << 30;
+
+	/**
+	 * The maximal number of index cells in the {@link IndexStorage#ON_HEAP}
+	 * mode, as the index needs two array elements per cell.
+	 */
+	protected static final int MAX_ON_HEAP_CAPACITY = 1 << 29;
+
+	/**
+	 * The record references that mark an empty index cell and a removed
+	 * mapping. The valid references are never 0 as the slabs are numbered
+	 * starting at 1, and never -1 as the offsets are non-negative.
+	 */
+	private static final long EMPTY = 0L;
+	private static final long REMOVED = -1L;
+
+	/**
+	 * The value length stored for the NULL value.
+	 */
+	private static final int NULL_VALUE_LENGTH = -1;
+
+	protected int m_size;
+	protected int m_removed_count;
+	protected final int m_initial_capacity;
+	protected final float m_load_factor;
+	protected final int m_slab_size;
+	protected final boolean m_off_heap_index;
+
+	/**
+	 * The number of index cells, which is always a power of 2. The cells
+	 * are stored in m_index (the hash of cell i at index 2 * i and the
+	 * record reference at index 2 * i + 1) or, in the
+	 * {@link IndexStorage#OFF_HEAP} mode, in the m_index_segments buffers.
+	 */
+	protected int m_capacity;
+	protected long[] m_index;
+	protected ByteBuffer[] m_index_segments;
+
+	/**
+	 * The slabs holding the records, and the offset of the first free byte
+	 * of the last slab. The slab number stored in a record reference is
+	 * the slab's index in m_slabs plus one.
+	 */
+	protected final ArrayList<ByteBuffer> m_slabs;
+	protected int m_slab_position;
+
+	/**
+	 * The number of bytes taken by the records of the mappings in the
+	 * table, and by the records that are no longer used.
+	 */
+	protected long m_live_bytes;
+	protected long m_garbage_bytes;
+
+	/**
+	 * Constructs a ByteBufferHashTable instance with initial capacity of 16
+	 * elements, load factor of 0.75, the default slab size and on-heap index.
+	 */
+	public ByteBufferHashTable() {
+		this(16, 0.75f);
+	}
+
+	/**
+	 * Constructs a ByteBufferHashTable instance with given initial capacity,
+	 * load factor of 0.75, the default slab size and on-heap index.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero.
+	 */
+	public ByteBufferHashTable(int initial_capacity) throws IllegalArgumentException {
+		this(initial_capacity, 0.75f);
+	}
+
+	/**
+	 * Constructs a ByteBufferHashTable instance with given initial capacity
+	 * and load factor, the default slab size and on-heap index.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity. It is
+	 *                          rounded up to a power of 2.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the index before it is re-sized. This value represents
+	 *                          a percentage and falls within a range [0.0, 1.0]. Load
+	 *                          factor greater than 1.0 is capped to 1.0.
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative.
+	 */
+	public ByteBufferHashTable(int initial_capacity, float load_factor) throws IllegalArgumentException {
+		this(initial_capacity, load_factor, DEFAULT_SLAB_SIZE);
+	}
+
+	/**
+	 * @see ByteBufferHashTable#ByteBufferHashTable(int, float)
+	 *
+	 * @param slab_size  The size of the slabs that store the records. A record
+	 *                   bigger than slab_size is stored in a slab of its own.
+	 * @param options    The options that configure the table. The
+	 *                   {@link IndexStorage} option is recognized. The
+	 *                   {@link IndexStorage#ON_HEAP} mode is used if not
+	 *                   specified.
+	 *
+	 * @throws IllegalArgumentException if slab_size is less or equal to zero,
+	 *         or if the initial capacity is greater than the maximal capacity
+	 *         of the index (MAX_ON_HEAP_CAPACITY or MAX_OFF_HEAP_CAPACITY).
+	 */
+	public ByteBufferHashTable(int initial_capacity, float load_factor, int slab_size, HashTableOption... options)
+			throws IllegalArgumentException {
+		if (initial_capacity <= 0) {
+			throw new IllegalArgumentException("initial_capacity must be positive");
+		}
+
+		if (load_factor < 0.0f) {
+			throw new IllegalArgumentException("load_factor must be non-negative");
+		}
+
+		if (slab_size <= 0) {
+			throw new IllegalArgumentException("slab_size must be positive");
+		}
+
+		m_off_heap_index =
+				HashTableBase.findOption(IndexStorage.class, IndexStorage.ON_HEAP, options) == IndexStorage.OFF_HEAP;
+		if (initial_capacity > maxCapacity()) {
+			throw new IllegalArgumentException(
+					"initial_capacity is greater than the maximal index capacity " + maxCapacity());
+		}
+
+		m_initial_capacity = Math.max(2, Integer.highestOneBit(initial_capacity - 1) << 1);
+		m_load_factor = load_factor > 1.0f ? 1.0f : load_factor;
+		m_slab_size = slab_size;
+		m_slabs = new ArrayList<ByteBuffer>();
+		clear();
+	}
+
+	/**
+	 * The maximal number of index cells.
+	 */
+	private int maxCapacity() {
+		return m_off_heap_index ? MAX_OFF_HEAP_CAPACITY : MAX_ON_HEAP_CAPACITY;
+	}
+
+	/**
+	 * Allocates an empty index with the given number of cells.
+	 */
+	private void allocateIndex(int capacity) {
+		m_capacity = capacity;
+		if (m_off_heap_index) {
+			m_index_segments = allocateSegments(capacity);
+		}
+		else {
+			m_index = new long[2 * capacity];
+		}
+	}
+
+	/**
+	 * Allocates the direct buffers of an off-heap index with the given
+	 * number of cells. All the segments are full-sized, except for the
+	 * single segment of an index smaller than a segment.
+	 */
+	private static ByteBuffer[] allocateSegments(int capacity) {
+		ByteBuffer[] segments = new ByteBuffer[Math.max(1, capacity >>> INDEX_SEGMENT_SHIFT)];
+		for (int i = 0; i < segments.length; ++i) {
+			// Direct buffers are zeroed, so all the cells are EMPTY
+			segments[i] = ByteBuffer.allocateDirect(Math.min(capacity, INDEX_SEGMENT_MASK + 1) * CELL_SIZE);
+		}
+		return segments;
+	}
+
+	/**
+	 * Returns the offset of the given cell within its off-heap segment.
+	 */
+	private static int segmentOffset(int index) {
+		return (index & INDEX_SEGMENT_MASK) * CELL_SIZE;
+	}
+
+	private static long hashAt(ByteBuffer[] segments, int index) {
+		return segments[index >>> INDEX_SEGMENT_SHIFT].getLong(segmentOffset(index));
+	}
+
+	private static long referenceAt(ByteBuffer[] segments, int index) {
+		return segments[index >>> INDEX_SEGMENT_SHIFT].getLong(segmentOffset(index) + 8);
+	}
+
+	private long hashAt(int index) {
+		return m_off_heap_index ? hashAt(m_index_segments, index) : m_index[2 * index];
+	}
+
+	private long referenceAt(int index) {
+		return m_off_heap_index ? referenceAt(m_index_segments, index) : m_index[2 * index + 1];
+	}
+
+	private void setReferenceAt(int index, long reference) {
+		if (m_off_heap_index) {
+			m_index_segments[index >>> INDEX_SEGMENT_SHIFT].putLong(segmentOffset(index) + 8, reference);
+		}
+		else {
+			m_index[2 * index + 1] = reference;
+		}
+	}
+
+	private void setCellAt(int index, long hash, long reference) {
+		if (m_off_heap_index) {
+			m_index_segments[index >>> INDEX_SEGMENT_SHIFT].putLong(segmentOffset(index), hash);
+		}
+		else {
+			m_index[2 * index] = hash;
+		}
+		setReferenceAt(index, reference);
+	}
+
+	/**
+	 * Whether the index cell holds a mapping.
+	 */
+	private static boolean isLive(long reference) {
+		return reference != EMPTY && reference != REMOVED;
+	}
+
+	private ByteBuffer slabOf(long reference) {
+		return m_slabs.get((int)(reference >>> 32) - 1);
+	}
+
+	private static int offsetOf(long reference) {
+		return (int) reference;
+	}
+
+	private int keyLengthOf(long reference) {
+		return slabOf(reference).getInt(offsetOf(reference));
+	}
+
+	private int valueLengthOf(long reference) {
+		return slabOf(reference).getInt(offsetOf(reference) + 4);
+	}
+
+	/**
+	 * Returns the size of the record with the given header.
+	 */
+	private static int recordSize(int key_length, int value_length) {
+		return RECORD_HEADER_SIZE + key_length + Math.max(0, value_length);
+	}
+
+	/**
+	 * Reads the 8 bytes at the given index as a big-endian long, no matter
+	 * what the byte order of the buffer is.
+	 */
+	private static long getBigEndianLong(ByteBuffer buffer, int index) {
+		long word = buffer.getLong(index);
+		return buffer.order() == ByteOrder.BIG_ENDIAN ? word : Long.reverseBytes(word);
+	}
+
+	/**
+	 * Computes the 64-bit hash of the given bytes.
+	 *
+	 * The bytes are consumed 8 at a time and the result is finalized with
+	 * the MurmurHash3 64-bit finalizer, so that all the bits of the hash
+	 * depend on all the bytes. The hash doesn't depend on the byte order
+	 * of the buffer.
+	 *
+	 * @param buffer  The buffer holding the bytes.
+	 * @param offset  The index of the first byte.
+	 * @param length  The number of bytes.
+	 *
+	 * @return The hash.
+	 */
+	protected static long hashBytes(ByteBuffer buffer, int offset, int length) {
+		long hash = 0x9E3779B97F4A7C15L ^ length;
+		int i = 0;
+		for (; i + 8 <= length; i += 8) {
+			hash = (hash ^ getBigEndianLong(buffer, offset + i)) * 0xC2B2AE3D27D4EB4FL;
+			hash ^= hash >>> 29;
+		}
+		for (; i < length; ++i) {
+			hash = (hash ^ (buffer.get(offset + i) & 0xFFL)) * 0x100000001B3L;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * Whether the given byte ranges of the two buffers are equal.
+	 */
+	protected static boolean bytesEqual(ByteBuffer a, int a_offset, ByteBuffer b, int b_offset, int length) {
+		int i = 0;
+		for (; i + 8 <= length; i += 8) {
+			if (getBigEndianLong(a, a_offset + i) != getBigEndianLong(b, b_offset + i)) {
+				return false;
+			}
+		}
+		for (; i < length; ++i) {
+			if (a.get(a_offset + i) != b.get(b_offset + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the hash of the key, rejecting the NULL key.
+	 *
+	 * @throws IllegalArgumentException if key is NULL.
+	 */
+	private static long computeHash(ByteBuffer key) throws IllegalArgumentException {
+		if (key == null) {
+			throw new IllegalArgumentException("key must not be null");
+		}
+		return hashBytes(key, key.position(), key.remaining());
+	}
+
+	/**
+	 * Whether the record has the given key.
+	 */
+	private boolean keyEquals(long reference, ByteBuffer key) {
+		return keyLengthOf(reference) == key.remaining() &&
+				bytesEqual(slabOf(reference), offsetOf(reference) + RECORD_HEADER_SIZE, key, key.position(), key.remaining());
+	}
+
+	/**
+	 * Whether the record has the given value. Two NULL values are equal.
+	 */
+	private boolean valueEquals(long reference, ByteBuffer value) {
+		int value_length = valueLengthOf(reference);
+		if (value == null || value_length == NULL_VALUE_LENGTH) {
+			return value == null && value_length == NULL_VALUE_LENGTH;
+		}
+
+		int value_offset = offsetOf(reference) + RECORD_HEADER_SIZE + keyLengthOf(reference);
+		return value_length == value.remaining() &&
+				bytesEqual(slabOf(reference), value_offset, value, value.position(), value_length);
+	}
+
+	/**
+	 * Returns a read-only view of the given bytes of the slab.
+	 */
+	protected static ByteBuffer view(ByteBuffer slab, int offset, int length) {
+		ByteBuffer view = slab.duplicate();
+		view.limit(offset + length);
+		view.position(offset);
+		return view.slice().asReadOnlyBuffer();
+	}
+
+	private ByteBuffer keyView(long reference) {
+		return view(slabOf(reference), offsetOf(reference) + RECORD_HEADER_SIZE, keyLengthOf(reference));
+	}
+
+	private ByteBuffer valueView(long reference) {
+		int value_length = valueLengthOf(reference);
+		if (value_length == NULL_VALUE_LENGTH) {
+			return null;
+		}
+		return view(slabOf(reference), offsetOf(reference) + RECORD_HEADER_SIZE + keyLengthOf(reference), value_length);
+	}
+
+	/**
+	 * Reserves space for a record of the given size at the end of the last
+	 * slab, or in a new slab if the last slab doesn't have enough space.
+	 *
+	 * @return The reference to the reserved space.
+	 */
+	private long allocateRecord(int record_size) {
+		ByteBuffer slab = m_slabs.isEmpty() ? null : m_slabs.get(m_slabs.size() - 1);
+		if (slab == null || slab.capacity() - m_slab_position < record_size) {
+			m_slabs.add(ByteBuffer.allocateDirect(Math.max(m_slab_size, record_size)));
+			m_slab_position = 0;
+		}
+
+		long reference = ((long) m_slabs.size() << 32) | m_slab_position;
+		m_slab_position += record_size;
+		m_live_bytes += record_size;
+		return reference;
+	}
+
+	/**
+	 * Writes a record with the given key and value.
+	 *
+	 * @return The reference to the record.
+	 *
+	 * @throws IllegalArgumentException if the record would be bigger than
+	 *         the maximal ByteBuffer size.
+	 */
+	private long writeRecord(ByteBuffer key, ByteBuffer value) throws IllegalArgumentException {
+		int key_length = key.remaining();
+		int value_length = value != null ? value.remaining() : NULL_VALUE_LENGTH;
+		if ((long) RECORD_HEADER_SIZE + key_length + Math.max(0, value_length) > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The key and the value are too big");
+		}
+
+		long reference = allocateRecord(recordSize(key_length, value_length));
+		ByteBuffer slab = slabOf(reference);
+		int offset = offsetOf(reference);
+		slab.putInt(offset, key_length);
+		slab.putInt(offset + 4, value_length);
+
+		// Copy the bytes through duplicates so that no position is changed
+		ByteBuffer target = slab.duplicate();
+		target.position(offset + RECORD_HEADER_SIZE);
+		target.put(key.duplicate());
+		if (value != null) {
+			target.put(value.duplicate());
+		}
+		return reference;
+	}
+
+	/**
+	 * Marks the record as garbage.
+	 */
+	private void discardRecord(long reference) {
+		int record_size = recordSize(keyLengthOf(reference), valueLengthOf(reference));
+		m_live_bytes -= record_size;
+		m_garbage_bytes += record_size;
+	}
+
+	/**
+	 * Finds the index cell of the mapping with the given key.
+	 *
+	 * @param key_hash  The hash of the key as returned by computeHash.
+	 * @param key       The key to search for.
+	 *
+	 * @return The index of the cell, or -1 if key isn't mapped.
+	 */
+	private int findIndex(long key_hash, ByteBuffer key) {
+		int index = (int)(key_hash & (m_capacity - 1));
+
+		// Starting at the index where the key hash maps to, iterate until
+		// either: 1) an empty cell is found which means that key is not
+		// mapped, 2) we iterate over every cell without finding the key,
+		// or 3) we find the key.
+		int counter = 0;
+		while (counter++ < m_capacity) {
+			long reference = referenceAt(index);
+			if (reference == EMPTY) {
+				return -1;
+			}
+
+			if (reference != REMOVED && hashAt(index) == key_hash && keyEquals(reference, key)) {
+				return index;
+			}
+			index = (index + 1) & (m_capacity - 1);
+		}
+		return -1;
+	}
+
+	/**
+	 * Re-sizes the index if the mappings and the removed mappings exceed
+	 * the load factor, or if no empty cell would be left. If at least half
+	 * of the occupied cells are removed mappings, the index is re-built
+	 * with the same capacity. Otherwise, its capacity is doubled.
+	 *
+	 * @throws ArithmeticException if the index can't grow any further.
+	 */
+	private void resizeIndex() throws ArithmeticException {
+		int occupied_cells = m_size + m_removed_count;
+		if (occupied_cells <= m_load_factor * m_capacity && occupied_cells < m_capacity) {
+			return;
+		}
+
+		int new_capacity = m_capacity;
+		if (m_size >= m_removed_count) {
+			if (m_capacity >= maxCapacity()) {
+				throw new ArithmeticException("The index can't grow beyond its maximal capacity " + maxCapacity());
+			}
+			new_capacity = 2 * m_capacity;
+		}
+
+		long[] old_index = m_index;
+		ByteBuffer[] old_index_segments = m_index_segments;
+		int old_capacity = m_capacity;
+		allocateIndex(new_capacity);
+		m_removed_count = 0;
+
+		for (int i = 0; i < old_capacity; ++i) {
+			long reference = m_off_heap_index ? referenceAt(old_index_segments, i) : old_index[2 * i + 1];
+			if (isLive(reference)) {
+				// The cached hash is reused, so the records aren't touched
+				long key_hash = m_off_heap_index ? hashAt(old_index_segments, i) : old_index[2 * i];
+				int index = (int)(key_hash & (m_capacity - 1));
+				while (referenceAt(index) != EMPTY) {
+					index = (index + 1) & (m_capacity - 1);
+				}
+				setCellAt(index, key_hash, reference);
+			}
+		}
+	}
+
+	/**
+	 * Compacts the slabs if the garbage records take more space than both
+	 * a single slab and all the live records.
+	 */
+	private void compactIfNeeded() {
+		if (m_garbage_bytes > m_slab_size && m_garbage_bytes > m_live_bytes) {
+			compact();
+		}
+	}
+
+	/**
+	 * Copies the live records to new slabs, so that the space taken by the
+	 * garbage records is freed once the old slabs are garbage collected.
+	 *
+	 * The views returned by the table before the compaction still show the
+	 * same bytes, as they keep their old slab alive.
+	 *
+	 * Time complexity of this operation is O(N + B) where N is the capacity
+	 * of the index and B the number of bytes of the live records.
+	 */
+	public void compact() {
+		ArrayList<ByteBuffer> old_slabs = new ArrayList<ByteBuffer>(m_slabs);
+		m_slabs.clear();
+		m_slab_position = 0;
+		m_live_bytes = 0;
+		m_garbage_bytes = 0;
+
+		for (int i = 0; i < m_capacity; ++i) {
+			long reference = referenceAt(i);
+			if (isLive(reference)) {
+				ByteBuffer source = old_slabs.get((int)(reference >>> 32) - 1).duplicate();
+				int offset = offsetOf(reference);
+				int record_size = recordSize(source.getInt(offset), source.getInt(offset + 4));
+				source.limit(offset + record_size);
+				source.position(offset);
+
+				long new_reference = allocateRecord(record_size);
+				ByteBuffer target = slabOf(new_reference).duplicate();
+				target.position(offsetOf(new_reference));
+				target.put(source);
+				setReferenceAt(i, new_reference);
+			}
+		}
+	}
+
+	/**
+	 * The number of off-heap bytes taken by the table: the slabs and, in
+	 * the {@link IndexStorage#OFF_HEAP} mode, the index.
+	 *
+	 * @return The number of bytes.
+	 */
+	public long offHeapBytes() {
+		long bytes = m_off_heap_index ? (long) m_capacity * CELL_SIZE : 0;
+		for (ByteBuffer slab : m_slabs) {
+			bytes += slab.capacity();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Checks whether given key is present in the map.
+	 *
+	 * @param key  The key to search for.
+	 *
+	 * @return True if key is found, false otherwise.
+	 *
+	 * @throws IllegalArgumentException if key is NULL.
+	 */
+	@Override
+	public boolean containsKey(ByteBuffer key) throws IllegalArgumentException {
+		return findIndex(computeHash(key), key) != -1;
+	}
+
+	/**
+	 * Linearly scans the table searching for the specified value.
+	 *
+	 * Time complexity of this operation is O(N) where N is the capacity
+	 * of the index.
+	 *
+	 * @param ref_value  The value to search for.
+	 *
+	 * @return True if the hash table contains the given value, false
+	 *         otherwise.
+	 */
+	@Override
+	public boolean containsValue(ByteBuffer ref_value) {
+		for (int i = 0; i < m_capacity; ++i) {
+			long reference = referenceAt(i);
+			if (isLive(reference) && valueEquals(reference, ref_value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the value that given key maps to.
+	 *
+	 * @param key  The key whose mapping is to be found.
+	 *
+	 * @return A read-only view of the value that key maps to if key is
+	 *         present in the hash table, null otherwise. Note that null
+	 *         might also be returned if the key is present in the table
+	 *         but maps to a null value.
+	 *
+	 * @throws IllegalArgumentException if key is NULL.
+	 */
+	@Override
+	public ByteBuffer find(ByteBuffer key) throws IllegalArgumentException {
+		int index = findIndex(computeHash(key), key);
+		return index != -1 ? valueView(referenceAt(index)) : null;
+	}
+
+	/**
+	 * Maps the key to value if the key is not already mapped in the table,
+	 * or updates the value if the key is already mapped.
+	 *
+	 * The key and the value bytes are copied, so the buffers can be reused
+	 * by the caller afterwards.
+	 *
+	 * @param key    The key to be placed in the hash table.
+	 * @param value  The value to which key is mapped to.
+	 *
+	 * @return A read-only view of the previous value that given key was
+	 *         mapped to, or null if key didn't have mapping. The null might
+	 *         also be returned if the key was previously mapped to a null
+	 *         value.
+	 *
+	 * @throws IllegalArgumentException if key is NULL.
+	 * @throws ArithmeticException if the index can't grow any further.
+	 */
+	@Override
+	public ByteBuffer map(ByteBuffer key, ByteBuffer value) throws IllegalArgumentException, ArithmeticException {
+		long key_hash = computeHash(key);
+		int index = (int)(key_hash & (m_capacity - 1));
+
+		// Starting at the index where the key hash maps to, find a cell where
+		// the new mapping should be placed. The first removed mapping on the
+		// way is replaced, unless the key is found later on.
+		int new_mapping_index = -1;
+		int counter = 0;
+		while (counter++ < m_capacity) {
+			long reference = referenceAt(index);
+			if (reference == EMPTY) {
+				if (new_mapping_index == -1) {
+					new_mapping_index = index;
+				}
+				break;
+			}
+			else if (reference == REMOVED) {
+				if (new_mapping_index == -1) {
+					new_mapping_index = index;
+				}
+			}
+			else if (hashAt(index) == key_hash && keyEquals(reference, key)) {
+				// The key already has a mapping. Its record is replaced by a new
+				// one, so the views of the previous value remain intact.
+				ByteBuffer previous_value = valueView(reference);
+				setReferenceAt(index, writeRecord(key, value));
+				discardRecord(reference);
+				compactIfNeeded();
+				return previous_value;
+			}
+			index = (index + 1) & (m_capacity - 1);
+		}
+
+		// The index is always re-sized before its last empty cell is taken
+		assert(new_mapping_index != -1);
+		if (referenceAt(new_mapping_index) == REMOVED) {
+			--m_removed_count;
+		}
+		setCellAt(new_mapping_index, key_hash, writeRecord(key, value));
+		++m_size;
+
+		resizeIndex();
+		return null;
+	}
+
+	/**
+	 * Removes the mapping at the given index cell.
+	 *
+	 * @return A read-only view of the value of the removed mapping.
+	 */
+	private ByteBuffer removeMappingAt(int index) {
+		long reference = referenceAt(index);
+		ByteBuffer removed_value = valueView(reference);
+		setReferenceAt(index, REMOVED);
+		++m_removed_count;
+		--m_size;
+		discardRecord(reference);
+		compactIfNeeded();
+		return removed_value;
+	}
+
+	/**
+	 * Removes the mapping with the given key.
+	 *
+	 * @param key  The key to unmap.
+	 *
+	 * @return A read-only view of the value that key was mapped to, or null
+	 *         if key didn't have a mapping. Null might also be returned if
+	 *         key was mapped to a null value.
+	 *
+	 * @throws IllegalArgumentException if key is NULL.
+	 */
+	@Override
+	public ByteBuffer unmap(ByteBuffer key) throws IllegalArgumentException {
+		int index = findIndex(computeHash(key), key);
+		return index != -1 ? removeMappingAt(index) : null;
+	}
+
+	/**
+	 * Removes the mapping with the key if it maps to the specified value.
+	 *
+	 * @param key    The key to unmap.
+	 * @param value  The value to compare against.
+	 *
+	 * @return Returns true if the mapping is removed from the table, false
+	 *         otherwise.
+	 *
+	 * @throws IllegalArgumentException if key is NULL.
+	 */
+	@Override
+	public boolean unmap(ByteBuffer key, ByteBuffer value) throws IllegalArgumentException {
+		int index = findIndex(computeHash(key), key);
+		if (index == -1 || !valueEquals(referenceAt(index), value)) {
+			return false;
+		}
+		removeMappingAt(index);
+		return true;
+	}
+
+	/**
+	 * Remaps the key to the specified value.
+	 *
+	 * If the key isn't found in the hash table the method has no effect.
+	 * This is the difference between map and remap methods.
+	 *
+	 * @param key    The key to remap.
+	 * @param value  The value that key is remapped to.
+	 *
+	 * @return A read-only view of the value that key was mapped to or null
+	 *         if the key had no mapping. Null return value may also indicate
+	 *         that key was previously mapped to the null value.
+	 *
+	 * @throws IllegalArgumentException if key is NULL.
+	 */
+	@Override
+	public ByteBuffer remap(ByteBuffer key, ByteBuffer value) throws IllegalArgumentException {
+		int index = findIndex(computeHash(key), key);
+		if (index == -1) {
+			return null;
+		}
+
+		long reference = referenceAt(index);
+		ByteBuffer previous_value = valueView(reference);
+		setReferenceAt(index, writeRecord(key, value));
+		discardRecord(reference);
+		compactIfNeeded();
+		return previous_value;
+	}
+
+	/**
+	 * Returns an iterator over the mappings of the table. The keys and the
+	 * values are returned as read-only views.
+	 *
+	 * @see HashTable#iterator()
+	 */
+	@Override
+	public Iterator<Map.Entry<ByteBuffer, ByteBuffer>> iterator() {
+		return new Iterator<Map.Entry<ByteBuffer, ByteBuffer>>() {
+			private int m_next_index = findLive(0);
+
+			/**
+			 * Returns the index of the first cell at or after the given one
+			 * that holds a mapping, or m_capacity if there's no such cell.
+			 */
+			private int findLive(int index) {
+				while (index < m_capacity && !isLive(referenceAt(index))) {
+					++index;
+				}
+				return index;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return m_next_index < m_capacity;
+			}
+
+			@Override
+			public Map.Entry<ByteBuffer, ByteBuffer> next() {
+				if (m_next_index >= m_capacity) {
+					throw new NoSuchElementException();
+				}
+
+				long reference = referenceAt(m_next_index);
+				m_next_index = findLive(m_next_index + 1);
+				return new AbstractMap.SimpleImmutableEntry<ByteBuffer, ByteBuffer>(
+						keyView(reference), valueView(reference));
+			}
+		};
+	}
+
+	/**
+	 * The number of keys in the hash table.
+	 *
+	 * @return The number of keys.
+	 */
+	@Override
+	public int size() {
+		return m_size;
+	}
+
+	/**
+	 * Clears the table so that it contains no keys.
+	 *
+	 * The slabs are released and the index is shrank to its initial
+	 * capacity.
+	 */
+	@Override
+	public void clear() {
+		m_size = 0;
+		m_removed_count = 0;
+		m_slabs.clear();
+		m_slab_position = 0;
+		m_live_bytes = 0;
+		m_garbage_bytes = 0;
+		m_index = null;
+		m_index_segments = null;
+		allocateIndex(m_initial_capacity);
+	}
+
+	/**
+	 * Whether table is empty.
+	 *
+	 * @return True if table is empty, false otherwise.
+	 */
+	@Override
+	public boolean isEmpty() {
+		return m_size == 0;
+	}
+}
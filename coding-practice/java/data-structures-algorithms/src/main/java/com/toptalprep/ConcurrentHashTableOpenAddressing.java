@@ -0,0 +1,755 @@
+package com.toptalprep;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-blocking hash table implementation that uses linear probing to
+ * resolve collisions.
+ *
+ * The keys and values are kept in two {@link AtomicReferenceArray}
+ * instances and every modification is a single compare-and-swap on a
+ * key or a value slot, so no thread ever blocks another. The design
+ * follows the non-blocking hash map by Cliff Click:
+ *
+ * - A key slot goes from empty to a key exactly once and is never
+ *   cleared afterwards. Unmapping a key replaces its value with
+ *   TOMBSTONE, and mapping the key again reuses the same slot. Hence
+ *   a lookup can stop probing as soon as it reaches an empty key slot.
+ *
+ * - When the table gets full a new table is allocated and linked from
+ *   the old one. The mappings are then migrated one slot at a time by
+ *   all the threads that use the table. The value being migrated is
+ *   first wrapped in a Prime, which freezes the old slot, then copied
+ *   to the new table and finally the old slot is marked as migrated.
+ *   Empty key slots are claimed with TOMBSTONE so that no new key can
+ *   be placed into the old table once it's being migrated. Every
+ *   operation that runs into a frozen or migrated slot moves on to the
+ *   new table, so readers never wait for the migration to complete.
+ *
+ * - Each thread that modifies the table while the migration is in
+ *   progress migrates a chunk of slots, so the cost of re-sizing is
+ *   spread among the modifications. Once all the slots are migrated
+ *   the new table replaces the old one.
+ *
+ * Since the key slots are never cleared, the table might also be
+ * re-sized when many keys have been unmapped. In that case the new
+ * table has the same length and the unmapped keys are simply not
+ * migrated.
+ *
+ * The containsValue() and clear() methods are weakly consistent with
+ * respect to the concurrent modifications, and size() is a snapshot
+ * that might not reflect the modifications still in progress.
+ *
+ * Implementation allows null keys and values.
+ */
+public class ConcurrentHashTableOpenAddressing<KeyT, ValueT> implements HashTable<KeyT, ValueT> {
+	/**
+	 * Wraps a value that is being migrated to the next table.
+	 */
+	private static final class Prime {
+		final Object m_value;
+
+		Prime(Object value) {
+			m_value = value;
+		}
+	}
+
+	/**
+	 * Stored in place of the null keys and values, as null marks the
+	 * empty slots.
+	 */
+	private static final Object NULL_KEY = new Object();
+	private static final Object NULL_VALUE = new Object();
+
+	/**
+	 * The value of an unmapped key and the key of an empty slot that
+	 * has been migrated.
+	 */
+	private static final Object TOMBSTONE = new Object();
+
+	/**
+	 * The value of a slot that has been migrated.
+	 */
+	private static final Prime TOMBPRIME = new Prime(TOMBSTONE);
+
+	/**
+	 * Expected values that don't correspond to a specific value. The
+	 * null expected value is used when migrating a mapping and matches
+	 * only the slots that have never had a value.
+	 */
+	private static final Object MATCH_ANY_OLD = new Object();
+	private static final Object MATCH_PRESENT = new Object();
+
+	/**
+	 * The number of slots a thread migrates at a time.
+	 */
+	private static final int MIGRATION_CHUNK_SIZE = 1024;
+
+	/**
+	 * The arrays of keys and values together with the state of their
+	 * migration to the next table.
+	 */
+	private static final class Table {
+		final AtomicReferenceArray<Object> m_keys;
+		final AtomicReferenceArray<Object> m_values;
+
+		/**
+		 * The number of mappings in the table. The counter is shared by
+		 * a table and all the tables it is migrated to.
+		 */
+		final LongAdder m_size;
+
+		/**
+		 * The number of key slots that have been claimed, including the
+		 * slots of the unmapped keys.
+		 */
+		final LongAdder m_claimed_slots;
+
+		/**
+		 * The table this table is being migrated to, or null if the table
+		 * isn't being re-sized.
+		 */
+		final AtomicReference<Table> m_next_table;
+
+		/**
+		 * The next slot to be claimed by a thread helping with the migration,
+		 * and the number of slots migrated so far.
+		 */
+		final AtomicInteger m_migration_index;
+		final AtomicInteger m_migrated_slot_count;
+
+		Table(int length, LongAdder size) {
+			m_keys = new AtomicReferenceArray<Object>(length);
+			m_values = new AtomicReferenceArray<Object>(length);
+			m_size = size;
+			m_claimed_slots = new LongAdder();
+			m_next_table = new AtomicReference<Table>(null);
+			m_migration_index = new AtomicInteger(0);
+			m_migrated_slot_count = new AtomicInteger(0);
+		}
+
+		int length() {
+			return m_keys.length();
+		}
+	}
+
+	private final int m_initial_capacity;
+	private final float m_load_factor;
+	private final AtomicReference<Table> m_table;
+
+	/**
+	 * Constructs a ConcurrentHashTableOpenAddressing instance with initial
+	 * capacity of 16 elements and load factor of 0.75.
+	 */
+	public ConcurrentHashTableOpenAddressing() {
+		this(16, 0.75f);
+	}
+
+	/**
+	 * Constructs a ConcurrentHashTableOpenAddressing instance with given
+	 * initial capacity and load factor of 0.75.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero.
+	 */
+	public ConcurrentHashTableOpenAddressing(int initial_capacity) throws IllegalArgumentException {
+		this(initial_capacity, 0.75f);
+	}
+
+	/**
+	 * Constructs a ConcurrentHashTableOpenAddressing instance with given
+	 * initial capacity and load factor.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 * @param load_factor       The load factor determines the maximal number of
+	 *                          claimed key slots before the table is re-sized. This
+	 *                          value represents a percentage and is clamped to range
+	 *                          [0.1, 1.0].
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative.
+	 */
+	public ConcurrentHashTableOpenAddressing(int initial_capacity, float load_factor)
+			throws IllegalArgumentException {
+		if (initial_capacity <= 0) {
+			throw new IllegalArgumentException("initial_capacity must be positive");
+		}
+
+		if (load_factor < 0.0f) {
+			throw new IllegalArgumentException("load_factor must be non-negative");
+		}
+
+		m_initial_capacity = initial_capacity;
+		// A load factor close to zero would make every new key trigger a re-size
+		m_load_factor = Math.min(Math.max(load_factor, 0.1f), 1.0f);
+		m_table = new AtomicReference<Table>(new Table(m_initial_capacity, new LongAdder()));
+	}
+
+	/**
+	 * Computes the hash for the given key.
+	 *
+	 * @see HashTableBase#computeHash(Object)
+	 */
+	private static long computeHash(Object key) {
+		return key != null ? (long) key.hashCode() + Integer.MAX_VALUE + 1L : 2L * Integer.MAX_VALUE + 2L;
+	}
+
+	/**
+	 * The maximal number of slots probed for a key in a table of the given
+	 * length. Keys are never placed further away, so lookups that exceed
+	 * the limit move on to the next table.
+	 */
+	private static int reprobeLimit(int length) {
+		return 10 + (length >> 2);
+	}
+
+	private static Object wrapKey(Object key) {
+		return key != null ? key : NULL_KEY;
+	}
+
+	private static Object wrapValue(Object value) {
+		return value != null ? value : NULL_VALUE;
+	}
+
+	/**
+	 * Converts the raw slot value to the value returned to the user.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <ValueT> ValueT unwrapValue(Object value) {
+		return value == null || value == TOMBSTONE || value == NULL_VALUE ? null : (ValueT) value;
+	}
+
+	/**
+	 * Whether the raw slot value represents a mapping.
+	 */
+	private static boolean isPresent(Object value) {
+		return value != null && value != TOMBSTONE;
+	}
+
+	private static boolean keysEqual(Object slot_key, Object key) {
+		return slot_key == key || (slot_key != TOMBSTONE && key.equals(slot_key));
+	}
+
+	private static boolean valuesEqual(Object slot_value, Object value) {
+		return slot_value == value || value.equals(slot_value);
+	}
+
+	/**
+	 * Whether the table has so many claimed key slots that it should be
+	 * re-sized.
+	 */
+	private boolean isFull(Table table) {
+		return table.m_claimed_slots.sum() > m_load_factor * table.length();
+	}
+
+	/**
+	 * Looks up the key in the table, moving on to the next table if the
+	 * key has been migrated.
+	 *
+	 * @return The raw slot value, where null or TOMBSTONE means that the
+	 *         key isn't mapped.
+	 */
+	private Object get(Table table, Object key, long key_hash) {
+		int length = table.length();
+		int index = (int)(key_hash % length);
+		int reprobes = 0;
+
+		while (true) {
+			Object slot_key = table.m_keys.get(index);
+			if (slot_key == null) {
+				// Keys are never placed past an empty slot
+				return null;
+			}
+
+			if (keysEqual(slot_key, key)) {
+				Object value = table.m_values.get(index);
+				if (!(value instanceof Prime)) {
+					return value;
+				}
+				// The mapping is being migrated
+				return get(migrateSlotAndCheck(table, index, true), key, key_hash);
+			}
+
+			if (++reprobes >= reprobeLimit(length) || slot_key == TOMBSTONE) {
+				// The key is either in the next table or not mapped at all
+				Table next_table = table.m_next_table.get();
+				return next_table != null ? get(helpMigration(next_table), key, key_hash) : null;
+			}
+			index = (index + 1) % length;
+		}
+	}
+
+	/**
+	 * Atomically replaces the value of the key with new_value if the current
+	 * value matches expected_value.
+	 *
+	 * @param table           The table to start in.
+	 * @param key             The wrapped key.
+	 * @param key_hash        The hash of the key.
+	 * @param new_value       The wrapped new value, or TOMBSTONE to unmap the key.
+	 * @param expected_value  MATCH_ANY_OLD to replace any value, MATCH_PRESENT to
+	 *                        replace only a mapped key's value, null to replace only
+	 *                        a slot that has never had a value (used by the
+	 *                        migration) or a wrapped value to compare against.
+	 *
+	 * @return The raw value of the slot before the operation, where null or
+	 *         TOMBSTONE means that the key wasn't mapped. The new value has
+	 *         been placed if and only if the returned value matches
+	 *         expected_value.
+	 */
+	private Object putIfMatch(Table table, Object key, long key_hash, Object new_value, Object expected_value) {
+		int length = table.length();
+		int index = (int)(key_hash % length);
+		int reprobes = 0;
+
+		// Find or claim the key slot
+		while (true) {
+			Object slot_key = table.m_keys.get(index);
+			if (slot_key == null) {
+				if (new_value == TOMBSTONE ||
+						(expected_value != MATCH_ANY_OLD && expected_value != null)) {
+					// The operation only applies to the mapped keys
+					return TOMBSTONE;
+				}
+
+				if (table.m_keys.compareAndSet(index, null, key)) {
+					table.m_claimed_slots.increment();
+					break;
+				}
+				// Another thread claimed the slot in the meantime
+				slot_key = table.m_keys.get(index);
+			}
+
+			if (keysEqual(slot_key, key)) {
+				break;
+			}
+
+			if (++reprobes >= reprobeLimit(length) || slot_key == TOMBSTONE) {
+				// The key doesn't fit into this table or the table is being migrated
+				Table next_table = resizeTable(table, slot_key != TOMBSTONE);
+				if (expected_value != null) {
+					helpMigration(next_table);
+				}
+				return putIfMatch(next_table, key, key_hash, new_value, expected_value);
+			}
+			index = (index + 1) % length;
+		}
+
+		Object value = table.m_values.get(index);
+		Table next_table = table.m_next_table.get();
+		if (next_table == null && ((value == null && isFull(table)) || value instanceof Prime)) {
+			next_table = resizeTable(table, false);
+		}
+
+		if (next_table != null) {
+			// Once the table is being migrated all the modifications go to the next table
+			return putIfMatch(
+					migrateSlotAndCheck(table, index, expected_value != null),
+					key,
+					key_hash,
+					new_value,
+					expected_value);
+		}
+
+		// Update the value
+		while (true) {
+			if (value == new_value) {
+				return value;
+			}
+
+			boolean matches;
+			if (expected_value == MATCH_ANY_OLD) {
+				matches = true;
+			}
+			else if (expected_value == MATCH_PRESENT) {
+				matches = isPresent(value);
+			}
+			else if (expected_value == null) {
+				matches = value == null;
+			}
+			else {
+				matches = isPresent(value) && valuesEqual(value, expected_value);
+			}
+
+			if (!matches) {
+				return value;
+			}
+
+			if (table.m_values.compareAndSet(index, value, new_value)) {
+				// The migration moves the mappings and doesn't change the size
+				if (expected_value != null) {
+					if (!isPresent(value) && new_value != TOMBSTONE) {
+						table.m_size.increment();
+					}
+					else if (isPresent(value) && new_value == TOMBSTONE) {
+						table.m_size.decrement();
+					}
+				}
+				return value;
+			}
+
+			value = table.m_values.get(index);
+			if (value instanceof Prime) {
+				// The migration started in the meantime
+				return putIfMatch(
+						migrateSlotAndCheck(table, index, expected_value != null),
+						key,
+						key_hash,
+						new_value,
+						expected_value);
+			}
+		}
+	}
+
+	/**
+	 * Allocates the table that the given table is migrated to, unless
+	 * another thread already did that.
+	 *
+	 * The new table is sized so that the mappings occupy at most half of
+	 * the load factor. If the table has mostly been filled with unmapped
+	 * keys, the new table has the same length.
+	 *
+	 * @param table  The table to be re-sized.
+	 * @param grow   Whether the new table must be bigger even if there are
+	 *               few mappings. This is the case when a key didn't fit
+	 *               within the reprobe limit.
+	 *
+	 * @return The table that the given table is migrated to.
+	 *
+	 * @throws ArithmeticException if integer overflow happens when array
+	 *         size is increased.
+	 */
+	private Table resizeTable(Table table, boolean grow) throws ArithmeticException {
+		Table next_table = table.m_next_table.get();
+		if (next_table != null) {
+			return next_table;
+		}
+
+		// Account for the key that is being mapped
+		long required_size = table.m_size.sum() + 1;
+		long new_length = grow ? 2L * table.length() : table.length();
+		while (required_size > m_load_factor * new_length / 2) {
+			new_length *= 2;
+		}
+
+		if (new_length > Integer.MAX_VALUE) {
+			throw new ArithmeticException("Increased array size overflows the integer type");
+		}
+
+		// Only one thread succeeds in linking the new table
+		table.m_next_table.compareAndSet(null, new Table((int) new_length, table.m_size));
+		return table.m_next_table.get();
+	}
+
+	/**
+	 * Migrates the slot at the given index and optionally helps with
+	 * the migration of the other slots.
+	 *
+	 * @return The table that the given table is migrated to.
+	 */
+	private Table migrateSlotAndCheck(Table table, int index, boolean help) {
+		Table next_table = table.m_next_table.get();
+		if (migrateSlot(table, index, next_table)) {
+			promoteIfMigrated(table, next_table, 1);
+		}
+		return help ? helpMigration(next_table) : next_table;
+	}
+
+	/**
+	 * Migrates the slot at the given index to the next table.
+	 *
+	 * @return True if this thread completed the slot's migration. Exactly
+	 *         one thread returns true for each slot.
+	 */
+	private boolean migrateSlot(Table table, int index, Table next_table) {
+		// Prevent new keys from being placed in the empty slot
+		Object key;
+		while ((key = table.m_keys.get(index)) == null) {
+			table.m_keys.compareAndSet(index, null, TOMBSTONE);
+		}
+
+		// Freeze the value so that it can't be modified in this table anymore
+		Object value = table.m_values.get(index);
+		while (!(value instanceof Prime)) {
+			Prime frozen_value = isPresent(value) ? new Prime(value) : TOMBPRIME;
+			if (table.m_values.compareAndSet(index, value, frozen_value)) {
+				if (frozen_value == TOMBPRIME) {
+					// There is no mapping to be moved
+					return true;
+				}
+				value = frozen_value;
+				break;
+			}
+			value = table.m_values.get(index);
+		}
+
+		if (value == TOMBPRIME) {
+			// Another thread already migrated the slot
+			return false;
+		}
+
+		// Only the first thread to copy the value gets the null back
+		boolean copied = putIfMatch(next_table, key, computeHash(key == NULL_KEY ? null : key),
+				((Prime) value).m_value, null) == null;
+
+		// Mark the slot as migrated
+		while (value != TOMBPRIME && !table.m_values.compareAndSet(index, value, TOMBPRIME)) {
+			value = table.m_values.get(index);
+		}
+		return copied;
+	}
+
+	/**
+	 * Migrates a chunk of slots of the table that is currently being
+	 * re-sized, if there's one.
+	 *
+	 * @param helper  The table returned to the caller.
+	 *
+	 * @return The helper table.
+	 */
+	private Table helpMigration(Table helper) {
+		Table table = m_table.get();
+		Table next_table = table.m_next_table.get();
+		if (next_table == null) {
+			return helper;
+		}
+
+		int length = table.length();
+		int chunk_size = Math.min(length, MIGRATION_CHUNK_SIZE);
+
+		// Every slot is claimed twice, so that the slots claimed by a stalled
+		// thread get migrated by another thread in the second round. If the
+		// migration still isn't complete once the claims run out, the thread
+		// migrates all the slots. Migrating a slot that has already been
+		// migrated is cheap.
+		int start = table.m_migration_index.get();
+		while (start < 2L * length && !table.m_migration_index.compareAndSet(start, start + chunk_size)) {
+			start = table.m_migration_index.get();
+		}
+
+		int work_done = 0;
+		if (table.m_migrated_slot_count.get() < length) {
+			boolean migrate_all = start >= 2L * length;
+			int end = migrate_all ? length : chunk_size;
+			for (int i = 0; i < end; ++i) {
+				if (migrateSlot(table, migrate_all ? i : (start + i) % length, next_table)) {
+					++work_done;
+				}
+			}
+		}
+		promoteIfMigrated(table, next_table, work_done);
+		return helper;
+	}
+
+	/**
+	 * Records the migrated slots and replaces the table with the next
+	 * table once all the slots are migrated.
+	 */
+	private void promoteIfMigrated(Table table, Table next_table, int work_done) {
+		int migrated_slot_count = work_done > 0 ?
+				table.m_migrated_slot_count.addAndGet(work_done) :
+				table.m_migrated_slot_count.get();
+
+		if (migrated_slot_count == table.length()) {
+			// Fails if the table has been cleared in the meantime
+			m_table.compareAndSet(table, next_table);
+		}
+	}
+
+	/**
+	 * Checks whether given key is present in the map.
+	 *
+	 * @param key  The key to search for.
+	 *
+	 * @return True if key is found, false otherwise.
+	 */
+	@Override
+	public boolean containsKey(KeyT key) {
+		return isPresent(get(m_table.get(), wrapKey(key), computeHash(key)));
+	}
+
+	/**
+	 * Linearly scans the table, and the tables it is being migrated to,
+	 * searching for the specified value.
+	 *
+	 * The mappings modified during the scan might or might not be taken
+	 * into account.
+	 *
+	 * @param ref_value  The value to search for.
+	 *
+	 * @return True if the hash table contains the given value, false
+	 *         otherwise.
+	 */
+	@Override
+	public boolean containsValue(ValueT ref_value) {
+		Object wrapped_value = wrapValue(ref_value);
+		for (Table table = m_table.get(); table != null; table = table.m_next_table.get()) {
+			for (int i = 0; i < table.length(); ++i) {
+				Object value = table.m_values.get(i);
+				if (value instanceof Prime) {
+					// A frozen value is in this table until marked as migrated
+					value = ((Prime) value).m_value;
+				}
+
+				if (isPresent(value) && valuesEqual(value, wrapped_value)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns an iterator over a snapshot of the mappings.
+	 *
+	 * The snapshot is taken without locking when the method is called, by
+	 * scanning the current table and the tables it is being migrated to.
+	 * A key might be found in more than one of them while it's being
+	 * migrated, in which case the mapping found in the newest table is
+	 * kept. The snapshot is weakly consistent: the modifications made while
+	 * it is being taken might or might not be reflected.
+	 *
+	 * @return The iterator.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Iterator<Map.Entry<KeyT, ValueT>> iterator() {
+		Map<KeyT, ValueT> mappings = new HashMap<KeyT, ValueT>();
+		for (Table table = m_table.get(); table != null; table = table.m_next_table.get()) {
+			for (int i = 0; i < table.length(); ++i) {
+				Object key = table.m_keys.get(i);
+				Object value = table.m_values.get(i);
+				if (value instanceof Prime) {
+					// A frozen value is in this table until marked as migrated
+					value = ((Prime) value).m_value;
+				}
+
+				if (key != null && key != TOMBSTONE && isPresent(value)) {
+					ValueT unwrapped_value = unwrapValue(value);
+					mappings.put(key != NULL_KEY ? (KeyT) key : null, unwrapped_value);
+				}
+			}
+		}
+		return Collections.unmodifiableMap(mappings).entrySet().iterator();
+	}
+
+	/**
+	 * Returns the value that given key maps to.
+	 *
+	 * @param key  The key whose mapping is to be found.
+	 *
+	 * @return The value that key maps to of keys is present in the hash
+	 *         table, null otherwise. Note that null might also be returned
+	 *         if the key is present in the table but maps to a null value.
+	 */
+	@Override
+	public ValueT find(KeyT key) {
+		return unwrapValue(get(m_table.get(), wrapKey(key), computeHash(key)));
+	}
+
+	/**
+	 * Maps the key to value if the key is not already mapped in the table,
+	 * or updates the value if the key is already mapped.
+	 *
+	 * @param key    The key to be placed in the hash table.
+	 * @param value  The value to which key is mapped to.
+	 *
+	 * @return Returns the previous value that given key was mapped to, or
+	 *         null if key didn't have mapping. The null might also be
+	 *         returned if the key was previously mapped to a null value.
+	 *
+	 * @throws ArithmeticException if integer overflow happens when array
+	 *         size is increased.
+	 */
+	@Override
+	public ValueT map(KeyT key, ValueT value) throws ArithmeticException {
+		return unwrapValue(putIfMatch(m_table.get(), wrapKey(key), computeHash(key), wrapValue(value), MATCH_ANY_OLD));
+	}
+
+	/**
+	 * Removes the mapping with the given key.
+	 *
+	 * @param key  The key to unmap.
+	 *
+	 * @return Returns the value that key was mapped to, or NULL if key didn't
+	 *         have a mapping. NULL might also be returned if key was mapped
+	 *         to a NULL value.
+	 */
+	@Override
+	public ValueT unmap(KeyT key) {
+		return unwrapValue(putIfMatch(m_table.get(), wrapKey(key), computeHash(key), TOMBSTONE, MATCH_ANY_OLD));
+	}
+
+	/**
+	 * Removes the mapping with the key if it maps to the specified value.
+	 *
+	 * @param key    The key to unmap.
+	 * @param value  The value to compare against.
+	 *
+	 * @return Returns true if the mapping is removed from the table, false
+	 *         otherwise.
+	 */
+	@Override
+	public boolean unmap(KeyT key, ValueT value) {
+		Object wrapped_value = wrapValue(value);
+		Object previous_value = putIfMatch(m_table.get(), wrapKey(key), computeHash(key), TOMBSTONE, wrapped_value);
+		return isPresent(previous_value) && valuesEqual(previous_value, wrapped_value);
+	}
+
+	/**
+	 * Remaps the key to the specified value.
+	 *
+	 * If the key isn't found in the hash table the method has no effect.
+	 * This is the difference between map and remap methods.
+	 *
+	 * @param key    The key to remap.
+	 * @param value  The value that key is remapped to.
+	 *
+	 * @return The value that key was mapped to or null if the key had
+	 *         no mapping. Null return value may also indicate that key
+	 *         was previously mapped to the null value.
+	 */
+	@Override
+	public ValueT remap(KeyT key, ValueT value) {
+		return unwrapValue(putIfMatch(m_table.get(), wrapKey(key), computeHash(key), wrapValue(value), MATCH_PRESENT));
+	}
+
+	/**
+	 * The number of keys in the hash table.
+	 *
+	 * @return The number of keys.
+	 */
+	@Override
+	public int size() {
+		return (int) m_table.get().m_size.sum();
+	}
+
+	/**
+	 * Clears the table so that it contains no keys.
+	 *
+	 * The table is replaced with an empty one of initial capacity. The
+	 * modifications still in progress on the old table are lost.
+	 */
+	@Override
+	public void clear() {
+		m_table.set(new Table(m_initial_capacity, new LongAdder()));
+	}
+
+	/**
+	 * Whether table is empty.
+	 *
+	 * @return True if table is empty, false otherwise.
+	 */
+	@Override
+	public boolean isEmpty() {
+		return m_table.get().m_size.sum() == 0;
+	}
+}
@@ -0,0 +1,652 @@
+package com.toptalprep;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe hash table implementation that uses separate chaining to
+ * resolve key collisions.
+ *
+ * Instead of guarding the entire table with a single lock, the buckets
+ * are divided among a fixed number of lock stripes. The bucket at index
+ * i is guarded by the stripe (i % S) where S is the number of stripes.
+ * The array length is always kept a multiple of S, so the stripe of a
+ * bucket can also be computed directly from the key hash as (hash % S).
+ * As a consequence, a key is guarded by the same stripe no matter how
+ * many times the table is re-sized. Threads that modify keys guarded
+ * by different stripes never contend with each other.
+ *
+ * The lookups don't lock at all. The buckets are stored in an
+ * {@link AtomicReferenceArray} and the chain links and values are
+ * volatile, so a reader always sees a consistent chain: new mappings
+ * are published by pushing a fully constructed node to the front of
+ * the chain, and removed nodes keep pointing to their successor so a
+ * reader positioned at a removed node can still continue.
+ *
+ * The number of mappings is kept in a {@link LongAdder} so that the
+ * threads mapping and unmapping keys don't contend on a single counter.
+ *
+ * Re-sizing is cooperative and never blocks the readers. The thread that
+ * finds the table over its load factor allocates a twice as big table
+ * and then the stripes are migrated one at a time by every thread that
+ * maps or unmaps a key while the migration is in progress. A stripe is
+ * migrated while holding its lock, and its old buckets are frozen after
+ * that, so every operation simply follows a migrated stripe into the new
+ * table. Once the last stripe is migrated the new table replaces the old.
+ *
+ * The containsValue() and clear() methods are weakly consistent with
+ * respect to the concurrent modifications, and size() is a snapshot
+ * that might not reflect the modifications still in progress.
+ *
+ * Implementation allows null keys.
+ */
+public class ConcurrentHashTableSeparateChaining<KeyT, ValueT> implements HashTable<KeyT, ValueT> {
+	/**
+	 * A single mapping in a bucket's chain.
+	 */
+	private static class Node<KeyT, ValueT> {
+		final long m_hash;
+		final KeyT m_key;
+		volatile ValueT m_value;
+		volatile Node<KeyT, ValueT> m_next;
+
+		Node(long hash, KeyT key, ValueT value, Node<KeyT, ValueT> next) {
+			m_hash = hash;
+			m_key = key;
+			m_value = value;
+			m_next = next;
+		}
+
+		/**
+		 * Returns true if m_key is equal to other_key. Note that true is
+		 * returned if both m_key and other_key are null.
+		 */
+		boolean keyEquals(long other_hash, Object other_key) {
+			if (m_hash != other_hash) {
+				return false;
+			}
+			return m_key != null ? m_key.equals(other_key) : other_key == null;
+		}
+	}
+
+	/**
+	 * The array of buckets together with the state of its migration to
+	 * a bigger array.
+	 */
+	private static class Table<KeyT, ValueT> {
+		final AtomicReferenceArray<Node<KeyT, ValueT>> m_buckets;
+
+		/**
+		 * The table this table is being migrated to, or null if the table
+		 * isn't being re-sized.
+		 */
+		final AtomicReference<Table<KeyT, ValueT>> m_next_table;
+
+		/**
+		 * Non-zero at index s once the buckets of stripe s have been
+		 * moved to m_next_table.
+		 */
+		final AtomicIntegerArray m_migrated_stripes;
+
+		/**
+		 * The next stripe to be claimed by a thread helping with the
+		 * migration, and the number of stripes migrated so far.
+		 */
+		final AtomicInteger m_next_stripe_to_migrate;
+		final AtomicInteger m_migrated_stripe_count;
+
+		Table(int length, int stripe_count) {
+			m_buckets = new AtomicReferenceArray<Node<KeyT, ValueT>>(length);
+			m_next_table = new AtomicReference<Table<KeyT, ValueT>>(null);
+			m_migrated_stripes = new AtomicIntegerArray(stripe_count);
+			m_next_stripe_to_migrate = new AtomicInteger(0);
+			m_migrated_stripe_count = new AtomicInteger(0);
+		}
+
+		/**
+		 * Returns the table that holds the buckets of the given stripe.
+		 * That is this table unless the stripe has already been migrated.
+		 */
+		Table<KeyT, ValueT> tableForStripe(int stripe) {
+			Table<KeyT, ValueT> next_table = m_next_table.get();
+			return next_table != null && m_migrated_stripes.get(stripe) != 0 ? next_table : this;
+		}
+
+		/**
+		 * Returns the head of the bucket that the hash maps to.
+		 */
+		Node<KeyT, ValueT> bucketHead(long hash) {
+			return m_buckets.get(bucketIndex(hash));
+		}
+
+		int bucketIndex(long hash) {
+			// The cast is safe as the result is less than the array length
+			return (int)(hash % m_buckets.length());
+		}
+	}
+
+	private final int m_initial_capacity;
+	private final float m_load_factor;
+	private final ReentrantLock[] m_locks;
+	private final LongAdder m_size;
+	private final AtomicReference<Table<KeyT, ValueT>> m_table;
+
+	/**
+	 * Constructs a ConcurrentHashTableSeparateChaining instance with initial
+	 * capacity of 16 elements, load factor of 0.75 and 16 lock stripes.
+	 */
+	public ConcurrentHashTableSeparateChaining() {
+		this(16, 0.75f, 16);
+	}
+
+	/**
+	 * Constructs a ConcurrentHashTableSeparateChaining instance with given
+	 * initial capacity, load factor of 0.75 and 16 lock stripes.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero.
+	 */
+	public ConcurrentHashTableSeparateChaining(int initial_capacity) throws IllegalArgumentException {
+		this(initial_capacity, 0.75f, 16);
+	}
+
+	/**
+	 * Constructs a ConcurrentHashTableSeparateChaining instance with given
+	 * initial capacity and load factor, and 16 lock stripes.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table before it is re-sized. This value represents
+	 *                          a percentage and can be greater than 1.0.
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative.
+	 */
+	public ConcurrentHashTableSeparateChaining(int initial_capacity, float load_factor)
+			throws IllegalArgumentException {
+		this(initial_capacity, load_factor, 16);
+	}
+
+	/**
+	 * Constructs a ConcurrentHashTableSeparateChaining instance with given
+	 * initial capacity, load factor and the number of lock stripes.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity. It is rounded up
+	 *                          to a multiple of stripe_count.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table before it is re-sized. This value represents
+	 *                          a percentage and can be greater than 1.0.
+	 * @param stripe_count      The number of locks guarding the buckets. This is the
+	 *                          maximal number of threads that can modify the table
+	 *                          at the same time.
+	 *
+	 * @throws IllegalArgumentException if initial_capacity or stripe_count is less
+	 *         or equal to zero or load_factor is negative.
+	 */
+	public ConcurrentHashTableSeparateChaining(int initial_capacity, float load_factor, int stripe_count)
+			throws IllegalArgumentException {
+		if (initial_capacity <= 0) {
+			throw new IllegalArgumentException("initial_capacity must be positive");
+		}
+
+		if (load_factor < 0.0f) {
+			throw new IllegalArgumentException("load_factor must be non-negative");
+		}
+
+		if (stripe_count <= 0) {
+			throw new IllegalArgumentException("stripe_count must be positive");
+		}
+
+		// Round the capacity up to the multiple of the stripe count
+		long capacity = ((long) initial_capacity + stripe_count - 1) / stripe_count * stripe_count;
+		if (capacity > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("initial_capacity is too large");
+		}
+
+		m_initial_capacity = (int) capacity;
+		m_load_factor = load_factor;
+		m_locks = new ReentrantLock[stripe_count];
+		for (int i = 0; i < stripe_count; ++i) {
+			m_locks[i] = new ReentrantLock();
+		}
+		m_size = new LongAdder();
+		m_table = new AtomicReference<Table<KeyT, ValueT>>(
+				new Table<KeyT, ValueT>(m_initial_capacity, stripe_count));
+	}
+
+	/**
+	 * Computes the hash for the given key.
+	 *
+	 * @see HashTableBase#computeHash(Object)
+	 */
+	private static long computeHash(Object key) {
+		return key != null ? (long) key.hashCode() + Integer.MAX_VALUE + 1L : 2L * Integer.MAX_VALUE + 2L;
+	}
+
+	/**
+	 * Returns the lock stripe guarding the given hash.
+	 */
+	private int stripeOf(long hash) {
+		return (int)(hash % m_locks.length);
+	}
+
+	/**
+	 * Finds the node with the given key without locking.
+	 *
+	 * @return The node, or null if key is not mapped.
+	 */
+	private Node<KeyT, ValueT> findNode(long key_hash, KeyT key) {
+		Table<KeyT, ValueT> table = m_table.get().tableForStripe(stripeOf(key_hash));
+		for (Node<KeyT, ValueT> node = table.bucketHead(key_hash); node != null; node = node.m_next) {
+			if (node.keyEquals(key_hash, key)) {
+				return node;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether given key is present in the map.
+	 *
+	 * The method doesn't lock. Time complexity of this operation is O(K)
+	 * where K is the length of the bucket that key hashes to.
+	 *
+	 * @param key  The key to search for.
+	 *
+	 * @return True if key is found, false otherwise.
+	 */
+	@Override
+	public boolean containsKey(KeyT key) {
+		return findNode(computeHash(key), key) != null;
+	}
+
+	/**
+	 * Linearly scans the table searching for the specified value.
+	 *
+	 * The method doesn't lock, so the mappings modified during the scan
+	 * might or might not be taken into account.
+	 *
+	 * @param ref_value  The value to search for.
+	 *
+	 * @return True if the hash table contains the given value, false
+	 *         otherwise.
+	 */
+	@Override
+	public boolean containsValue(ValueT ref_value) {
+		Table<KeyT, ValueT> table = m_table.get();
+		for (int i = 0; i < table.m_buckets.length(); ++i) {
+			Table<KeyT, ValueT> stripe_table = table.tableForStripe(i % m_locks.length);
+			if (stripe_table != table) {
+				// The stripe has been migrated. Its buckets are checked below.
+				continue;
+			}
+
+			for (Node<KeyT, ValueT> node = table.m_buckets.get(i); node != null; node = node.m_next) {
+				ValueT value = node.m_value;
+				if ((ref_value != null && ref_value.equals(value)) || ref_value == value) {
+					return true;
+				}
+			}
+		}
+
+		Table<KeyT, ValueT> next_table = table.m_next_table.get();
+		if (next_table != null) {
+			for (int i = 0; i < next_table.m_buckets.length(); ++i) {
+				if (table.m_migrated_stripes.get(i % m_locks.length) == 0) {
+					continue;
+				}
+
+				for (Node<KeyT, ValueT> node = next_table.m_buckets.get(i); node != null; node = node.m_next) {
+					ValueT value = node.m_value;
+					if ((ref_value != null && ref_value.equals(value)) || ref_value == value) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns an iterator over a snapshot of the mappings.
+	 *
+	 * The snapshot is taken without locking, stripe by stripe, when the
+	 * method is called. Every mapping is listed at most once, since all the
+	 * buckets of a stripe are in the same table and the old buckets aren't
+	 * modified after they've been migrated. The snapshot is weakly
+	 * consistent: the modifications made while it is being taken might
+	 * or might not be reflected.
+	 *
+	 * @return The iterator.
+	 */
+	@Override
+	public Iterator<Map.Entry<KeyT, ValueT>> iterator() {
+		List<Map.Entry<KeyT, ValueT>> mappings = new ArrayList<Map.Entry<KeyT, ValueT>>();
+		Table<KeyT, ValueT> table = m_table.get();
+		for (int stripe = 0; stripe < m_locks.length; ++stripe) {
+			Table<KeyT, ValueT> stripe_table = table.tableForStripe(stripe);
+			for (int i = stripe; i < stripe_table.m_buckets.length(); i += m_locks.length) {
+				for (Node<KeyT, ValueT> node = stripe_table.m_buckets.get(i); node != null; node = node.m_next) {
+					mappings.add(new AbstractMap.SimpleImmutableEntry<KeyT, ValueT>(node.m_key, node.m_value));
+				}
+			}
+		}
+		return Collections.unmodifiableList(mappings).iterator();
+	}
+
+	/**
+	 * Returns the value that given key maps to.
+	 *
+	 * The method doesn't lock. Time complexity of this operation is O(K)
+	 * where K is the length of the bucket that key hashes to.
+	 *
+	 * @param key  The key whose mapping is to be found.
+	 *
+	 * @return The value that key maps to of keys is present in the hash
+	 *         table, null otherwise. Note that null might also be returned
+	 *         if the key is present in the table but maps to a null value.
+	 */
+	@Override
+	public ValueT find(KeyT key) {
+		Node<KeyT, ValueT> node = findNode(computeHash(key), key);
+		return node != null ? node.m_value : null;
+	}
+
+	/**
+	 * Starts re-sizing the table if its occupancy reached the load factor
+	 * and helps with the migration if the table is being re-sized.
+	 *
+	 * Must not be called while holding a stripe lock.
+	 */
+	private void resizeTableIfNeeded() {
+		Table<KeyT, ValueT> table = m_table.get();
+		if (table.m_next_table.get() == null) {
+			float occupancy = (float) m_size.sum() / table.m_buckets.length();
+			if (occupancy < m_load_factor) {
+				return;
+			}
+
+			int doubled_size = 2 * table.m_buckets.length();
+			if (doubled_size < 0) {
+				throw new ArithmeticException("Increased array size overflows the integer type");
+			}
+
+			// Only one thread succeeds in starting the migration
+			table.m_next_table.compareAndSet(null, new Table<KeyT, ValueT>(doubled_size, m_locks.length));
+		}
+		helpMigration(table);
+	}
+
+	/**
+	 * Migrates the stripes that haven't been claimed by another thread yet.
+	 *
+	 * @param table  The table being migrated.
+	 */
+	private void helpMigration(Table<KeyT, ValueT> table) {
+		Table<KeyT, ValueT> next_table = table.m_next_table.get();
+		if (next_table == null) {
+			return;
+		}
+
+		int stripe;
+		while ((stripe = table.m_next_stripe_to_migrate.getAndIncrement()) < m_locks.length) {
+			migrateStripe(table, next_table, stripe);
+		}
+	}
+
+	/**
+	 * Moves the buckets of the given stripe to the next table.
+	 *
+	 * The old nodes are copied rather than re-linked, so the readers still
+	 * traversing the old buckets are unaffected.
+	 */
+	private void migrateStripe(Table<KeyT, ValueT> table, Table<KeyT, ValueT> next_table, int stripe) {
+		ReentrantLock lock = m_locks[stripe];
+		lock.lock();
+		try {
+			for (int i = stripe; i < table.m_buckets.length(); i += m_locks.length) {
+				for (Node<KeyT, ValueT> node = table.m_buckets.get(i); node != null; node = node.m_next) {
+					int index = next_table.bucketIndex(node.m_hash);
+					next_table.m_buckets.set(
+							index,
+							new Node<KeyT, ValueT>(node.m_hash, node.m_key, node.m_value, next_table.m_buckets.get(index)));
+				}
+			}
+			table.m_migrated_stripes.set(stripe, 1);
+		}
+		finally {
+			lock.unlock();
+		}
+
+		if (table.m_migrated_stripe_count.incrementAndGet() == m_locks.length) {
+			// This was the last stripe. If the table has been cleared in the
+			// meantime, the new table is simply discarded.
+			m_table.compareAndSet(table, next_table);
+		}
+	}
+
+	/**
+	 * Maps the key to value if the key is not already mapped in the table,
+	 * or updates the value if the key is already mapped.
+	 *
+	 * Only the stripe guarding the key is locked. New mappings are inserted
+	 * at the front of the bucket.
+	 *
+	 * @param key    The key to be placed in the hash table.
+	 * @param value  The value to which key is mapped to.
+	 *
+	 * @return Returns the previous value that given key was mapped to, or
+	 *         null if key didn't have mapping. The null might also be
+	 *         returned if the key was previously mapped to a null value.
+	 *
+	 * @throws ArithmeticException if integer overflow happens when array
+	 *         size is increased.
+	 */
+	@Override
+	public ValueT map(KeyT key, ValueT value) throws ArithmeticException {
+		long key_hash = computeHash(key);
+		int stripe = stripeOf(key_hash);
+
+		ReentrantLock lock = m_locks[stripe];
+		lock.lock();
+		try {
+			Table<KeyT, ValueT> table = m_table.get().tableForStripe(stripe);
+			int index = table.bucketIndex(key_hash);
+			Node<KeyT, ValueT> head = table.m_buckets.get(index);
+
+			for (Node<KeyT, ValueT> node = head; node != null; node = node.m_next) {
+				if (node.keyEquals(key_hash, key)) {
+					// The key is already mapped. Update the value
+					ValueT previous_value = node.m_value;
+					node.m_value = value;
+					return previous_value;
+				}
+			}
+
+			table.m_buckets.set(index, new Node<KeyT, ValueT>(key_hash, key, value, head));
+			m_size.increment();
+		}
+		finally {
+			lock.unlock();
+		}
+
+		// Resize the table if needed
+		resizeTableIfNeeded();
+
+		return null;
+	}
+
+	/**
+	 * Removes the node with the given key, and optionally the given value,
+	 * from the table.
+	 *
+	 * @param key            The key to unmap.
+	 * @param value          The value to compare against.
+	 * @param compare_value  Whether the value must be compared.
+	 *
+	 * @return The removed node, or null if no node has been removed.
+	 */
+	private Node<KeyT, ValueT> removeNode(KeyT key, ValueT value, boolean compare_value) {
+		long key_hash = computeHash(key);
+		int stripe = stripeOf(key_hash);
+		Node<KeyT, ValueT> removed_node = null;
+
+		ReentrantLock lock = m_locks[stripe];
+		lock.lock();
+		try {
+			Table<KeyT, ValueT> table = m_table.get().tableForStripe(stripe);
+			int index = table.bucketIndex(key_hash);
+
+			Node<KeyT, ValueT> previous = null;
+			for (Node<KeyT, ValueT> node = table.m_buckets.get(index); node != null; node = node.m_next) {
+				if (node.keyEquals(key_hash, key)) {
+					ValueT current_value = node.m_value;
+					if (compare_value && !((value != null && value.equals(current_value)) || value == current_value)) {
+						break;
+					}
+
+					// Unlink the node. The node's own link is left intact so that
+					// concurrent readers positioned at it can continue.
+					if (previous == null) {
+						table.m_buckets.set(index, node.m_next);
+					}
+					else {
+						previous.m_next = node.m_next;
+					}
+					m_size.decrement();
+					removed_node = node;
+					break;
+				}
+				previous = node;
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+
+		// Help with the migration if the table is being re-sized
+		helpMigration(m_table.get());
+
+		return removed_node;
+	}
+
+	/**
+	 * Removes the mapping with the given key.
+	 *
+	 * @param key  The key to unmap.
+	 *
+	 * @return Returns the value that key was mapped to, or NULL if key didn't
+	 *         have a mapping. NULL might also be returned if key was mapped
+	 *         to a NULL value.
+	 */
+	@Override
+	public ValueT unmap(KeyT key) {
+		Node<KeyT, ValueT> removed_node = removeNode(key, null, false);
+		return removed_node != null ? removed_node.m_value : null;
+	}
+
+	/**
+	 * Removes the mapping with the key if it maps to the specified value.
+	 *
+	 * @param key    The key to unmap.
+	 * @param value  The value to compare against.
+	 *
+	 * @return Returns true if the mapping is removed from the table, false
+	 *         otherwise.
+	 */
+	@Override
+	public boolean unmap(KeyT key, ValueT value) {
+		return removeNode(key, value, true) != null;
+	}
+
+	/**
+	 * Remaps the key to the specified value.
+	 *
+	 * If the key isn't found in the hash table the method has no effect.
+	 * This is the difference between map and remap methods.
+	 *
+	 * @param key    The key to remap.
+	 * @param value  The value that key is remapped to.
+	 *
+	 * @return The value that key was mapped to or null if the key had
+	 *         no mapping. Null return value may also indicate that key
+	 *         was previously mapped to the null value.
+	 */
+	@Override
+	public ValueT remap(KeyT key, ValueT value) {
+		long key_hash = computeHash(key);
+		int stripe = stripeOf(key_hash);
+
+		ReentrantLock lock = m_locks[stripe];
+		lock.lock();
+		try {
+			Table<KeyT, ValueT> table = m_table.get().tableForStripe(stripe);
+			for (Node<KeyT, ValueT> node = table.bucketHead(key_hash); node != null; node = node.m_next) {
+				if (node.keyEquals(key_hash, key)) {
+					ValueT previous_value = node.m_value;
+					node.m_value = value;
+					return previous_value;
+				}
+			}
+			return null;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The number of keys in the hash table.
+	 *
+	 * @return The number of keys.
+	 */
+	@Override
+	public int size() {
+		return (int) m_size.sum();
+	}
+
+	/**
+	 * Clears the table so that it contains no keys.
+	 *
+	 * All the stripes are locked while the table is replaced, so the
+	 * modifications in progress either complete before the table is
+	 * cleared or are applied to the cleared table. The underlying array
+	 * is shrank to its initial capacity.
+	 */
+	@Override
+	public void clear() {
+		for (ReentrantLock lock : m_locks) {
+			lock.lock();
+		}
+		try {
+			m_table.set(new Table<KeyT, ValueT>(m_initial_capacity, m_locks.length));
+			m_size.reset();
+		}
+		finally {
+			for (ReentrantLock lock : m_locks) {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Whether table is empty.
+	 *
+	 * @return True if table is empty, false otherwise.
+	 */
+	@Override
+	public boolean isEmpty() {
+		return m_size.sum() == 0;
+	}
+}
@@ -0,0 +1,449 @@
+package com.toptalprep;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Hash table whose mappings expire a given time after they were written.
+ *
+ * The mappings are kept in entries that are indexed by a
+ * {@link HashTableLinearProbe} table. Every entry is also scheduled on a
+ * hierarchical timer wheel, so finding the expired mappings never scans
+ * the table.
+ *
+ * The wheel has LEVELS levels of SLOTS slots each. Like the ring buffer
+ * of {@link ImprovedQueue}, every level is a circular array: the slots
+ * of level L are SLOTS^L milliseconds wide and the slot of a time is the
+ * time in those units modulo SLOTS. An entry is placed on the lowest
+ * level whose span covers its remaining time to live, in the slot of its
+ * expiration time. The slots are intrusive doubly linked lists of the
+ * entries, so scheduling and cancelling an entry takes O(1) time.
+ *
+ * Whenever the clock has moved, the slots the time passed through are
+ * processed: their entries either expire or, if they are on a higher
+ * level, are re-scheduled on a lower level. An entry moves down at most
+ * LEVELS times before it expires, so the expiration costs O(1) amortized
+ * time per entry, and advancing the wheel visits at most SLOTS slots per
+ * level no matter how far the clock jumps.
+ *
+ * The wheel is advanced lazily by every operation, or by
+ * {@link #cleanUp()} which can be called from a maintenance task, so the
+ * expired mappings are never visible. The time is read from a pluggable
+ * millisecond clock.
+ *
+ * Both NULL keys and NULL values are allowed.
+ */
+public class ExpiringHashTable<KeyT, ValueT> implements HashTable<KeyT, ValueT> {
+	/**
+	 * The number of slots per level and the number of levels. The levels
+	 * cover the times to live of up to 2^36 milliseconds (more than 2
+	 * years). The longer ones wrap around the top level and are
+	 * re-scheduled every time their slot is processed.
+	 */
+	protected static final int SLOTS = 64;
+	protected static final int SLOT_BITS = 6;
+	protected static final int LEVELS = 6;
+
+	/**
+	 * A mapping scheduled on the wheel.
+	 */
+	protected class Entry {
+		final KeyT m_key;
+		ValueT m_value;
+		long m_expiration_time;
+		Entry m_previous;
+		Entry m_next;
+
+		Entry(KeyT key, ValueT value) {
+			m_key = key;
+			m_value = value;
+		}
+	}
+
+	protected final long m_default_time_to_live;
+	protected final LongSupplier m_clock;
+	protected final HashTableLinearProbe<KeyT, Entry> m_entries;
+
+	/**
+	 * The sentinels of the slot lists, indexed by level and slot.
+	 */
+	protected final Entry[][] m_wheel;
+
+	/**
+	 * The time the wheel has been advanced to.
+	 */
+	protected long m_time;
+	protected long m_expired_count;
+
+	/**
+	 * Constructs an ExpiringHashTable instance whose mappings expire after
+	 * the given time by default, using the System.nanoTime() clock.
+	 *
+	 * @param default_time_to_live  The time to live of the mappings, in
+	 *                              milliseconds.
+	 *
+	 * @throws IllegalArgumentException if default_time_to_live is less or
+	 *         equal to zero.
+	 */
+	public ExpiringHashTable(long default_time_to_live) throws IllegalArgumentException {
+		this(default_time_to_live, () -> System.nanoTime() / 1000000L);
+	}
+
+	/**
+	 * @see ExpiringHashTable#ExpiringHashTable(long)
+	 *
+	 * @param clock  The clock that returns the current time in milliseconds.
+	 *               It should never go back, and the wheel ignores the times
+	 *               that do.
+	 */
+	public ExpiringHashTable(long default_time_to_live, LongSupplier clock) throws IllegalArgumentException {
+		checkTimeToLive(default_time_to_live);
+		m_default_time_to_live = default_time_to_live;
+		m_clock = clock;
+		m_entries = new HashTableLinearProbe<KeyT, Entry>();
+		m_wheel = newWheel();
+		for (Entry[] level : m_wheel) {
+			for (int slot = 0; slot < SLOTS; ++slot) {
+				level[slot] = new Entry(null, null);
+				level[slot].m_previous = level[slot];
+				level[slot].m_next = level[slot];
+			}
+		}
+		m_time = clock.getAsLong();
+	}
+
+	/**
+	 * Allocates the slots of the wheel. Arrays of the inner Entry class
+	 * can only be created raw.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Entry[][] newWheel() {
+		return (Entry[][]) new ExpiringHashTable.Entry[LEVELS][SLOTS];
+	}
+
+	private static void checkTimeToLive(long time_to_live) throws IllegalArgumentException {
+		if (time_to_live <= 0) {
+			throw new IllegalArgumentException("time_to_live must be positive");
+		}
+	}
+
+	/**
+	 * The width of the slots of the given level, as a shift of the time.
+	 */
+	private static int slotShift(int level) {
+		return level * SLOT_BITS;
+	}
+
+	/**
+	 * Places the entry on the wheel, according to its expiration time.
+	 * The entry must expire after m_time.
+	 */
+	private void schedule(Entry entry) {
+		long time_to_live = entry.m_expiration_time - m_time;
+		int level = 0;
+		while (level < LEVELS - 1 && (time_to_live >>> slotShift(level + 1)) != 0) {
+			++level;
+		}
+
+		Entry sentinel = m_wheel[level][(int)(entry.m_expiration_time >> slotShift(level)) & (SLOTS - 1)];
+		entry.m_previous = sentinel;
+		entry.m_next = sentinel.m_next;
+		sentinel.m_next.m_previous = entry;
+		sentinel.m_next = entry;
+	}
+
+	private void unschedule(Entry entry) {
+		entry.m_previous.m_next = entry.m_next;
+		entry.m_next.m_previous = entry.m_previous;
+		entry.m_previous = null;
+		entry.m_next = null;
+	}
+
+	/**
+	 * Advances the wheel to the current time, expiring the mappings whose
+	 * expiration time has passed.
+	 */
+	private void advance() {
+		long now = m_clock.getAsLong();
+		long previous_time = m_time;
+		if (now <= previous_time) {
+			return;
+		}
+		m_time = now;
+
+		// A level only needs to be processed if the time moved to the next
+		// slot of the level, which also holds for all the levels below
+		for (int level = 0; level < LEVELS; ++level) {
+			long previous_ticks = previous_time >> slotShift(level);
+			long ticks = now >> slotShift(level);
+			if (ticks == previous_ticks) {
+				break;
+			}
+
+			long processed_ticks = Math.min(ticks - previous_ticks, SLOTS);
+			for (long tick = ticks - processed_ticks + 1; tick <= ticks; ++tick) {
+				processSlot(m_wheel[level][(int) tick & (SLOTS - 1)]);
+			}
+		}
+	}
+
+	/**
+	 * Expires the entries of the slot whose expiration time has passed and
+	 * re-schedules the others.
+	 */
+	private void processSlot(Entry sentinel) {
+		Entry entry = sentinel.m_next;
+		sentinel.m_previous = sentinel;
+		sentinel.m_next = sentinel;
+
+		while (entry != sentinel) {
+			Entry next = entry.m_next;
+			if (entry.m_expiration_time <= m_time) {
+				entry.m_previous = null;
+				entry.m_next = null;
+				m_entries.unmap(entry.m_key);
+				++m_expired_count;
+			}
+			else {
+				schedule(entry);
+			}
+			entry = next;
+		}
+	}
+
+	/**
+	 * Advances the wheel to the current time, expiring the mappings whose
+	 * time to live has passed. The other operations do this as well, so
+	 * calling this method is only needed to release the expired mappings
+	 * of a table that is not being used.
+	 */
+	public void cleanUp() {
+		advance();
+	}
+
+	/**
+	 * The number of mappings that have expired.
+	 *
+	 * @return The number of expired mappings.
+	 */
+	public long expiredCount() {
+		return m_expired_count;
+	}
+
+	/**
+	 * Checks whether given key is present in the map and hasn't expired.
+	 *
+	 * @param key  The key to search for.
+	 *
+	 * @return True if key is found, false otherwise.
+	 */
+	@Override
+	public boolean containsKey(KeyT key) {
+		advance();
+		return m_entries.containsKey(key);
+	}
+
+	/**
+	 * Linearly scans the table searching for the specified value.
+	 *
+	 * @param ref_value  The value to search for.
+	 *
+	 * @return True if the hash table contains the given value, false
+	 *         otherwise.
+	 */
+	@Override
+	public boolean containsValue(ValueT ref_value) {
+		advance();
+		for (Map.Entry<KeyT, Entry> mapping : m_entries) {
+			ValueT value = mapping.getValue().m_value;
+			if (value == null ? ref_value == null : value.equals(ref_value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the value that given key maps to.
+	 *
+	 * @param key  The key whose mapping is to be found.
+	 *
+	 * @return The value that key maps to if key is present in the hash
+	 *         table and hasn't expired, null otherwise. Note that null
+	 *         might also be returned if the key maps to a null value.
+	 */
+	@Override
+	public ValueT find(KeyT key) {
+		advance();
+		Entry entry = m_entries.find(key);
+		return entry != null ? entry.m_value : null;
+	}
+
+	/**
+	 * Maps the key to value with the default time to live.
+	 *
+	 * @see ExpiringHashTable#map(Object, Object, long)
+	 */
+	@Override
+	public ValueT map(KeyT key, ValueT value) {
+		return map(key, value, m_default_time_to_live);
+	}
+
+	/**
+	 * Maps the key to value if the key is not already mapped in the table,
+	 * or updates the value if the key is already mapped. Either way, the
+	 * mapping expires after the given time.
+	 *
+	 * @param key           The key to be placed in the hash table.
+	 * @param value         The value to which key is mapped to.
+	 * @param time_to_live  The time to live of the mapping, in milliseconds.
+	 *
+	 * @return Returns the previous value that given key was mapped to, or
+	 *         null if key didn't have mapping. The null might also be
+	 *         returned if the key was previously mapped to a null value.
+	 *
+	 * @throws IllegalArgumentException if time_to_live is less or equal to
+	 *         zero.
+	 */
+	public ValueT map(KeyT key, ValueT value, long time_to_live) throws IllegalArgumentException {
+		checkTimeToLive(time_to_live);
+		advance();
+
+		ValueT previous_value = null;
+		Entry entry = m_entries.find(key);
+		if (entry != null) {
+			previous_value = entry.m_value;
+			entry.m_value = value;
+			unschedule(entry);
+		}
+		else {
+			entry = new Entry(key, value);
+			m_entries.map(key, entry);
+		}
+
+		// The expiration time saturates instead of overflowing
+		long expiration_time = m_time + time_to_live;
+		entry.m_expiration_time = expiration_time < m_time ? Long.MAX_VALUE : expiration_time;
+		schedule(entry);
+		return previous_value;
+	}
+
+	/**
+	 * Removes the mapping with the given key.
+	 *
+	 * @param key  The key to unmap.
+	 *
+	 * @return Returns the value that key was mapped to, or null if key didn't
+	 *         have a mapping. Null might also be returned if key was mapped
+	 *         to a null value.
+	 */
+	@Override
+	public ValueT unmap(KeyT key) {
+		advance();
+		Entry entry = m_entries.unmap(key);
+		if (entry == null) {
+			return null;
+		}
+		unschedule(entry);
+		return entry.m_value;
+	}
+
+	/**
+	 * Removes the mapping with the key if it maps to the specified value.
+	 *
+	 * @param key    The key to unmap.
+	 * @param value  The value to compare against.
+	 *
+	 * @return Returns true if the mapping is removed from the table, false
+	 *         otherwise.
+	 */
+	@Override
+	public boolean unmap(KeyT key, ValueT value) {
+		advance();
+		Entry entry = m_entries.find(key);
+		if (entry == null || !(entry.m_value == null ? value == null : entry.m_value.equals(value))) {
+			return false;
+		}
+		m_entries.unmap(key);
+		unschedule(entry);
+		return true;
+	}
+
+	/**
+	 * Remaps the key to the specified value, with the default time to live.
+	 *
+	 * If the key isn't found in the hash table the method has no effect.
+	 * This is the difference between map and remap methods.
+	 *
+	 * @param key    The key to remap.
+	 * @param value  The value that key is remapped to.
+	 *
+	 * @return The value that key was mapped to or null if the key had
+	 *         no mapping. Null return value may also indicate that key
+	 *         was previously mapped to the null value.
+	 */
+	@Override
+	public ValueT remap(KeyT key, ValueT value) {
+		return containsKey(key) ? map(key, value) : null;
+	}
+
+	/**
+	 * Returns an iterator over the mappings that haven't expired.
+	 *
+	 * @see HashTable#iterator()
+	 */
+	@Override
+	public Iterator<Map.Entry<KeyT, ValueT>> iterator() {
+		advance();
+		Iterator<Map.Entry<KeyT, Entry>> iterator = m_entries.iterator();
+		return new Iterator<Map.Entry<KeyT, ValueT>>() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Map.Entry<KeyT, ValueT> next() {
+				Map.Entry<KeyT, Entry> mapping = iterator.next();
+				return new AbstractMap.SimpleImmutableEntry<KeyT, ValueT>(mapping.getKey(), mapping.getValue().m_value);
+			}
+		};
+	}
+
+	/**
+	 * The number of keys in the hash table that haven't expired.
+	 *
+	 * @return The number of keys.
+	 */
+	@Override
+	public int size() {
+		advance();
+		return m_entries.size();
+	}
+
+	/**
+	 * Clears the table so that it contains no keys.
+	 */
+	@Override
+	public void clear() {
+		m_entries.clear();
+		for (Entry[] level : m_wheel) {
+			for (Entry sentinel : level) {
+				sentinel.m_previous = sentinel;
+				sentinel.m_next = sentinel;
+			}
+		}
+	}
+
+	/**
+	 * Whether table is empty.
+	 *
+	 * @return True if table is empty, false otherwise.
+	 */
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+}
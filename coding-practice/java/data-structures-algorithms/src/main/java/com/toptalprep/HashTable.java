@@ -1,9 +1,19 @@
 package com.toptalprep;
 
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
 /**
  * Defines the common hash table interface.
+ *
+ * The mappings can be enumerated as Map.Entry instances using the
+ * iterator, the forEach methods or a (possibly parallel) stream created
+ * from the spliterator via StreamSupport.stream(). The iteration order
+ * is unspecified. Unless an implementation states otherwise, the table
+ * must not be modified while its mappings are being enumerated.
  */
-public interface HashTable<KeyT, ValueT> {
+public interface HashTable<KeyT, ValueT> extends Iterable<Map.Entry<KeyT, ValueT>> {
 	/**
 	 * Checks whether given key is present in the map.
 	 *
@@ -84,6 +94,98 @@ public interface HashTable<KeyT, ValueT> {
 	 */
 	ValueT remap(KeyT key, ValueT value);
 	
+	/**
+	 * Finds the values that the given keys map to.
+	 *
+	 * The default implementation calls find() for every key. The hash
+	 * tables may override it to look up the keys in batches.
+	 *
+	 * @param keys  The keys whose mappings are to be found.
+	 * @param out   The array that receives the values. out[i] is set to the
+	 *              value keys[i] maps to, or null if keys[i] isn't mapped.
+	 *
+	 * @throws IllegalArgumentException if keys and out aren't of the same
+	 *         length.
+	 */
+	default void findAll(KeyT[] keys, ValueT[] out) throws IllegalArgumentException {
+		if (keys.length != out.length) {
+			throw new IllegalArgumentException("keys and out must be of the same length");
+		}
+		
+		for (int i = 0; i < keys.length; ++i) {
+			out[i] = find(keys[i]);
+		}
+	}
+	
+	/**
+	 * Maps every key to the value at the same index, as if map() was
+	 * called for the keys in order. If a key appears more than once, it
+	 * ends up mapped to the value of its last occurrence.
+	 *
+	 * The default implementation calls map() for every key. The hash
+	 * tables may override it to map the keys in batches.
+	 *
+	 * @param keys    The keys to be placed in the hash table.
+	 * @param values  The values to which the keys are mapped to.
+	 *
+	 * @throws IllegalArgumentException if keys and values aren't of the
+	 *         same length.
+	 */
+	default void mapAll(KeyT[] keys, ValueT[] values) throws IllegalArgumentException {
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException("keys and values must be of the same length");
+		}
+		
+		for (int i = 0; i < keys.length; ++i) {
+			map(keys[i], values[i]);
+		}
+	}
+	
+	/**
+	 * Checks whether all the given keys are present in the map.
+	 *
+	 * The default implementation calls containsKey() for every key. The
+	 * hash tables may override it to look up the keys in batches.
+	 *
+	 * @param keys  The keys to search for.
+	 *
+	 * @return True if every key is found (or keys is empty), false
+	 *         otherwise.
+	 */
+	default boolean containsAll(KeyT[] keys) {
+		for (KeyT key : keys) {
+			if (!containsKey(key)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns an iterator over the mappings of the table.
+	 *
+	 * The returned entries are immutable snapshots of the mappings, and
+	 * the mappings can't be removed via the iterator.
+	 *
+	 * @return The iterator.
+	 */
+	@Override
+	Iterator<Map.Entry<KeyT, ValueT>> iterator();
+	
+	/**
+	 * Passes the key and the value of every mapping to the action.
+	 *
+	 * The default implementation uses the iterator. The hash tables may
+	 * override it to avoid creating the Map.Entry instances.
+	 *
+	 * @param action  The action to be performed for every mapping.
+	 */
+	default void forEach(BiConsumer<? super KeyT, ? super ValueT> action) {
+		for (Map.Entry<KeyT, ValueT> mapping : this) {
+			action.accept(mapping.getKey(), mapping.getValue());
+		}
+	}
+	
 	/**
 	 * The number of keys in the hash table.
 	 *
@@ -1,5 +1,26 @@
 package com.toptalprep;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
 import javax.naming.OperationNotSupportedException;
 
 /**
@@ -8,11 +29,15 @@ import javax.naming.OperationNotSupportedException;
  * Implements the common hash table functionality shared by all the
  * hash table implementations.
  *
- * A simple modulo function is used to compute the array index for
- * the given key hash:
+ * By default, a simple modulo function is used to compute the array
+ * index for the given key hash:
  *
  * array_index = hash(k) % array_size
  *
+ * The way the key hash is spread before it is mapped to the array index
+ * and the way it is reduced to the array index are configurable via the
+ * {@link HashMixer} and {@link IndexReducer} options.
+ *
  * The Object.hashCode method is used to obtain the hash of the key
  * value, and Object.equals to test keys for equality. It is the
  * responsibility of the user to make sure that the custom classes used
@@ -20,6 +45,298 @@ import javax.naming.OperationNotSupportedException;
  * will be used).
  */
 public abstract class HashTableBase<KeyT, ValueT> implements HashTable<KeyT, ValueT> {
+	/**
+	 * Determines how the mappings are moved to the new array when the
+	 * table is re-sized.
+	 */
+	public enum ResizeMode implements HashTableOption {
+		/**
+		 * All the mappings are moved by the operation that triggered the
+		 * re-size. The operation takes O(N) time where N is the number of
+		 * mappings, while all the other operations are unaffected.
+		 */
+		ALL_AT_ONCE,
+
+		/**
+		 * Both the old and the new array are kept while the mappings are
+		 * moved, and every operation moves the mappings from a bounded
+		 * number of old array cells (see {@link HashTableBase#INCREMENTAL_RESIZE_STEP}).
+		 * Lookups check both arrays until all the mappings are moved. No
+		 * single operation pays for the entire re-size, at the expense of
+		 * somewhat slower operations while the re-size is in progress.
+		 */
+		INCREMENTAL
+	}
+
+	/**
+	 * Determines whether the table shrinks once mappings are removed.
+	 */
+	public enum ShrinkMode implements HashTableOption {
+		/**
+		 * The array is never shrunk implicitly. It only gets shorter when
+		 * trimToSize() is called or the table is cleared.
+		 */
+		NEVER,
+
+		/**
+		 * The array is halved once the occupancy drops below a quarter of
+		 * the load factor, until the occupancy is below half of the load
+		 * factor or the array is back at its initial capacity. As the
+		 * array is doubled when the occupancy reaches the load factor, the
+		 * table needs its size doubled after a shrink to grow again, and
+		 * its size halved after a growth to shrink again, so the
+		 * workloads that map and unmap around a threshold don't keep
+		 * re-sizing the table.
+		 */
+		AUTOMATIC
+	}
+
+	/**
+	 * Determines how containsValue() finds the values.
+	 */
+	public enum ValueIndexMode implements HashTableOption {
+		/**
+		 * containsValue() scans the table, which takes O(N) time where N is
+		 * the size of the array. The other operations are unaffected.
+		 */
+		NONE,
+
+		/**
+		 * The table keeps an index that maps every value to the number of
+		 * mappings with that value, so containsValue() takes constant
+		 * expected time. The index is updated by every operation that adds,
+		 * removes or changes a mapping, which makes these operations do
+		 * an extra hash table lookup and takes memory proportional to the
+		 * number of distinct values.
+		 *
+		 * The values must override hashCode() consistently with equals(),
+		 * and must not be modified in a way that affects these methods
+		 * while they are in the table.
+		 */
+		REFCOUNT
+	}
+
+	/**
+	 * Determines how the hash returned by the key's hashCode method is
+	 * spread before it is mapped to the array index.
+	 *
+	 * Poorly distributed hash codes, such as the ones of sequential Integer
+	 * and Long keys, map to runs of adjacent array indices, which makes
+	 * the probe sequences of the open addressing tables long, and when
+	 * they are multiples of the array length they all map to the same
+	 * index. A mixer spreads the hash codes so that every bit of the hash
+	 * code affects every bit of the mixed hash.
+	 *
+	 * All the mixers, except {@link #IDENTITY}, produce 32-bit hashes.
+	 */
+	public enum HashMixer implements HashTableOption {
+		/**
+		 * The hash code is used as is.
+		 */
+		IDENTITY {
+			@Override
+			long mix(long hash) {
+				return hash;
+			}
+		},
+
+		/**
+		 * The finalization step (fmix32) of the MurmurHash3 hash function.
+		 */
+		MURMUR3 {
+			@Override
+			long mix(long hash) {
+				int h = (int) hash;
+				h ^= h >>> 16;
+				h *= 0x85EBCA6B;
+				h ^= h >>> 13;
+				h *= 0xC2B2AE35;
+				h ^= h >>> 16;
+				return h & 0xFFFFFFFFL;
+			}
+		},
+
+		/**
+		 * The avalanche step of the 32-bit xxHash hash function.
+		 */
+		XXHASH {
+			@Override
+			long mix(long hash) {
+				int h = (int) hash;
+				h ^= h >>> 15;
+				h *= 0x85EBCA77;
+				h ^= h >>> 13;
+				h *= 0xC2B2AE3D;
+				h ^= h >>> 16;
+				return h & 0xFFFFFFFFL;
+			}
+		},
+
+		/**
+		 * Fibonacci (multiplicative) hashing. The hash is multiplied by
+		 * 2^64 divided by the golden ratio and the upper 32 bits of the
+		 * product are used. It is cheaper than the other mixers and works
+		 * well with the {@link IndexReducer#MASK} reducer, since the upper
+		 * bits of the product depend on all the bits of the hash.
+		 */
+		FIBONACCI {
+			@Override
+			long mix(long hash) {
+				return (hash * 0x9E3779B97F4A7C15L) >>> 32;
+			}
+		};
+
+		/**
+		 * Mixes the hash.
+		 *
+		 * @param hash  The hash as computed by {@link HashTableBase#computeHash(Object)}
+		 *              with the IDENTITY mixer.
+		 *
+		 * @return The mixed hash. The value is never negative.
+		 */
+		abstract long mix(long hash);
+	}
+
+	/**
+	 * Determines how the (mixed) key hash is reduced to the array index.
+	 */
+	public enum IndexReducer implements HashTableOption {
+		/**
+		 * array_index = hash % array_size
+		 *
+		 * Works with any array size, but the 64-bit division is the most
+		 * expensive of the reductions.
+		 */
+		MODULO {
+			@Override
+			int reduce(long hash, int array_length) {
+				return (int)(hash % array_length);
+			}
+		},
+
+		/**
+		 * array_index = hash & (array_size - 1)
+		 *
+		 * Uses only the lower bits of the hash, and requires the array size
+		 * to be a power of 2. Hash tables that can't guarantee that reject
+		 * this option.
+		 */
+		MASK {
+			@Override
+			int reduce(long hash, int array_length) {
+				return (int)(hash & (array_length - 1));
+			}
+		},
+
+		/**
+		 * array_index = (hash * array_size) >> 32
+		 *
+		 * Lemire's fast range reduction maps the lower 32 bits of the hash
+		 * to the array index using a multiplication instead of the division,
+		 * and works with any array size. As it uses the upper bits of the
+		 * 32-bit hash, it should be combined with one of the hash mixers.
+		 */
+		FAST_RANGE {
+			@Override
+			int reduce(long hash, int array_length) {
+				return (int)(((hash & 0xFFFFFFFFL) * array_length) >>> 32);
+			}
+		};
+
+		/**
+		 * Reduces the hash to the array index.
+		 *
+		 * @param hash          The non-negative key hash.
+		 * @param array_length  The length of the array.
+		 *
+		 * @return The array index within [0, array_length).
+		 */
+		abstract int reduce(long hash, int array_length);
+	}
+
+	/**
+	 * Splits the mappings of the table by cell index range, so that the
+	 * parallel streams can scan the different parts of the table on
+	 * different threads. The cells are numbered as described in
+	 * {@link HashTableBase#cellCount()}.
+	 *
+	 * The ranges are split in halves. The mappings of a cell are buffered
+	 * by tryAdvance(), since a cell might hold more than one mapping.
+	 */
+	private class CellSpliterator implements Spliterator<Map.Entry<KeyT, ValueT>> {
+		private int m_cell;
+		private final int m_end;
+		
+		/**
+		 * The mappings of the last cell visited by tryAdvance() that haven't
+		 * been passed to the action yet.
+		 */
+		private final ArrayList<Map.Entry<KeyT, ValueT>> m_pending;
+		private int m_pending_index;
+		
+		CellSpliterator(int begin, int end) {
+			m_cell = begin;
+			m_end = end;
+			m_pending = new ArrayList<Map.Entry<KeyT, ValueT>>();
+			m_pending_index = 0;
+		}
+		
+		@Override
+		public boolean tryAdvance(Consumer<? super Map.Entry<KeyT, ValueT>> action) {
+			while (m_pending_index == m_pending.size()) {
+				if (m_cell >= m_end) {
+					return false;
+				}
+				
+				m_pending.clear();
+				m_pending_index = 0;
+				forEachInCell(m_cell++, (key, value) -> m_pending.add(
+						new AbstractMap.SimpleImmutableEntry<KeyT, ValueT>(key, value)));
+			}
+			
+			action.accept(m_pending.get(m_pending_index++));
+			return true;
+		}
+		
+		@Override
+		public void forEachRemaining(Consumer<? super Map.Entry<KeyT, ValueT>> action) {
+			while (m_pending_index < m_pending.size()) {
+				action.accept(m_pending.get(m_pending_index++));
+			}
+			
+			while (m_cell < m_end) {
+				forEachInCell(m_cell++, (key, value) -> action.accept(
+						new AbstractMap.SimpleImmutableEntry<KeyT, ValueT>(key, value)));
+			}
+		}
+		
+		@Override
+		public Spliterator<Map.Entry<KeyT, ValueT>> trySplit() {
+			int middle = m_cell + ((m_end - m_cell) >>> 1);
+			if (middle == m_cell) {
+				return null;
+			}
+			
+			// The pending mappings stay with this spliterator. The order
+			// doesn't matter as the spliterator isn't ORDERED.
+			CellSpliterator prefix = new CellSpliterator(m_cell, middle);
+			m_cell = middle;
+			return prefix;
+		}
+		
+		@Override
+		public long estimateSize() {
+			// Assume that the mappings are evenly spread among the cells
+			long remaining_cells = Math.max(0, m_end - m_cell);
+			return (m_pending.size() - m_pending_index) + m_size * remaining_cells / Math.max(1, cellCount());
+		}
+		
+		@Override
+		public int characteristics() {
+			return Spliterator.DISTINCT | Spliterator.NONNULL;
+		}
+	}
+	
 	protected class KeyValuePair {
 		/**
 		 * The key.
@@ -41,9 +358,19 @@ public abstract class HashTableBase<KeyT, ValueT> implements HashTable<KeyT, Val
 		 */
 		ValueT m_value;
 		
-		public KeyValuePair(Object key, ValueT value) {
+		/**
+		 * The hash of the key as returned by {@link HashTableBase#computeHash(Object)}.
+		 * It is compared before the keys are, so that equals() is only
+		 * called for the keys whose hashes match, and reused whenever the
+		 * mapping has to be placed again (e.g. when the table is re-sized),
+		 * so hashCode() is called only once per mapping.
+		 */
+		final long m_hash;
+		
+		public KeyValuePair(Object key, ValueT value, long hash) {
 			m_key = key;
 			m_value = value;
+			m_hash = hash;
 		}
 		
 		/**
@@ -101,12 +428,97 @@ public abstract class HashTableBase<KeyT, ValueT> implements HashTable<KeyT, Val
 			
 			return m_key != null ? m_key.equals(other_key) : false;
 		}
+		
+		/**
+		 * Returns true if m_key is equal to other_key. The cached hash is
+		 * compared first, so equals() is only called if the hashes match.
+		 *
+		 * @param other_hash  The hash of other_key as returned by computeHash.
+		 * @param other_key   The key to compare with.
+		 *
+		 * @return True if m_key is equal to other_key, false otherwise.
+		 */
+		public boolean keyEquals(long other_hash, Object other_key) {
+			return m_hash == other_hash && keyEquals(other_key);
+		}
 	}
 	
 	protected int m_size;
 	protected final int m_initial_capacity;
 	protected final float m_load_factor;
 	protected Object[] m_array;
+	protected final HashMixer m_hash_mixer;
+	protected final IndexReducer m_index_reducer;
+	protected final boolean m_auto_shrink;
+	
+	/**
+	 * The array length from which the batch operations probe the batches
+	 * in stages (see findBatch()). The shorter arrays are probed key by
+	 * key.
+	 */
+	protected int m_staged_batch_min_length;
+	
+	/**
+	 * The number of mappings with every value in the table, in the
+	 * {@link ValueIndexMode#REFCOUNT} mode. NULL otherwise.
+	 */
+	protected final HashTableSeparateChaining<ValueT, int[]> m_value_counts;
+	
+	/**
+	 * The runtime statistics of the table if {@link HashTableStats#ENABLED},
+	 * NULL otherwise.
+	 */
+	protected final HashTableStats m_stats;
+	
+	/**
+	 * The number of old array cells whose mappings are moved by every
+	 * operation while the table is being re-sized incrementally.
+	 */
+	protected static final int INCREMENTAL_RESIZE_STEP = 16;
+	
+	/**
+	 * The number of keys whose hashes are computed ahead of the probes by
+	 * the batch operations (findAll, mapAll and containsAll), and which
+	 * the tables probe in stages (see findBatch()).
+	 */
+	protected static final int BATCH_SIZE = 32;
+	
+	/**
+	 * The default array length from which the batches are probed in
+	 * stages. The stages only pay off once the array no longer fits in the
+	 * CPU caches, so the probes have cache misses to overlap. In a smaller
+	 * table the extra passes over the batch make them slower than the
+	 * single key probes (see BatchLookupBenchmark).
+	 */
+	protected static final int STAGED_BATCH_MIN_LENGTH = 1 << 20;
+	
+	/**
+	 * The snapshot header fields, the flags that mark the NULL key and
+	 * value of a mapping in the snapshot, and the size of the buffer the
+	 * snapshots are written and read through.
+	 */
+	protected static final int SNAPSHOT_MAGIC = 0x48545350;
+	protected static final int SNAPSHOT_VERSION = 1;
+	protected static final int SNAPSHOT_NULL_KEY = 1;
+	protected static final int SNAPSHOT_NULL_VALUE = 2;
+	protected static final int SNAPSHOT_BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * The maximal number of snapshot mappings the table is re-sized for
+	 * before they are read. The size in the header isn't trusted beyond
+	 * that, so a corrupted header can't make the table allocate a huge
+	 * array. Larger snapshots grow the table as they are read.
+	 */
+	protected static final int SNAPSHOT_MAX_PRESIZE = 1 << 20;
+	
+	/**
+	 * The array being emptied while the table is re-sized in the
+	 * {@link ResizeMode#INCREMENTAL} mode, or NULL if no re-size is in
+	 * progress. The cells below m_migration_index have already been
+	 * moved to m_array.
+	 */
+	protected Object[] m_old_array;
+	protected int m_migration_index;
 	
 	/**
 	 * Initializes the HashTableBase instance.
@@ -120,6 +532,25 @@ public abstract class HashTableBase<KeyT, ValueT> implements HashTable<KeyT, Val
 	 *         or load_factor is negative.
 	 */
 	protected HashTableBase(int initial_capacity, float load_factor) throws IllegalArgumentException {
+		this(initial_capacity, load_factor, new HashTableOption[0]);
+	}
+	
+	/**
+	 * @see HashTableBase#HashTableBase(int, float)
+	 *
+	 * @param options  The options that configure the table. The
+	 *                 {@link HashMixer}, {@link IndexReducer},
+	 *                 {@link ValueIndexMode} and {@link ShrinkMode} options
+	 *                 are recognized. The {@link HashMixer#IDENTITY} mixer,
+	 *                 the {@link IndexReducer#MODULO} reducer and the
+	 *                 {@link ValueIndexMode#NONE} and {@link ShrinkMode#NEVER}
+	 *                 modes are used if not specified.
+	 *
+	 * @throws IllegalArgumentException if the {@link IndexReducer#MASK}
+	 *         reducer is requested and initial_capacity isn't a power of 2.
+	 */
+	protected HashTableBase(int initial_capacity, float load_factor, HashTableOption... options)
+			throws IllegalArgumentException {
 		if (initial_capacity <= 0) {
 			throw new IllegalArgumentException("initial_capacity must be positive");
 		}
@@ -132,6 +563,89 @@ public abstract class HashTableBase<KeyT, ValueT> implements HashTable<KeyT, Val
 		m_initial_capacity = initial_capacity;
 		m_load_factor = load_factor;
 		m_array = new Object[m_initial_capacity];
+		m_hash_mixer = findOption(HashMixer.class, HashMixer.IDENTITY, options);
+		m_index_reducer = findOption(IndexReducer.class, IndexReducer.MODULO, options);
+		m_auto_shrink = findOption(ShrinkMode.class, ShrinkMode.NEVER, options) == ShrinkMode.AUTOMATIC;
+		m_staged_batch_min_length = STAGED_BATCH_MIN_LENGTH;
+		m_value_counts =
+				findOption(ValueIndexMode.class, ValueIndexMode.NONE, options) == ValueIndexMode.REFCOUNT ?
+						new HashTableSeparateChaining<ValueT, int[]>() : null;
+		m_stats = HashTableStats.ENABLED ? new HashTableStats(this) : null;
+		
+		if (m_index_reducer == IndexReducer.MASK && Integer.bitCount(initial_capacity) != 1) {
+			throw new IllegalArgumentException("MASK index reducer requires initial_capacity to be a power of 2");
+		}
+	}
+	
+	/**
+	 * Finds the option of the given type among the options passed in to
+	 * the hash table constructor.
+	 *
+	 * @param option_type    The class of the option group (e.g. an enum
+	 *                       implementing {@link HashTableOption}).
+	 * @param default_value  The value returned if no option of the given
+	 *                       type has been specified.
+	 * @param options        The options passed in to the constructor.
+	 *
+	 * @return The last option of the given type, or default_value if there
+	 *         is no such option.
+	 */
+	protected static <OptionT extends HashTableOption> OptionT findOption(
+			Class<OptionT> option_type, OptionT default_value, HashTableOption[] options) {
+		OptionT found_option = default_value;
+		for (HashTableOption option : options) {
+			if (option_type.isInstance(option)) {
+				found_option = option_type.cast(option);
+			}
+		}
+		return found_option;
+	}
+
+	/**
+	 * Records that a mapping with the given value has been added to the
+	 * table, in the {@link ValueIndexMode#REFCOUNT} mode.
+	 *
+	 * @param value  The value of the added mapping.
+	 */
+	protected void retainValue(ValueT value) {
+		if (m_value_counts != null) {
+			int[] count = m_value_counts.find(value);
+			if (count != null) {
+				++count[0];
+			}
+			else {
+				m_value_counts.map(value, new int[] {1});
+			}
+		}
+	}
+	
+	/**
+	 * Records that a mapping with the given value has been removed from
+	 * the table, in the {@link ValueIndexMode#REFCOUNT} mode.
+	 *
+	 * @param value  The value of the removed mapping.
+	 */
+	protected void releaseValue(ValueT value) {
+		if (m_value_counts != null) {
+			int[] count = m_value_counts.find(value);
+			if (--count[0] == 0) {
+				m_value_counts.unmap(value);
+			}
+		}
+	}
+	
+	/**
+	 * Records that the value of a mapping has been changed, in the
+	 * {@link ValueIndexMode#REFCOUNT} mode.
+	 *
+	 * @param previous_value  The value the mapping had.
+	 * @param value           The value the mapping has now.
+	 */
+	protected void replaceValue(ValueT previous_value, ValueT value) {
+		if (m_value_counts != null) {
+			releaseValue(previous_value);
+			retainValue(value);
+		}
 	}
 	
 	/**
@@ -167,6 +681,9 @@ public abstract class HashTableBase<KeyT, ValueT> implements HashTable<KeyT, Val
 	 * by this method. This is so that no key will hash to the same value as
 	 * NULL (the largest hash value a key can hash to is 2 * Integer.MAX_VALUE + 1).
 	 * 
+	 * The hash is then spread by the table's {@link HashMixer}, which leaves
+	 * it unchanged by default.
+	 * 
 	 * @param key  The key whose hash should be computed.
 	 *
 	 * @return The key's hash.
@@ -174,7 +691,8 @@ public abstract class HashTableBase<KeyT, ValueT> implements HashTable<KeyT, Val
 	protected long computeHash(KeyT key) {
 		// Note that hash is cast to long before added to Integer.MAX_VALUE
 		// to prevent the integer overflow.
-		return key != null ? (long) key.hashCode() + Integer.MAX_VALUE + 1L : 2L * Integer.MAX_VALUE + 2L;
+		long hash = key != null ? (long) key.hashCode() + Integer.MAX_VALUE + 1L : 2L * Integer.MAX_VALUE + 2L;
+		return m_hash_mixer == HashMixer.IDENTITY ? hash : m_hash_mixer.mix(hash);
 	}
 	
 	/**
@@ -185,10 +703,617 @@ public abstract class HashTableBase<KeyT, ValueT> implements HashTable<KeyT, Val
 	 * @return The array index where hash maps to.
 	 */
 	protected int mapHashToIndex(long hash) {
-		// It's safe to cast the result of hash % m_array.length to an
+		return mapHashToIndex(hash, m_array.length);
+	}
+	
+	/**
+	 * Maps given hash to the index of an array of the given length, using
+	 * the table's {@link IndexReducer}.
+	 *
+	 * @param hash          The hash.
+	 * @param array_length  The length of the array (e.g. the length of
+	 *                      {@link HashTableBase#m_old_array}).
+	 *
+	 * @return The array index where hash maps to.
+	 */
+	protected int mapHashToIndex(long hash, int array_length) {
+		// It's safe to cast the result of hash % array_length to an
 		// integer because the resulting value cannot be larger than
 		// Integer.MAX_VALUE - 1
-		return (int)(hash % m_array.length);
+		return m_index_reducer == IndexReducer.MODULO ?
+				(int)(hash % array_length) : m_index_reducer.reduce(hash, array_length);
+	}
+	
+	/**
+	 * Checks whether given key is present in the map.
+	 *
+	 * @param key_hash  The hash of the key as returned by computeHash.
+	 * @param key       The key to search for.
+	 *
+	 * @return True if key is found, false otherwise.
+	 */
+	protected abstract boolean containsKey(long key_hash, KeyT key);
+	
+	/**
+	 * Returns the value that given key maps to.
+	 *
+	 * @param key_hash  The hash of the key as returned by computeHash.
+	 * @param key       The key whose mapping is to be found.
+	 *
+	 * @return The value that key maps to, or null (see {@link HashTable#find(Object)}).
+	 */
+	protected abstract ValueT find(long key_hash, KeyT key);
+	
+	/**
+	 * Maps the key to value, or updates the value if the key is already
+	 * mapped.
+	 *
+	 * @param key_hash  The hash of the key as returned by computeHash.
+	 * @param key       The key to be placed in the hash table.
+	 * @param value     The value to which key is mapped to.
+	 *
+	 * @return The previous value (see {@link HashTable#map(Object, Object)}).
+	 */
+	protected abstract ValueT map(long key_hash, KeyT key, ValueT value);
+	
+	/**
+	 * Computes the hashes of the keys in the range [start, end) and stores
+	 * them at the beginning of key_hashes.
+	 */
+	private void computeHashes(KeyT[] keys, int start, int end, long[] key_hashes) {
+		for (int i = start; i < end; ++i) {
+			key_hashes[i - start] = computeHash(keys[i]);
+		}
+	}
+	
+	/**
+	 * Finds the values that the keys of a batch map to. The hashes of the
+	 * batch were computed up front.
+	 *
+	 * The default implementation looks the keys up one by one. The tables
+	 * override it to probe the whole batch in stages: the home index of
+	 * every key is computed first, the home cells (or groups) of all the
+	 * keys are then loaded, and the matches are resolved last. The loads of
+	 * the different keys don't depend on each other, so the CPU can overlap
+	 * their cache misses instead of waiting for every miss in turn.
+	 *
+	 * @param keys        The keys. The batch consists of keys[start, end).
+	 * @param start       The index of the first key of the batch.
+	 * @param end         The index past the last key of the batch.
+	 * @param key_hashes  The hashes of the keys of the batch, as returned by
+	 *                    computeHash, starting at index 0.
+	 * @param out         The array that receives the values. out[i] is set
+	 *                    to the value keys[i] maps to, or null if keys[i]
+	 *                    isn't mapped.
+	 */
+	protected void findBatch(KeyT[] keys, int start, int end, long[] key_hashes, ValueT[] out) {
+		findEach(keys, start, end, key_hashes, out);
+	}
+	
+	private void findEach(KeyT[] keys, int start, int end, long[] key_hashes, ValueT[] out) {
+		for (int i = start; i < end; ++i) {
+			out[i] = find(key_hashes[i - start], keys[i]);
+		}
+	}
+	
+	/**
+	 * Checks whether all the keys of a batch are present in the map.
+	 *
+	 * @see HashTableBase#findBatch(Object[], int, int, long[], Object[])
+	 *
+	 * @return True if every key of the batch is found, false otherwise.
+	 */
+	protected boolean containsBatch(KeyT[] keys, int start, int end, long[] key_hashes) {
+		return containsEach(keys, start, end, key_hashes);
+	}
+	
+	private boolean containsEach(KeyT[] keys, int start, int end, long[] key_hashes) {
+		for (int i = start; i < end; ++i) {
+			if (!containsKey(key_hashes[i - start], keys[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Maps every key of a batch to the value at the same index, as if
+	 * map() was called for the keys in order.
+	 *
+	 * The default implementation maps the keys one by one. The tables
+	 * override it to probe the batch in stages the same way findBatch()
+	 * does, update the values of the keys that are already mapped in place
+	 * and only map() the rest. A key whose mapping might have moved since
+	 * it was probed (because a mapping inserted before it re-sized the
+	 * table) is mapped by map() as well.
+	 *
+	 * @see HashTableBase#findBatch(Object[], int, int, long[], Object[])
+	 *
+	 * @param values  The values. keys[i] is mapped to values[i].
+	 *
+	 * @throws ArithmeticException if the table needs to grow beyond the
+	 *         maximal array size.
+	 */
+	protected void mapBatch(KeyT[] keys, ValueT[] values, int start, int end, long[] key_hashes)
+			throws ArithmeticException {
+		mapEach(keys, values, start, end, key_hashes);
+	}
+	
+	private void mapEach(KeyT[] keys, ValueT[] values, int start, int end, long[] key_hashes)
+			throws ArithmeticException {
+		for (int i = start; i < end; ++i) {
+			map(key_hashes[i - start], keys[i], values[i]);
+		}
+	}
+	
+	/**
+	 * Finds the values that the given keys map to.
+	 *
+	 * The keys are processed in batches of BATCH_SIZE keys. The hashes of
+	 * the whole batch are computed first, so calling hashCode() on the keys
+	 * (which might also miss the cache) is kept out of the probe loop, and
+	 * the batch is then probed by findBatch(), or by single key finds if
+	 * the array is shorter than m_staged_batch_min_length.
+	 *
+	 * @see HashTable#findAll(Object[], Object[])
+	 */
+	@Override
+	public void findAll(KeyT[] keys, ValueT[] out) throws IllegalArgumentException {
+		if (keys.length != out.length) {
+			throw new IllegalArgumentException("keys and out must be of the same length");
+		}
+		if (isEmpty()) {
+			Arrays.fill(out, null);
+			return;
+		}
+		
+		long[] key_hashes = new long[Math.min(BATCH_SIZE, keys.length)];
+		for (int start = 0; start < keys.length; start += BATCH_SIZE) {
+			int end = Math.min(start + BATCH_SIZE, keys.length);
+			computeHashes(keys, start, end, key_hashes);
+			if (m_array.length >= m_staged_batch_min_length) {
+				findBatch(keys, start, end, key_hashes, out);
+			}
+			else {
+				findEach(keys, start, end, key_hashes, out);
+			}
+		}
+	}
+	
+	/**
+	 * Maps every key to the value at the same index. The keys are hashed
+	 * in batches the same way findAll() does, and every batch is mapped by
+	 * mapBatch() (or key by key, see findAll()). The hash of a key doesn't
+	 * depend on the array size, so the hashes stay valid if the table is
+	 * re-sized in the middle of a batch.
+	 *
+	 * @see HashTable#mapAll(Object[], Object[])
+	 *
+	 * @throws ArithmeticException if the table needs to grow beyond the
+	 *         maximal array size.
+	 */
+	@Override
+	public void mapAll(KeyT[] keys, ValueT[] values) throws IllegalArgumentException, ArithmeticException {
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException("keys and values must be of the same length");
+		}
+		
+		long[] key_hashes = new long[Math.min(BATCH_SIZE, keys.length)];
+		for (int start = 0; start < keys.length; start += BATCH_SIZE) {
+			int end = Math.min(start + BATCH_SIZE, keys.length);
+			computeHashes(keys, start, end, key_hashes);
+			if (m_array.length >= m_staged_batch_min_length) {
+				mapBatch(keys, values, start, end, key_hashes);
+			}
+			else {
+				mapEach(keys, values, start, end, key_hashes);
+			}
+		}
+	}
+	
+	/**
+	 * Checks whether all the given keys are present in the map. The keys
+	 * are hashed in batches the same way findAll() does, and every batch
+	 * is probed by containsBatch() (or key by key, see findAll()).
+	 *
+	 * @see HashTable#containsAll(Object[])
+	 */
+	@Override
+	public boolean containsAll(KeyT[] keys) {
+		if (keys.length > 0 && isEmpty()) {
+			return false;
+		}
+		
+		long[] key_hashes = new long[Math.min(BATCH_SIZE, keys.length)];
+		for (int start = 0; start < keys.length; start += BATCH_SIZE) {
+			int end = Math.min(start + BATCH_SIZE, keys.length);
+			computeHashes(keys, start, end, key_hashes);
+			if (m_array.length >= m_staged_batch_min_length) {
+				if (!containsBatch(keys, start, end, key_hashes)) {
+					return false;
+				}
+			}
+			else if (!containsEach(keys, start, end, key_hashes)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Re-sizes the table up front so that it can hold expected_size
+	 * mappings without being re-sized again.
+	 *
+	 * The array length is doubled the same way the repeated re-sizes
+	 * would double it, but the mappings are moved only once. The table
+	 * never shrinks, so the method has no effect if the table can already
+	 * hold expected_size mappings.
+	 *
+	 * @param expected_size  The number of mappings the table should hold.
+	 *
+	 * @throws IllegalArgumentException if expected_size is negative.
+	 * @throws ArithmeticException if integer overflow happens when array
+	 * size is increased.
+	 */
+	public void ensureCapacity(int expected_size) throws IllegalArgumentException, ArithmeticException {
+		if (expected_size < 0) {
+			throw new IllegalArgumentException("expected_size must be non-negative");
+		}
+		
+		// The tables are re-sized once size / array_length reaches the load factor
+		int array_length = m_array.length;
+		while (expected_size > 0 && (float) expected_size / array_length >= m_load_factor) {
+			array_length *= 2;
+			if (array_length < 0) {
+				throw new ArithmeticException("Increased array size overflows the integer type");
+			}
+		}
+		
+		if (array_length != m_array.length) {
+			resizeTo(array_length);
+		}
+	}
+	
+	/**
+	 * Shrinks the array to the shortest length that holds the current
+	 * mappings below the load factor, so that the memory taken by a table
+	 * that once held many more mappings is released.
+	 *
+	 * The array length is halved the same way the repeated re-sizes
+	 * double it, and never drops below the initial capacity. The method
+	 * has no effect if the array cannot be halved.
+	 *
+	 * Time complexity of this operation is O(N) if the table is shrunk,
+	 * where N is the length of the array.
+	 */
+	public void trimToSize() {
+		int array_length = shrunkArrayLength(m_load_factor);
+		if (array_length != m_array.length) {
+			resizeTo(array_length);
+		}
+	}
+	
+	/**
+	 * Shrinks the table if the mappings have been removed down to a
+	 * quarter of the load factor in the {@link ShrinkMode#AUTOMATIC}
+	 * mode. The implementations call this method whenever they remove a
+	 * mapping.
+	 */
+	protected void shrinkIfNeeded() {
+		if (m_auto_shrink && m_array.length > m_initial_capacity
+				&& m_size < m_load_factor / 4 * m_array.length) {
+			resizeTo(shrunkArrayLength(m_load_factor / 2));
+		}
+	}
+	
+	/**
+	 * Halves the array length while the result isn't below the initial
+	 * capacity and the mappings occupy less than max_occupancy of it.
+	 *
+	 * @return The shortened array length, or the current one if the array
+	 *         cannot be halved.
+	 */
+	private int shrunkArrayLength(float max_occupancy) {
+		int array_length = m_array.length;
+		while (array_length / 2 >= m_initial_capacity && m_size < max_occupancy * (array_length / 2)) {
+			array_length /= 2;
+		}
+		return array_length;
+	}
+	
+	/**
+	 * Returns the runtime statistics of the table, which are collected
+	 * only if the statistics are enabled (see {@link HashTableStats}).
+	 *
+	 * @return The statistics, or NULL if they are disabled.
+	 */
+	public HashTableStats stats() {
+		return m_stats;
+	}
+	
+	/**
+	 * Records the number of array cells or bucket mappings examined by
+	 * the operation. The call compiles down to nothing if the statistics
+	 * are disabled.
+	 */
+	protected final void recordProbes(HashTableStats.Operation operation, int probes) {
+		if (HashTableStats.ENABLED) {
+			m_stats.recordProbes(operation, probes);
+		}
+	}
+	
+	/**
+	 * Records the number of mappings in the bucket a mapping has just been
+	 * added to.
+	 */
+	protected final void recordChainLength(int length) {
+		if (HashTableStats.ENABLED) {
+			m_stats.recordChainLength(length);
+		}
+	}
+	
+	/**
+	 * Called by the implementations before they move the mappings to a
+	 * new array.
+	 *
+	 * @return The value to pass to resizeFinished().
+	 */
+	protected final long resizeStarted() {
+		return HashTableStats.ENABLED ? m_stats.resizeStarted() : 0;
+	}
+	
+	/**
+	 * Called by the implementations after they have moved the mappings to
+	 * a new array.
+	 *
+	 * @param start_time  The value returned by resizeStarted().
+	 */
+	protected final void resizeFinished(long start_time) {
+		if (HashTableStats.ENABLED) {
+			m_stats.resizeFinished(start_time);
+		}
+	}
+	
+	/**
+	 * Returns the number of array cells holding removed mappings. The
+	 * implementations that mark the removed mappings override this method.
+	 *
+	 * @return The number of removed mappings still in the array.
+	 */
+	protected int removedCount() {
+		return 0;
+	}
+	
+	/**
+	 * Moves all the mappings to a new array of the given length, which
+	 * might be either longer or shorter than the current one. The
+	 * implementations that restrict the array length might use a longer
+	 * array.
+	 *
+	 * @param array_length  The length of the new array.
+	 *
+	 * @throws ArithmeticException if integer overflow happens when array
+	 * size is increased.
+	 */
+	protected abstract void resizeTo(int array_length) throws ArithmeticException;
+	
+	/**
+	 * Writes the mappings of the table to the stream in a compact binary
+	 * format, which readSnapshot() loads back into any HashTableBase
+	 * subclass.
+	 *
+	 * The snapshot starts with a header (the SNAPSHOT_MAGIC, the
+	 * SNAPSHOT_VERSION and the number of mappings) followed by the
+	 * mappings. Every mapping is a flags byte, which records whether the
+	 * key and the value are NULL, followed by the non-NULL key and value
+	 * as written by the codecs. The stream is written through a buffer
+	 * that is flushed at the end, but the stream isn't closed.
+	 *
+	 * @param stream       The stream to write to.
+	 * @param key_codec    The codec that writes the keys.
+	 * @param value_codec  The codec that writes the values.
+	 *
+	 * @throws IOException if writing fails.
+	 */
+	public void writeSnapshot(OutputStream stream, HashTableCodec<? super KeyT> key_codec,
+			HashTableCodec<? super ValueT> value_codec) throws IOException {
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, SNAPSHOT_BUFFER_SIZE));
+		output.writeInt(SNAPSHOT_MAGIC);
+		output.writeInt(SNAPSHOT_VERSION);
+		output.writeInt(m_size);
+		
+		// forEach() doesn't allocate an entry per mapping, but the action
+		// can only throw unchecked exceptions
+		try {
+			forEach((key, value) -> {
+				try {
+					output.writeByte((key == null ? SNAPSHOT_NULL_KEY : 0) | (value == null ? SNAPSHOT_NULL_VALUE : 0));
+					if (key != null) {
+						key_codec.write(key, output);
+					}
+					if (value != null) {
+						value_codec.write(value, output);
+					}
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		output.flush();
+	}
+	
+	/**
+	 * @see HashTableBase#writeSnapshot(OutputStream, HashTableCodec, HashTableCodec)
+	 *
+	 * @param channel  The channel to write to (e.g. a FileChannel).
+	 */
+	public void writeSnapshot(WritableByteChannel channel, HashTableCodec<? super KeyT> key_codec,
+			HashTableCodec<? super ValueT> value_codec) throws IOException {
+		writeSnapshot(Channels.newOutputStream(channel), key_codec, value_codec);
+	}
+	
+	/**
+	 * Reads the snapshot written by writeSnapshot() and maps its mappings
+	 * in the table, as if map() was called for each of them.
+	 *
+	 * The table is re-sized once up front to hold the mappings it already
+	 * has and the mappings of the snapshot (see ensureCapacity()), up to
+	 * SNAPSHOT_MAX_PRESIZE of the latter, and the mappings are then
+	 * inserted in batches the same way mapAll() inserts them. Call clear()
+	 * first to replace the contents of the table.
+	 *
+	 * The stream is read through a buffer, so it might be read past the
+	 * end of the snapshot.
+	 *
+	 * @param stream       The stream to read from.
+	 * @param key_codec    The codec that reads the keys.
+	 * @param value_codec  The codec that reads the values.
+	 *
+	 * @throws IOException if reading fails, or if the stream doesn't hold
+	 *         a snapshot of a supported version. An EOFException is thrown
+	 *         if the stream ends before the number of mappings given by the
+	 *         header has been read, in which case the mappings read so far
+	 *         might have been mapped.
+	 * @throws ArithmeticException if integer overflow happens when array
+	 * size is increased.
+	 */
+	@SuppressWarnings("unchecked")
+	public void readSnapshot(InputStream stream, HashTableCodec<? extends KeyT> key_codec,
+			HashTableCodec<? extends ValueT> value_codec) throws IOException, ArithmeticException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(stream, SNAPSHOT_BUFFER_SIZE));
+		if (input.readInt() != SNAPSHOT_MAGIC) {
+			throw new IOException("The stream doesn't hold a hash table snapshot");
+		}
+		
+		int version = input.readInt();
+		if (version != SNAPSHOT_VERSION) {
+			throw new IOException("Unsupported snapshot version " + version);
+		}
+		
+		int size = input.readInt();
+		if (size < 0) {
+			throw new IOException("Negative snapshot size " + size);
+		}
+		ensureCapacity((int) Math.min(Integer.MAX_VALUE, (long) m_size + Math.min(size, SNAPSHOT_MAX_PRESIZE)));
+		
+		KeyT[] keys = (KeyT[]) new Object[Math.min(BATCH_SIZE, size)];
+		ValueT[] values = (ValueT[]) new Object[keys.length];
+		for (int start = 0; start < size; start += BATCH_SIZE) {
+			int end = Math.min(start + BATCH_SIZE, size);
+			if (end - start < keys.length) {
+				keys = Arrays.copyOf(keys, end - start);
+				values = Arrays.copyOf(values, end - start);
+			}
+			
+			for (int i = 0; i < end - start; ++i) {
+				int flags = input.readUnsignedByte();
+				keys[i] = (flags & SNAPSHOT_NULL_KEY) == 0 ? key_codec.read(input) : null;
+				values[i] = (flags & SNAPSHOT_NULL_VALUE) == 0 ? value_codec.read(input) : null;
+			}
+			mapAll(keys, values);
+		}
+	}
+	
+	/**
+	 * @see HashTableBase#readSnapshot(InputStream, HashTableCodec, HashTableCodec)
+	 *
+	 * @param channel  The channel to read from (e.g. a FileChannel).
+	 */
+	public void readSnapshot(ReadableByteChannel channel, HashTableCodec<? extends KeyT> key_codec,
+			HashTableCodec<? extends ValueT> value_codec) throws IOException, ArithmeticException {
+		readSnapshot(Channels.newInputStream(channel), key_codec, value_codec);
+	}
+	
+	/**
+	 * The number of cells that the mappings are enumerated over. The cells
+	 * 0 to m_array.length - 1 are the cells of m_array and, while the table
+	 * is being re-sized, they are followed by the cells of m_old_array.
+	 * Subclasses that keep mappings elsewhere append more cells.
+	 *
+	 * @return The number of cells.
+	 */
+	protected int cellCount() {
+		return m_array.length + (m_old_array != null ? m_old_array.length : 0);
+	}
+	
+	/**
+	 * Passes every mapping stored in the given cell to the action.
+	 *
+	 * @param cell    The cell, in the range [0, cellCount()).
+	 * @param action  The action to be performed for every mapping.
+	 */
+	protected void forEachInCell(int cell, BiConsumer<? super KeyT, ? super ValueT> action) {
+		if (cell < m_array.length) {
+			forEachAt(m_array, cell, action);
+		}
+		else {
+			forEachAt(m_old_array, cell - m_array.length, action);
+		}
+	}
+	
+	/**
+	 * Passes every mapping stored at the given index of the given array to
+	 * the action.
+	 *
+	 * This implementation handles the arrays whose non-empty cells hold
+	 * a KeyValuePair. Subclasses that store the mappings differently must
+	 * override it.
+	 *
+	 * @param array   Either m_array or m_old_array.
+	 * @param index   The index of the array cell.
+	 * @param action  The action to be performed for every mapping.
+	 */
+	@SuppressWarnings("unchecked")
+	protected void forEachAt(Object[] array, int index, BiConsumer<? super KeyT, ? super ValueT> action) {
+		if (array[index] != null) {
+			KeyValuePair mapping = (KeyValuePair) array[index];
+			action.accept((KeyT) mapping.m_key, mapping.m_value);
+		}
+	}
+	
+	/**
+	 * Passes the key and the value of every mapping to the action, without
+	 * creating the Map.Entry instances.
+	 *
+	 * The time complexity of this operation is O(N + M) where N is the
+	 * number of cells and M the number of mappings.
+	 *
+	 * @param action  The action to be performed for every mapping.
+	 */
+	@Override
+	public void forEach(BiConsumer<? super KeyT, ? super ValueT> action) {
+		for (int cell = 0; cell < cellCount(); ++cell) {
+			forEachInCell(cell, action);
+		}
+	}
+	
+	/**
+	 * Returns an iterator over the mappings of the table.
+	 *
+	 * @see HashTable#iterator()
+	 */
+	@Override
+	public Iterator<Map.Entry<KeyT, ValueT>> iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+	
+	/**
+	 * Returns a spliterator over the mappings of the table, which splits
+	 * the table by cell index range. Hence, a parallel stream created by
+	 * StreamSupport.stream(table.spliterator(), true) scans the different
+	 * parts of the table on different threads.
+	 *
+	 * The table must not be modified while the spliterator is in use.
+	 *
+	 * @return The spliterator.
+	 */
+	@Override
+	public Spliterator<Map.Entry<KeyT, ValueT>> spliterator() {
+		return new CellSpliterator(0, cellCount());
 	}
 	
 	/**
@@ -210,6 +1335,10 @@ public abstract class HashTableBase<KeyT, ValueT> implements HashTable<KeyT, Val
 	public void clear() {
 		m_size = 0;
 		m_array = new Object[m_initial_capacity];
+		m_old_array = null;
+		if (m_value_counts != null) {
+			m_value_counts.clear();
+		}
 	}
 	
 	/**
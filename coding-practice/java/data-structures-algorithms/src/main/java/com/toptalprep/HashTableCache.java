@@ -0,0 +1,722 @@
+package com.toptalprep;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Cache that holds at most a fixed number of mappings, evicting the
+ * mappings chosen by the configured {@link EvictionPolicy} once it is full.
+ *
+ * The mappings are kept in entries that are stored directly in the slots
+ * of an open addressing index, which is sized for the capacity of the
+ * cache so that it never re-sizes. Every entry is also threaded onto an
+ * intrusive doubly linked list (the recency list of the policy), so an
+ * entry is the only object allocated per mapping, and a hit costs a
+ * single probe sequence plus a few pointer updates and allocates nothing.
+ * The entries are removed from the index using backward-shift deletion,
+ * so the evictions leave no removed mappings behind that the lookups
+ * would have to skip.
+ *
+ * The cache counts the hits, the misses and the evictions. Only get()
+ * counts as an access: containsKey() doesn't update the counters nor the
+ * recency of the entries.
+ *
+ * Both NULL keys and NULL values are allowed, and a key mapped to NULL
+ * counts as a hit.
+ */
+public class HashTableCache<KeyT, ValueT> {
+	/**
+	 * Determines which mapping is evicted once the cache is full.
+	 */
+	public enum EvictionPolicy implements HashTableOption {
+		/**
+		 * Evicts the least recently used mapping. The entries are kept in a
+		 * single list ordered by recency.
+		 */
+		LRU,
+
+		/**
+		 * Evicts the least frequently used mapping, or the least recently
+		 * used one among those used equally often. The entries are grouped
+		 * by their use count into the lists of a list of frequency nodes,
+		 * so both the hits and the evictions take constant time.
+		 */
+		LFU,
+
+		/**
+		 * Window TinyLFU: the new mappings enter a small LRU window (1% of
+		 * the capacity). The mappings pushed out of the window are only
+		 * admitted to the main segment if they are used more often than the
+		 * mapping the main segment would evict. The use counts are estimated
+		 * by a count-min sketch of 4-bit counters that are halved
+		 * periodically, so the cache adapts when the popular keys change.
+		 * The main segment is a segmented LRU: the mappings enter its
+		 * probation part and move to its protected part (80% of the main
+		 * segment) once they are hit again.
+		 *
+		 * This keeps the popular mappings cached through scans of keys that
+		 * are used only once, which flush an LRU cache.
+		 */
+		W_TINY_LFU
+	}
+
+	/**
+	 * The maximal capacity, for which the index has 2^30 slots.
+	 */
+	public static final int MAX_CAPACITY = 1 << 28;
+
+	/**
+	 * A cached mapping. The entry occupies a slot of the index and is
+	 * linked into exactly one list while it is in the cache.
+	 */
+	protected class Entry {
+		final KeyT m_key;
+		final int m_hash;
+		ValueT m_value;
+		Entry m_previous;
+		Entry m_next;
+		EntryList m_list;
+
+		/**
+		 * The frequency node whose list holds the entry, in the
+		 * {@link EvictionPolicy#LFU} mode.
+		 */
+		FrequencyNode m_frequency_node;
+
+		Entry(KeyT key, int hash, ValueT value) {
+			m_key = key;
+			m_hash = hash;
+			m_value = value;
+		}
+	}
+
+	/**
+	 * Circular doubly linked list of entries with a sentinel entry. The
+	 * most recently added entry is the first one.
+	 */
+	protected class EntryList {
+		final Entry m_sentinel = new Entry(null, 0, null);
+		int m_size;
+
+		EntryList() {
+			m_sentinel.m_previous = m_sentinel;
+			m_sentinel.m_next = m_sentinel;
+		}
+
+		void addFirst(Entry entry) {
+			entry.m_previous = m_sentinel;
+			entry.m_next = m_sentinel.m_next;
+			m_sentinel.m_next.m_previous = entry;
+			m_sentinel.m_next = entry;
+			entry.m_list = this;
+			++m_size;
+		}
+
+		void remove(Entry entry) {
+			entry.m_previous.m_next = entry.m_next;
+			entry.m_next.m_previous = entry.m_previous;
+			entry.m_previous = null;
+			entry.m_next = null;
+			entry.m_list = null;
+			--m_size;
+		}
+
+		void moveToFront(Entry entry) {
+			remove(entry);
+			addFirst(entry);
+		}
+
+		/**
+		 * Returns the least recently added entry, or NULL if the list is
+		 * empty.
+		 */
+		Entry last() {
+			return m_sentinel.m_previous != m_sentinel ? m_sentinel.m_previous : null;
+		}
+
+		void clear() {
+			m_sentinel.m_previous = m_sentinel;
+			m_sentinel.m_next = m_sentinel;
+			m_size = 0;
+		}
+	}
+
+	/**
+	 * The node of the {@link EvictionPolicy#LFU} frequency list, which holds
+	 * the entries that have been used m_frequency times. The nodes are
+	 * ordered by their frequency, starting after the m_frequency_head
+	 * sentinel node.
+	 */
+	protected class FrequencyNode {
+		int m_frequency;
+		final EntryList m_entries = new EntryList();
+		FrequencyNode m_previous;
+		FrequencyNode m_next;
+	}
+
+	/**
+	 * Count-min sketch that estimates how often the keys are used, in the
+	 * {@link EvictionPolicy#W_TINY_LFU} mode.
+	 *
+	 * Every long of the table holds 16 4-bit counters. A key hash selects
+	 * one counter for each of the 4 hash functions and its frequency is
+	 * estimated as the minimum of the 4 counters. Once the number of
+	 * increments reaches the sample size, all the counters are halved so
+	 * that the old accesses weigh less than the new ones.
+	 */
+	protected static class FrequencySketch {
+		private static final long[] SEEDS = {
+				0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L };
+		private static final long RESET_MASK = 0x7777777777777777L;
+		private static final int MAX_COUNTER = 15;
+
+		private final long[] m_table;
+		private final int m_sample_size;
+		private int m_additions;
+
+		FrequencySketch(int capacity) {
+			int table_length = Math.max(1, Integer.highestOneBit(Math.min(capacity, 1 << 26) - 1) << 1);
+			m_table = new long[table_length];
+			m_sample_size = (int) Math.min(Integer.MAX_VALUE, 10L * capacity);
+		}
+
+		/**
+		 * Computes the hash that selects the counter of the given hash
+		 * function.
+		 */
+		private static long counterHash(int hash, int function) {
+			long counter_hash = (hash + SEEDS[function]) * SEEDS[function];
+			return counter_hash ^ (counter_hash >>> 32);
+		}
+
+		int frequency(int hash) {
+			int frequency = MAX_COUNTER;
+			for (int i = 0; i < SEEDS.length; ++i) {
+				long counter_hash = counterHash(hash, i);
+				int shift = (int)(counter_hash >>> 60) << 2;
+				long counter = (m_table[(int) counter_hash & (m_table.length - 1)] >>> shift) & MAX_COUNTER;
+				frequency = Math.min(frequency, (int) counter);
+			}
+			return frequency;
+		}
+
+		void increment(int hash) {
+			boolean incremented = false;
+			for (int i = 0; i < SEEDS.length; ++i) {
+				long counter_hash = counterHash(hash, i);
+				int index = (int) counter_hash & (m_table.length - 1);
+				int shift = (int)(counter_hash >>> 60) << 2;
+				if (((m_table[index] >>> shift) & MAX_COUNTER) < MAX_COUNTER) {
+					m_table[index] += 1L << shift;
+					incremented = true;
+				}
+			}
+
+			if (incremented && ++m_additions == m_sample_size) {
+				for (int i = 0; i < m_table.length; ++i) {
+					m_table[i] = (m_table[i] >>> 1) & RESET_MASK;
+				}
+				m_additions /= 2;
+			}
+		}
+
+		void clear() {
+			Arrays.fill(m_table, 0L);
+			m_additions = 0;
+		}
+	}
+
+	protected final int m_capacity;
+	protected final EvictionPolicy m_policy;
+
+	/**
+	 * The index of the entries, which uses linear probing. It has at least
+	 * twice as many slots as the entries it holds, including the extra
+	 * entry held while the victim is chosen, and its length is a power
+	 * of 2.
+	 */
+	protected final Entry[] m_slots;
+	protected int m_size;
+
+	/**
+	 * The recency list in the {@link EvictionPolicy#LRU} mode.
+	 */
+	protected final EntryList m_recency;
+
+	/**
+	 * The segments of the {@link EvictionPolicy#W_TINY_LFU} mode, their
+	 * capacities and the frequency sketch.
+	 */
+	protected final EntryList m_window;
+	protected final EntryList m_probation;
+	protected final EntryList m_protected;
+	protected final int m_window_capacity;
+	protected final int m_protected_capacity;
+	protected final FrequencySketch m_sketch;
+
+	/**
+	 * The sentinel of the frequency list in the {@link EvictionPolicy#LFU}
+	 * mode, and the last removed frequency node, which is re-used so that
+	 * the hits don't allocate.
+	 */
+	protected final FrequencyNode m_frequency_head;
+	protected FrequencyNode m_spare_frequency_node;
+
+	protected long m_hit_count;
+	protected long m_miss_count;
+	protected long m_eviction_count;
+
+	/**
+	 * Constructs a HashTableCache instance that holds up to capacity
+	 * mappings and uses the {@link EvictionPolicy#LRU} policy.
+	 *
+	 * @param capacity  The maximal number of mappings.
+	 *
+	 * @throws IllegalArgumentException if capacity is less or equal to zero
+	 *         or greater than MAX_CAPACITY.
+	 */
+	public HashTableCache(int capacity) throws IllegalArgumentException {
+		this(capacity, new HashTableOption[0]);
+	}
+
+	/**
+	 * @see HashTableCache#HashTableCache(int)
+	 *
+	 * @param options  The options that configure the cache. The
+	 *                 {@link EvictionPolicy} option is recognized. The
+	 *                 {@link EvictionPolicy#LRU} policy is used if not
+	 *                 specified.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public HashTableCache(int capacity, HashTableOption... options) throws IllegalArgumentException {
+		if (capacity <= 0 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("capacity must be within (0, 2^28]");
+		}
+
+		m_capacity = capacity;
+		m_policy = HashTableBase.findOption(EvictionPolicy.class, EvictionPolicy.LRU, options);
+		// The capacity + 1 entries take at most half of the slots
+		m_slots = (Entry[]) new HashTableCache.Entry[Integer.highestOneBit(capacity) << 2];
+
+		m_recency = new EntryList();
+		m_window = new EntryList();
+		m_probation = new EntryList();
+		m_protected = new EntryList();
+		m_window_capacity = Math.max(1, capacity / 100);
+		m_protected_capacity = (int)(0.8 * (capacity - m_window_capacity));
+		m_sketch = m_policy == EvictionPolicy.W_TINY_LFU ? new FrequencySketch(capacity) : null;
+
+		m_frequency_head = new FrequencyNode();
+		m_frequency_head.m_previous = m_frequency_head;
+		m_frequency_head.m_next = m_frequency_head;
+	}
+
+	private static int hash(Object key) {
+		return key != null ? key.hashCode() : 0;
+	}
+
+	/**
+	 * Returns the slot where the probe sequence of the hash starts.
+	 */
+	private int slotOf(int hash) {
+		return (int) HashTableBase.HashMixer.MURMUR3.mix(hash) & (m_slots.length - 1);
+	}
+
+	/**
+	 * Finds the slot of the entry with the given key.
+	 *
+	 * @return The index of the slot, or -1 if key isn't cached.
+	 */
+	private int findSlot(KeyT key, int hash) {
+		for (int index = slotOf(hash); m_slots[index] != null; index = (index + 1) & (m_slots.length - 1)) {
+			Entry entry = m_slots[index];
+			if (entry.m_hash == hash && (entry.m_key == key || (key != null && key.equals(entry.m_key)))) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	private Entry findEntry(KeyT key) {
+		int index = findSlot(key, hash(key));
+		return index != -1 ? m_slots[index] : null;
+	}
+
+	/**
+	 * Stores the new entry in the first empty slot of its probe sequence.
+	 */
+	private void insertEntry(Entry entry) {
+		int index = slotOf(entry.m_hash);
+		while (m_slots[index] != null) {
+			index = (index + 1) & (m_slots.length - 1);
+		}
+		m_slots[index] = entry;
+		++m_size;
+	}
+
+	/**
+	 * Removes the entry at the given slot using backward-shift deletion.
+	 *
+	 * Every entry that follows the removed one within the same cluster is
+	 * moved into the hole if the hole lies on its probe sequence (that is,
+	 * if the hole is at least as far from its current slot as the slot its
+	 * hash maps to). The hole then moves to the vacated slot. This repeats
+	 * until an empty slot is reached.
+	 */
+	private void removeSlot(int index) {
+		int mask = m_slots.length - 1;
+		int hole = index;
+		int current = index;
+		while (true) {
+			current = (current + 1) & mask;
+			Entry entry = m_slots[current];
+			if (entry == null) {
+				break;
+			}
+
+			if (((current - slotOf(entry.m_hash)) & mask) >= ((current - hole) & mask)) {
+				m_slots[hole] = entry;
+				hole = current;
+			}
+		}
+		m_slots[hole] = null;
+		--m_size;
+	}
+
+	/**
+	 * Removes the given entry from the index, finding its slot by
+	 * identity rather than by comparing the keys.
+	 */
+	private void removeEntry(Entry entry) {
+		int index = slotOf(entry.m_hash);
+		while (m_slots[index] != entry) {
+			index = (index + 1) & (m_slots.length - 1);
+		}
+		removeSlot(index);
+	}
+
+	/**
+	 * Returns the value cached for the key, counting a hit or a miss.
+	 *
+	 * @param key  The key to look up.
+	 *
+	 * @return The cached value, or null if the key isn't cached. Note that
+	 *         null is also returned if the key is cached with a null value.
+	 */
+	public ValueT get(KeyT key) {
+		Entry entry = findEntry(key);
+		if (entry == null) {
+			++m_miss_count;
+			if (m_sketch != null) {
+				m_sketch.increment(hash(key));
+			}
+			return null;
+		}
+
+		++m_hit_count;
+		recordAccess(entry);
+		return entry.m_value;
+	}
+
+	/**
+	 * Returns the value cached for the key. If the key isn't cached, the
+	 * value is obtained from the loader and cached.
+	 *
+	 * @param key     The key to look up.
+	 * @param loader  The function that computes the value of a key that
+	 *                isn't cached (e.g. the slow backing lookup).
+	 *
+	 * @return The cached or the loaded value.
+	 */
+	public ValueT get(KeyT key, Function<? super KeyT, ? extends ValueT> loader) {
+		Entry entry = findEntry(key);
+		if (entry != null) {
+			++m_hit_count;
+			recordAccess(entry);
+			return entry.m_value;
+		}
+
+		++m_miss_count;
+		ValueT value = loader.apply(key);
+		put(key, value);
+		return value;
+	}
+
+	/**
+	 * Caches the value for the key, evicting a mapping if the cache is
+	 * full. Updating the value of a cached key counts as its use.
+	 *
+	 * @param key    The key to cache.
+	 * @param value  The value to cache.
+	 *
+	 * @return The value previously cached for the key, or null if the key
+	 *         wasn't cached.
+	 */
+	public ValueT put(KeyT key, ValueT value) {
+		Entry entry = findEntry(key);
+		if (entry != null) {
+			ValueT previous_value = entry.m_value;
+			entry.m_value = value;
+			recordAccess(entry);
+			return previous_value;
+		}
+
+		entry = new Entry(key, hash(key), value);
+		insertEntry(entry);
+		switch (m_policy) {
+		case LRU:
+			m_recency.addFirst(entry);
+			if (m_size > m_capacity) {
+				evict(m_recency.last());
+			}
+			break;
+
+		case LFU:
+			// The victim is chosen before the new entry joins the list, as
+			// the new entry would be the least frequently used one
+			if (m_size > m_capacity) {
+				evict(m_frequency_head.m_next.m_entries.last());
+			}
+			addToFrequencyNode(entry, m_frequency_head, 1);
+			break;
+
+		default:
+			m_sketch.increment(entry.m_hash);
+			m_window.addFirst(entry);
+			if (m_window.m_size > m_window_capacity) {
+				Entry candidate = m_window.last();
+				m_window.remove(candidate);
+				m_probation.addFirst(candidate);
+				if (m_size > m_capacity) {
+					admit(candidate);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the key from the cache.
+	 *
+	 * @param key  The key to remove.
+	 *
+	 * @return The value cached for the key, or null if the key wasn't
+	 *         cached.
+	 */
+	public ValueT remove(KeyT key) {
+		int index = findSlot(key, hash(key));
+		if (index == -1) {
+			return null;
+		}
+
+		Entry entry = m_slots[index];
+		removeSlot(index);
+		unlink(entry);
+		return entry.m_value;
+	}
+
+	/**
+	 * Checks whether the key is cached, without counting it as a use.
+	 *
+	 * @param key  The key to look up.
+	 *
+	 * @return True if key is cached, false otherwise.
+	 */
+	public boolean containsKey(KeyT key) {
+		return findSlot(key, hash(key)) != -1;
+	}
+
+	/**
+	 * Updates the position of the entry in the lists after its use.
+	 */
+	private void recordAccess(Entry entry) {
+		switch (m_policy) {
+		case LRU:
+			m_recency.moveToFront(entry);
+			break;
+
+		case LFU:
+			incrementFrequency(entry);
+			break;
+
+		default:
+			m_sketch.increment(entry.m_hash);
+			if (entry.m_list == m_probation) {
+				// Promote the entry, demoting the least recently used
+				// protected entry if the protected segment is full
+				m_probation.remove(entry);
+				m_protected.addFirst(entry);
+				if (m_protected.m_size > m_protected_capacity) {
+					Entry demoted = m_protected.last();
+					m_protected.remove(demoted);
+					m_probation.addFirst(demoted);
+				}
+			}
+			else {
+				entry.m_list.moveToFront(entry);
+			}
+		}
+	}
+
+	/**
+	 * Evicts either the candidate pushed out of the window or the least
+	 * recently used entry of the main segment, whichever is estimated to
+	 * be used less often. The candidate loses the ties.
+	 */
+	private void admit(Entry candidate) {
+		Entry victim = m_probation.last();
+		if (victim == candidate) {
+			victim = m_protected.last();
+		}
+
+		if (victim == null || m_sketch.frequency(candidate.m_hash) <= m_sketch.frequency(victim.m_hash)) {
+			evict(candidate);
+		}
+		else {
+			evict(victim);
+		}
+	}
+
+	/**
+	 * Removes the entry from the cache and counts the eviction.
+	 */
+	private void evict(Entry entry) {
+		removeEntry(entry);
+		unlink(entry);
+		++m_eviction_count;
+	}
+
+	/**
+	 * Removes the entry from its list (and its frequency node from the
+	 * frequency list, if the node becomes empty).
+	 */
+	private void unlink(Entry entry) {
+		FrequencyNode node = entry.m_frequency_node;
+		entry.m_list.remove(entry);
+		if (node != null) {
+			entry.m_frequency_node = null;
+			if (node.m_entries.m_size == 0) {
+				removeFrequencyNode(node);
+			}
+		}
+	}
+
+	/**
+	 * Adds the entry to the frequency node that follows the given one,
+	 * creating the node first if it doesn't have the given frequency.
+	 */
+	private void addToFrequencyNode(Entry entry, FrequencyNode previous_node, int frequency) {
+		FrequencyNode node = previous_node.m_next;
+		if (node == m_frequency_head || node.m_frequency != frequency) {
+			node = m_spare_frequency_node != null ? m_spare_frequency_node : new FrequencyNode();
+			m_spare_frequency_node = null;
+			node.m_frequency = frequency;
+			node.m_previous = previous_node;
+			node.m_next = previous_node.m_next;
+			previous_node.m_next.m_previous = node;
+			previous_node.m_next = node;
+		}
+		node.m_entries.addFirst(entry);
+		entry.m_frequency_node = node;
+	}
+
+	private void removeFrequencyNode(FrequencyNode node) {
+		node.m_previous.m_next = node.m_next;
+		node.m_next.m_previous = node.m_previous;
+		node.m_previous = null;
+		node.m_next = null;
+		m_spare_frequency_node = node;
+	}
+
+	/**
+	 * Moves the entry to the frequency node of the next frequency.
+	 */
+	private void incrementFrequency(Entry entry) {
+		FrequencyNode node = entry.m_frequency_node;
+		if (node.m_frequency == Integer.MAX_VALUE) {
+			node.m_entries.moveToFront(entry);
+			return;
+		}
+
+		node.m_entries.remove(entry);
+		addToFrequencyNode(entry, node, node.m_frequency + 1);
+		if (node.m_entries.m_size == 0) {
+			removeFrequencyNode(node);
+		}
+	}
+
+	/**
+	 * The number of get() calls that found the key cached.
+	 *
+	 * @return The number of hits.
+	 */
+	public long hitCount() {
+		return m_hit_count;
+	}
+
+	/**
+	 * The number of get() calls that didn't find the key cached.
+	 *
+	 * @return The number of misses.
+	 */
+	public long missCount() {
+		return m_miss_count;
+	}
+
+	/**
+	 * The number of mappings evicted to make room for the new ones.
+	 *
+	 * @return The number of evictions.
+	 */
+	public long evictionCount() {
+		return m_eviction_count;
+	}
+
+	/**
+	 * The maximal number of mappings.
+	 *
+	 * @return The capacity.
+	 */
+	public int capacity() {
+		return m_capacity;
+	}
+
+	/**
+	 * The number of cached mappings.
+	 *
+	 * @return The number of mappings.
+	 */
+	public int size() {
+		return m_size;
+	}
+
+	/**
+	 * Whether the cache is empty.
+	 *
+	 * @return True if the cache is empty, false otherwise.
+	 */
+	public boolean isEmpty() {
+		return m_size == 0;
+	}
+
+	/**
+	 * Removes all the mappings. The counters and the frequency estimates
+	 * are reset as well.
+	 */
+	public void clear() {
+		Arrays.fill(m_slots, null);
+		m_size = 0;
+		m_recency.clear();
+		m_window.clear();
+		m_probation.clear();
+		m_protected.clear();
+		m_frequency_head.m_previous = m_frequency_head;
+		m_frequency_head.m_next = m_frequency_head;
+		if (m_sketch != null) {
+			m_sketch.clear();
+		}
+		m_hit_count = 0;
+		m_miss_count = 0;
+		m_eviction_count = 0;
+	}
+}
@@ -0,0 +1,113 @@
+package com.toptalprep;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes the keys or the values of a hash table to a snapshot and reads
+ * them back (see {@link HashTableBase#writeSnapshot}).
+ *
+ * The codecs are only ever given non-NULL objects, as the snapshot
+ * records the NULL keys and values itself. A codec must read back
+ * exactly the bytes it has written.
+ */
+public interface HashTableCodec<T> {
+	/**
+	 * Writes the object as an int.
+	 */
+	HashTableCodec<Integer> INTEGER = new HashTableCodec<Integer>() {
+		@Override
+		public void write(Integer object, DataOutput out) throws IOException {
+			out.writeInt(object);
+		}
+
+		@Override
+		public Integer read(DataInput in) throws IOException {
+			return in.readInt();
+		}
+	};
+
+	/**
+	 * Writes the object as a long.
+	 */
+	HashTableCodec<Long> LONG = new HashTableCodec<Long>() {
+		@Override
+		public void write(Long object, DataOutput out) throws IOException {
+			out.writeLong(object);
+		}
+
+		@Override
+		public Long read(DataInput in) throws IOException {
+			return in.readLong();
+		}
+	};
+
+	/**
+	 * Writes the string as the number of its UTF-8 bytes followed by the
+	 * bytes. Unlike DataOutput.writeUTF(), strings of any length are
+	 * supported.
+	 *
+	 * The bytes are read into a buffer of READ_CHUNK_SIZE bytes that is
+	 * doubled whenever it fills up, so a corrupted length makes the read
+	 * fail once the input runs out rather than allocate the whole length
+	 * up front. The lengths above MAX_LENGTH, the largest byte array the
+	 * JVMs allocate, are rejected.
+	 */
+	HashTableCodec<String> STRING = new HashTableCodec<String>() {
+		private static final int READ_CHUNK_SIZE = 1 << 16;
+		private static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+		@Override
+		public void write(String object, DataOutput out) throws IOException {
+			byte[] bytes = object.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		@Override
+		public String read(DataInput in) throws IOException {
+			int length = in.readInt();
+			if (length < 0) {
+				throw new IOException("Negative string length " + length);
+			}
+			if (length > MAX_LENGTH) {
+				throw new IOException("String length " + length + " exceeds " + MAX_LENGTH);
+			}
+
+			byte[] bytes = new byte[Math.min(length, READ_CHUNK_SIZE)];
+			int read_length = 0;
+			while (read_length < length) {
+				if (read_length == bytes.length) {
+					bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * bytes.length));
+				}
+				in.readFully(bytes, read_length, bytes.length - read_length);
+				read_length = bytes.length;
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	/**
+	 * Writes the object.
+	 *
+	 * @param object  The object to write, never NULL.
+	 * @param out     The output to write to.
+	 *
+	 * @throws IOException if writing fails.
+	 */
+	void write(T object, DataOutput out) throws IOException;
+
+	/**
+	 * Reads the object written by write().
+	 *
+	 * @param in  The input to read from.
+	 *
+	 * @return The object read.
+	 *
+	 * @throws IOException if reading fails or the input is malformed.
+	 */
+	T read(DataInput in) throws IOException;
+}
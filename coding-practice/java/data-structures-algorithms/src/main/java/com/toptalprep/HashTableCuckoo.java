@@ -0,0 +1,864 @@
+package com.toptalprep;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Hash table implementation that uses bucketized cuckoo hashing to
+ * resolve key collisions.
+ *
+ * The array is divided into buckets of 4 cells. Two hash functions, both
+ * derived from {@link HashTableBase#computeHash(Object)}, assign every key
+ * two candidate buckets, and a key is always stored in one of them. Hence
+ * a lookup inspects at most 8 cells in two buckets, no matter how full the
+ * table is, plus a small stash (see below).
+ *
+ * A new mapping is placed in a free cell of either candidate bucket. If
+ * both are full, a randomly chosen mapping of one of the buckets is evicted
+ * to make room, and the evicted mapping is moved to its own alternative
+ * bucket, possibly evicting another mapping and so on ("cuckoo" eviction).
+ * If the chain of evictions gets longer than MAX_EVICTIONS, the mapping
+ * left without a cell is put in the stash, a small array of up to
+ * STASH_CAPACITY mappings that is searched by every lookup. The stash
+ * absorbs the rare insertion failures that would otherwise force the
+ * table to be re-sized well before it reaches the load factor. Only when
+ * the stash is full as well the table is re-sized.
+ *
+ * Growing the table doesn't help the keys whose hashes are equal, as
+ * they always share the same two buckets, so no more than 2 * BUCKET_SIZE
+ * + STASH_CAPACITY of them ever fit. Hence a re-size gives up growing
+ * the array after MAX_RESIZE_ATTEMPTS attempts, and the stash
+ * overflows instead: it's grown to hold all the mappings that didn't
+ * fit. Until the next re-size the mappings that don't fit go to the
+ * overflowing stash right away. The lookups of such keys degrade to
+ * a linear search of the stash.
+ *
+ * The work done by an insertion is bounded by MAX_EVICTIONS, while the
+ * lookups and removals are O(1) in the worst case.
+ *
+ * @note The class supports NULL as a key.
+ */
+public class HashTableCuckoo<KeyT, ValueT> extends HashTableBase<KeyT, ValueT> {
+	private static final int BUCKET_SIZE = 4;
+	private static final int MAX_EVICTIONS = 128;
+	private static final int STASH_CAPACITY = 4;
+	private static final int MAX_RESIZE_ATTEMPTS = 2;
+
+	/**
+	 * The mappings that didn't fit in any of their buckets.
+	 */
+	protected Object[] m_stash;
+	protected int m_stash_size;
+
+	/**
+	 * The state of the xorshift generator used to pick the evicted mappings.
+	 */
+	private int m_random_state;
+
+	/**
+	 * The state of the batch being probed by probeBatch(), allocated by
+	 * the first batch operation. For every key i of the batch,
+	 * m_batch_buckets[i] holds its first bucket, the BUCKET_SIZE cells of
+	 * m_batch_cells from BUCKET_SIZE * i hold the cells of the bucket and
+	 * the same cells of m_batch_hashes hold the cached hashes of their
+	 * mappings, and m_batch_mappings[i] holds the mapping of the key (see
+	 * probeBatch()).
+	 */
+	private int[] m_batch_buckets;
+	private Object[] m_batch_cells;
+	private long[] m_batch_hashes;
+	private Object[] m_batch_mappings;
+
+	/**
+	 * Constructs a HashTableCuckoo instance with initial capacity of 16
+	 * elements and load factor of 0.9.
+	 */
+	public HashTableCuckoo() {
+		this(16, 0.9f);
+	}
+
+	/**
+	 * Constructs a HashTableCuckoo instance with given initial capacity
+	 * and load factor of 0.9.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero.
+	 */
+	public HashTableCuckoo(int initial_capacity) throws IllegalArgumentException {
+		this(initial_capacity, 0.9f);
+	}
+
+	/**
+	 * Constructs a HashTableCuckoo instance with given initial capacity
+	 * and load factor.
+	 *
+	 * The capacity is rounded up to a multiple of 4 (the size of the
+	 * bucket). The number of mappings cannot be greater than the size
+	 * of the table, hence load factor is capped to 1.0.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table before it is re-sized. This value represents
+	 *                          a percentage and falls within a range [0.0, 1.0].
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative.
+	 */
+	public HashTableCuckoo(int initial_capacity, float load_factor) throws IllegalArgumentException {
+		this(initial_capacity, load_factor, new HashTableOption[0]);
+	}
+
+	/**
+	 * Constructs a HashTableCuckoo instance with given initial capacity,
+	 * load factor and options.
+	 *
+	 * The capacity is rounded up to a multiple of 4 (the size of the
+	 * bucket). The number of mappings cannot be greater than the size
+	 * of the table, hence load factor is capped to 1.0. The index reducer
+	 * maps the hashes to the buckets rather than to the array cells.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table before it is re-sized. This value represents
+	 *                          a percentage and falls within a range [0.0, 1.0].
+	 * @param options           The options that configure the table. The
+	 *                          {@link HashTableBase.HashMixer},
+	 *                          {@link HashTableBase.IndexReducer} and
+	 *                          {@link HashTableBase.ValueIndexMode} options are
+	 *                          recognized (see
+	 *                          {@link HashTableBase#HashTableBase(int, float, HashTableOption...)}).
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative, or if the
+	 *         {@link HashTableBase.IndexReducer#MASK} reducer is requested and
+	 *         initial_capacity isn't a power of 2.
+	 */
+	public HashTableCuckoo(int initial_capacity, float load_factor, HashTableOption... options)
+			throws IllegalArgumentException {
+		super(computeCapacity(initial_capacity), load_factor > 1.0f ? 1.0f : load_factor, options);
+		m_stash = new Object[STASH_CAPACITY];
+		m_stash_size = 0;
+		m_random_state = 0x2545F491;
+	}
+
+	/**
+	 * Rounds the requested capacity up to a multiple of BUCKET_SIZE.
+	 * Non-positive capacities are returned as is so that
+	 * {@link HashTableBase#HashTableBase(int, float)} rejects them.
+	 *
+	 * @throws IllegalArgumentException if the rounded capacity overflows
+	 *         the integer type.
+	 */
+	private static int computeCapacity(int requested_capacity) throws IllegalArgumentException {
+		if (requested_capacity <= 0) {
+			return requested_capacity;
+		}
+
+		long capacity = ((long) requested_capacity + BUCKET_SIZE - 1) / BUCKET_SIZE * BUCKET_SIZE;
+		if (capacity > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("initial_capacity is too large");
+		}
+		return (int) capacity;
+	}
+
+	/**
+	 * Returns the next pseudo-random number.
+	 */
+	private int nextRandom() {
+		m_random_state ^= m_random_state << 13;
+		m_random_state ^= m_random_state >>> 17;
+		m_random_state ^= m_random_state << 5;
+		return m_random_state;
+	}
+
+	private int bucketCount() {
+		return m_array.length / BUCKET_SIZE;
+	}
+
+	/**
+	 * Returns the first candidate bucket of the key hash.
+	 *
+	 * The two hash functions multiply the key hash by different 64-bit odd
+	 * constants and use the upper 32 bits of the product, so the candidate
+	 * buckets of a key are independent of each other. The result is reduced
+	 * to the bucket index by the table's {@link HashTableBase.IndexReducer}.
+	 */
+	private int firstBucket(long key_hash) {
+		return mapHashToIndex((key_hash * 0x9E3779B97F4A7C15L) >>> 32, bucketCount());
+	}
+
+	/**
+	 * Returns the second candidate bucket of the key hash.
+	 *
+	 * @see HashTableCuckoo#firstBucket(long)
+	 */
+	private int secondBucket(long key_hash) {
+		return mapHashToIndex((key_hash * 0xC2B2AE3D27D4EB4FL) >>> 32, bucketCount());
+	}
+
+	/**
+	 * Searches the bucket for the mapping with the given key.
+	 *
+	 * @return The array index of the mapping, or -1 if the bucket doesn't
+	 *         contain the key.
+	 */
+	private int findInBucket(int bucket, long key_hash, KeyT key) {
+		int start = bucket * BUCKET_SIZE;
+		for (int index = start; index < start + BUCKET_SIZE; ++index) {
+			if (m_array[index] != null && getKeyValue(index).keyEquals(key_hash, key)) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the array index of the mapping with the given key.
+	 *
+	 * @return The array index of the mapping, -1 if the key isn't in any of
+	 *         its buckets. The stash has to be searched in that case.
+	 */
+	private int findIndex(long key_hash, KeyT key) {
+		int index = findInBucket(firstBucket(key_hash), key_hash, key);
+		return index != -1 ? index : findInBucket(secondBucket(key_hash), key_hash, key);
+	}
+
+	/**
+	 * Finds the stash index of the mapping with the given key.
+	 *
+	 * @return The stash index of the mapping, or -1 if the stash doesn't
+	 *         contain the key.
+	 */
+	@SuppressWarnings("unchecked")
+	private int findInStash(long key_hash, KeyT key) {
+		for (int i = 0; i < m_stash_size; ++i) {
+			if (((KeyValuePair) m_stash[i]).keyEquals(key_hash, key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the mapping with the given key either in its buckets or in
+	 * the stash.
+	 *
+	 * @return The mapping, or null if the key isn't mapped.
+	 */
+	@SuppressWarnings("unchecked")
+	private KeyValuePair findMapping(long key_hash, KeyT key) {
+		int index = findIndex(key_hash, key);
+		if (index != -1) {
+			return getKeyValue(index);
+		}
+
+		int stash_index = findInStash(key_hash, key);
+		return stash_index != -1 ? (KeyValuePair) m_stash[stash_index] : null;
+	}
+
+	/**
+	 * Places the mapping in a free cell of the bucket.
+	 *
+	 * @return True if the mapping was placed, false if the bucket is full.
+	 */
+	private boolean placeInBucket(int bucket, KeyValuePair mapping) {
+		int start = bucket * BUCKET_SIZE;
+		for (int index = start; index < start + BUCKET_SIZE; ++index) {
+			if (m_array[index] == null) {
+				m_array[index] = mapping;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Places the mapping in one of its buckets, evicting other mappings to
+	 * their alternative buckets if needed, or in the stash.
+	 *
+	 * The caller must make sure that the key isn't already mapped.
+	 *
+	 * @param mapping  The mapping to place.
+	 *
+	 * @return Null if all the mappings have been placed, or the mapping left
+	 *         without a cell if both the evictions and the stash ran out.
+	 *         That might be a mapping other than the given one.
+	 */
+	private KeyValuePair placeMapping(KeyValuePair mapping) {
+		long key_hash = mapping.m_hash;
+		int first_bucket = firstBucket(key_hash);
+		int second_bucket = secondBucket(key_hash);
+		if (placeInBucket(first_bucket, mapping) || placeInBucket(second_bucket, mapping)) {
+			return null;
+		}
+
+		// Both buckets are full. Evict a random mapping from one of them.
+		int bucket = (nextRandom() & 1) == 0 ? first_bucket : second_bucket;
+		for (int eviction = 0; eviction < MAX_EVICTIONS; ++eviction) {
+			int index = bucket * BUCKET_SIZE + ((nextRandom() >>> 8) & (BUCKET_SIZE - 1));
+			KeyValuePair evicted_mapping = getKeyValue(index);
+			m_array[index] = mapping;
+			mapping = evicted_mapping;
+
+			// Move the evicted mapping to its other bucket
+			long evicted_hash = mapping.m_hash;
+			int evicted_first_bucket = firstBucket(evicted_hash);
+			bucket = evicted_first_bucket != bucket ? evicted_first_bucket : secondBucket(evicted_hash);
+			if (placeInBucket(bucket, mapping)) {
+				return null;
+			}
+		}
+
+		if (m_stash_size < STASH_CAPACITY) {
+			m_stash[m_stash_size++] = mapping;
+			return null;
+		}
+		return mapping;
+	}
+
+	/**
+	 * Puts the mapping in the stash, growing the stash beyond
+	 * STASH_CAPACITY if it's full.
+	 */
+	private void overflowStash(KeyValuePair mapping) {
+		if (m_stash_size == m_stash.length) {
+			m_stash = Arrays.copyOf(m_stash, 2 * m_stash.length);
+		}
+		m_stash[m_stash_size++] = mapping;
+	}
+
+	/**
+	 * Checks whether the stash has overflowed since the last re-size.
+	 */
+	private boolean isStashOverflowing() {
+		return m_stash.length > STASH_CAPACITY;
+	}
+
+	/**
+	 * Re-allocates the array with at least the given capacity and places
+	 * all the mappings, plus an optional extra mapping, in the new array.
+	 * If the mappings don't fit, the capacity is doubled and the placement
+	 * is attempted again, up to MAX_RESIZE_ATTEMPTS attempts in total. The
+	 * mappings that don't fit in the last attempt overflow the stash. If
+	 * the stash has already overflowed, a single attempt is made, as the
+	 * mappings that didn't fit before won't fit in a bigger array either.
+	 *
+	 * @param capacity       The requested capacity.
+	 * @param extra_mapping  The mapping that hasn't been placed yet, or null.
+	 *
+	 * @throws ArithmeticException if integer overflow happens when array
+	 * size is increased.
+	 */
+	@SuppressWarnings("unchecked")
+	private void rehash(int capacity, KeyValuePair extra_mapping) throws ArithmeticException {
+		List<KeyValuePair> mappings = new ArrayList<KeyValuePair>(m_size);
+		for (Object obj : m_array) {
+			if (obj != null) {
+				mappings.add((KeyValuePair) obj);
+			}
+		}
+		for (int i = 0; i < m_stash_size; ++i) {
+			mappings.add((KeyValuePair) m_stash[i]);
+		}
+		if (extra_mapping != null) {
+			mappings.add(extra_mapping);
+		}
+		int attempts_left = isStashOverflowing() ? 1 : MAX_RESIZE_ATTEMPTS;
+		long start_time = resizeStarted();
+
+		while (true) {
+			m_array = new Object[capacity];
+			m_stash = new Object[STASH_CAPACITY];
+			m_stash_size = 0;
+
+			boolean all_placed = true;
+			for (KeyValuePair mapping : mappings) {
+				KeyValuePair homeless_mapping = placeMapping(mapping);
+				if (homeless_mapping == null) {
+					continue;
+				}
+				if (attempts_left > 1) {
+					all_placed = false;
+					break;
+				}
+				overflowStash(homeless_mapping);
+			}
+
+			if (all_placed) {
+				resizeFinished(start_time);
+				return;
+			}
+
+			--attempts_left;
+			capacity *= 2;
+			if (capacity < 0) {
+				throw new ArithmeticException("Increased array size overflows the integer type");
+			}
+		}
+	}
+
+	/**
+	 * Re-sizes the table if needed.
+	 *
+	 * @throws ArithmeticException if integer overflow happens when array
+	 * size is increased.
+	 */
+	private void resizeTable() throws ArithmeticException {
+		// If current table occupancy is lower than the load factor we
+		// don't need to resize the table
+		float occupancy = (float) m_size / m_array.length;
+		if (occupancy < m_load_factor) {
+			return;
+		}
+
+		int doubled_size = 2 * m_array.length;
+		if (doubled_size < 0) {
+			throw new ArithmeticException("Increased array size overflows the integer type");
+		}
+		rehash(doubled_size, null);
+	}
+
+	/**
+	 * @see HashTableBase#resizeTo(int)
+	 */
+	@Override
+	protected void resizeTo(int array_length) throws ArithmeticException {
+		rehash(array_length, null);
+	}
+
+	/**
+	 * Checks whether given key is present in the map.
+	 *
+	 * Time complexity of this operation is O(1) in the worst case, as at
+	 * most two buckets and the stash are searched.
+	 *
+	 * @param key  The key to search for.
+	 *
+	 * @return True if key is found, false otherwise.
+	 */
+	public boolean containsKey(KeyT key) {
+		return containsKey(computeHash(key), key);
+	}
+
+	/**
+	 * @see HashTableBase#containsKey(long, Object)
+	 */
+	@Override
+	protected boolean containsKey(long key_hash, KeyT key) {
+		// Handle the case of an empty hash table right away
+		if (isEmpty()) {
+			return false;
+		}
+		return findMapping(key_hash, key) != null;
+	}
+
+	/**
+	 * Linearly scans the table searching for the specified value.
+	 *
+	 * Time complexity of this operation is O(N) where N is the current
+	 * size of the underlying array.
+	 *
+	 * In the {@link HashTableBase.ValueIndexMode#REFCOUNT} mode the value
+	 * is looked up in the value index instead, which takes constant
+	 * expected time.
+	 *
+	 * @param ref_value  The value to search for.
+	 *
+	 * @return True if the hash table contains the given value, false
+	 *         otherwise.
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean containsValue(ValueT ref_value) {
+		if (m_value_counts != null) {
+			return m_value_counts.containsKey(ref_value);
+		}
+
+		for (int i = 0; i < m_array.length + m_stash_size; ++i) {
+			KeyValuePair key_value =
+					(KeyValuePair) (i < m_array.length ? m_array[i] : m_stash[i - m_array.length]);
+			if (key_value != null) {
+				if ((ref_value != null && ref_value.equals(key_value.m_value)) || ref_value == key_value.m_value) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The cells of m_array followed by the cells of the stash.
+	 *
+	 * @see HashTableBase#cellCount()
+	 */
+	@Override
+	protected int cellCount() {
+		return super.cellCount() + m_stash_size;
+	}
+
+	/**
+	 * @see HashTableBase#forEachInCell(int, BiConsumer)
+	 */
+	@Override
+	protected void forEachInCell(int cell, BiConsumer<? super KeyT, ? super ValueT> action) {
+		int stash_index = cell - super.cellCount();
+		if (stash_index < 0) {
+			super.forEachInCell(cell, action);
+		}
+		else {
+			forEachAt(m_stash, stash_index, action);
+		}
+	}
+
+	/**
+	 * Returns the value that given key maps to.
+	 *
+	 * Time complexity of this operation is O(1) in the worst case, as at
+	 * most two buckets and the stash are searched.
+	 *
+	 * @param key  The key whose mapping is to be found.
+	 *
+	 * @return The value that key maps to of keys is present in the hash
+	 *         table, null otherwise. Note that null might also be returned
+	 *         if the key is present in the table but maps to a null value.
+	 */
+	public ValueT find(KeyT key) {
+		return find(computeHash(key), key);
+	}
+
+	/**
+	 * @see HashTableBase#find(long, Object)
+	 */
+	@Override
+	protected ValueT find(long key_hash, KeyT key) {
+		// Handle the case of an empty hash table right away
+		if (isEmpty()) {
+			return null;
+		}
+
+		KeyValuePair mapping = findMapping(key_hash, key);
+		return mapping != null ? mapping.m_value : null;
+	}
+
+	/**
+	 * Probes the keys of a batch in three stages. The first bucket of every
+	 * key is computed first. The cells of the first buckets of the whole
+	 * batch are then loaded together with the cached hashes of their
+	 * mappings, so the cache misses of the different keys overlap. The keys
+	 * are resolved last: the cells whose cached hashes match are compared
+	 * by key, and only the keys that aren't in their first bucket go on to
+	 * the second bucket and the stash.
+	 *
+	 * Once the method returns, m_batch_mappings[i] holds the mapping of
+	 * keys[start + i], or null if the key isn't mapped. The callers clear
+	 * m_batch_mappings once they're done with the batch, and probeBatch()
+	 * clears m_batch_cells, so that they don't keep the mappings reachable.
+	 */
+	@SuppressWarnings("unchecked")
+	private void probeBatch(KeyT[] keys, int start, int end, long[] key_hashes) {
+		if (m_batch_buckets == null) {
+			m_batch_buckets = new int[BATCH_SIZE];
+			m_batch_cells = new Object[BUCKET_SIZE * BATCH_SIZE];
+			m_batch_hashes = new long[BUCKET_SIZE * BATCH_SIZE];
+			m_batch_mappings = new Object[BATCH_SIZE];
+		}
+		int batch_size = end - start;
+
+		for (int i = 0; i < batch_size; ++i) {
+			m_batch_buckets[i] = firstBucket(key_hashes[i]);
+		}
+
+		for (int i = 0; i < batch_size; ++i) {
+			int first_index = m_batch_buckets[i] * BUCKET_SIZE;
+			for (int j = 0; j < BUCKET_SIZE; ++j) {
+				Object cell = m_array[first_index + j];
+				m_batch_cells[i * BUCKET_SIZE + j] = cell;
+				if (cell != null) {
+					m_batch_hashes[i * BUCKET_SIZE + j] = ((KeyValuePair) cell).m_hash;
+				}
+			}
+		}
+
+		for (int i = 0; i < batch_size; ++i) {
+			KeyT key = keys[start + i];
+			long key_hash = key_hashes[i];
+			KeyValuePair mapping = null;
+			for (int cell = i * BUCKET_SIZE; cell < (i + 1) * BUCKET_SIZE; ++cell) {
+				KeyValuePair key_value = (KeyValuePair) m_batch_cells[cell];
+				m_batch_cells[cell] = null;
+				if (mapping == null && key_value != null && m_batch_hashes[cell] == key_hash &&
+						key_value.keyEquals(key_hash, key)) {
+					mapping = key_value;
+				}
+			}
+
+			if (mapping == null) {
+				mapping = findMapping(key_hash, key);
+			}
+			m_batch_mappings[i] = mapping;
+		}
+	}
+
+	/**
+	 * Probes the batch in stages (see probeBatch()).
+	 *
+	 * @see HashTableBase#findBatch(Object[], int, int, long[], Object[])
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void findBatch(KeyT[] keys, int start, int end, long[] key_hashes, ValueT[] out) {
+		probeBatch(keys, start, end, key_hashes);
+		for (int i = start; i < end; ++i) {
+			KeyValuePair mapping = (KeyValuePair) m_batch_mappings[i - start];
+			out[i] = mapping != null ? mapping.m_value : null;
+			m_batch_mappings[i - start] = null;
+		}
+	}
+
+	/**
+	 * Probes the batch in stages (see probeBatch()).
+	 *
+	 * @see HashTableBase#containsBatch(Object[], int, int, long[])
+	 */
+	@Override
+	protected boolean containsBatch(KeyT[] keys, int start, int end, long[] key_hashes) {
+		probeBatch(keys, start, end, key_hashes);
+		boolean found_all = true;
+		for (int i = 0; i < end - start; ++i) {
+			found_all &= m_batch_mappings[i] != null;
+			m_batch_mappings[i] = null;
+		}
+		return found_all;
+	}
+
+	/**
+	 * Probes the batch in stages (see probeBatch()) and updates the values
+	 * of the mappings found in place. The keys that aren't mapped are
+	 * mapped by map(). The evictions and the re-sizes move the mappings as
+	 * a whole, so a mapping found before a mapping inserted ahead of it
+	 * moved it is still updated in place.
+	 *
+	 * @see HashTableBase#mapBatch(Object[], Object[], int, int, long[])
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void mapBatch(KeyT[] keys, ValueT[] values, int start, int end, long[] key_hashes)
+			throws ArithmeticException {
+		probeBatch(keys, start, end, key_hashes);
+		for (int i = start; i < end; ++i) {
+			KeyValuePair mapping = (KeyValuePair) m_batch_mappings[i - start];
+			m_batch_mappings[i - start] = null;
+			if (mapping != null) {
+				ValueT previous_value = mapping.m_value;
+				mapping.m_value = values[i];
+				replaceValue(previous_value, values[i]);
+			}
+			else {
+				map(key_hashes[i - start], keys[i], values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Maps the key to value if the key is not already mapped in the table,
+	 * or updates the value if the key is already mapped.
+	 *
+	 * The time complexity of this method is O(1) if either of the key's
+	 * buckets has a free cell, and O(E) otherwise, where E is the number
+	 * of evictions (bounded by MAX_EVICTIONS). If the mapping can't be
+	 * placed even with the stash, or the occupancy reaches the load
+	 * factor, the table is re-sized in O(N) time. If the stash has
+	 * overflowed since the last re-size, the mapping that can't be placed
+	 * is added to the stash instead.
+	 *
+	 * @param key    The key to be placed in the hash table.
+	 * @param value  The value to which key is mapped to.
+	 *
+	 * @return Returns the previous value that given key was mapped to, or
+	 *         null if key didn't have mapping. The null might also be
+	 *         returned if the key was previously mapped to a null value.
+	 *
+	 * @throws ArithmeticException {@link HashTableCuckoo#resizeTable()}
+	 */
+	public ValueT map(KeyT key, ValueT value) throws ArithmeticException {
+		return map(computeHash(key), key, value);
+	}
+
+	/**
+	 * @see HashTableBase#map(long, Object, Object)
+	 */
+	@Override
+	protected ValueT map(long key_hash, KeyT key, ValueT value) throws ArithmeticException {
+		KeyValuePair mapping = findMapping(key_hash, key);
+		if (mapping != null) {
+			// The key already has a mapping in the table. Update the value
+			// it's mapped to and return the previous value.
+			ValueT previous_value = mapping.m_value;
+			mapping.m_value = value;
+			replaceValue(previous_value, value);
+			return previous_value;
+		}
+
+		++m_size;
+		retainValue(value);
+		KeyValuePair homeless_mapping = placeMapping(new KeyValuePair(key, value, key_hash));
+		if (homeless_mapping != null && isStashOverflowing()) {
+			overflowStash(homeless_mapping);
+			resizeTable();
+		}
+		else if (homeless_mapping != null) {
+			int doubled_size = 2 * m_array.length;
+			if (doubled_size < 0) {
+				throw new ArithmeticException("Increased array size overflows the integer type");
+			}
+			rehash(doubled_size, homeless_mapping);
+		}
+		else {
+			// Resize the table if needed
+			resizeTable();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Moves the stashed mappings whose buckets have a free cell back to
+	 * their buckets.
+	 */
+	@SuppressWarnings("unchecked")
+	private void drainStash() {
+		int i = 0;
+		while (i < m_stash_size) {
+			KeyValuePair mapping = (KeyValuePair) m_stash[i];
+			long key_hash = mapping.m_hash;
+			if (placeInBucket(firstBucket(key_hash), mapping) || placeInBucket(secondBucket(key_hash), mapping)) {
+				removeFromStash(i);
+			}
+			else {
+				++i;
+			}
+		}
+	}
+
+	/**
+	 * Removes the mapping at the given stash index.
+	 */
+	private void removeFromStash(int stash_index) {
+		m_stash[stash_index] = m_stash[--m_stash_size];
+		m_stash[m_stash_size] = null;
+	}
+
+	/**
+	 * Removes the mapping with the given key, and optionally the given
+	 * value, from the table.
+	 *
+	 * @param key            The key to unmap.
+	 * @param value          The value to compare against.
+	 * @param compare_value  Whether the value must be compared.
+	 *
+	 * @return The removed mapping, or null if no mapping has been removed.
+	 */
+	@SuppressWarnings("unchecked")
+	private KeyValuePair removeMapping(KeyT key, ValueT value, boolean compare_value) {
+		if (isEmpty()) {
+			return null;
+		}
+
+		long key_hash = computeHash(key);
+		int index = findIndex(key_hash, key);
+		int stash_index = index == -1 ? findInStash(key_hash, key) : -1;
+		if (index == -1 && stash_index == -1) {
+			return null;
+		}
+
+		KeyValuePair mapping = index != -1 ? getKeyValue(index) : (KeyValuePair) m_stash[stash_index];
+		if (compare_value &&
+				!((value != null && value.equals(mapping.m_value)) || value == mapping.m_value)) {
+			return null;
+		}
+
+		if (index != -1) {
+			m_array[index] = null;
+			if (m_stash_size > 0) {
+				// A stashed mapping might fit in the freed cell
+				drainStash();
+			}
+		}
+		else {
+			removeFromStash(stash_index);
+		}
+		--m_size;
+		releaseValue(mapping.m_value);
+		return mapping;
+	}
+
+	/**
+	 * Removes the mapping with the given key.
+	 *
+	 * @param key  The key to unmap.
+	 *
+	 * @return Returns the value that key was mapped to, or NULL if key didn't
+	 *         have a mapping. NULL might also be returned if key was mapped
+	 *         to a NULL value.
+	 */
+	public ValueT unmap(KeyT key) {
+		KeyValuePair mapping = removeMapping(key, null, false);
+		return mapping != null ? mapping.m_value : null;
+	}
+
+	/**
+	 * Removes the mapping with the key if it maps to the specified value.
+	 *
+	 * @param key    The key to unmap.
+	 * @param value  The value to compare against.
+	 *
+	 * @return Returns true if the mapping is removed from the table, false
+	 *         otherwise.
+	 */
+	public boolean unmap(KeyT key, ValueT value) {
+		return removeMapping(key, value, true) != null;
+	}
+
+	/**
+	 * Remaps the key to the specified value.
+	 *
+	 * If the key isn't found in the hash table the method has no effect.
+	 * This is the difference between map and remap methods.
+	 *
+	 * @param key    The key to remap.
+	 * @param value  The value that key is remapped to.
+	 *
+	 * @return The value that key was mapped to or null if the key had
+	 *         no mapping. Null return value may also indicate that key
+	 *         was previously mapped to the null value.
+	 */
+	public ValueT remap(KeyT key, ValueT value) {
+		if (isEmpty()) {
+			return null;
+		}
+
+		KeyValuePair mapping = findMapping(computeHash(key), key);
+		if (mapping == null) {
+			return null;
+		}
+
+		ValueT previous_value = mapping.m_value;
+		mapping.m_value = value;
+		replaceValue(previous_value, value);
+		return previous_value;
+	}
+
+	/**
+	 * Clears the table so that it contains no keys.
+	 *
+	 * The underlying array is shrank to its initial capacity.
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		m_stash = new Object[STASH_CAPACITY];
+		m_stash_size = 0;
+	}
+}
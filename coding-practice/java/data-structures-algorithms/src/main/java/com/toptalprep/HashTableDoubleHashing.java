@@ -108,6 +108,31 @@ public class HashTableDoubleHashing<KeyT, ValueT> extends HashTableOpenAddressin
 		super(roundToPrime(initial_capacity), load_factor);
 	}
 	
+	/**
+	 * Constructs a HashTableDoubleHashing instance with given initial capacity rounded
+	 * up to a prime, load factor and options.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity that is rounded up
+	 *                          to a prime.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table before it is re-sized. This value represents
+	 *                          a percentage and falls within a range [0.0, 1.0].
+	 * @param options           The options that configure the table (see
+	 *                          {@link HashTableOpenAddressing#HashTableOpenAddressing(int, float, HashTableOption...)}).
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative or greater than 1.0, or if the
+	 *         {@link HashTableBase.IndexReducer#MASK} reducer is requested as
+	 *         the array length of this table is never a power of 2.
+	 */
+	public HashTableDoubleHashing(int initial_capacity, float load_factor, HashTableOption... options)
+			throws IllegalArgumentException {
+		super(roundToPrime(initial_capacity), load_factor, options);
+		if (m_index_reducer == IndexReducer.MASK) {
+			throw new IllegalArgumentException("MASK index reducer requires the array length to be a power of 2");
+		}
+	}
+	
 	/**
 	 * Find a prime p such that p >= value.
 	 *
@@ -164,7 +189,7 @@ public class HashTableDoubleHashing<KeyT, ValueT> extends HashTableOpenAddressin
 	}
 	
 	/**
-	 * @see HashTableOpenAddressing#nextProbeOffset(long, int)
+	 * @see HashTableOpenAddressing#nextProbeOffset(long, int, int)
 	 *
 	 * As showed in {@link HashTableDoubleHashing}, the next array index to
 	 * probe is entirely determined by the key hash. I.e. if the last probed
@@ -173,11 +198,11 @@ public class HashTableDoubleHashing<KeyT, ValueT> extends HashTableOpenAddressin
 	 * as the probe offset (note that offset doesn't depend on the number of
 	 * array indices probed, it only depends on the key).
 	 */
-	protected int nextProbeOffset(long key_hash, int probed_indices_count) {
+	protected int nextProbeOffset(long key_hash, int probed_indices_count, int array_length) {
 		// It integer cast below is safe, as the resulting value can never be
 		// greater than Integer.MAX_VALUE - 2. Hence, adding 1 to that value
 		// also won't cause integer overflow.
-		return 1 + (int)(key_hash % (m_array.length - 1));
+		return 1 + (int)(key_hash % (array_length - 1));
 	}
 	
 	/**
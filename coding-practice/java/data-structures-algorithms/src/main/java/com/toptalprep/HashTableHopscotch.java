@@ -0,0 +1,808 @@
+package com.toptalprep;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Hash table implementation that uses hopscotch hashing to resolve
+ * key collisions.
+ *
+ * Every key is stored within a fixed neighborhood of NEIGHBORHOOD_SIZE
+ * cells that starts at the array index where the key hashes to (its home
+ * index). Each home index has a bitmap in which bit i is set when the cell
+ * at home + i holds a key with that home index. A lookup therefore only
+ * inspects the cells whose bits are set, no matter how full the table is
+ * or how long the surrounding clusters are.
+ *
+ * A new mapping is placed in the first empty cell found by linear probing
+ * from the home index. If that cell is outside of the neighborhood, the
+ * empty cell is "hopped" towards the home index: a mapping that precedes
+ * the empty cell and can be moved to it without leaving its own
+ * neighborhood is moved, and the cell it occupied becomes the new empty
+ * cell. This repeats until the empty cell is within the neighborhood. If
+ * no mapping can be moved, the table is re-sized.
+ *
+ * Growing the table doesn't help the keys whose hashes are equal, as
+ * they always share the same home index, so no more than
+ * NEIGHBORHOOD_SIZE of them ever fit. Hence a re-size gives up growing
+ * the array after MAX_RESIZE_ATTEMPTS attempts, and the mappings that
+ * don't fit are put in an overflow array instead, which is searched by
+ * every lookup that doesn't find its key in the neighborhood. While the
+ * overflow array isn't empty, the mappings that don't fit are added to
+ * it right away. The lookups of such keys degrade to a linear search of
+ * the overflow array.
+ *
+ * As the lookups don't depend on the length of the clusters, the table
+ * may run with load factors above 0.9 without the probe lengths growing
+ * the way they do with {@link HashTableLinearProbe}.
+ *
+ * @note The class supports NULL as a key.
+ */
+public class HashTableHopscotch<KeyT, ValueT> extends HashTableBase<KeyT, ValueT> {
+	/**
+	 * The number of cells in a neighborhood. Equals the number of bits
+	 * in the bitmap.
+	 */
+	private static final int NEIGHBORHOOD_SIZE = Integer.SIZE;
+	private static final int MAX_RESIZE_ATTEMPTS = 2;
+
+	/**
+	 * The neighborhood bitmap of the home index. Bit i is set if the cell
+	 * at (home index + i) % m_array.length holds a key that hashes to the
+	 * home index.
+	 */
+	protected int[] m_hop_info;
+
+	/**
+	 * The mappings that didn't fit in the neighborhood of their home index,
+	 * or null if there are none.
+	 */
+	protected Object[] m_overflow;
+	protected int m_overflow_size;
+
+	/**
+	 * The state of the batch being probed by probeBatch(), allocated by
+	 * the first batch operation. For every key of the batch, m_batch_indexes
+	 * holds its home index, m_batch_hop_info holds the bitmap of the home
+	 * index, m_batch_cells holds the first mapping of the neighborhood and
+	 * then the mapping of the key (see probeBatch()), and m_batch_hashes
+	 * holds the cached hash of the first mapping of the neighborhood.
+	 */
+	private int[] m_batch_indexes;
+	private int[] m_batch_hop_info;
+	private Object[] m_batch_cells;
+	private long[] m_batch_hashes;
+
+	/**
+	 * Constructs a HashTableHopscotch instance with initial capacity
+	 * of 32 elements and load factor of 0.95. The load factor is higher
+	 * than the one used by the other implementations as the lookups
+	 * inspect only the neighborhood of the home index.
+	 */
+	public HashTableHopscotch() {
+		this(32, 0.95f);
+	}
+
+	/**
+	 * Constructs a HashTableHopscotch instance with given initial capacity
+	 * and load factor of 0.95.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero.
+	 */
+	public HashTableHopscotch(int initial_capacity) throws IllegalArgumentException {
+		this(initial_capacity, 0.95f);
+	}
+
+	/**
+	 * Constructs a HashTableHopscotch instance with given initial capacity
+	 * and load factor.
+	 *
+	 * The number of mappings cannot be greater than the size of the table,
+	 * hence load factor is capped to 1.0.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table before it is re-sized. This value represents
+	 *                          a percentage and falls within a range [0.0, 1.0].
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative.
+	 */
+	public HashTableHopscotch(int initial_capacity, float load_factor)
+			throws IllegalArgumentException {
+		this(initial_capacity, load_factor, new HashTableOption[0]);
+	}
+
+	/**
+	 * Constructs a HashTableHopscotch instance with given initial capacity,
+	 * load factor and options.
+	 *
+	 * The number of mappings cannot be greater than the size of the table,
+	 * hence load factor is capped to 1.0.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table before it is re-sized. This value represents
+	 *                          a percentage and falls within a range [0.0, 1.0].
+	 * @param options           The options that configure the table. The
+	 *                          {@link HashTableBase.HashMixer},
+	 *                          {@link HashTableBase.IndexReducer} and
+	 *                          {@link HashTableBase.ValueIndexMode} options are
+	 *                          recognized (see
+	 *                          {@link HashTableBase#HashTableBase(int, float, HashTableOption...)}).
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative, or if the
+	 *         {@link HashTableBase.IndexReducer#MASK} reducer is requested and
+	 *         initial_capacity isn't a power of 2.
+	 */
+	public HashTableHopscotch(int initial_capacity, float load_factor, HashTableOption... options)
+			throws IllegalArgumentException {
+		super(initial_capacity, load_factor > 1.0f ? 1.0f : load_factor, options);
+		m_hop_info = new int[m_array.length];
+	}
+
+	/**
+	 * Finds the array index of the mapping with the given key by inspecting
+	 * the cells whose bits are set in the neighborhood bitmap of the key's
+	 * home index.
+	 *
+	 * @param key_hash  The hash of the key as returned by computeHash.
+	 * @param key       The key to search for.
+	 *
+	 * @return The array index of the mapping, or -1 if key isn't mapped.
+	 */
+	private int findIndex(long key_hash, KeyT key) {
+		int home_index = mapHashToIndex(key_hash);
+
+		int hop_info = m_hop_info[home_index];
+		while (hop_info != 0) {
+			int index = (home_index + Integer.numberOfTrailingZeros(hop_info)) % m_array.length;
+			if (getKeyValue(index).keyEquals(key_hash, key)) {
+				return index;
+			}
+			// Clear the lowest set bit
+			hop_info &= hop_info - 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the overflow array index of the mapping with the given key.
+	 *
+	 * @return The overflow array index of the mapping, or -1 if the
+	 *         overflow array doesn't contain the key.
+	 */
+	@SuppressWarnings("unchecked")
+	private int findInOverflow(long key_hash, KeyT key) {
+		for (int i = 0; i < m_overflow_size; ++i) {
+			if (((KeyValuePair) m_overflow[i]).keyEquals(key_hash, key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the mapping with the given key either in the neighborhood of
+	 * its home index or in the overflow array.
+	 *
+	 * @return The mapping, or null if the key isn't mapped.
+	 */
+	@SuppressWarnings("unchecked")
+	private KeyValuePair findMapping(long key_hash, KeyT key) {
+		int index = findIndex(key_hash, key);
+		if (index != -1) {
+			return getKeyValue(index);
+		}
+
+		int overflow_index = findInOverflow(key_hash, key);
+		return overflow_index != -1 ? (KeyValuePair) m_overflow[overflow_index] : null;
+	}
+
+	/**
+	 * Checks whether given key is present in the map.
+	 *
+	 * Time complexity of this operation is O(H) in the worst case, where
+	 * H is the neighborhood size, unless the overflow array has to be
+	 * searched as well.
+	 *
+	 * @param key  The key to search for.
+	 *
+	 * @return True if key is found, false otherwise.
+	 */
+	public boolean containsKey(KeyT key) {
+		return containsKey(computeHash(key), key);
+	}
+
+	/**
+	 * @see HashTableBase#containsKey(long, Object)
+	 */
+	@Override
+	protected boolean containsKey(long key_hash, KeyT key) {
+		// Handle the case of an empty hash table right away
+		if (isEmpty()) {
+			return false;
+		}
+		return findMapping(key_hash, key) != null;
+	}
+
+	/**
+	 * Linearly scans the table searching for the specified value.
+	 *
+	 * Time complexity of this operation is O(N) where N is the current
+	 * size of the underlying array.
+	 *
+	 * In the {@link HashTableBase.ValueIndexMode#REFCOUNT} mode the value
+	 * is looked up in the value index instead, which takes constant
+	 * expected time.
+	 *
+	 * @param ref_value  The value to search for.
+	 *
+	 * @return True if the hash table contains the given value, false
+	 *         otherwise.
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean containsValue(ValueT ref_value) {
+		if (m_value_counts != null) {
+			return m_value_counts.containsKey(ref_value);
+		}
+
+		for (int i = 0; i < m_array.length + m_overflow_size; ++i) {
+			KeyValuePair key_value =
+					(KeyValuePair) (i < m_array.length ? m_array[i] : m_overflow[i - m_array.length]);
+			if (key_value != null) {
+				if ((ref_value != null && ref_value.equals(key_value.m_value)) || ref_value == key_value.m_value) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The cells of m_array followed by the cells of the overflow array.
+	 *
+	 * @see HashTableBase#cellCount()
+	 */
+	@Override
+	protected int cellCount() {
+		return super.cellCount() + m_overflow_size;
+	}
+
+	/**
+	 * @see HashTableBase#forEachInCell(int, BiConsumer)
+	 */
+	@Override
+	protected void forEachInCell(int cell, BiConsumer<? super KeyT, ? super ValueT> action) {
+		int overflow_index = cell - super.cellCount();
+		if (overflow_index < 0) {
+			super.forEachInCell(cell, action);
+		}
+		else {
+			forEachAt(m_overflow, overflow_index, action);
+		}
+	}
+
+	/**
+	 * Returns the value that given key maps to.
+	 *
+	 * @param key  The key whose mapping is to be found.
+	 *
+	 * @return The value that key maps to of keys is present in the hash
+	 *         table, null otherwise. Note that null might also be returned
+	 *         if the key is present in the table but maps to a null value.
+	 */
+	public ValueT find(KeyT key) {
+		return find(computeHash(key), key);
+	}
+
+	/**
+	 * @see HashTableBase#find(long, Object)
+	 */
+	@Override
+	protected ValueT find(long key_hash, KeyT key) {
+		// Handle the case of an empty hash table right away
+		if (isEmpty()) {
+			return null;
+		}
+
+		KeyValuePair mapping = findMapping(key_hash, key);
+		return mapping != null ? mapping.m_value : null;
+	}
+
+	/**
+	 * Probes the keys of a batch in three stages. The home index of every
+	 * key is computed first. The bitmaps of the home indexes of the whole
+	 * batch are then loaded, together with the first mapping of every
+	 * neighborhood and its cached hash, so the cache misses of the
+	 * different keys overlap. The keys are resolved last: a key whose
+	 * neighborhood is empty can only be in the overflow array, a key whose
+	 * cached hash matches is compared with the key of the first mapping,
+	 * and only the remaining keys go through the rest of the neighborhood.
+	 *
+	 * Once the method returns, m_batch_cells[i] holds the mapping of
+	 * keys[start + i], or null if the key isn't mapped. The callers clear
+	 * m_batch_cells once they're done with the batch, so that it doesn't
+	 * keep the mappings reachable.
+	 */
+	@SuppressWarnings("unchecked")
+	private void probeBatch(KeyT[] keys, int start, int end, long[] key_hashes) {
+		if (m_batch_indexes == null) {
+			m_batch_indexes = new int[BATCH_SIZE];
+			m_batch_hop_info = new int[BATCH_SIZE];
+			m_batch_cells = new Object[BATCH_SIZE];
+			m_batch_hashes = new long[BATCH_SIZE];
+		}
+		int batch_size = end - start;
+
+		for (int i = 0; i < batch_size; ++i) {
+			m_batch_indexes[i] = mapHashToIndex(key_hashes[i]);
+		}
+
+		for (int i = 0; i < batch_size; ++i) {
+			int hop_info = m_hop_info[m_batch_indexes[i]];
+			m_batch_hop_info[i] = hop_info;
+			if (hop_info != 0) {
+				int index = (m_batch_indexes[i] + Integer.numberOfTrailingZeros(hop_info)) % m_array.length;
+				KeyValuePair first_mapping = getKeyValue(index);
+				m_batch_cells[i] = first_mapping;
+				m_batch_hashes[i] = first_mapping.m_hash;
+			}
+		}
+
+		for (int i = 0; i < batch_size; ++i) {
+			KeyT key = keys[start + i];
+			long key_hash = key_hashes[i];
+			KeyValuePair mapping = null;
+			if (m_batch_hop_info[i] == 0) {
+				if (m_overflow_size > 0) {
+					int overflow_index = findInOverflow(key_hash, key);
+					mapping = overflow_index != -1 ? (KeyValuePair) m_overflow[overflow_index] : null;
+				}
+			}
+			else if (m_batch_hashes[i] == key_hash && ((KeyValuePair) m_batch_cells[i]).keyEquals(key_hash, key)) {
+				mapping = (KeyValuePair) m_batch_cells[i];
+			}
+			else {
+				mapping = findMapping(key_hash, key);
+			}
+			m_batch_cells[i] = mapping;
+		}
+	}
+
+	/**
+	 * Probes the batch in stages (see probeBatch()).
+	 *
+	 * @see HashTableBase#findBatch(Object[], int, int, long[], Object[])
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void findBatch(KeyT[] keys, int start, int end, long[] key_hashes, ValueT[] out) {
+		probeBatch(keys, start, end, key_hashes);
+		for (int i = start; i < end; ++i) {
+			KeyValuePair mapping = (KeyValuePair) m_batch_cells[i - start];
+			out[i] = mapping != null ? mapping.m_value : null;
+			m_batch_cells[i - start] = null;
+		}
+	}
+
+	/**
+	 * Probes the batch in stages (see probeBatch()).
+	 *
+	 * @see HashTableBase#containsBatch(Object[], int, int, long[])
+	 */
+	@Override
+	protected boolean containsBatch(KeyT[] keys, int start, int end, long[] key_hashes) {
+		probeBatch(keys, start, end, key_hashes);
+		boolean found_all = true;
+		for (int i = 0; i < end - start; ++i) {
+			found_all &= m_batch_cells[i] != null;
+			m_batch_cells[i] = null;
+		}
+		return found_all;
+	}
+
+	/**
+	 * Probes the batch in stages (see probeBatch()) and updates the values
+	 * of the mappings found in place. The keys that aren't mapped are
+	 * mapped by map(). The hops and the re-sizes move the mappings as a
+	 * whole, so a mapping found before a mapping inserted ahead of it moved
+	 * it is still updated in place.
+	 *
+	 * @see HashTableBase#mapBatch(Object[], Object[], int, int, long[])
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void mapBatch(KeyT[] keys, ValueT[] values, int start, int end, long[] key_hashes)
+			throws ArithmeticException {
+		probeBatch(keys, start, end, key_hashes);
+		for (int i = start; i < end; ++i) {
+			KeyValuePair mapping = (KeyValuePair) m_batch_cells[i - start];
+			m_batch_cells[i - start] = null;
+			if (mapping != null) {
+				ValueT previous_value = mapping.m_value;
+				mapping.m_value = values[i];
+				replaceValue(previous_value, values[i]);
+			}
+			else {
+				map(key_hashes[i - start], keys[i], values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Places the mapping in the neighborhood of its home index, hopping
+	 * the empty cell towards the home index if needed.
+	 *
+	 * The caller must make sure that the key isn't already mapped and that
+	 * the array contains at least one empty cell.
+	 *
+	 * @param mapping  The mapping to place.
+	 *
+	 * @return True if the mapping was placed, false if no empty cell could
+	 *         be moved to the neighborhood. The table must be re-sized in
+	 *         that case.
+	 */
+	private boolean placeMapping(KeyValuePair mapping) {
+		int length = m_array.length;
+		int home_index = mapHashToIndex(mapping.m_hash);
+
+		// Find the first empty cell using linear probing
+		int distance = 0;
+		while (m_array[(home_index + distance) % length] != null) {
+			++distance;
+		}
+		int empty_index = (home_index + distance) % length;
+
+		while (distance >= NEIGHBORHOOD_SIZE) {
+			// Look for the mapping that is furthest from the empty cell and
+			// can be moved to it without leaving its neighborhood
+			boolean hopped = false;
+			for (int offset = NEIGHBORHOOD_SIZE - 1; offset > 0 && !hopped; --offset) {
+				int bucket_index = (empty_index - offset + length) % length;
+
+				// Only the mappings stored before the empty cell can be moved
+				int movable = m_hop_info[bucket_index] & ((1 << offset) - 1);
+				if (movable != 0) {
+					int bit = Integer.numberOfTrailingZeros(movable);
+					int index = (bucket_index + bit) % length;
+
+					m_array[empty_index] = m_array[index];
+					m_array[index] = null;
+					m_hop_info[bucket_index] ^= (1 << bit) | (1 << offset);
+
+					empty_index = index;
+					distance -= offset - bit;
+					hopped = true;
+				}
+			}
+
+			if (!hopped) {
+				return false;
+			}
+		}
+
+		m_array[empty_index] = mapping;
+		m_hop_info[home_index] |= 1 << distance;
+		return true;
+	}
+
+	/**
+	 * Adds the mapping to the overflow array, growing the array if needed.
+	 */
+	private void addToOverflow(KeyValuePair mapping) {
+		if (m_overflow == null) {
+			m_overflow = new Object[4];
+		}
+		else if (m_overflow_size == m_overflow.length) {
+			m_overflow = Arrays.copyOf(m_overflow, 2 * m_overflow.length);
+		}
+		m_overflow[m_overflow_size++] = mapping;
+	}
+
+	/**
+	 * Removes the mapping at the given overflow array index.
+	 */
+	private void removeFromOverflow(int overflow_index) {
+		m_overflow[overflow_index] = m_overflow[--m_overflow_size];
+		m_overflow[m_overflow_size] = null;
+		if (m_overflow_size == 0) {
+			m_overflow = null;
+		}
+	}
+
+	/**
+	 * Moves the overflowed mappings that fit in the neighborhood of their
+	 * home index back to the array.
+	 */
+	@SuppressWarnings("unchecked")
+	private void drainOverflow() {
+		int i = 0;
+		while (i < m_overflow_size) {
+			if (placeMapping((KeyValuePair) m_overflow[i])) {
+				removeFromOverflow(i);
+			}
+			else {
+				++i;
+			}
+		}
+	}
+
+	/**
+	 * Places the mapping in the array or, if it doesn't fit and that's
+	 * allowed, in the overflow array.
+	 *
+	 * @return False if the mapping hasn't been placed.
+	 */
+	private boolean placeOrOverflow(KeyValuePair mapping, boolean overflow_allowed) {
+		if (placeMapping(mapping)) {
+			return true;
+		}
+		if (overflow_allowed) {
+			addToOverflow(mapping);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Re-allocates the array with the given capacity and places all the
+	 * mappings, plus an optional extra mapping, in the new array. If the
+	 * mappings don't fit, the capacity is doubled and the placement is
+	 * attempted again, up to MAX_RESIZE_ATTEMPTS attempts in total. The
+	 * mappings that don't fit in the last attempt are put in the overflow
+	 * array. If the overflow array isn't empty, a single attempt is made,
+	 * as the mappings that didn't fit before won't fit in a bigger array
+	 * either.
+	 *
+	 * @param capacity       The new capacity.
+	 * @param extra_mapping  The mapping that hasn't been placed yet, or null.
+	 *
+	 * @throws ArithmeticException if integer overflow happens when array
+	 * size is increased.
+	 */
+	@SuppressWarnings("unchecked")
+	private void rehash(int capacity, KeyValuePair extra_mapping) throws ArithmeticException {
+		Object[] old_array = m_array;
+		Object[] old_overflow = m_overflow;
+		int old_overflow_size = m_overflow_size;
+		int attempts_left = m_overflow_size > 0 ? 1 : MAX_RESIZE_ATTEMPTS;
+		long start_time = resizeStarted();
+
+		boolean all_placed = false;
+		while (!all_placed) {
+			if (capacity < 0) {
+				throw new ArithmeticException("Increased array size overflows the integer type");
+			}
+			m_array = new Object[capacity];
+			m_hop_info = new int[capacity];
+			m_overflow = null;
+			m_overflow_size = 0;
+
+			boolean overflow_allowed = attempts_left == 1;
+			all_placed = extra_mapping == null || placeOrOverflow(extra_mapping, overflow_allowed);
+			for (int i = 0; i < old_array.length && all_placed; ++i) {
+				if (old_array[i] != null) {
+					all_placed = placeOrOverflow((KeyValuePair) old_array[i], overflow_allowed);
+				}
+			}
+			for (int i = 0; i < old_overflow_size && all_placed; ++i) {
+				all_placed = placeOrOverflow((KeyValuePair) old_overflow[i], overflow_allowed);
+			}
+			--attempts_left;
+			capacity *= 2;
+		}
+		resizeFinished(start_time);
+	}
+
+	/**
+	 * Re-sizes the table if needed and moves all the existing mappings
+	 * to the new location in the newly allocated array.
+	 *
+	 * @throws ArithmeticException if integer overflow happens when array
+	 * size is increased.
+	 */
+	private void resizeTable() throws ArithmeticException {
+		// If current table occupancy is lower than the load factor we
+		// don't need to resize the table
+		float occupancy = (float) m_size / m_array.length;
+		if (occupancy < m_load_factor) {
+			return;
+		}
+		rehash(2 * m_array.length, null);
+	}
+
+	/**
+	 * @see HashTableBase#resizeTo(int)
+	 */
+	@Override
+	protected void resizeTo(int array_length) throws ArithmeticException {
+		rehash(array_length, null);
+	}
+
+	/**
+	 * Maps the key to value if the key is not already mapped in the table,
+	 * or updates the value if the key is already mapped.
+	 *
+	 * If the key is not found, the new mapping is placed within the
+	 * neighborhood of its home index (see {@link HashTableHopscotch}).
+	 * If that's not possible, the table is re-sized, or the mapping is
+	 * put in the overflow array if that isn't empty.
+	 *
+	 * @param key    The key to be placed in the hash table.
+	 * @param value  The value to which key is mapped to.
+	 *
+	 * @return Returns the previous value that given key was mapped to, or
+	 *         null if key didn't have mapping. The null might also be
+	 *         returned if the key was previously mapped to a null value.
+	 *
+	 * @throws ArithmeticException {@link HashTableHopscotch#resizeTable()}
+	 */
+	public ValueT map(KeyT key, ValueT value) throws ArithmeticException {
+		return map(computeHash(key), key, value);
+	}
+
+	/**
+	 * @see HashTableBase#map(long, Object, Object)
+	 */
+	@Override
+	protected ValueT map(long key_hash, KeyT key, ValueT value) throws ArithmeticException {
+		KeyValuePair key_value = findMapping(key_hash, key);
+		if (key_value != null) {
+			// The key already has a mapping in the table. Update the value
+			// it's mapped to and return the previous value.
+			ValueT previous_value = key_value.m_value;
+			key_value.m_value = value;
+			replaceValue(previous_value, value);
+			return previous_value;
+		}
+
+		// The table is re-sized as soon as it gets full, so there is
+		// an empty cell for the new mapping.
+		KeyValuePair mapping = new KeyValuePair(key, value, key_hash);
+		if (!placeMapping(mapping)) {
+			if (m_overflow_size > 0) {
+				addToOverflow(mapping);
+			}
+			else {
+				rehash(2 * m_array.length, mapping);
+			}
+		}
+		++m_size;
+		retainValue(value);
+
+		// Resize the table if needed
+		resizeTable();
+
+		return null;
+	}
+
+	/**
+	 * Removes the mapping at the given array index.
+	 *
+	 * @param index  The array index of the mapping to remove.
+	 */
+	private void removeMappingAt(int index) {
+		int length = m_array.length;
+		int home_index = mapHashToIndex(getKeyValue(index).m_hash);
+		m_hop_info[home_index] &= ~(1 << ((index - home_index + length) % length));
+		m_array[index] = null;
+		--m_size;
+		if (m_overflow_size > 0) {
+			// An overflowed mapping might fit in the freed cell
+			drainOverflow();
+		}
+	}
+
+	/**
+	 * Removes the mapping with the given key, and optionally the given
+	 * value, from the table.
+	 *
+	 * @param key            The key to unmap.
+	 * @param value          The value to compare against.
+	 * @param compare_value  Whether the value must be compared.
+	 *
+	 * @return The removed mapping, or null if no mapping has been removed.
+	 */
+	@SuppressWarnings("unchecked")
+	private KeyValuePair removeMapping(KeyT key, ValueT value, boolean compare_value) {
+		if (isEmpty()) {
+			return null;
+		}
+
+		long key_hash = computeHash(key);
+		int index = findIndex(key_hash, key);
+		int overflow_index = index == -1 ? findInOverflow(key_hash, key) : -1;
+		if (index == -1 && overflow_index == -1) {
+			return null;
+		}
+
+		KeyValuePair mapping = index != -1 ? getKeyValue(index) : (KeyValuePair) m_overflow[overflow_index];
+		if (compare_value &&
+				!((value != null && value.equals(mapping.m_value)) || value == mapping.m_value)) {
+			return null;
+		}
+
+		if (index != -1) {
+			removeMappingAt(index);
+		}
+		else {
+			removeFromOverflow(overflow_index);
+			--m_size;
+		}
+		releaseValue(mapping.m_value);
+		return mapping;
+	}
+
+	/**
+	 * Removes the mapping with the given key.
+	 *
+	 * @param key  The key to unmap.
+	 *
+	 * @return Returns the value that key was mapped to, or NULL if key didn't
+	 *         have a mapping. NULL might also be returned if key was mapped
+	 *         to a NULL value.
+	 */
+	public ValueT unmap(KeyT key) {
+		KeyValuePair mapping = removeMapping(key, null, false);
+		return mapping != null ? mapping.m_value : null;
+	}
+
+	/**
+	 * Removes the mapping with the key if it maps to the specified value.
+	 *
+	 * @param key    The key to unmap.
+	 * @param value  The value to compare against.
+	 *
+	 * @return Returns true if the mapping is removed from the table, false
+	 *         otherwise.
+	 */
+	public boolean unmap(KeyT key, ValueT value) {
+		return removeMapping(key, value, true) != null;
+	}
+
+	/**
+	 * Remaps the key to the specified value.
+	 *
+	 * If the key isn't found in the hash table the method has no effect.
+	 * This is the difference between map and remap methods.
+	 *
+	 * @param key    The key to remap.
+	 * @param value  The value that key is remapped to.
+	 *
+	 * @return The value that key was mapped to or null if the key had
+	 *         no mapping. Null return value may also indicate that key
+	 *         was previously mapped to the null value.
+	 */
+	public ValueT remap(KeyT key, ValueT value) {
+		if (isEmpty()) {
+			return null;
+		}
+
+		KeyValuePair key_value = findMapping(computeHash(key), key);
+		if (key_value == null) {
+			return null;
+		}
+
+		ValueT previous_value = key_value.m_value;
+		key_value.m_value = value;
+		replaceValue(previous_value, value);
+		return previous_value;
+	}
+
+	/**
+	 * Clears the table so that it contains no keys.
+	 *
+	 * The underlying array is shrank to its initial capacity.
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		m_hop_info = new int[m_array.length];
+		m_overflow = null;
+		m_overflow_size = 0;
+	}
+}
@@ -45,13 +45,32 @@ public class HashTableLinearProbe<KeyT, ValueT> extends HashTableOpenAddressing<
 	}
 	
 	/**
-	 * @see HashTableOpenAddressing#nextProbeOffset(long, int)
+	 * Constructs a HashTableLinearProbe instance with given initial capacity,
+	 * load factor and options.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table before it is re-sized. This value represents
+	 *                          a percentage and falls within a range [0.0, 1.0].
+	 * @param options           The options that configure the table (see
+	 *                          {@link HashTableOpenAddressing#HashTableOpenAddressing(int, float, HashTableOption...)}).
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative or greater than 1.0.
+	 */
+	public HashTableLinearProbe(int initial_capacity, float load_factor, HashTableOption... options)
+			throws IllegalArgumentException {
+		super(initial_capacity, load_factor, options);
+	}
+	
+	/**
+	 * @see HashTableOpenAddressing#nextProbeOffset(long, int, int)
 	 *
 	 * The next array index to probe is simply current index plus 1 as
 	 * this hash table implementation scans the array linearly. Thus the
 	 * offset from the current array index to the next is always 1.
 	 */
-	protected int nextProbeOffset(long key_hash, int current_index) {
+	protected int nextProbeOffset(long key_hash, int current_index, int array_length) {
 		return 1;
 	}
 	
@@ -1,5 +1,8 @@
 package com.toptalprep;
 
+import java.util.BitSet;
+import java.util.function.BiConsumer;
+
 /**
  * Abstract base class for all hash table implementations that use
  * open addressing to solve key collisions.
@@ -7,6 +10,28 @@ package com.toptalprep;
  * @note The class supports NULL as a key.
  */
 public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBase<KeyT, ValueT> {
+	/**
+	 * Determines how the mappings are laid out in memory.
+	 */
+	public enum StorageMode implements HashTableOption {
+		/**
+		 * Every array cell references a {@link HashTableBase.KeyValuePair}
+		 * object that holds the key and the value. Every probe has to
+		 * dereference the pair object before the keys can be compared.
+		 */
+		KEY_VALUE_PAIRS,
+
+		/**
+		 * The keys, the values and the key hashes are kept in three
+		 * parallel arrays (struct-of-arrays layout). The probing loops
+		 * compare the cached hash first and touch the key object only
+		 * if the hashes match, so most of the probed cells are inspected
+		 * without dereferencing any heap object. No object is allocated
+		 * per mapping.
+		 */
+		PARALLEL_ARRAYS
+	}
+
 	/**
 	 * @see HashTableBase#HashTableBase(int, float)
 	 *
@@ -17,8 +42,38 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 	 */
 	protected HashTableOpenAddressing(int initial_capacity, float load_factor)
 			throws IllegalArgumentException {
+		this(initial_capacity, load_factor, new HashTableOption[0]);
+	}
+
+	/**
+	 * @see HashTableOpenAddressing#HashTableOpenAddressing(int, float)
+	 *
+	 * @param options  The options that configure the table. The
+	 *                 {@link StorageMode}, {@link HashTableBase.ResizeMode},
+	 *                 {@link HashTableBase.HashMixer},
+	 *                 {@link HashTableBase.IndexReducer},
+	 *                 {@link HashTableBase.ValueIndexMode} and
+	 *                 {@link HashTableBase.ShrinkMode} options are
+	 *                 recognized. The
+	 *                 {@link StorageMode#KEY_VALUE_PAIRS},
+	 *                 {@link HashTableBase.ResizeMode#ALL_AT_ONCE},
+	 *                 {@link HashTableBase.ValueIndexMode#NONE} and
+	 *                 {@link HashTableBase.ShrinkMode#NEVER} modes are
+	 *                 used if not specified.
+	 */
+	protected HashTableOpenAddressing(int initial_capacity, float load_factor, HashTableOption... options)
+			throws IllegalArgumentException {
 		// Cap the load factor to 1.0
-		super(initial_capacity, load_factor > 1.0f ? 1.0f : load_factor);
+		super(initial_capacity, load_factor > 1.0f ? 1.0f : load_factor, options);
+
+		m_parallel_arrays =
+				findOption(StorageMode.class, StorageMode.KEY_VALUE_PAIRS, options) == StorageMode.PARALLEL_ARRAYS;
+		if (m_parallel_arrays) {
+			m_values = new Object[m_array.length];
+			m_hashes = new int[m_array.length];
+		}
+		m_incremental_resize =
+				findOption(ResizeMode.class, ResizeMode.ALL_AT_ONCE, options) == ResizeMode.INCREMENTAL;
 	}
 	
 	/**
@@ -30,6 +85,64 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 	 * specified key compared with the REMOVED_KEY.
 	 */
 	protected static final Object REMOVED_KEY = new Object();
+
+	/**
+	 * In the {@link StorageMode#PARALLEL_ARRAYS} mode a NULL array cell
+	 * denotes an empty cell, hence the NULL key is stored as NULL_KEY.
+	 */
+	private static final Object NULL_KEY = new Object();
+
+	/**
+	 * Whether the table uses the {@link StorageMode#PARALLEL_ARRAYS} mode.
+	 * In that mode {@link HashTableBase#m_array} stores the keys, while
+	 * m_values and m_hashes store the values and the (truncated) key hashes
+	 * at the same indices. Both arrays are NULL in the
+	 * {@link StorageMode#KEY_VALUE_PAIRS} mode.
+	 */
+	protected final boolean m_parallel_arrays;
+	protected Object[] m_values;
+	protected int[] m_hashes;
+
+	/**
+	 * The number of array cells that contain a removed mapping. Removed
+	 * mappings are not counted in {@link HashTableBase#m_size}, but they
+	 * occupy array cells all the same: probing only stops at an empty
+	 * cell, so lookups must skip over them.
+	 */
+	protected int m_removed_count;
+
+	/**
+	 * Whether the table is re-sized in the {@link HashTableBase.ResizeMode#INCREMENTAL}
+	 * mode. While a re-size is in progress, m_old_values and m_old_hashes
+	 * hold the values and the hashes of {@link HashTableBase#m_old_array}
+	 * in the {@link StorageMode#PARALLEL_ARRAYS} mode.
+	 *
+	 * A mapping is always in exactly one of the arrays. The old array
+	 * cells whose mappings have been moved are set to REMOVED_KEY (even in
+	 * the {@link StorageMode#KEY_VALUE_PAIRS} mode, as the KeyValuePair
+	 * itself is moved to the new array), so the probe sequences of the
+	 * mappings that are still in the old array remain intact.
+	 */
+	protected final boolean m_incremental_resize;
+	protected Object[] m_old_values;
+	protected int[] m_old_hashes;
+	
+	/**
+	 * The state of the batch being probed by probeBatch(), allocated by
+	 * the first batch operation. For every key of the batch, m_batch_indexes
+	 * holds its home index and then the index of its mapping (see
+	 * probeBatch()), m_batch_cells holds its home cell and then the cell of
+	 * its mapping, and m_batch_hashes holds the cached hash of the mapping
+	 * in its home cell.
+	 */
+	private int[] m_batch_indexes;
+	private Object[] m_batch_cells;
+	private int[] m_batch_hashes;
+	
+	/**
+	 * The number of array cells probed by the last findIndex() call.
+	 */
+	private int m_probe_count;
 	
 	/**
 	 * Determines the offset to the next array index to probe.
@@ -56,6 +169,10 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 	 * nextProbeOffset is called m times, then every array index must be probed
 	 * exactly once.
 	 *
+	 * The array length is passed in explicitly because the offsets are also
+	 * computed for the old array while the table is being re-sized
+	 * incrementally (see {@link HashTableBase.ResizeMode#INCREMENTAL}).
+	 *
 	 * @param key_hash              The hash code of the key. The key hash is passed
 	 *                              instead of the key itself so that this method doesn't
 	 *                              have to call {@link HashTableBase#computeHash(Object)}.
@@ -64,10 +181,11 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 	 *                              so this argument will be 1. The counter will then increment
 	 *                              by 1 each time an array index is probed. The caller is
 	 *                              responsible for updating this counter.
+	 * @param array_length          The length of the array being probed.
 	 *
 	 * @return The array index that should be probed next.
 	 */
-	protected abstract int nextProbeOffset(long key_hash, int probed_indices_count);
+	protected abstract int nextProbeOffset(long key_hash, int probed_indices_count, int array_length);
 	
 	/**
 	 * Given the requested size it computes the actual size of the underlying array.
@@ -89,6 +207,169 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 	 */
 	protected abstract int computeArraySize(int requested_size) throws ArithmeticException;
 	
+	/**
+	 * Whether the mapping at the given array index has been removed.
+	 *
+	 * @param index  The index of a non-empty array cell.
+	 *
+	 * @return True if the mapping has been removed, false otherwise.
+	 */
+	private boolean isRemoved(int index) {
+		return m_parallel_arrays ? m_array[index] == REMOVED_KEY : getKeyValue(index).m_key == REMOVED_KEY;
+	}
+
+	/**
+	 * Whether the mapping at the given array index has the given key.
+	 *
+	 * The cached hash (stored in the KeyValuePair, or in m_hashes in the
+	 * {@link StorageMode#PARALLEL_ARRAYS} mode) is compared first, so the
+	 * key object is only touched if the hashes match.
+	 *
+	 * @param index     The index of a non-empty array cell.
+	 * @param key_hash  The hash of the key as returned by computeHash.
+	 * @param key       The key to compare with.
+	 *
+	 * @return True if the mapping has the given key, false otherwise.
+	 */
+	private boolean keyEqualsAt(int index, long key_hash, KeyT key) {
+		return keyEqualsIn(m_array, m_hashes, index, key_hash, key);
+	}
+
+	/**
+	 * Whether the mapping at the given index of the given array has the
+	 * given key.
+	 *
+	 * @see HashTableOpenAddressing#keyEqualsAt(int, long, Object)
+	 *
+	 * @param array   Either m_array or m_old_array.
+	 * @param hashes  The hashes of the array's mappings in the
+	 *                {@link StorageMode#PARALLEL_ARRAYS} mode.
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean keyEqualsIn(Object[] array, int[] hashes, int index, long key_hash, KeyT key) {
+		if (m_parallel_arrays) {
+			if (hashes[index] != (int) key_hash) {
+				return false;
+			}
+			Object stored_key = array[index];
+			return stored_key == NULL_KEY ? key == null : stored_key.equals(key);
+		}
+		return ((KeyValuePair) array[index]).keyEquals(key_hash, key);
+	}
+
+	/**
+	 * Returns the value of the mapping at the given array index.
+	 */
+	@SuppressWarnings("unchecked")
+	private ValueT valueAt(int index) {
+		return m_parallel_arrays ? (ValueT) m_values[index] : getKeyValue(index).m_value;
+	}
+
+	/**
+	 * Returns the value of the mapping at the given index of the old array.
+	 */
+	@SuppressWarnings("unchecked")
+	private ValueT oldValueAt(int index) {
+		return m_parallel_arrays ? (ValueT) m_old_values[index] : ((KeyValuePair) m_old_array[index]).m_value;
+	}
+
+	/**
+	 * Sets the value of the mapping at the given index of the old array.
+	 */
+	@SuppressWarnings("unchecked")
+	private void setOldValueAt(int index, ValueT value) {
+		if (m_parallel_arrays) {
+			m_old_values[index] = value;
+		}
+		else {
+			((KeyValuePair) m_old_array[index]).m_value = value;
+		}
+	}
+
+	/**
+	 * Empties the cell of the old array at the given index. The cell is
+	 * set to REMOVED_KEY so that it doesn't break the probe sequences of
+	 * the mappings that remain in the old array.
+	 */
+	private void clearOldCellAt(int index) {
+		m_old_array[index] = REMOVED_KEY;
+		if (m_parallel_arrays) {
+			// Drop the reference so that the value can be garbage collected
+			m_old_values[index] = null;
+		}
+	}
+
+	/**
+	 * Searches the old array for the mapping with the given key.
+	 *
+	 * @param key_hash  The hash of the key as returned by computeHash.
+	 * @param key       The key to search for.
+	 *
+	 * @return The index of the mapping in the old array, or -1 if the key is
+	 *         not in the old array or no re-size is in progress.
+	 */
+	private int findOldIndex(long key_hash, KeyT key) {
+		if (m_old_array == null) {
+			return -1;
+		}
+
+		int index = mapHashToIndex(key_hash, m_old_array.length);
+		int counter = 0;
+		while (counter++ < m_old_array.length && m_old_array[index] != null) {
+			if (m_old_array[index] != REMOVED_KEY && keyEqualsIn(m_old_array, m_old_hashes, index, key_hash, key)) {
+				return index;
+			}
+			index = (index + nextProbeOffset(key_hash, counter, m_old_array.length)) % m_old_array.length;
+		}
+		return -1;
+	}
+
+	/**
+	 * Sets the value of the mapping at the given array index.
+	 */
+	private void setValueAt(int index, ValueT value) {
+		if (m_parallel_arrays) {
+			m_values[index] = value;
+		}
+		else {
+			getKeyValue(index).m_value = value;
+		}
+	}
+
+	/**
+	 * Places a new mapping at the given array index.
+	 *
+	 * @param index     The index of an empty array cell or a cell containing
+	 *                  a removed mapping.
+	 * @param key_hash  The hash of the key as returned by computeHash.
+	 * @param key       The key.
+	 * @param value     The value that key maps to.
+	 */
+	private void placeMappingAt(int index, long key_hash, KeyT key, ValueT value) {
+		if (m_parallel_arrays) {
+			m_array[index] = key != null ? key : NULL_KEY;
+			m_values[index] = value;
+			m_hashes[index] = (int) key_hash;
+		}
+		else {
+			m_array[index] = new KeyValuePair(key, value, key_hash);
+		}
+	}
+
+	/**
+	 * Marks the mapping at the given array index as removed.
+	 */
+	private void removeMappingAt(int index) {
+		if (m_parallel_arrays) {
+			m_array[index] = REMOVED_KEY;
+			// Drop the reference so that the value can be garbage collected
+			m_values[index] = null;
+		}
+		else {
+			getKeyValue(index).m_key = REMOVED_KEY;
+		}
+	}
+
 	/**
 	 * Checks whether given key is present in the map.
 	 *
@@ -113,12 +394,19 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 	 * @return True if key is found, false otherwise.
 	 */
 	public boolean containsKey(KeyT key) {
+		return containsKey(computeHash(key), key);
+	}
+	
+	/**
+	 * @see HashTableBase#containsKey(long, Object)
+	 */
+	@Override
+	protected boolean containsKey(long key_hash, KeyT key) {
 		// Handle the case of an empty hash table right away
 		if (isEmpty()) {
 			return false;
 		}
 		
-		long key_hash = computeHash(key);
 		int index = mapHashToIndex(key_hash);
 		
 		// Starting at the array index where the given key should map to,
@@ -128,15 +416,17 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 		// array without finding the key, or 3) we find the key.
 		int counter = 0;
 		while (counter++ < m_array.length && m_array[index] != null) {
-			if (getKeyValue(index).keyEquals(key)) {
+			if (keyEqualsAt(index, key_hash, key)) {
 				// Found the key
+				recordProbes(HashTableStats.Operation.FIND, counter);
 				return true;
 			}
 			
 			// Determine the next array index to probe
-			index = (index + nextProbeOffset(key_hash, counter)) % m_array.length;
+			index = (index + nextProbeOffset(key_hash, counter, m_array.length)) % m_array.length;
 		}
-		return false;
+		recordProbes(HashTableStats.Operation.FIND, counter);
+		return findOldIndex(key_hash, key) != -1;
 	}
 	
 	/**
@@ -146,29 +436,68 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 	 * size of the underlying array (and not the number of keys present
 	 * in the array as returned by the size() method).
 	 *
-	 * @note Performance of this method could be considerably improved
-	 * by having an array of values stored in the hash table. This method
-	 * would then iterate of that array instead of a potentially much
-	 * larger hash table array. The performance would still be O(N) but
-	 * N would then be the number of keys in the hash table.
+	 * In the {@link HashTableBase.ValueIndexMode#REFCOUNT} mode the value
+	 * is looked up in the value index instead, which takes constant
+	 * expected time.
 	 *
 	 * @param ref_value  The value to search for.
 	 *
 	 * @return True if the hash table contains the given value, false
 	 *         otherwise.
 	 */
+	@SuppressWarnings("unchecked")
 	public boolean containsValue(ValueT ref_value) {
+		if (m_value_counts != null) {
+			return m_value_counts.containsKey(ref_value);
+		}
+
 		for (int i = 0; i < m_array.length; ++i) {
-			KeyValuePair key_value = getKeyValue(i);
-			if (key_value != null && key_value.m_key != REMOVED_KEY) {
-				if ((ref_value != null && ref_value.equals(key_value.m_value)) || ref_value == key_value.m_value) {
+			if (m_array[i] != null && !isRemoved(i)) {
+				ValueT value = valueAt(i);
+				if ((ref_value != null && ref_value.equals(value)) || ref_value == value) {
 					return true;
 				}
 			}
 		}
+
+		if (m_old_array != null) {
+			for (int i = 0; i < m_old_array.length; ++i) {
+				Object entry = m_old_array[i];
+				if (entry != null && entry != REMOVED_KEY &&
+						(m_parallel_arrays || ((KeyValuePair) entry).m_key != REMOVED_KEY)) {
+					ValueT value = oldValueAt(i);
+					if ((ref_value != null && ref_value.equals(value)) || ref_value == value) {
+						return true;
+					}
+				}
+			}
+		}
 		return false;
 	}
 	
+	/**
+	 * Passes the mapping stored at the given index of the given array to
+	 * the action, unless the cell is empty or its mapping has been removed.
+	 *
+	 * @see HashTableBase#forEachAt(Object[], int, BiConsumer)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void forEachAt(Object[] array, int index, BiConsumer<? super KeyT, ? super ValueT> action) {
+		Object entry = array[index];
+		if (entry == null || entry == REMOVED_KEY) {
+			return;
+		}
+		
+		if (m_parallel_arrays) {
+			Object[] values = array == m_array ? m_values : m_old_values;
+			action.accept(entry != NULL_KEY ? (KeyT) entry : null, (ValueT) values[index]);
+		}
+		else if (((KeyValuePair) entry).m_key != REMOVED_KEY) {
+			action.accept((KeyT) ((KeyValuePair) entry).m_key, ((KeyValuePair) entry).m_value);
+		}
+	}
+	
 	/**
 	 * Returns the value that given key maps to.
 	 *
@@ -184,12 +513,19 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 	 *         if the key is present in the table but maps to a null value.
 	 */
 	public ValueT find(KeyT key) {
+		return find(computeHash(key), key);
+	}
+	
+	/**
+	 * @see HashTableBase#find(long, Object)
+	 */
+	@Override
+	protected ValueT find(long key_hash, KeyT key) {
 		// Handle the case of an empty hash table right away
 		if (isEmpty()) {
 			return null;
 		}
 
-		long key_hash = computeHash(key);
 		int index = mapHashToIndex(key_hash);
 		
 		// Starting at the array index where the given key should map to,
@@ -199,68 +535,474 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 		// array without finding the key, or 3) we find the key.
 		int counter = 0;
 		while (counter++ < m_array.length && m_array[index] != null) {
-			KeyValuePair key_value = getKeyValue(index);
-			if (key_value.keyEquals(key)) {
+			if (keyEqualsAt(index, key_hash, key)) {
 				// Found the key
-				return key_value.m_value;
+				recordProbes(HashTableStats.Operation.FIND, counter);
+				return valueAt(index);
 			}
 			
 			// Determine the next array index to probe
-			index = (index + nextProbeOffset(key_hash, counter)) % m_array.length;
+			index = (index + nextProbeOffset(key_hash, counter, m_array.length)) % m_array.length;
 		}
-		return null;
+		recordProbes(HashTableStats.Operation.FIND, counter);
+		int old_index = findOldIndex(key_hash, key);
+		return old_index != -1 ? oldValueAt(old_index) : null;
 	}
 	
+	/**
+	 * Finds the array index of the mapping with the given key in
+	 * {@link HashTableBase#m_array}, probing the cells the same way find()
+	 * does. The number of probed cells is stored in m_probe_count.
+	 *
+	 * @return The array index of the mapping, or -1 if the key isn't in
+	 *         the current array.
+	 */
+	private int findIndex(long key_hash, KeyT key) {
+		int index = mapHashToIndex(key_hash);
+		int counter = 0;
+		while (counter++ < m_array.length && m_array[index] != null) {
+			if (keyEqualsAt(index, key_hash, key)) {
+				m_probe_count = counter;
+				return index;
+			}
+			index = (index + nextProbeOffset(key_hash, counter, m_array.length)) % m_array.length;
+		}
+		m_probe_count = counter;
+		return -1;
+	}
+	
+	/**
+	 * Probes the keys of a batch in three stages. The home index of every
+	 * key is computed first. The home cells of the whole batch are then
+	 * loaded together with the cached hashes of their mappings, so the
+	 * cache misses of the different keys overlap. The keys are resolved
+	 * last: a key whose home cell is empty isn't in the current array, a
+	 * key whose cached hash matches is compared with the key in its home
+	 * cell, and only the remaining keys continue along their probe
+	 * sequences.
+	 *
+	 * Once the method returns, m_batch_indexes[i] holds the array index of
+	 * the mapping of keys[start + i], -2 - old_index if the mapping is at
+	 * old_index of the old array, or -1 if the key isn't mapped, and
+	 * m_batch_cells[i] holds the cell of the mapping in the current array.
+	 * The callers clear m_batch_cells once they're done with the batch, so
+	 * that it doesn't keep the mappings reachable.
+	 *
+	 * @param operation  The operation the probes are recorded for. The MAP
+	 *                   probes of the keys that aren't found are left to
+	 *                   map(), which probes those keys again.
+	 */
+	@SuppressWarnings("unchecked")
+	private void probeBatch(KeyT[] keys, int start, int end, long[] key_hashes, HashTableStats.Operation operation) {
+		if (m_batch_indexes == null) {
+			m_batch_indexes = new int[BATCH_SIZE];
+			m_batch_cells = new Object[BATCH_SIZE];
+			m_batch_hashes = new int[BATCH_SIZE];
+		}
+		int batch_size = end - start;
+		
+		for (int i = 0; i < batch_size; ++i) {
+			m_batch_indexes[i] = mapHashToIndex(key_hashes[i]);
+		}
+		
+		for (int i = 0; i < batch_size; ++i) {
+			int index = m_batch_indexes[i];
+			Object entry = m_array[index];
+			m_batch_cells[i] = entry;
+			if (entry != null) {
+				m_batch_hashes[i] = m_parallel_arrays ? m_hashes[index] : (int) ((KeyValuePair) entry).m_hash;
+			}
+		}
+		
+		for (int i = 0; i < batch_size; ++i) {
+			KeyT key = keys[start + i];
+			long key_hash = key_hashes[i];
+			int index = m_batch_indexes[i];
+			int probe_count = 1;
+			if (m_batch_cells[i] == null) {
+				// The key would have been placed in its empty home cell
+				index = -1;
+			}
+			else if (m_batch_hashes[i] != (int) key_hash || !keyEqualsAt(index, key_hash, key)) {
+				index = findIndex(key_hash, key);
+				probe_count = m_probe_count;
+			}
+			
+			if (index != -1 || operation == HashTableStats.Operation.FIND) {
+				recordProbes(operation, probe_count);
+			}
+			if (index != -1) {
+				m_batch_cells[i] = m_array[index];
+			}
+			else {
+				// While the table is being re-sized the key might still be in the old array
+				int old_index = findOldIndex(key_hash, key);
+				if (old_index != -1) {
+					index = -2 - old_index;
+				}
+			}
+			m_batch_indexes[i] = index;
+		}
+	}
+	
+	/**
+	 * Probes the batch in stages (see probeBatch()).
+	 *
+	 * @see HashTableBase#findBatch(Object[], int, int, long[], Object[])
+	 */
+	@Override
+	protected void findBatch(KeyT[] keys, int start, int end, long[] key_hashes, ValueT[] out) {
+		probeBatch(keys, start, end, key_hashes, HashTableStats.Operation.FIND);
+		for (int i = start; i < end; ++i) {
+			int index = m_batch_indexes[i - start];
+			if (index >= 0) {
+				out[i] = valueAt(index);
+			}
+			else {
+				out[i] = index != -1 ? oldValueAt(-2 - index) : null;
+			}
+			m_batch_cells[i - start] = null;
+		}
+	}
+	
+	/**
+	 * Probes the batch in stages (see probeBatch()).
+	 *
+	 * @see HashTableBase#containsBatch(Object[], int, int, long[])
+	 */
+	@Override
+	protected boolean containsBatch(KeyT[] keys, int start, int end, long[] key_hashes) {
+		probeBatch(keys, start, end, key_hashes, HashTableStats.Operation.FIND);
+		boolean found_all = true;
+		for (int i = 0; i < end - start; ++i) {
+			found_all &= m_batch_indexes[i] != -1;
+			m_batch_cells[i] = null;
+		}
+		return found_all;
+	}
+	
+	/**
+	 * Probes the batch in stages (see probeBatch()) and updates the values
+	 * of the mappings found in the current array in place. A mapping that
+	 * is no longer in the cell it was found in (because a mapping inserted
+	 * before it re-sized or compacted the table) is mapped by map(), as
+	 * are the keys that aren't in the current array.
+	 *
+	 * @see HashTableBase#mapBatch(Object[], Object[], int, int, long[])
+	 */
+	@Override
+	protected void mapBatch(KeyT[] keys, ValueT[] values, int start, int end, long[] key_hashes)
+			throws ArithmeticException {
+		probeBatch(keys, start, end, key_hashes, HashTableStats.Operation.MAP);
+		for (int i = start; i < end; ++i) {
+			int index = m_batch_indexes[i - start];
+			Object cell = m_batch_cells[i - start];
+			m_batch_cells[i - start] = null;
+			// A cell holds either the KeyValuePair or the key itself, both of
+			// which belong to a single mapping
+			if (index >= 0 && index < m_array.length && m_array[index] == cell) {
+				ValueT previous_value = valueAt(index);
+				setValueAt(index, values[i]);
+				replaceValue(previous_value, values[i]);
+			}
+			else {
+				map(key_hashes[i - start], keys[i], values[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the cached hash of the key of the mapping, without calling
+	 * the key's hashCode().
+	 *
+	 * In the {@link StorageMode#PARALLEL_ARRAYS} mode only the lower 32 bits
+	 * of the hash are cached. That's sufficient since computeHash returns
+	 * values below 2^32 for all keys but NULL, whose hash is computed.
+	 *
+	 * @param entry        The non-empty array cell holding the mapping (the
+	 *                     key in the {@link StorageMode#PARALLEL_ARRAYS} mode
+	 *                     and the KeyValuePair otherwise).
+	 * @param cached_hash  The hash cached in m_hashes (or m_old_hashes) for
+	 *                     the mapping in the {@link StorageMode#PARALLEL_ARRAYS}
+	 *                     mode. Ignored otherwise.
+	 *
+	 * @return The hash of the mapping's key.
+	 */
+	@SuppressWarnings("unchecked")
+	private long entryHash(Object entry, int cached_hash) {
+		if (!m_parallel_arrays) {
+			return ((KeyValuePair) entry).m_hash;
+		}
+		return entry != NULL_KEY ? cached_hash & 0xFFFFFFFFL : computeHash(null);
+	}
+
 	/**
 	 * Re-sizes the table if needed and moves all the existing mappings
 	 * (those whose keys are not NULL and not set to REMOVED_KEY) to the
 	 * new location in the newly allocated array.
 	 *
+	 * Both the live and the removed mappings count towards the occupancy.
+	 * Otherwise a table with constant map/unmap churn could fill up with
+	 * removed mappings without ever resizing, and every unsuccessful lookup
+	 * would then probe the entire array. If the live mappings alone occupy
+	 * less than half of the load factor, the table is re-hashed in place
+	 * (see {@link HashTableOpenAddressing#compact()}), which frees the cells
+	 * without growing the array. Otherwise the array is doubled, so that
+	 * a table kept just below the load factor isn't re-hashed in place on
+	 * every insert.
+	 *
+	 * In the {@link HashTableBase.ResizeMode#INCREMENTAL} mode the mappings
+	 * are not moved here. The old array is kept instead and its mappings
+	 * are moved by the subsequent operations (see migrateStep()). If the
+	 * table has to be re-sized again before that completes, the remaining
+	 * mappings are moved first.
+	 *
 	 * @throws ArithmeticException if integer overflow happens when array
 	 * size is increased.
 	 */
-	@SuppressWarnings("unchecked")
 	private void resizeTable() throws ArithmeticException {
 		// If current table occupancy is lower than the load factor we
 		// don't need to resize the table
-		float occupancy = (float) m_size / m_array.length;
+		float occupancy = (float) (m_size + m_removed_count) / m_array.length;
 		if (occupancy < m_load_factor) {
 			return;
 		}
+		
+		if ((float) m_size / m_array.length < m_load_factor / 2) {
+			migrateAll();
+			rehashInPlace();
+			return;
+		}
 
-		// Allocate the array that is at least twice as big as the current one
-		Object[] old_array = m_array;
-		int doubled_size = 2 * old_array.length;
+		// Grow to the array that is at least twice as big as the current one
+		int doubled_size = 2 * m_array.length;
 		if (doubled_size < 0) {
 			throw new ArithmeticException("Increased array size overflows the integer type");
 		}
+		resizeTo(doubled_size);
+	}
+	
+	/**
+	 * @see HashTableBase#removedCount()
+	 */
+	@Override
+	protected int removedCount() {
+		return m_removed_count;
+	}
+	
+	/**
+	 * @see HashTableBase#resizeTo(int)
+	 */
+	@Override
+	protected void resizeTo(int array_length) throws ArithmeticException {
+		// Finish the re-size that is still in progress
+		migrateAll();
+		long start_time = resizeStarted();
+
+		Object[] old_array = m_array;
+		Object[] old_values = m_values;
+		int[] old_hashes = m_hashes;
 		// Implementation might place restriction on the array size
-		m_array = new Object[computeArraySize(doubled_size)];
+		m_array = new Object[computeArraySize(array_length)];
+		if (m_parallel_arrays) {
+			m_values = new Object[m_array.length];
+			m_hashes = new int[m_array.length];
+		}
+		
+		// Removed mappings are not moved to the new array
+		m_removed_count = 0;
+		
+		m_old_array = old_array;
+		m_old_values = old_values;
+		m_old_hashes = old_hashes;
+		m_migration_index = 0;
+		if (!m_incremental_resize) {
+			// Move each mapping to a new location right away
+			migrateAll();
+		}
+		resizeFinished(start_time);
+	}
+	
+	/**
+	 * Moves the mapping at the given index of the old array to the current
+	 * array, unless the cell is empty or holds a removed mapping. The old
+	 * array cell is left as is.
+	 *
+	 * @param old_index  The index of the old array cell.
+	 */
+	@SuppressWarnings("unchecked")
+	private void migrateCell(int old_index) {
+		Object old_entry = m_old_array[old_index];
+		if (old_entry == null || old_entry == REMOVED_KEY) {
+			return;
+		}
+
+		Object key = m_parallel_arrays ? old_entry : ((KeyValuePair) old_entry).m_key;
+		if (key != REMOVED_KEY) {
+			// Starting at the array index where the given key should map to,
+			// iterate until we find an empty array cell (an empty cell must
+			// exist as the table is re-sized before it fills up)
+			long key_hash = entryHash(old_entry, m_parallel_arrays ? m_old_hashes[old_index] : 0);
+			int index = mapHashToIndex(key_hash);
+			int counter = 0;
+			while (m_array[index] != null) {
+				// Increment the counter for every probed array index
+				++counter;
+				
+				// Determine the next array index to probe
+				index = (index + nextProbeOffset(key_hash, counter, m_array.length)) % m_array.length;
+			}
+			
+			// Place the mapping at its new location
+			m_array[index] = old_entry;
+			if (m_parallel_arrays) {
+				m_values[index] = m_old_values[old_index];
+				m_hashes[index] = (int) key_hash;
+			}
+		}
+	}
+	
+	/**
+	 * Moves the mappings from the next INCREMENTAL_RESIZE_STEP cells of the
+	 * old array, if the table is being re-sized.
+	 */
+	private void migrateStep() {
+		if (m_old_array == null) {
+			return;
+		}
+
+		int end = Math.min(m_migration_index + INCREMENTAL_RESIZE_STEP, m_old_array.length);
+		for (; m_migration_index < end; ++m_migration_index) {
+			migrateCell(m_migration_index);
+			clearOldCellAt(m_migration_index);
+		}
+		
+		if (m_migration_index == m_old_array.length) {
+			// The re-size is complete
+			m_old_array = null;
+			m_old_values = null;
+			m_old_hashes = null;
+		}
+	}
+	
+	/**
+	 * Moves all the remaining mappings from the old array, if the table
+	 * is being re-sized.
+	 */
+	private void migrateAll() {
+		if (m_old_array == null) {
+			return;
+		}
+
+		// The old array is dropped right after, so its cells are not cleared
+		for (int i = m_migration_index; i < m_old_array.length; ++i) {
+			migrateCell(i);
+		}
+		m_old_array = null;
+		m_old_values = null;
+		m_old_hashes = null;
+	}
+	
+	/**
+	 * Re-hashes the table without allocating a new array.
+	 *
+	 * The removed mappings are dropped first, which leaves holes in the
+	 * probe sequences of the remaining mappings. The remaining mappings
+	 * are then re-placed one by one: a mapping is taken out of its cell
+	 * and its probe sequence is followed, skipping the cells that hold
+	 * already re-placed mappings. If the first such cell is empty, the
+	 * mapping is placed there. Otherwise, the cell holds a mapping that
+	 * hasn't been re-placed yet, so the two are swapped and the displaced
+	 * mapping is re-placed next. Each step re-places one mapping, and a
+	 * re-placed mapping never moves again, so the method completes in
+	 * O(N * C) time where N is the array length and C is the average
+	 * length of the probe sequences. A re-placed mapping is always
+	 * preceded in its probe sequence by re-placed mappings only, so the
+	 * probe sequences contain no holes once all mappings are re-placed.
+	 *
+	 * The only memory allocated is a bitmap of N bits used to mark the
+	 * cells holding re-placed mappings.
+	 */
+	private void rehashInPlace() {
+		// Drop the removed mappings
+		for (int i = 0; i < m_array.length; ++i) {
+			if (m_array[i] != null && isRemoved(i)) {
+				m_array[i] = null;
+				if (m_parallel_arrays) {
+					m_values[i] = null;
+				}
+			}
+		}
+		m_removed_count = 0;
 		
-		// Move each mapping to a new location
-		for (int i = 0; i < old_array.length; ++i) {
-			KeyValuePair key_value = (KeyValuePair) old_array[i];
-			if (key_value != null && key_value.m_key != REMOVED_KEY) {
-				// Starting at the array index where the given key should map to,
-				// iterate until we find an empty array cell (an empty cell must
-				// exist as we doubled the capacity of the underlying array)
-				long key_hash = computeHash((KeyT) key_value.m_key);
+		BitSet replaced = new BitSet(m_array.length);
+		for (int i = 0; i < m_array.length; ++i) {
+			if (m_array[i] == null || replaced.get(i)) {
+				continue;
+			}
+			
+			// Take the mapping out of its cell, so that the cell doesn't
+			// keep the value reachable if no mapping is re-placed there
+			Object entry = m_array[i];
+			Object value = m_parallel_arrays ? m_values[i] : null;
+			int cached_hash = m_parallel_arrays ? m_hashes[i] : 0;
+			m_array[i] = null;
+			if (m_parallel_arrays) {
+				m_values[i] = null;
+			}
+			
+			while (true) {
+				// Find the first cell in the probe sequence that doesn't hold
+				// a re-placed mapping
+				long key_hash = entryHash(entry, cached_hash);
 				int index = mapHashToIndex(key_hash);
 				int counter = 0;
-				while (m_array[index] != null) {
-					// Increment the counter for every probed array index
+				while (replaced.get(index)) {
 					++counter;
-					
-					// Determine the next array index to probe
-					index = (index + nextProbeOffset(key_hash, counter)) % m_array.length;
+					index = (index + nextProbeOffset(key_hash, counter, m_array.length)) % m_array.length;
+				}
+				
+				Object displaced_entry = m_array[index];
+				Object displaced_value = m_parallel_arrays ? m_values[index] : null;
+				int displaced_hash = m_parallel_arrays ? m_hashes[index] : 0;
+				
+				m_array[index] = entry;
+				if (m_parallel_arrays) {
+					m_values[index] = value;
+					m_hashes[index] = (int) key_hash;
 				}
+				replaced.set(index);
 				
-				// Place the mapping at its new location
-				m_array[index] = key_value;
+				if (displaced_entry == null) {
+					break;
+				}
+				
+				// Continue with the mapping that has been displaced
+				entry = displaced_entry;
+				value = displaced_value;
+				cached_hash = displaced_hash;
 			}
 		}
 	}
 	
+	/**
+	 * Removes all the removed mappings from the table without changing
+	 * the size of the underlying array.
+	 *
+	 * The table compacts itself automatically once the removed mappings
+	 * push the number of occupied array cells over the load factor. This
+	 * method can be called to do that ahead of time, e.g. during a
+	 * maintenance window after a large batch of keys has been unmapped.
+	 * The time complexity is the same as that of resizing the table,
+	 * but no new array is allocated.
+	 */
+	public void compact() {
+		migrateAll();
+		if (m_removed_count > 0) {
+			rehashInPlace();
+		}
+	}
+	
 	/**
 	 * Maps the key to value if the key is not already mapped in the table,
 	 * or updates the value if the key is already mapped.
@@ -322,7 +1064,16 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 	 * @throws ArithmeticException {@link HashTableOpenAddressing#resizeTable()}
 	 */
 	public ValueT map(KeyT key, ValueT value) throws ArithmeticException {
-		long key_hash = computeHash(key);
+		return map(computeHash(key), key, value);
+	}
+	
+	/**
+	 * @see HashTableBase#map(long, Object, Object)
+	 */
+	@Override
+	protected ValueT map(long key_hash, KeyT key, ValueT value) throws ArithmeticException {
+		migrateStep();
+		
 		int index = mapHashToIndex(key_hash);
 		
 		// Starting at the array index where key maps to, find a cell where
@@ -330,8 +1081,7 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 		int new_mapping_index = -1;
 		int counter = 0;
 		while (counter++ < m_array.length) {
-			KeyValuePair key_value = getKeyValue(index);
-			if (key_value == null) {
+			if (m_array[index] == null) {
 				// Found an empty array cell
 				if (new_mapping_index == -1) {
 					// As we didn't previously encounter a cell containing a deleted
@@ -344,14 +1094,16 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 				// encountered (new_mapping_index holds the index of that array cell).
 				break;
 			}
-			else if (key_value.keyEquals(key)) {
+			else if (keyEqualsAt(index, key_hash, key)) {
 				// The key already has a mapping in the table. Update the value
 				// it's mapped to and return the previous value.
-				ValueT previous_value = key_value.m_value;
-				key_value.m_value = value;
+				ValueT previous_value = valueAt(index);
+				setValueAt(index, value);
+				replaceValue(previous_value, value);
+				recordProbes(HashTableStats.Operation.MAP, counter);
 				return previous_value;
 			}
-			else if (key_value.m_key == REMOVED_KEY && new_mapping_index == -1) {
+			else if (new_mapping_index == -1 && isRemoved(index)) {
 				// This array cell contains a deleted mapping. If we didn't encounter a
 				// deleted mapping before, remember this array index as the new mapping
 				// will be placed in this cell (unless we find the key in the hash table
@@ -362,16 +1114,32 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 			}
 			
 			// Determine the next array index to probe
-			index = (index + nextProbeOffset(key_hash, counter)) % m_array.length;
+			index = (index + nextProbeOffset(key_hash, counter, m_array.length)) % m_array.length;
 		}
 		
+		recordProbes(HashTableStats.Operation.MAP, counter);
+		
 		// The table must always be able to accommodate a new mapping. Even with
 		// load factor of 1.0, the table should resize after it becomes completely
 		// filled, so the next call to map() will find a free cell.
 		assert(new_mapping_index != -1);
 		
+		// While the table is being re-sized the key might still be in the old array
+		int old_index = findOldIndex(key_hash, key);
+		if (old_index != -1) {
+			ValueT previous_value = oldValueAt(old_index);
+			setOldValueAt(old_index, value);
+			replaceValue(previous_value, value);
+			return previous_value;
+		}
+		
 		// Place new mapping to the table and increment the table size
-		m_array[new_mapping_index] = new KeyValuePair(key, value);
+		if (m_array[new_mapping_index] != null) {
+			// The new mapping replaces a removed one
+			--m_removed_count;
+		}
+		placeMappingAt(new_mapping_index, key_hash, key, value);
+		retainValue(value);
 		++m_size;
 		
 		// Resize the table if needed
@@ -398,6 +1166,8 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 	 *         to a NULL value.
 	 */
 	public ValueT unmap(KeyT key)  {
+		migrateStep();
+		
 		long key_hash = computeHash(key);
 		int index = mapHashToIndex(key_hash);
 		
@@ -408,16 +1178,30 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 		// array without finding the key, or 3) we find the key.
 		int counter = 0;
 		while (counter++ < m_array.length && m_array[index] != null) {
-			KeyValuePair key_value = getKeyValue(index);
-			if (key_value.keyEquals(key)) {
+			if (keyEqualsAt(index, key_hash, key)) {
 				// Remove the mapping by setting its key to REMOVED_KEY
-				key_value.m_key = REMOVED_KEY;
+				ValueT removed_value = valueAt(index);
+				removeMappingAt(index);
+				releaseValue(removed_value);
 				--m_size;
-				return key_value.m_value;
+				++m_removed_count;
+				recordProbes(HashTableStats.Operation.UNMAP, counter);
+				shrinkIfNeeded();
+				return removed_value;
 			}
 			
 			// Determine the next array index to probe
-			index = (index + nextProbeOffset(key_hash, counter)) % m_array.length;
+			index = (index + nextProbeOffset(key_hash, counter, m_array.length)) % m_array.length;
+		}
+		recordProbes(HashTableStats.Operation.UNMAP, counter);
+		int old_index = findOldIndex(key_hash, key);
+		if (old_index != -1) {
+			ValueT removed_value = oldValueAt(old_index);
+			clearOldCellAt(old_index);
+			releaseValue(removed_value);
+			--m_size;
+			shrinkIfNeeded();
+			return removed_value;
 		}
 		return null;
 	}
@@ -440,6 +1224,8 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 	 *         otherwise.
 	 */
 	public boolean unmap(KeyT key, ValueT value) {
+		migrateStep();
+		
 		long key_hash = computeHash(key);
 		int index = mapHashToIndex(key_hash);
 		
@@ -450,19 +1236,35 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 		// array without finding the key, or 3) we find the key.
 		int counter = 0;
 		while (counter++ < m_array.length && m_array[index] != null) {
-			KeyValuePair key_value = getKeyValue(index);
-			if (key_value.keyEquals(key)) {
-				if ((value != null && value.equals(key_value.m_value)) || value == key_value.m_value) {
+			if (keyEqualsAt(index, key_hash, key)) {
+				ValueT current_value = valueAt(index);
+				if ((value != null && value.equals(current_value)) || value == current_value) {
 					// Remove the mapping by setting its key to REMOVED
-					key_value.m_key = REMOVED_KEY;
+					removeMappingAt(index);
+					releaseValue(current_value);
 					--m_size;
+					++m_removed_count;
+					recordProbes(HashTableStats.Operation.UNMAP, counter);
+					shrinkIfNeeded();
 					return true;
 				}
 				break;
 			}
 			
 			// Determine the next array index to probe
-			index = (index + nextProbeOffset(key_hash, counter)) % m_array.length;
+			index = (index + nextProbeOffset(key_hash, counter, m_array.length)) % m_array.length;
+		}
+		recordProbes(HashTableStats.Operation.UNMAP, counter);
+		int old_index = findOldIndex(key_hash, key);
+		if (old_index != -1) {
+			ValueT current_value = oldValueAt(old_index);
+			if ((value != null && value.equals(current_value)) || value == current_value) {
+				clearOldCellAt(old_index);
+				releaseValue(current_value);
+				--m_size;
+				shrinkIfNeeded();
+				return true;
+			}
 		}
 		return false;
 	}
@@ -481,6 +1283,8 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 	 *         was previously mapped to the null value.
 	 */
 	public ValueT remap(KeyT key, ValueT value) {
+		migrateStep();
+		
 		long key_hash = computeHash(key);
 		int index = mapHashToIndex(key_hash);
 		
@@ -491,18 +1295,42 @@ public abstract class HashTableOpenAddressing<KeyT, ValueT> extends HashTableBas
 		// array without finding the key, or 3) we find the key.
 		int counter = 0;
 		while (counter++ < m_array.length && m_array[index] != null) {
-			KeyValuePair key_value = getKeyValue(index);
-			if (key_value.keyEquals(key)) {
+			if (keyEqualsAt(index, key_hash, key)) {
 				// Update value that key is mapped to and returned the previous
 				// value
-				ValueT previous_value = key_value.m_value;
-				key_value.m_value = value;
+				ValueT previous_value = valueAt(index);
+				setValueAt(index, value);
+				replaceValue(previous_value, value);
 				return previous_value;
 			}
 			
 			// Determine the next array index to probe
-			index = (index + nextProbeOffset(key_hash, counter)) % m_array.length;
+			index = (index + nextProbeOffset(key_hash, counter, m_array.length)) % m_array.length;
+		}
+		int old_index = findOldIndex(key_hash, key);
+		if (old_index != -1) {
+			ValueT previous_value = oldValueAt(old_index);
+			setOldValueAt(old_index, value);
+			replaceValue(previous_value, value);
+			return previous_value;
 		}
 		return null;
 	}
+	
+	/**
+	 * Clears the table so that it contains no keys.
+	 *
+	 * The underlying arrays are shrank to the initial capacity.
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		m_removed_count = 0;
+		m_old_values = null;
+		m_old_hashes = null;
+		if (m_parallel_arrays) {
+			m_values = new Object[m_array.length];
+			m_hashes = new int[m_array.length];
+		}
+	}
 }
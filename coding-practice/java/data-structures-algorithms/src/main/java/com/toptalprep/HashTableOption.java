@@ -0,0 +1,14 @@
+package com.toptalprep;
+
+/**
+ * An option that configures how a hash table is constructed.
+ *
+ * Hash table implementations that can be configured beyond their
+ * initial capacity and load factor accept a variable number of options
+ * in their constructors. Every group of related options is defined as
+ * an enum implementing this interface (e.g.
+ * {@link HashTableOpenAddressing.StorageMode}), so options that a
+ * particular implementation doesn't understand can simply be ignored.
+ */
+public interface HashTableOption {
+}
@@ -71,6 +71,26 @@ public class HashTableQuadraticProbe<KeyT, ValueT> extends HashTableOpenAddressi
 		super(roundToPowOfTwo(initial_capacity), load_factor);
 	}
 	
+	/**
+	 * Constructs a HashTableQuadraticProbe instance with given initial capacity rounded
+	 * up to the power of two, load factor and options.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity that is rounded up
+	 *                          to the power of 2.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table before it is re-sized. This value represents
+	 *                          a percentage and falls within a range [0.0, 1.0].
+	 * @param options           The options that configure the table (see
+	 *                          {@link HashTableOpenAddressing#HashTableOpenAddressing(int, float, HashTableOption...)}).
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative or greater than 1.0.
+	 */
+	public HashTableQuadraticProbe(int initial_capacity, float load_factor, HashTableOption... options)
+			throws IllegalArgumentException {
+		super(roundToPowOfTwo(initial_capacity), load_factor, options);
+	}
+	
 	/**
 	 * Round the 32-bit integer to the next power of two.
 	 *
@@ -114,7 +134,7 @@ public class HashTableQuadraticProbe<KeyT, ValueT> extends HashTableOpenAddressi
 	}
 	
 	/**
-	 * @see HashTableOpenAddressing#nextProbeOffset(long, int)
+	 * @see HashTableOpenAddressing#nextProbeOffset(long, int, int)
 	 *
 	 * As showed in {@link HashTableQuadraticProbe}, the next array index to
 	 * probe is entirely determined by the number of array indices already
@@ -122,7 +142,7 @@ public class HashTableQuadraticProbe<KeyT, ValueT> extends HashTableOpenAddressi
 	 * to probe is computed as (x + probed_indices_count). Thus, this method
 	 * simply returns probed_indices_count.
 	 */
-	protected int nextProbeOffset(long key_hash, int probed_indices_count) {
+	protected int nextProbeOffset(long key_hash, int probed_indices_count, int array_length) {
 		return probed_indices_count;
 	}
 	
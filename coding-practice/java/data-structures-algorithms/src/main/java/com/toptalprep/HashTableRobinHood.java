@@ -0,0 +1,596 @@
+package com.toptalprep;
+
+/**
+ * Hash table implementation that uses Robin Hood hashing to resolve
+ * key collisions.
+ *
+ * Robin Hood hashing is a variant of linear probing. Every mapping
+ * records its probe length, that is the distance between the array
+ * index where its key hashes to (its home index) and the index where
+ * it is actually stored. When a new mapping is inserted, it is moved
+ * along the array like in linear probing, but whenever it encounters
+ * a mapping whose probe length is shorter than its own, the two swap
+ * places and the insertion continues with the displaced mapping ("take
+ * from the rich, give to the poor"). This keeps the probe lengths of all
+ * mappings close to the average and bounds their variance.
+ *
+ * Because the mappings within a cluster are ordered by their home index,
+ * a lookup can stop as soon as it reaches a mapping whose probe length is
+ * shorter than the number of cells probed so far, since the key would
+ * otherwise have been placed before that mapping.
+ *
+ * Mappings are removed using backward-shift deletion: every mapping that
+ * follows the removed one is moved back by one cell until either an empty
+ * cell or a mapping stored at its home index is reached. Unlike
+ * {@link HashTableOpenAddressing}, this implementation therefore never
+ * leaves removed mappings (REMOVED_KEY tombstones) in the array, so the
+ * probe sequences don't grow as keys are mapped and unmapped.
+ *
+ * @note The class supports NULL as a key.
+ */
+public class HashTableRobinHood<KeyT, ValueT> extends HashTableBase<KeyT, ValueT> {
+	/**
+	 * The probe length of the mapping at the same index in
+	 * {@link HashTableBase#m_array}. The value is meaningless for
+	 * empty array cells.
+	 */
+	protected int[] m_probe_lengths;
+
+	/**
+	 * The state of the batch being probed by probeBatch(), allocated by
+	 * the first batch operation. For every key of the batch, m_batch_indexes
+	 * holds its home index, m_batch_cells holds its home cell and then its
+	 * mapping (see probeBatch()), and m_batch_hashes holds the cached hash
+	 * of the mapping in its home cell.
+	 */
+	private int[] m_batch_indexes;
+	private Object[] m_batch_cells;
+	private long[] m_batch_hashes;
+
+	/**
+	 * Constructs a HashTableRobinHood instance with initial capacity
+	 * of 11 elements and load factor of 0.9. The load factor is higher
+	 * than the one used by the other implementations as the Robin Hood
+	 * displacement keeps the probe lengths short even in a mostly
+	 * occupied table.
+	 */
+	public HashTableRobinHood() {
+		this(11, 0.9f);
+	}
+
+	/**
+	 * Constructs a HashTableRobinHood instance with given initial capacity
+	 * and load factor of 0.9.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero.
+	 */
+	public HashTableRobinHood(int initial_capacity) throws IllegalArgumentException {
+		this(initial_capacity, 0.9f);
+	}
+
+	/**
+	 * Constructs a HashTableRobinHood instance with given initial capacity
+	 * and load factor.
+	 *
+	 * The number of mappings cannot be greater than the size of the table,
+	 * hence load factor is capped to 1.0.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table before it is re-sized. This value represents
+	 *                          a percentage and falls within a range [0.0, 1.0].
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative.
+	 */
+	public HashTableRobinHood(int initial_capacity, float load_factor)
+			throws IllegalArgumentException {
+		this(initial_capacity, load_factor, new HashTableOption[0]);
+	}
+
+	/**
+	 * Constructs a HashTableRobinHood instance with given initial capacity,
+	 * load factor and options.
+	 *
+	 * The number of mappings cannot be greater than the size of the table,
+	 * hence load factor is capped to 1.0.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table before it is re-sized. This value represents
+	 *                          a percentage and falls within a range [0.0, 1.0].
+	 * @param options           The options that configure the table. The
+	 *                          {@link HashTableBase.HashMixer},
+	 *                          {@link HashTableBase.IndexReducer} and
+	 *                          {@link HashTableBase.ValueIndexMode} options are
+	 *                          recognized (see
+	 *                          {@link HashTableBase#HashTableBase(int, float, HashTableOption...)}).
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative, or if the
+	 *         {@link HashTableBase.IndexReducer#MASK} reducer is requested and
+	 *         initial_capacity isn't a power of 2.
+	 */
+	public HashTableRobinHood(int initial_capacity, float load_factor, HashTableOption... options)
+			throws IllegalArgumentException {
+		super(initial_capacity, load_factor > 1.0f ? 1.0f : load_factor, options);
+		m_probe_lengths = new int[m_array.length];
+	}
+
+	/**
+	 * Finds the array index of the mapping with the given key.
+	 *
+	 * Starting at the key's home index, the array is probed linearly
+	 * until either: 1) an empty array cell is found, 2) a mapping whose
+	 * probe length is shorter than the number of cells probed so far is
+	 * found (the key would have displaced this mapping had it been
+	 * mapped), or 3) the key is found.
+	 *
+	 * @param key_hash  The hash of the key as returned by computeHash.
+	 * @param key       The key to search for.
+	 *
+	 * @return The array index of the mapping, or -1 if key isn't mapped.
+	 */
+	private int findIndex(long key_hash, KeyT key) {
+		int index = mapHashToIndex(key_hash);
+
+		int probe_length = 0;
+		while (m_array[index] != null && probe_length <= m_probe_lengths[index]) {
+			if (getKeyValue(index).keyEquals(key_hash, key)) {
+				return index;
+			}
+			++probe_length;
+			index = (index + 1) % m_array.length;
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks whether given key is present in the map.
+	 *
+	 * Time complexity of this operation is O(1) in best-case scenario
+	 * when key is found at its home index. Otherwise, the complexity is
+	 * O(P) where P is the probe length of the key, which Robin Hood
+	 * displacement keeps close to the average probe length.
+	 *
+	 * @param key  The key to search for.
+	 *
+	 * @return True if key is found, false otherwise.
+	 */
+	public boolean containsKey(KeyT key) {
+		return containsKey(computeHash(key), key);
+	}
+
+	/**
+	 * @see HashTableBase#containsKey(long, Object)
+	 */
+	@Override
+	protected boolean containsKey(long key_hash, KeyT key) {
+		// Handle the case of an empty hash table right away
+		if (isEmpty()) {
+			return false;
+		}
+		return findIndex(key_hash, key) != -1;
+	}
+
+	/**
+	 * Linearly scans the table searching for the specified value.
+	 *
+	 * Time complexity of this operation is O(N) where N is the current
+	 * size of the underlying array.
+	 *
+	 * In the {@link HashTableBase.ValueIndexMode#REFCOUNT} mode the value
+	 * is looked up in the value index instead, which takes constant
+	 * expected time.
+	 *
+	 * @param ref_value  The value to search for.
+	 *
+	 * @return True if the hash table contains the given value, false
+	 *         otherwise.
+	 */
+	public boolean containsValue(ValueT ref_value) {
+		if (m_value_counts != null) {
+			return m_value_counts.containsKey(ref_value);
+		}
+
+		for (int i = 0; i < m_array.length; ++i) {
+			KeyValuePair key_value = getKeyValue(i);
+			if (key_value != null) {
+				if ((ref_value != null && ref_value.equals(key_value.m_value)) || ref_value == key_value.m_value) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the value that given key maps to.
+	 *
+	 * @param key  The key whose mapping is to be found.
+	 *
+	 * @return The value that key maps to of keys is present in the hash
+	 *         table, null otherwise. Note that null might also be returned
+	 *         if the key is present in the table but maps to a null value.
+	 */
+	public ValueT find(KeyT key) {
+		return find(computeHash(key), key);
+	}
+
+	/**
+	 * @see HashTableBase#find(long, Object)
+	 */
+	@Override
+	protected ValueT find(long key_hash, KeyT key) {
+		// Handle the case of an empty hash table right away
+		if (isEmpty()) {
+			return null;
+		}
+
+		int index = findIndex(key_hash, key);
+		return index != -1 ? getKeyValue(index).m_value : null;
+	}
+
+	/**
+	 * Probes the keys of a batch in three stages. The home index of every
+	 * key is computed first. The home cells of the whole batch are then
+	 * loaded together with the cached hashes of their mappings, so the
+	 * cache misses of the different keys overlap. The keys are resolved
+	 * last: a key whose home cell is empty isn't mapped, a key whose cached
+	 * hash matches is compared with the key in its home cell, and only the
+	 * remaining keys continue probing the array.
+	 *
+	 * Once the method returns, m_batch_cells[i] holds the mapping of
+	 * keys[start + i], or null if the key isn't mapped. The callers clear
+	 * m_batch_cells once they're done with the batch, so that it doesn't
+	 * keep the mappings reachable.
+	 */
+	@SuppressWarnings("unchecked")
+	private void probeBatch(KeyT[] keys, int start, int end, long[] key_hashes) {
+		if (m_batch_indexes == null) {
+			m_batch_indexes = new int[BATCH_SIZE];
+			m_batch_cells = new Object[BATCH_SIZE];
+			m_batch_hashes = new long[BATCH_SIZE];
+		}
+		int batch_size = end - start;
+
+		for (int i = 0; i < batch_size; ++i) {
+			m_batch_indexes[i] = mapHashToIndex(key_hashes[i]);
+		}
+
+		for (int i = 0; i < batch_size; ++i) {
+			Object cell = m_array[m_batch_indexes[i]];
+			m_batch_cells[i] = cell;
+			if (cell != null) {
+				m_batch_hashes[i] = ((KeyValuePair) cell).m_hash;
+			}
+		}
+
+		for (int i = 0; i < batch_size; ++i) {
+			KeyT key = keys[start + i];
+			long key_hash = key_hashes[i];
+			KeyValuePair mapping = (KeyValuePair) m_batch_cells[i];
+			// A key whose home cell is empty would have been placed in it
+			if (mapping != null && (m_batch_hashes[i] != key_hash || !mapping.keyEquals(key_hash, key))) {
+				int index = findIndex(key_hash, key);
+				mapping = index != -1 ? getKeyValue(index) : null;
+			}
+			m_batch_cells[i] = mapping;
+		}
+	}
+
+	/**
+	 * Probes the batch in stages (see probeBatch()).
+	 *
+	 * @see HashTableBase#findBatch(Object[], int, int, long[], Object[])
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void findBatch(KeyT[] keys, int start, int end, long[] key_hashes, ValueT[] out) {
+		probeBatch(keys, start, end, key_hashes);
+		for (int i = start; i < end; ++i) {
+			KeyValuePair mapping = (KeyValuePair) m_batch_cells[i - start];
+			out[i] = mapping != null ? mapping.m_value : null;
+			m_batch_cells[i - start] = null;
+		}
+	}
+
+	/**
+	 * Probes the batch in stages (see probeBatch()).
+	 *
+	 * @see HashTableBase#containsBatch(Object[], int, int, long[])
+	 */
+	@Override
+	protected boolean containsBatch(KeyT[] keys, int start, int end, long[] key_hashes) {
+		probeBatch(keys, start, end, key_hashes);
+		boolean found_all = true;
+		for (int i = 0; i < end - start; ++i) {
+			found_all &= m_batch_cells[i] != null;
+			m_batch_cells[i] = null;
+		}
+		return found_all;
+	}
+
+	/**
+	 * Probes the batch in stages (see probeBatch()) and updates the values
+	 * of the mappings found in place. The keys that aren't mapped are
+	 * mapped by map(). The mappings are moved as a whole when the table is
+	 * re-sized or the mappings are displaced, so a mapping found before a
+	 * mapping inserted ahead of it re-sized the table is still updated in
+	 * place.
+	 *
+	 * @see HashTableBase#mapBatch(Object[], Object[], int, int, long[])
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void mapBatch(KeyT[] keys, ValueT[] values, int start, int end, long[] key_hashes)
+			throws ArithmeticException {
+		probeBatch(keys, start, end, key_hashes);
+		for (int i = start; i < end; ++i) {
+			KeyValuePair mapping = (KeyValuePair) m_batch_cells[i - start];
+			m_batch_cells[i - start] = null;
+			if (mapping != null) {
+				ValueT previous_value = mapping.m_value;
+				mapping.m_value = values[i];
+				replaceValue(previous_value, values[i]);
+			}
+			else {
+				map(key_hashes[i - start], keys[i], values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Places the mapping into the table, starting at the given index with
+	 * the given probe length and displacing the mappings that are closer
+	 * to their home index than the placed mapping.
+	 *
+	 * The caller must make sure that the key isn't already mapped and that
+	 * the array contains at least one empty cell.
+	 *
+	 * @param mapping       The mapping to place.
+	 * @param index         The array index to start at.
+	 * @param probe_length  The probe length of the mapping at the given index.
+	 */
+	private void placeMapping(KeyValuePair mapping, int index, int probe_length) {
+		while (m_array[index] != null) {
+			if (m_probe_lengths[index] < probe_length) {
+				// The current mapping is closer to its home index than the one
+				// being placed. Swap them and continue placing the displaced one.
+				KeyValuePair displaced_mapping = getKeyValue(index);
+				int displaced_probe_length = m_probe_lengths[index];
+
+				m_array[index] = mapping;
+				m_probe_lengths[index] = probe_length;
+
+				mapping = displaced_mapping;
+				probe_length = displaced_probe_length;
+			}
+			++probe_length;
+			index = (index + 1) % m_array.length;
+		}
+
+		m_array[index] = mapping;
+		m_probe_lengths[index] = probe_length;
+	}
+
+	/**
+	 * Re-sizes the table if needed and moves all the existing mappings
+	 * to the new location in the newly allocated array.
+	 *
+	 * @throws ArithmeticException if integer overflow happens when array
+	 * size is increased.
+	 */
+	private void resizeTable() throws ArithmeticException {
+		// If current table occupancy is lower than the load factor we
+		// don't need to resize the table
+		float occupancy = (float) m_size / m_array.length;
+		if (occupancy < m_load_factor) {
+			return;
+		}
+
+		// Grow to the array that is twice as big as the current one
+		int doubled_size = 2 * m_array.length;
+		if (doubled_size < 0) {
+			throw new ArithmeticException("Increased array size overflows the integer type");
+		}
+		resizeTo(doubled_size);
+	}
+
+	/**
+	 * @see HashTableBase#resizeTo(int)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void resizeTo(int array_length) {
+		long start_time = resizeStarted();
+		Object[] old_array = m_array;
+		m_array = new Object[array_length];
+		m_probe_lengths = new int[array_length];
+
+		// Re-insert each mapping starting at its home index in the new array,
+		// using the cached key hash
+		for (Object obj : old_array) {
+			if (obj != null) {
+				KeyValuePair mapping = (KeyValuePair) obj;
+				placeMapping(mapping, mapHashToIndex(mapping.m_hash), 0);
+			}
+		}
+		resizeFinished(start_time);
+	}
+
+	/**
+	 * Maps the key to value if the key is not already mapped in the table,
+	 * or updates the value if the key is already mapped.
+	 *
+	 * The method first searches for the key the same way find() does. If
+	 * the key is not found, the new mapping is placed at the index where
+	 * the search stopped, displacing the mappings that are closer to their
+	 * home index (see {@link HashTableRobinHood}).
+	 *
+	 * @param key    The key to be placed in the hash table.
+	 * @param value  The value to which key is mapped to.
+	 *
+	 * @return Returns the previous value that given key was mapped to, or
+	 *         null if key didn't have mapping. The null might also be
+	 *         returned if the key was previously mapped to a null value.
+	 *
+	 * @throws ArithmeticException {@link HashTableRobinHood#resizeTable()}
+	 */
+	public ValueT map(KeyT key, ValueT value) throws ArithmeticException {
+		return map(computeHash(key), key, value);
+	}
+
+	/**
+	 * @see HashTableBase#map(long, Object, Object)
+	 */
+	@Override
+	protected ValueT map(long key_hash, KeyT key, ValueT value) throws ArithmeticException {
+		int index = mapHashToIndex(key_hash);
+
+		int probe_length = 0;
+		while (m_array[index] != null && probe_length <= m_probe_lengths[index]) {
+			KeyValuePair key_value = getKeyValue(index);
+			if (key_value.keyEquals(key_hash, key)) {
+				// The key already has a mapping in the table. Update the value
+				// it's mapped to and return the previous value.
+				ValueT previous_value = key_value.m_value;
+				key_value.m_value = value;
+				replaceValue(previous_value, value);
+				return previous_value;
+			}
+			++probe_length;
+			index = (index + 1) % m_array.length;
+		}
+
+		// The table is re-sized before it gets completely full, so there
+		// is an empty cell for the displaced mappings.
+		placeMapping(new KeyValuePair(key, value, key_hash), index, probe_length);
+		++m_size;
+		retainValue(value);
+
+		// Resize the table if needed
+		resizeTable();
+
+		return null;
+	}
+
+	/**
+	 * Removes the mapping at the given array index using backward-shift
+	 * deletion.
+	 *
+	 * @param index  The array index of the mapping to remove.
+	 */
+	private void removeMappingAt(int index) {
+		releaseValue(getKeyValue(index).m_value);
+		int next = (index + 1) % m_array.length;
+
+		// Shift back every following mapping that isn't stored at its home index
+		while (m_array[next] != null && m_probe_lengths[next] > 0) {
+			m_array[index] = m_array[next];
+			m_probe_lengths[index] = m_probe_lengths[next] - 1;
+			index = next;
+			next = (next + 1) % m_array.length;
+		}
+
+		m_array[index] = null;
+		--m_size;
+	}
+
+	/**
+	 * Removes the mapping with the given key.
+	 *
+	 * No REMOVED_KEY marker is left behind, the mappings that follow the
+	 * removed one are shifted back instead (see {@link HashTableRobinHood}).
+	 *
+	 * @param key  The key to unmap.
+	 *
+	 * @return Returns the value that key was mapped to, or NULL if key didn't
+	 *         have a mapping. NULL might also be returned if key was mapped
+	 *         to a NULL value.
+	 */
+	public ValueT unmap(KeyT key) {
+		if (isEmpty()) {
+			return null;
+		}
+
+		int index = findIndex(computeHash(key), key);
+		if (index == -1) {
+			return null;
+		}
+
+		ValueT removed_value = getKeyValue(index).m_value;
+		removeMappingAt(index);
+		return removed_value;
+	}
+
+	/**
+	 * Removes the mapping with the key if it maps to the specified value.
+	 *
+	 * @param key    The key to unmap.
+	 * @param value  The value to compare against.
+	 *
+	 * @return Returns true if the mapping is removed from the table, false
+	 *         otherwise.
+	 */
+	public boolean unmap(KeyT key, ValueT value) {
+		if (isEmpty()) {
+			return false;
+		}
+
+		int index = findIndex(computeHash(key), key);
+		if (index == -1) {
+			return false;
+		}
+
+		ValueT current_value = getKeyValue(index).m_value;
+		if ((value != null && value.equals(current_value)) || value == current_value) {
+			removeMappingAt(index);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Remaps the key to the specified value.
+	 *
+	 * If the key isn't found in the hash table the method has no effect.
+	 * This is the difference between map and remap methods.
+	 *
+	 * @param key    The key to remap.
+	 * @param value  The value that key is remapped to.
+	 *
+	 * @return The value that key was mapped to or null if the key had
+	 *         no mapping. Null return value may also indicate that key
+	 *         was previously mapped to the null value.
+	 */
+	public ValueT remap(KeyT key, ValueT value) {
+		if (isEmpty()) {
+			return null;
+		}
+
+		int index = findIndex(computeHash(key), key);
+		if (index == -1) {
+			return null;
+		}
+
+		KeyValuePair key_value = getKeyValue(index);
+		ValueT previous_value = key_value.m_value;
+		key_value.m_value = value;
+		replaceValue(previous_value, value);
+		return previous_value;
+	}
+
+	/**
+	 * Clears the table so that it contains no keys.
+	 *
+	 * The underlying array is shrank to its initial capacity.
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		m_probe_lengths = new int[m_array.length];
+	}
+}
@@ -1,5 +1,11 @@
 package com.toptalprep;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
 import com.toptalprep.HashTableBase.KeyValuePair;
 
 /**
@@ -12,15 +18,100 @@ import com.toptalprep.HashTableBase.KeyValuePair;
  * implementation, as the table can store more mappings than is the
  * size of the table.
  *
+ * A bucket that grows to TREEIFY_THRESHOLD mappings is converted to
+ * a balanced binary search tree (see {@link TreeBucket}), so that keys
+ * that collide, whether by accident or on purpose, degrade the lookups
+ * to O(log K) instead of O(K) time. The tree is converted back to a list
+ * when it shrinks to UNTREEIFY_THRESHOLD mappings.
+ *
+ * The list buckets are either {@link SinglyLinkedList} instances or
+ * intrusive chains of mappings, depending on the {@link BucketMode}
+ * option.
+ *
  * Implementation allows null keys.
  */
 public class HashTableSeparateChaining<KeyT, ValueT> extends HashTableBase<KeyT, ValueT> {
+	/**
+	 * Determines how the mappings of a bucket are linked together.
+	 */
+	public enum BucketMode implements HashTableOption {
+		/**
+		 * Every bucket is a {@link SinglyLinkedList} of KeyValuePair
+		 * instances, hence every mapping needs a list link in addition to
+		 * the KeyValuePair, and every bucket needs a list object.
+		 */
+		LINKED_LISTS,
+
+		/**
+		 * The mappings themselves form the chain: every mapping is a single
+		 * node holding the key, the value, the cached key hash and the
+		 * reference to the next mapping in the bucket. The array cell
+		 * references the first mapping. New mappings are inserted at the
+		 * head of the chain and removed mappings are unlinked, neither of
+		 * which allocates anything besides the new mapping. The cached hash
+		 * is compared before the keys are, and it spares re-computing the
+		 * hashes when the table is re-sized.
+		 */
+		INTRUSIVE_CHAINS
+	}
+	
+	/**
+	 * Whether the table is re-sized in the {@link HashTableBase.ResizeMode#INCREMENTAL}
+	 * mode. While a re-size is in progress every mapping is either in a
+	 * bucket of {@link HashTableBase#m_array} or in a bucket of
+	 * {@link HashTableBase#m_old_array}, never in both. The old buckets are
+	 * moved whole and set to NULL once moved.
+	 */
+	protected final boolean m_incremental_resize;
+	
+	/**
+	 * Whether the buckets are chains of {@link ChainNode} instances (see
+	 * {@link BucketMode#INTRUSIVE_CHAINS}).
+	 */
+	protected final boolean m_intrusive_chains;
+	
+	/**
+	 * The number of mappings examined by the last findInBucket() call,
+	 * which is only counted if {@link HashTableStats#ENABLED}.
+	 */
+	private int m_probe_count;
+	
+	/**
+	 * The number of mappings in the list or chain bucket searched by the
+	 * last findInBucket() call that didn't find the key, so that map()
+	 * adds the new mapping to a chain without walking it again.
+	 */
+	private int m_bucket_length;
+	
+	/**
+	 * The state of the batch being probed by probeBatch(), allocated by
+	 * the first batch operation. For every key of the batch, m_batch_buckets
+	 * holds the bucket at its home index and then m_batch_mappings holds
+	 * its mapping, or NULL if the key isn't mapped.
+	 */
+	private int[] m_batch_indexes;
+	private Object[] m_batch_buckets;
+	private Object[] m_batch_mappings;
+	
+	/**
+	 * The number of mappings at which a list bucket is converted to a tree.
+	 */
+	static final int TREEIFY_THRESHOLD = 8;
+	
+	/**
+	 * The number of mappings at which a tree bucket is converted back to
+	 * a list. It's lower than TREEIFY_THRESHOLD so that a bucket isn't
+	 * converted back and forth when a mapping is repeatedly mapped and
+	 * unmapped.
+	 */
+	static final int UNTREEIFY_THRESHOLD = 6;
+	
 	/**
 	 * Constructs a HashTableLinearProbe instance with initial capacity
 	 * of 11 elements and load factor of 0.75.
 	 */
 	public HashTableSeparateChaining() {
-		super(11, 0.75f);
+		this(11, 0.75f);
 	}
 	
 	/**
@@ -32,7 +123,7 @@ public class HashTableSeparateChaining<KeyT, ValueT> extends HashTableBase<KeyT,
 	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero.
 	 */
 	public HashTableSeparateChaining(int initial_capacity) throws IllegalArgumentException {
-		super(initial_capacity, 0.75f);
+		this(initial_capacity, 0.75f);
 	}
 	
 	/**
@@ -40,28 +131,641 @@ public class HashTableSeparateChaining<KeyT, ValueT> extends HashTableBase<KeyT,
 	 */
 	protected HashTableSeparateChaining(int initial_capacity, float load_factor)
 			throws IllegalArgumentException {
-		super(initial_capacity, load_factor);
+		this(initial_capacity, load_factor, new HashTableOption[0]);
 	}
 	
 	/**
-	 * Gets the bucket at the given index.
+	 * Constructs a HashTableSeparateChaining instance with given initial
+	 * capacity, load factor and options.
 	 *
-	 * @param index  The index of the bucket to retrieve.
+	 * @param initial_capacity  The hash table's initial capacity.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table before it is re-sized. This value represents
+	 *                          a percentage and can be greater than 1.0.
+	 * @param options           The options that configure the table. The
+	 *                          {@link BucketMode}, {@link HashTableBase.ResizeMode},
+	 *                          {@link HashTableBase.HashMixer},
+	 *                          {@link HashTableBase.IndexReducer},
+	 *                          {@link HashTableBase.ValueIndexMode} and
+	 *                          {@link HashTableBase.ShrinkMode} options are
+	 *                          recognized. The {@link BucketMode#LINKED_LISTS},
+	 *                          {@link HashTableBase.ResizeMode#ALL_AT_ONCE},
+	 *                          {@link HashTableBase.ValueIndexMode#NONE} and
+	 *                          {@link HashTableBase.ShrinkMode#NEVER} modes
+	 *                          are used if not specified.
 	 *
-	 * @return The bucket.
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative, or if the {@link HashTableBase.IndexReducer#MASK}
+	 *         reducer is requested and initial_capacity isn't a power of 2.
+	 */
+	public HashTableSeparateChaining(int initial_capacity, float load_factor, HashTableOption... options)
+			throws IllegalArgumentException {
+		super(initial_capacity, load_factor, options);
+		m_incremental_resize =
+				findOption(ResizeMode.class, ResizeMode.ALL_AT_ONCE, options) == ResizeMode.INCREMENTAL;
+		m_intrusive_chains =
+				findOption(BucketMode.class, BucketMode.LINKED_LISTS, options) == BucketMode.INTRUSIVE_CHAINS;
+	}
+	
+	/**
+	 * A mapping that is also a node of the bucket's chain in the
+	 * {@link BucketMode#INTRUSIVE_CHAINS} mode.
+	 *
+	 * Iterating over a node iterates over the node and the nodes that follow
+	 * it in the chain. The iterator moves to the next node before returning
+	 * the current one, so the returned node may be re-linked to another chain
+	 * while the iteration goes on.
+	 */
+	class ChainNode extends KeyValuePair implements Iterable<KeyValuePair> {
+		ChainNode m_next;
+		
+		ChainNode(long hash, Object key, ValueT value) {
+			super(key, value, hash);
+			m_next = null;
+		}
+		
+		@Override
+		public Iterator<KeyValuePair> iterator() {
+			return new Iterator<KeyValuePair>() {
+				private ChainNode m_current = ChainNode.this;
+				
+				@Override
+				public boolean hasNext() {
+					return m_current != null;
+				}
+				
+				@Override
+				public KeyValuePair next() {
+					if (m_current == null) {
+						throw new NoSuchElementException();
+					}
+					
+					ChainNode node = m_current;
+					m_current = node.m_next;
+					return node;
+				}
+			};
+		}
+	}
+	
+	/**
+	 * A bucket whose mappings are kept in a balanced (AVL) binary search
+	 * tree, so that lookups within the bucket take O(log C) time instead
+	 * of O(C), where C is the number of mappings in the bucket.
+	 *
+	 * The mappings are ordered by their key hash first. Mappings whose key
+	 * hashes are equal are ordered by the class name of the key, and then
+	 * by Comparable.compareTo() if the keys are Comparable instances of the
+	 * same class. Mappings that are still tied are ordered by the order of
+	 * insertion, which makes the order total so the tree can be balanced.
+	 * A lookup however can't tell in which subtree such a key is, hence it
+	 * has to search both. Keys that have identical hashes and aren't
+	 * Comparable are therefore found in O(C) time, as they would be in
+	 * a linked list.
+	 */
+	class TreeBucket implements Iterable<KeyValuePair> {
+		private class Node {
+			KeyValuePair m_mapping;
+			long m_hash;
+			long m_sequence;
+			int m_height;
+			Node m_left_child;
+			Node m_right_child;
+	
+			Node(long hash, long sequence, KeyValuePair mapping) {
+				m_mapping = mapping;
+				m_hash = hash;
+				m_sequence = sequence;
+				m_height = 1;
+				m_left_child = m_right_child = null;
+			}
+		}
+	
+		private Node m_root;
+		private int m_size;
+	
+		/**
+		 * The sequence number assigned to the next inserted node.
+		 */
+		private long m_next_sequence;
+	
+		TreeBucket() {
+			m_root = null;
+			m_size = 0;
+			m_next_sequence = 0;
+		}
+	
+		int size() {
+			return m_size;
+		}
+	
+		int height() {
+			return height(m_root);
+		}
+	
+		/**
+		 * Orders the key against the key of the node.
+		 *
+		 * @return A negative or positive value if the key belongs to the left
+		 *         or right subtree of the node respectively, or 0 if it can't
+		 *         be decided.
+		 */
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private int compareKeys(long key_hash, Object key, Node node) {
+			if (key_hash != node.m_hash) {
+				return Long.compare(key_hash, node.m_hash);
+			}
+	
+			Object node_key = node.m_mapping.m_key;
+			String class_name = key != null ? key.getClass().getName() : "";
+			String node_class_name = node_key != null ? node_key.getClass().getName() : "";
+			int order = class_name.compareTo(node_class_name);
+			if (order != 0) {
+				return order;
+			}
+	
+			if (key instanceof Comparable && node_key != null && key.getClass() == node_key.getClass()) {
+				return ((Comparable) key).compareTo(node_key);
+			}
+			return 0;
+		}
+	
+		/**
+		 * Finds the mapping with the given key.
+		 *
+		 * @return The mapping, or null if the bucket doesn't contain the key.
+		 */
+		KeyValuePair find(long key_hash, Object key) {
+			Node node = findNode(m_root, key_hash, key);
+			return node != null ? node.m_mapping : null;
+		}
+	
+		private Node findNode(Node subtree_root, long key_hash, Object key) {
+			Node node = subtree_root;
+			while (node != null) {
+				int order = compareKeys(key_hash, key, node);
+				if (order < 0) {
+					node = node.m_left_child;
+				}
+				else if (order > 0) {
+					node = node.m_right_child;
+				}
+				else if (node.m_mapping.keyEquals(key)) {
+					return node;
+				}
+				else {
+					// The key might be in either subtree
+					Node found_node = findNode(node.m_left_child, key_hash, key);
+					return found_node != null ? found_node : findNode(node.m_right_child, key_hash, key);
+				}
+			}
+			return null;
+		}
+	
+		/**
+		 * Inserts the mapping into the tree.
+		 *
+		 * The caller must make sure that the key isn't already mapped.
+		 */
+		void insert(long key_hash, KeyValuePair mapping) {
+			m_root = insertInternal(m_root, new Node(key_hash, m_next_sequence++, mapping));
+			++m_size;
+		}
+	
+		private Node insertInternal(Node subtree_root, Node new_node) {
+			if (subtree_root == null) {
+				return new_node;
+			}
+	
+			if (compareNodes(new_node, subtree_root) < 0) {
+				subtree_root.m_left_child = insertInternal(subtree_root.m_left_child, new_node);
+			}
+			else {
+				subtree_root.m_right_child = insertInternal(subtree_root.m_right_child, new_node);
+			}
+			return rebalance(subtree_root);
+		}
+	
+		/**
+		 * Removes the mapping with the given key.
+		 *
+		 * @return The removed mapping, or null if the bucket doesn't contain
+		 *         the key.
+		 */
+		KeyValuePair remove(long key_hash, Object key) {
+			Node node = findNode(m_root, key_hash, key);
+			if (node == null) {
+				return null;
+			}
+	
+			KeyValuePair mapping = node.m_mapping;
+			m_root = removeInternal(m_root, node.m_hash, mapping.m_key, node.m_sequence);
+			--m_size;
+			return mapping;
+		}
+	
+		/**
+		 * Removes the node identified by the hash, key and sequence number
+		 * from the subtree.
+		 *
+		 * @return The new root of the subtree.
+		 */
+		private Node removeInternal(Node subtree_root, long key_hash, Object key, long sequence) {
+			int order = compareKeys(key_hash, key, subtree_root);
+			if (order == 0) {
+				order = Long.compare(sequence, subtree_root.m_sequence);
+			}
+	
+			if (order < 0) {
+				subtree_root.m_left_child = removeInternal(subtree_root.m_left_child, key_hash, key, sequence);
+			}
+			else if (order > 0) {
+				subtree_root.m_right_child = removeInternal(subtree_root.m_right_child, key_hash, key, sequence);
+			}
+			else if (subtree_root.m_left_child == null || subtree_root.m_right_child == null) {
+				return subtree_root.m_left_child != null ? subtree_root.m_left_child : subtree_root.m_right_child;
+			}
+			else {
+				// Replace the node's contents with its in-order successor and
+				// remove the successor from the right subtree instead
+				Node successor = subtree_root.m_right_child;
+				while (successor.m_left_child != null) {
+					successor = successor.m_left_child;
+				}
+				subtree_root.m_mapping = successor.m_mapping;
+				subtree_root.m_hash = successor.m_hash;
+				subtree_root.m_sequence = successor.m_sequence;
+				subtree_root.m_right_child = removeInternal(
+						subtree_root.m_right_child, successor.m_hash, successor.m_mapping.m_key, successor.m_sequence);
+			}
+			return rebalance(subtree_root);
+		}
+	
+		/**
+		 * Orders the nodes using the total order described in {@link TreeBucket}.
+		 */
+		private int compareNodes(Node node, Node other_node) {
+			int order = compareKeys(node.m_hash, node.m_mapping.m_key, other_node);
+			return order != 0 ? order : Long.compare(node.m_sequence, other_node.m_sequence);
+		}
+	
+		private int height(Node node) {
+			return node != null ? node.m_height : 0;
+		}
+	
+		private void updateHeight(Node node) {
+			node.m_height = 1 + Math.max(height(node.m_left_child), height(node.m_right_child));
+		}
+	
+		private Node rotateLeft(Node node) {
+			Node new_root = node.m_right_child;
+			node.m_right_child = new_root.m_left_child;
+			new_root.m_left_child = node;
+			updateHeight(node);
+			updateHeight(new_root);
+			return new_root;
+		}
+	
+		private Node rotateRight(Node node) {
+			Node new_root = node.m_left_child;
+			node.m_left_child = new_root.m_right_child;
+			new_root.m_right_child = node;
+			updateHeight(node);
+			updateHeight(new_root);
+			return new_root;
+		}
+	
+		/**
+		 * Restores the AVL property of the node whose subtrees' heights
+		 * differ by at most 2.
+		 *
+		 * @return The new root of the subtree.
+		 */
+		private Node rebalance(Node node) {
+			updateHeight(node);
+			int balance = height(node.m_left_child) - height(node.m_right_child);
+			if (balance > 1) {
+				if (height(node.m_left_child.m_left_child) < height(node.m_left_child.m_right_child)) {
+					node.m_left_child = rotateLeft(node.m_left_child);
+				}
+				return rotateRight(node);
+			}
+			else if (balance < -1) {
+				if (height(node.m_right_child.m_right_child) < height(node.m_right_child.m_left_child)) {
+					node.m_right_child = rotateRight(node.m_right_child);
+				}
+				return rotateLeft(node);
+			}
+			return node;
+		}
+	
+		/**
+		 * Iterates over the mappings in order.
+		 */
+		@Override
+		public Iterator<KeyValuePair> iterator() {
+			final Deque<Node> path = new ArrayDeque<Node>();
+			for (Node node = m_root; node != null; node = node.m_left_child) {
+				path.push(node);
+			}
+	
+			return new Iterator<KeyValuePair>() {
+				@Override
+				public boolean hasNext() {
+					return !path.isEmpty();
+				}
+	
+				@Override
+				public KeyValuePair next() {
+					if (path.isEmpty()) {
+						throw new NoSuchElementException();
+					}
+	
+					Node node = path.pop();
+					for (Node child = node.m_right_child; child != null; child = child.m_left_child) {
+						path.push(child);
+					}
+					return node.m_mapping;
+				}
+			};
+		}
+	}
+	
+	/**
+	 * Casts the bucket to Iterable so that its mappings can be iterated
+	 * over regardless of whether it's a list, a chain or a tree.
+	 */
+	@SuppressWarnings("unchecked")
+	private Iterable<KeyValuePair> getMappings(Object bucket) {
+		return (Iterable<KeyValuePair>) bucket;
+	}
+	
+	/**
+	 * Searches the bucket for the mapping with the given key.
+	 *
+	 * @param bucket    The bucket (a {@link SinglyLinkedList}, the first
+	 *                  {@link ChainNode} of a chain or a {@link TreeBucket}),
+	 *                  or null.
+	 * @param key_hash  The hash of the key as returned by computeHash.
+	 * @param key       The key to search for.
+	 *
+	 * @return The mapping, or null if the bucket doesn't contain the key.
+	 */
+	@SuppressWarnings("unchecked")
+	private KeyValuePair findInBucket(Object bucket, long key_hash, KeyT key) {
+		if (bucket instanceof HashTableSeparateChaining.TreeBucket) {
+			if (HashTableStats.ENABLED) {
+				// A lookup follows a single path from the root in most cases
+				m_probe_count = ((TreeBucket) bucket).height();
+			}
+			return ((TreeBucket) bucket).find(key_hash, key);
+		}
+	
+		int probe_count = 0;
+		KeyValuePair found_mapping = null;
+		if (bucket instanceof HashTableSeparateChaining.ChainNode) {
+			for (ChainNode node = (ChainNode) bucket; node != null; node = node.m_next) {
+				++probe_count;
+				if (node.keyEquals(key_hash, key)) {
+					found_mapping = node;
+					break;
+				}
+			}
+		}
+		else if (bucket != null) {
+			for (KeyValuePair mapping : getMappings(bucket)) {
+				++probe_count;
+				if (mapping.keyEquals(key_hash, key)) {
+					found_mapping = mapping;
+					break;
+				}
+			}
+		}
+		if (found_mapping == null) {
+			// The entire bucket has been walked
+			m_bucket_length = probe_count;
+		}
+		if (HashTableStats.ENABLED) {
+			m_probe_count = probe_count;
+		}
+		return found_mapping;
+	}
+	
+	/**
+	 * Adds the mapping to the bucket at the given index of
+	 * {@link HashTableBase#m_array}, allocating the bucket if needed. The
+	 * list bucket is converted to a tree once it reaches TREEIFY_THRESHOLD
+	 * mappings.
+	 *
+	 * The caller must make sure that the key isn't already mapped.
+	 *
+	 * @param index         The index of the bucket.
+	 * @param key_hash      The hash of the mapping's key.
+	 * @param mapping       The mapping to add.
+	 * @param chain_length  The number of mappings in the bucket if it's a
+	 *                      chain, as counted by the caller while searching
+	 *                      it. Ignored for the other buckets.
 	 */
 	@SuppressWarnings("unchecked")
-	private SinglyLinkedList<KeyValuePair> getBucket(int index) {
-		assert(index < m_array.length);
-		return (SinglyLinkedList<KeyValuePair>) m_array[index];
+	private void addToBucket(int index, long key_hash, KeyValuePair mapping, int chain_length) {
+		Object bucket = m_array[index];
+		if (bucket instanceof HashTableSeparateChaining.TreeBucket) {
+			((TreeBucket) bucket).insert(key_hash, mapping);
+			recordChainLength(((TreeBucket) bucket).size());
+			return;
+		}
+	
+		if (m_intrusive_chains) {
+			ChainNode head = (ChainNode) bucket;
+			recordChainLength(chain_length + 1);
+			if (chain_length + 1 < TREEIFY_THRESHOLD) {
+				// Insert the mapping at the head of the chain
+				ChainNode new_node = (ChainNode) mapping;
+				new_node.m_next = head;
+				m_array[index] = new_node;
+			}
+			else {
+				m_array[index] = treeify(head, key_hash, mapping);
+			}
+			return;
+		}
+	
+		SinglyLinkedList<KeyValuePair> list = (SinglyLinkedList<KeyValuePair>) bucket;
+		if (list == null) {
+			m_array[index] = list = new SinglyLinkedList<KeyValuePair>();
+		}
+	
+		recordChainLength(list.size() + 1);
+		if (list.size() + 1 < TREEIFY_THRESHOLD) {
+			list.pushFront(mapping);
+		}
+		else {
+			m_array[index] = treeify(list, key_hash, mapping);
+		}
+	}
+	
+	/**
+	 * Builds the tree bucket from the mappings of the list or chain bucket
+	 * and the new mapping. The links of the chain nodes are cleared as they
+	 * move into the tree, so that a node in the tree doesn't keep the rest
+	 * of its former chain reachable (untreeify() links them anew).
+	 */
+	@SuppressWarnings("unchecked")
+	private TreeBucket treeify(Object bucket, long key_hash, KeyValuePair mapping) {
+		TreeBucket tree = new TreeBucket();
+		if (m_intrusive_chains) {
+			ChainNode node = (ChainNode) bucket;
+			while (node != null) {
+				ChainNode next = node.m_next;
+				node.m_next = null;
+				tree.insert(node.m_hash, node);
+				node = next;
+			}
+			// A node moved by a re-size might still link to its old chain
+			((ChainNode) mapping).m_next = null;
+		}
+		else {
+			for (KeyValuePair bucket_mapping : getMappings(bucket)) {
+				tree.insert(bucket_mapping.m_hash, bucket_mapping);
+			}
+		}
+		tree.insert(key_hash, mapping);
+		return tree;
 	}
 	
 	/**
-	 * Gets the bucket by casting the given object to {@link SinglyLinkedList}.
+	 * Removes the mapping with the given key, and optionally the given
+	 * value, from the bucket at the given index of the array. The tree
+	 * bucket is converted back to a list once it shrinks to
+	 * UNTREEIFY_THRESHOLD mappings.
+	 *
+	 * @param array          The array holding the bucket ({@link HashTableBase#m_array}
+	 *                       or {@link HashTableBase#m_old_array}).
+	 * @param index          The index of the bucket.
+	 * @param key_hash       The hash of the key as returned by computeHash.
+	 * @param key            The key to unmap.
+	 * @param value          The value to compare against.
+	 * @param compare_value  Whether the value must be compared.
+	 *
+	 * @return The removed mapping, or null if no mapping has been removed.
 	 */
 	@SuppressWarnings("unchecked")
-	private SinglyLinkedList<KeyValuePair> getBucket(Object obj) {
-		return (SinglyLinkedList<KeyValuePair>) obj;
+	private KeyValuePair removeFromBucket(
+			Object[] array, int index, long key_hash, KeyT key, ValueT value, boolean compare_value) {
+		Object bucket = array[index];
+		if (bucket instanceof HashTableSeparateChaining.TreeBucket) {
+			KeyValuePair mapping = findInBucket(bucket, key_hash, key);
+			if (mapping == null || !valueMatches(mapping, value, compare_value)) {
+				return null;
+			}
+			
+			TreeBucket tree = (TreeBucket) bucket;
+			tree.remove(key_hash, key);
+			if (tree.size() <= UNTREEIFY_THRESHOLD) {
+				array[index] = untreeify(tree);
+			}
+			return mapping;
+		}
+	
+		// The chain or the list is searched keeping track of the predecessor,
+		// so that the found mapping is unlinked by identity without walking
+		// the bucket again
+		int probe_count = 0;
+		KeyValuePair removed_mapping = null;
+		if (bucket instanceof HashTableSeparateChaining.ChainNode) {
+			ChainNode previous = null;
+			for (ChainNode node = (ChainNode) bucket; node != null; previous = node, node = node.m_next) {
+				++probe_count;
+				if (node.keyEquals(key_hash, key)) {
+					if (valueMatches(node, value, compare_value)) {
+						if (previous == null) {
+							array[index] = node.m_next;
+						}
+						else {
+							previous.m_next = node.m_next;
+						}
+						node.m_next = null;
+						removed_mapping = node;
+					}
+					break;
+				}
+			}
+		}
+		else if (bucket != null) {
+			Iterator<KeyValuePair> iterator = ((SinglyLinkedList<KeyValuePair>) bucket).iterator();
+			while (iterator.hasNext()) {
+				KeyValuePair mapping = iterator.next();
+				++probe_count;
+				if (mapping.keyEquals(key_hash, key)) {
+					if (valueMatches(mapping, value, compare_value)) {
+						iterator.remove();
+						removed_mapping = mapping;
+					}
+					break;
+				}
+			}
+		}
+		if (HashTableStats.ENABLED) {
+			m_probe_count = probe_count;
+		}
+		return removed_mapping;
+	}
+	
+	/**
+	 * Whether the mapping's value is equal to the given value, if the value
+	 * must be compared.
+	 */
+	private boolean valueMatches(KeyValuePair mapping, ValueT value, boolean compare_value) {
+		return !compare_value || (value != null && value.equals(mapping.m_value)) || value == mapping.m_value;
+	}
+	
+	/**
+	 * Converts the tree bucket back to a list or a chain bucket, depending
+	 * on the {@link BucketMode}.
+	 */
+	private Object untreeify(TreeBucket tree) {
+		if (m_intrusive_chains) {
+			ChainNode head = null;
+			for (KeyValuePair mapping : tree) {
+				ChainNode node = (ChainNode) mapping;
+				node.m_next = head;
+				head = node;
+			}
+			return head;
+		}
+		
+		SinglyLinkedList<KeyValuePair> list = new SinglyLinkedList<KeyValuePair>();
+		for (KeyValuePair mapping : tree) {
+			list.pushFront(mapping);
+		}
+		return list;
+	}
+	
+	/**
+	 * Searches the bucket of the old array for the mapping with the given key.
+	 *
+	 * @param key_hash  The hash of the key as returned by computeHash.
+	 * @param key       The key to search for.
+	 *
+	 * @return The mapping, or null if the key is not in the old array or no
+	 *         re-size is in progress.
+	 */
+	private KeyValuePair findOldMapping(long key_hash, KeyT key) {
+		if (m_old_array == null) {
+			return null;
+		}
+		return findInBucket(m_old_array[mapHashToIndex(key_hash, m_old_array.length)], key_hash, key);
+	}
+	
+	/**
+	 * Finds the mapping with the given key in the current array or, while
+	 * the table is being re-sized, in the old array.
+	 *
+	 * @return The mapping, or null if the key isn't mapped.
+	 */
+	private KeyValuePair findMapping(long key_hash, KeyT key) {
+		KeyValuePair mapping = findInBucket(m_array[mapHashToIndex(key_hash)], key_hash, key);
+		return mapping != null ? mapping : findOldMapping(key_hash, key);
 	}
 	
 	/**
@@ -72,30 +776,29 @@ public class HashTableSeparateChaining<KeyT, ValueT> extends HashTableBase<KeyT,
 	 * a single element only. Otherwise, in the average half of the list
 	 * at the given index have to searched, so performance degrades to
 	 * O(K) where K is the number of keys that has to that array index.
+	 * Buckets longer than TREEIFY_THRESHOLD are trees, which caps the
+	 * complexity to O(log K) (see {@link TreeBucket}).
 	 *
 	 * @param key  The key to search for.
 	 *
 	 * @return True if key is found, false otherwise.
 	 */
 	public boolean containsKey(KeyT key) {
+		return containsKey(computeHash(key), key);
+	}
+	
+	/**
+	 * @see HashTableBase#containsKey(long, Object)
+	 */
+	@Override
+	protected boolean containsKey(long key_hash, KeyT key) {
 		// Handle the case of an empty hash table right away
 		if (isEmpty()) {
 			return false;
 		}
-		
-		long key_hash = computeHash(key);
-		int index = mapHashToIndex(key_hash);
-		
-		// Check if the bucket contains a mapping with the requested key
-		SinglyLinkedList<KeyValuePair> bucket = getBucket(index);
-		if (bucket != null) {
-			for (KeyValuePair mapping : bucket) {
-				if (mapping.keyEquals(key)) {
-					return true;
-				}
-			}
-		}
-		return false;
+		boolean found = findMapping(key_hash, key) != null;
+		recordProbes(HashTableStats.Operation.FIND, m_probe_count);
+		return found;
 	}
 	
 	/**
@@ -107,13 +810,11 @@ public class HashTableSeparateChaining<KeyT, ValueT> extends HashTableBase<KeyT,
 	 * operation is O(N) as method will anyways check every array cell.
 	 * However, if the table occupancy is greater than the array size
 	 * (K > N), every mapping has to be checked so operation is O(K)
-	 * in that case. 
+	 * in that case.
 	 *
-	 * @note Performance of this method could be considerably improved
-	 * by having an array of values stored in the hash table. This method
-	 * would then iterate of that array instead of a potentially much
-	 * larger hash table array. The performance would still be O(N) but
-	 * N would then be the number of keys in the hash table.
+	 * In the {@link HashTableBase.ValueIndexMode#REFCOUNT} mode the value
+	 * is looked up in the value index instead, which takes constant
+	 * expected time.
 	 *
 	 * @param ref_value  The value to search for.
 	 *
@@ -121,28 +822,61 @@ public class HashTableSeparateChaining<KeyT, ValueT> extends HashTableBase<KeyT,
 	 *         otherwise.
 	 */
 	public boolean containsValue(ValueT ref_value) {
+		if (m_value_counts != null) {
+			return m_value_counts.containsKey(ref_value);
+		}
+	
 		// For every bucket
 		for (Object obj : m_array) {
-			SinglyLinkedList<KeyValuePair> bucket = getBucket(obj);
-			if (bucket != null) {
+			if (obj != null) {
 				// For every mapping in the bucket
-				for (KeyValuePair mapping : bucket) {
+				for (KeyValuePair mapping : getMappings(obj)) {
 					if ((ref_value != null && ref_value.equals(mapping.m_value)) || ref_value == mapping.m_value) {
 						return true;
 					}
 				}
 			}
 		}
+	
+		// The buckets that haven't been moved yet
+		if (m_old_array != null) {
+			for (Object obj : m_old_array) {
+				if (obj != null) {
+					for (KeyValuePair mapping : getMappings(obj)) {
+						if ((ref_value != null && ref_value.equals(mapping.m_value)) || ref_value == mapping.m_value) {
+							return true;
+						}
+					}
+				}
+			}
+		}
 		return false;
 	}
 	
+	/**
+	 * Passes every mapping of the bucket at the given index of the given
+	 * array to the action.
+	 *
+	 * @see HashTableBase#forEachAt(Object[], int, BiConsumer)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void forEachAt(Object[] array, int index, BiConsumer<? super KeyT, ? super ValueT> action) {
+		if (array[index] != null) {
+			for (KeyValuePair mapping : getMappings(array[index])) {
+				action.accept((KeyT) mapping.m_key, mapping.m_value);
+			}
+		}
+	}
+	
 	/**
 	 * Returns the value that given key maps to.
 	 *
 	 * The time complexity of this method is O(1) in best-case scenario
 	 * where the bucket at the index where key hashes to has a single
 	 * mapping only. Otherwise, the complexity is O(K) where K is the
-	 * length of the bucket at the given index.
+	 * length of the bucket at the given index, or O(log K) if the bucket
+	 * is a tree.
 	 *
 	 * @param key  The key whose mapping is to be found.
 	 *
@@ -151,34 +885,146 @@ public class HashTableSeparateChaining<KeyT, ValueT> extends HashTableBase<KeyT,
 	 *         if the key is present in the table but maps to a null value.
 	 */
 	public ValueT find(KeyT key) {
+		return find(computeHash(key), key);
+	}
+	
+	/**
+	 * @see HashTableBase#find(long, Object)
+	 */
+	@Override
+	protected ValueT find(long key_hash, KeyT key) {
 		// Handle the case of an empty hash table right away
 		if (isEmpty()) {
 			return null;
 		}
-
-		long key_hash = computeHash(key);
-		int index = mapHashToIndex(key_hash);
-		
-		// Search through the bucket
-		SinglyLinkedList<KeyValuePair> bucket = getBucket(index);
-		if (bucket != null) {
-			for (KeyValuePair mapping : bucket) {
-				if (mapping.keyEquals(key)) {
-					return mapping.m_value;
-				}
+	
+		KeyValuePair mapping = findMapping(key_hash, key);
+		recordProbes(HashTableStats.Operation.FIND, m_probe_count);
+		return mapping != null ? mapping.m_value : null;
+	}
+	
+	/**
+	 * Probes the keys of a batch in three stages. The home index of every
+	 * key is computed first. The buckets at the home indexes of the whole
+	 * batch are then loaded, so the cache misses of the different keys
+	 * overlap. The keys are resolved last by searching the loaded buckets
+	 * (and, while the table is being re-sized, the old array).
+	 *
+	 * Once the method returns, m_batch_mappings[i] holds the mapping of
+	 * keys[start + i], or NULL if the key isn't mapped. The callers clear
+	 * m_batch_mappings once they're done with the batch, so that it
+	 * doesn't keep the mappings reachable.
+	 *
+	 * @param operation  The operation the probes are recorded for. The MAP
+	 *                   probes of the keys that aren't found are left to
+	 *                   map(), which searches for those keys again.
+	 */
+	@SuppressWarnings("unchecked")
+	private void probeBatch(KeyT[] keys, int start, int end, long[] key_hashes, HashTableStats.Operation operation) {
+		if (m_batch_indexes == null) {
+			m_batch_indexes = new int[BATCH_SIZE];
+			m_batch_buckets = new Object[BATCH_SIZE];
+			m_batch_mappings = new Object[BATCH_SIZE];
+		}
+		int batch_size = end - start;
+	
+		for (int i = 0; i < batch_size; ++i) {
+			m_batch_indexes[i] = mapHashToIndex(key_hashes[i]);
+		}
+	
+		for (int i = 0; i < batch_size; ++i) {
+			m_batch_buckets[i] = m_array[m_batch_indexes[i]];
+		}
+	
+		for (int i = 0; i < batch_size; ++i) {
+			KeyT key = keys[start + i];
+			long key_hash = key_hashes[i];
+			KeyValuePair mapping = findInBucket(m_batch_buckets[i], key_hash, key);
+			if (mapping == null) {
+				mapping = findOldMapping(key_hash, key);
+			}
+			if (mapping != null || operation == HashTableStats.Operation.FIND) {
+				recordProbes(operation, m_probe_count);
+			}
+			m_batch_mappings[i] = mapping;
+			// The bucket isn't needed anymore, so it's not kept reachable
+			m_batch_buckets[i] = null;
+		}
+	}
+	
+	/**
+	 * Probes the batch in stages (see probeBatch()).
+	 *
+	 * @see HashTableBase#findBatch(Object[], int, int, long[], Object[])
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void findBatch(KeyT[] keys, int start, int end, long[] key_hashes, ValueT[] out) {
+		probeBatch(keys, start, end, key_hashes, HashTableStats.Operation.FIND);
+		for (int i = start; i < end; ++i) {
+			KeyValuePair mapping = (KeyValuePair) m_batch_mappings[i - start];
+			out[i] = mapping != null ? mapping.m_value : null;
+			m_batch_mappings[i - start] = null;
+		}
+	}
+	
+	/**
+	 * Probes the batch in stages (see probeBatch()).
+	 *
+	 * @see HashTableBase#containsBatch(Object[], int, int, long[])
+	 */
+	@Override
+	protected boolean containsBatch(KeyT[] keys, int start, int end, long[] key_hashes) {
+		probeBatch(keys, start, end, key_hashes, HashTableStats.Operation.FIND);
+		boolean found_all = true;
+		for (int i = 0; i < end - start; ++i) {
+			found_all &= m_batch_mappings[i] != null;
+			m_batch_mappings[i] = null;
+		}
+		return found_all;
+	}
+	
+	/**
+	 * Probes the batch in stages (see probeBatch()) and updates the values
+	 * of the mappings found in place. The mappings are never copied, even
+	 * when the table is re-sized or a bucket is converted to a tree, so
+	 * the found mappings stay valid while the rest of the keys are mapped
+	 * by map().
+	 *
+	 * @see HashTableBase#mapBatch(Object[], Object[], int, int, long[])
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void mapBatch(KeyT[] keys, ValueT[] values, int start, int end, long[] key_hashes)
+			throws ArithmeticException {
+		probeBatch(keys, start, end, key_hashes, HashTableStats.Operation.MAP);
+		for (int i = start; i < end; ++i) {
+			KeyValuePair mapping = (KeyValuePair) m_batch_mappings[i - start];
+			m_batch_mappings[i - start] = null;
+			if (mapping != null) {
+				ValueT previous_value = mapping.m_value;
+				mapping.m_value = values[i];
+				replaceValue(previous_value, values[i]);
+			}
+			else {
+				map(key_hashes[i - start], keys[i], values[i]);
 			}
 		}
-		return null;
 	}
 	
 	/**
 	 * Re-sizes the table if needed and moves all the existing mappings
 	 * to the new location in the newly allocated array.
 	 *
+	 * In the {@link HashTableBase.ResizeMode#INCREMENTAL} mode the mappings
+	 * are not moved here. The old array is kept instead and its buckets
+	 * are moved by the subsequent operations (see migrateStep()). If the
+	 * table has to be re-sized again before that completes, the remaining
+	 * buckets are moved first.
+	 *
 	 * @throws ArithmeticException if integer overflow happens when array
 	 * size is increased.
 	 */
-	@SuppressWarnings("unchecked")
 	private void resizeTable() throws ArithmeticException {
 		// If current table occupancy is lower than the load factor we
 		// don't need to resize the table
@@ -186,36 +1032,105 @@ public class HashTableSeparateChaining<KeyT, ValueT> extends HashTableBase<KeyT,
 		if (occupancy < m_load_factor) {
 			return;
 		}
-
-		// Allocate the array that is at least twice as big as the current one
-		Object[] old_array = m_array;
-		int doubled_size = 2 * old_array.length;
+	
+		// Grow to the array that is twice as big as the current one
+		int doubled_size = 2 * m_array.length;
 		if (doubled_size < 0) {
 			throw new ArithmeticException("Increased array size overflows the integer type");
 		}
-		m_array = new Object[doubled_size];
-		
-		// For every bucket in the old array
-		for (Object obj : old_array) {
-			SinglyLinkedList<KeyValuePair> bucket = getBucket(obj);
-			if (bucket != null) {
-				// For every mapping in the bucket
-				for (KeyValuePair mapping : bucket) {
-					// In which bucket should it be placed?
-					long key_hash = computeHash((KeyT) mapping.m_key);
-					int index = mapHashToIndex(key_hash);
-					
-					// Does the bucket already exist?
-					SinglyLinkedList<KeyValuePair> tmp_bucket = getBucket(index);
-					if (tmp_bucket == null) {
-						m_array[index] = tmp_bucket = new SinglyLinkedList<KeyValuePair>();
-					}
-					
-					// Insert the mapping to the bucket
-					tmp_bucket.pushBack(mapping);
-				}
+		resizeTo(doubled_size);
+	}
+	
+	/**
+	 * @see HashTableBase#resizeTo(int)
+	 */
+	@Override
+	protected void resizeTo(int array_length) {
+		// Finish the re-size that is still in progress
+		migrateAll();
+		long start_time = resizeStarted();
+	
+		Object[] old_array = m_array;
+		m_array = new Object[array_length];
+	
+		m_old_array = old_array;
+		m_migration_index = 0;
+		if (!m_incremental_resize) {
+			// Move each mapping to a new location right away
+			migrateAll();
+		}
+		resizeFinished(start_time);
+	}
+	
+	/**
+	 * Moves the mappings from the bucket at the given index of the old
+	 * array to the buckets of the current array.
+	 *
+	 * @param old_index  The index of the old bucket.
+	 */
+	private void migrateBucket(int old_index) {
+		Object bucket = m_old_array[old_index];
+		if (bucket != null) {
+			// For every mapping in the bucket
+			for (KeyValuePair mapping : getMappings(bucket)) {
+				// Place it in the bucket where it hashes to in the current array
+				long key_hash = mapping.m_hash;
+				int index = mapHashToIndex(key_hash);
+				addToBucket(index, key_hash, mapping, m_intrusive_chains ? chainLength(m_array[index]) : 0);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of mappings in the chain bucket, or 0 if the bucket
+	 * is NULL or a tree.
+	 */
+	@SuppressWarnings("unchecked")
+	private int chainLength(Object bucket) {
+		int chain_length = 0;
+		if (bucket instanceof HashTableSeparateChaining.ChainNode) {
+			for (ChainNode node = (ChainNode) bucket; node != null; node = node.m_next) {
+				++chain_length;
 			}
 		}
+		return chain_length;
+	}
+	
+	/**
+	 * Moves the next INCREMENTAL_RESIZE_STEP buckets of the old array, if
+	 * the table is being re-sized.
+	 */
+	private void migrateStep() {
+		if (m_old_array == null) {
+			return;
+		}
+	
+		int end = Math.min(m_migration_index + INCREMENTAL_RESIZE_STEP, m_old_array.length);
+		for (; m_migration_index < end; ++m_migration_index) {
+			migrateBucket(m_migration_index);
+			m_old_array[m_migration_index] = null;
+		}
+	
+		if (m_migration_index == m_old_array.length) {
+			// The re-size is complete
+			m_old_array = null;
+		}
+	}
+	
+	/**
+	 * Moves all the remaining buckets of the old array, if the table is
+	 * being re-sized.
+	 */
+	private void migrateAll() {
+		if (m_old_array == null) {
+			return;
+		}
+	
+		// The old array is dropped right after, so its cells are not cleared
+		for (int i = m_migration_index; i < m_old_array.length; ++i) {
+			migrateBucket(i);
+		}
+		m_old_array = null;
 	}
 	
 	/**
@@ -223,19 +1138,20 @@ public class HashTableSeparateChaining<KeyT, ValueT> extends HashTableBase<KeyT,
 	 * or updates the value if the key is already mapped.
 	 *
 	 * The method will place the new mapping to the bucket at the array index
-	 * where the key maps to. The algorithm needs to scan the list to make
+	 * where the key maps to. The algorithm needs to search the bucket to make
 	 * sure that mapping with the given key doesn't already exist in the
 	 * bucket before it is inserted.
-	 * 
+	 *
 	 * The time complexity of this method is O(1) if the bucket in which the
 	 * mapping should be placed is empty. Otherwise, the complexity is O(C)
-	 * where C is the number of mappings in the given bucket. The complexity
-	 * in case that array has to be resized is O(max(N,K)) where N is the
-	 * size of the table before it was resized and K is the number of keys
-	 * in the table. If number of keys is less than the array size (K < N)
-	 * the performance is O(N) as method needs to check every array cell. If
-	 * number of keys is greater than the array size (K > N) the performance
-	 * is then O(K) as each key needs to be moved.
+	 * where C is the number of mappings in the given bucket, or O(log C) if
+	 * the bucket is a tree. The complexity in case that array has to be
+	 * resized is O(max(N,K)) where N is the size of the table before it was
+	 * resized and K is the number of keys in the table. If number of keys is
+	 * less than the array size (K < N) the performance is O(N) as method
+	 * needs to check every array cell. If number of keys is greater than the
+	 * array size (K > N) the performance is then O(K) as each key needs to be
+	 * moved.
 	 *
 	 * @param key    The key to be placed in the hash table.
 	 * @param value  The value to which key is mapped to.
@@ -247,48 +1163,85 @@ public class HashTableSeparateChaining<KeyT, ValueT> extends HashTableBase<KeyT,
 	 * @throws ArithmeticException {@link HashTableOpenAddressing#resizeTable()}
 	 */
 	public ValueT map(KeyT key, ValueT value) throws ArithmeticException {
-		long key_hash = computeHash(key);
+		return map(computeHash(key), key, value);
+	}
+	
+	/**
+	 * @see HashTableBase#map(long, Object, Object)
+	 */
+	@Override
+	protected ValueT map(long key_hash, KeyT key, ValueT value) throws ArithmeticException {
+		migrateStep();
+	
+		// While the table is being re-sized the key might still be in the old array
 		int index = mapHashToIndex(key_hash);
-		
-		SinglyLinkedList<KeyValuePair> bucket = getBucket(index);
-		
-		if (bucket != null) {
-			// Scan the bucket and check if it contains the given key
-			for (KeyValuePair mapping : bucket) {
-				if (mapping.keyEquals(key)) {
-					// The key is already mapped. Update the value
-					ValueT previous_value = mapping.m_value;
-					mapping.m_value = value;
-					return previous_value;
-				}
-			}
-			
-			// Insert the new mapping as the key is not mapped
-			bucket.pushBack(new KeyValuePair(key, value));
+		KeyValuePair mapping = findInBucket(m_array[index], key_hash, key);
+		int chain_length = m_bucket_length;
+		if (mapping == null) {
+			mapping = findOldMapping(key_hash, key);
 		}
-		else {
-			// Allocate the bucket and map the key
-			SinglyLinkedList<KeyValuePair> new_bucket = new SinglyLinkedList<KeyValuePair>();
-			new_bucket.pushBack(new KeyValuePair(key, value));
-			m_array[index] = new_bucket;
+		recordProbes(HashTableStats.Operation.MAP, m_probe_count);
+		if (mapping != null) {
+			// The key is already mapped. Update the value
+			ValueT previous_value = mapping.m_value;
+			mapping.m_value = value;
+			replaceValue(previous_value, value);
+			return previous_value;
 		}
-		
+	
+		// Insert the new mapping as the key is not mapped
+		addToBucket(index, key_hash,
+				m_intrusive_chains ? new ChainNode(key_hash, key, value) : new KeyValuePair(key, value, key_hash),
+				chain_length);
+	
 		// Increase the table size
+		retainValue(value);
 		++m_size;
-		
+	
 		// Resize the table if needed
 		resizeTable();
-		
+	
 		return null;
 	}
 	
+	/**
+	 * Removes the mapping with the given key, and optionally the given
+	 * value, from the current array or, while the table is being re-sized,
+	 * from the old array.
+	 *
+	 * @return The removed mapping, or null if no mapping has been removed.
+	 */
+	private KeyValuePair removeMapping(KeyT key, ValueT value, boolean compare_value) {
+		migrateStep();
+	
+		long key_hash = computeHash(key);
+		KeyValuePair removed_mapping =
+				removeFromBucket(m_array, mapHashToIndex(key_hash), key_hash, key, value, compare_value);
+		if (removed_mapping == null && m_old_array != null) {
+			removed_mapping = removeFromBucket(
+					m_old_array, mapHashToIndex(key_hash, m_old_array.length), key_hash, key, value, compare_value);
+		}
+		recordProbes(HashTableStats.Operation.UNMAP, m_probe_count);
+	
+		if (removed_mapping != null) {
+			releaseValue(removed_mapping.m_value);
+			--m_size;
+			shrinkIfNeeded();
+		}
+		return removed_mapping;
+	}
+	
 	/**
 	 * Removes the mapping with the given key.
 	 *
-	 * Removing mappings is trivial as the buckets are linked lists. Note that
-	 * given array cell is not set to NULL if its bucket becomes empty. This
-	 * wastes a bit of memory but improves performance because we don't need
-	 * to allocate the bucket at later point.
+	 * Removing mappings is trivial as the buckets are linked lists, chains
+	 * or trees. The mapping is unlinked from the predecessor found while
+	 * searching the bucket. Note that the array cell of a list bucket is not
+	 * set to NULL if the bucket becomes empty. This wastes a bit of memory
+	 * but improves performance because we don't need to allocate the bucket
+	 * at later point. The {@link BucketMode#INTRUSIVE_CHAINS} buckets are
+	 * made of the mappings themselves, so the array cell is NULL once the
+	 * last mapping of the chain is unlinked.
 	 *
 	 * @param key  The key to unmap.
 	 *
@@ -296,35 +1249,22 @@ public class HashTableSeparateChaining<KeyT, ValueT> extends HashTableBase<KeyT,
 	 *         have a mapping. NULL might also be returned if key was mapped
 	 *         to a NULL value.
 	 */
-	@SuppressWarnings("unchecked")
 	public ValueT unmap(KeyT key)  {
-		long key_hash = computeHash(key);
-		int index = mapHashToIndex(key_hash);
-		
-		// Attempt to remove the mapping with given key.
-		SinglyLinkedList<KeyValuePair> bucket = getBucket(index);
-		Object removed_value[] = { null };
-		if (bucket != null && bucket.removeIf(
-				mapping -> {
-					if (mapping.keyEquals(key)) {
-						removed_value[0] = mapping.m_value;
-					}
-					return mapping.keyEquals(key);
-				}))
-		{
-			--m_size;
-		}
-		
-		return (ValueT) removed_value[0];
+		KeyValuePair removed_mapping = removeMapping(key, null, false);
+		return removed_mapping != null ? removed_mapping.m_value : null;
 	}
 	
 	/**
 	 * Removes the mapping with the key if it maps to the specified value.
 	 *
-	 * Removing mappings is trivial as the buckets are linked lists. Note that
-	 * given array cell is not set to NULL if its bucket becomes empty. This
-	 * wastes a bit of memory but improves performance because we don't need
-	 * to allocate the bucket at later point.
+	 * Removing mappings is trivial as the buckets are linked lists, chains
+	 * or trees. The mapping is unlinked from the predecessor found while
+	 * searching the bucket. Note that the array cell of a list bucket is not
+	 * set to NULL if the bucket becomes empty. This wastes a bit of memory
+	 * but improves performance because we don't need to allocate the bucket
+	 * at later point. The {@link BucketMode#INTRUSIVE_CHAINS} buckets are
+	 * made of the mappings themselves, so the array cell is NULL once the
+	 * last mapping of the chain is unlinked.
 	 *
 	 * @param key    The key to unmap.
 	 * @param value  The value to compare against.
@@ -333,16 +1273,7 @@ public class HashTableSeparateChaining<KeyT, ValueT> extends HashTableBase<KeyT,
 	 *         otherwise.
 	 */
 	public boolean unmap(KeyT key, ValueT value) {
-		long key_hash = computeHash(key);
-		int index = mapHashToIndex(key_hash);
-		
-		// Attempt to remove the mapping with given key and value.
-		SinglyLinkedList<KeyValuePair> bucket = getBucket(index);
-		if (bucket != null && bucket.remove(new KeyValuePair(key, value))) {
-			--m_size;
-			return true;
-		}
-		return false;
+		return removeMapping(key, value, true) != null;
 	}
 	
 	/**
@@ -359,22 +1290,17 @@ public class HashTableSeparateChaining<KeyT, ValueT> extends HashTableBase<KeyT,
 	 *         was previously mapped to the null value.
 	 */
 	public ValueT remap(KeyT key, ValueT value) {
-		long key_hash = computeHash(key);
-		int index = mapHashToIndex(key_hash);
-		
-		SinglyLinkedList<KeyValuePair> bucket = getBucket(index);
-		
-		if (bucket != null) {
-			// Scan the bucket and check if it contains the given key
-			for (KeyValuePair mapping : bucket) {
-				if (mapping.keyEquals(key)) {
-					// Remap the key to the new value
-					ValueT previous_value = mapping.m_value;
-					mapping.m_value = value;
-					return previous_value;
-				}
-			}
+		migrateStep();
+	
+		KeyValuePair mapping = findMapping(computeHash(key), key);
+		if (mapping == null) {
+			return null;
 		}
-		return null;
+	
+		// Remap the key to the new value
+		ValueT previous_value = mapping.m_value;
+		mapping.m_value = value;
+		replaceValue(previous_value, value);
+		return previous_value;
 	}
 }
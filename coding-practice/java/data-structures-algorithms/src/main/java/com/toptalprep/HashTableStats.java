@@ -0,0 +1,241 @@
+package com.toptalprep;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Collects the runtime statistics of a {@link HashTableBase} instance.
+ *
+ * The statistics are collected only if the JVM is started with the
+ * com.toptalprep.hashtable.stats system property set to true. As
+ * ENABLED is a constant, the JIT compiler removes the recording calls
+ * from the hash table operations altogether when the statistics are
+ * disabled, and the tables don't allocate a HashTableStats instance.
+ *
+ * The open addressing and separate chaining tables record the probe
+ * lengths. All the tables record the re-sizes. The statistics are
+ * updated without synchronization like the rest of the table state, so
+ * the values polled from another thread (e.g. through JMX) might be
+ * slightly out of date.
+ */
+public final class HashTableStats implements HashTableStatsMXBean {
+	/**
+	 * Whether the hash tables collect the statistics.
+	 */
+	public static final boolean ENABLED = Boolean.getBoolean("com.toptalprep.hashtable.stats");
+
+	/**
+	 * The operation whose probe length is recorded.
+	 */
+	public enum Operation {
+		FIND,
+		MAP,
+		UNMAP
+	}
+
+	/**
+	 * The number of elements of the probe length histograms.
+	 */
+	public static final int HISTOGRAM_SIZE = 32;
+
+	/**
+	 * The number of the most recent occupancy samples kept.
+	 */
+	public static final int TIMELINE_SIZE = 64;
+
+	/**
+	 * The number of map() and unmap() calls between two occupancy samples.
+	 */
+	public static final int TIMELINE_SAMPLE_INTERVAL = 1024;
+
+	private final HashTableBase<?, ?> m_table;
+	private final long[][] m_histograms;
+	private int m_max_chain_length;
+	private long m_resize_count;
+	private long m_resize_time;
+	private int m_modification_count;
+
+	/**
+	 * The occupancy samples in a ring buffer. m_timeline_count is the
+	 * total number of samples taken, so the oldest sample kept is at
+	 * m_timeline_count % TIMELINE_SIZE once the buffer fills up.
+	 */
+	private final double[] m_timeline_values;
+	private final long[] m_timeline_times;
+	private long m_timeline_count;
+
+	/**
+	 * Constructs the statistics of the given table.
+	 *
+	 * @param table  The table whose statistics are collected.
+	 */
+	HashTableStats(HashTableBase<?, ?> table) {
+		m_table = table;
+		m_histograms = new long[Operation.values().length][HISTOGRAM_SIZE];
+		m_timeline_values = new double[TIMELINE_SIZE];
+		m_timeline_times = new long[TIMELINE_SIZE];
+	}
+
+	/**
+	 * Records the number of cells or bucket mappings examined by the
+	 * operation, and samples the occupancy every TIMELINE_SAMPLE_INTERVAL
+	 * modifications.
+	 */
+	void recordProbes(Operation operation, int probes) {
+		++m_histograms[operation.ordinal()][Math.min(probes, HISTOGRAM_SIZE - 1)];
+		if (operation != Operation.FIND && ++m_modification_count == TIMELINE_SAMPLE_INTERVAL) {
+			m_modification_count = 0;
+			sampleLoadFactor();
+		}
+	}
+
+	/**
+	 * Records the number of mappings in the bucket a mapping has just been
+	 * added to.
+	 */
+	void recordChainLength(int length) {
+		m_max_chain_length = Math.max(m_max_chain_length, length);
+	}
+
+	/**
+	 * Called before the mappings are moved to a new array.
+	 *
+	 * @return The start time of the re-size to pass to resizeFinished().
+	 */
+	long resizeStarted() {
+		// The buckets are rebuilt from scratch
+		m_max_chain_length = 0;
+		return System.nanoTime();
+	}
+
+	/**
+	 * Called after the mappings have been moved to a new array.
+	 *
+	 * @param start_time  The value returned by resizeStarted().
+	 */
+	void resizeFinished(long start_time) {
+		++m_resize_count;
+		m_resize_time += System.nanoTime() - start_time;
+		sampleLoadFactor();
+	}
+
+	private void sampleLoadFactor() {
+		int index = (int) (m_timeline_count++ % TIMELINE_SIZE);
+		m_timeline_values[index] = getLoadFactor();
+		m_timeline_times[index] = System.currentTimeMillis();
+	}
+
+	/**
+	 * Registers the statistics with the platform MBean server under the
+	 * com.toptalprep:type=HashTable,name=&lt;name&gt; object name.
+	 *
+	 * @param name  The name that identifies the table.
+	 *
+	 * @return The object name the statistics are registered under.
+	 *
+	 * @throws JMException if the name is malformed or already registered.
+	 */
+	public ObjectName register(String name) throws JMException {
+		ObjectName object_name = new ObjectName("com.toptalprep:type=HashTable,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, object_name);
+		return object_name;
+	}
+
+	/**
+	 * Unregisters the statistics registered by register().
+	 *
+	 * @param object_name  The object name returned by register().
+	 *
+	 * @throws JMException if the statistics aren't registered under the name.
+	 */
+	public static void unregister(ObjectName object_name) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(object_name);
+	}
+
+	@Override
+	public long[] getFindProbeHistogram() {
+		return m_histograms[Operation.FIND.ordinal()].clone();
+	}
+
+	@Override
+	public long[] getMapProbeHistogram() {
+		return m_histograms[Operation.MAP.ordinal()].clone();
+	}
+
+	@Override
+	public long[] getUnmapProbeHistogram() {
+		return m_histograms[Operation.UNMAP.ordinal()].clone();
+	}
+
+	@Override
+	public int getMaxChainLength() {
+		return m_max_chain_length;
+	}
+
+	@Override
+	public double getTombstoneRatio() {
+		return (double) m_table.removedCount() / m_table.m_array.length;
+	}
+
+	@Override
+	public long getResizeCount() {
+		return m_resize_count;
+	}
+
+	@Override
+	public long getResizeTimeNanos() {
+		return m_resize_time;
+	}
+
+	@Override
+	public int getSize() {
+		return m_table.size();
+	}
+
+	@Override
+	public int getCapacity() {
+		return m_table.m_array.length;
+	}
+
+	@Override
+	public double getLoadFactor() {
+		return (double) m_table.size() / m_table.m_array.length;
+	}
+
+	@Override
+	public double[] getLoadFactorTimeline() {
+		int count = (int) Math.min(m_timeline_count, TIMELINE_SIZE);
+		int oldest = (int) ((m_timeline_count - count) % TIMELINE_SIZE);
+		double[] timeline = new double[count];
+		for (int i = 0; i < count; ++i) {
+			timeline[i] = m_timeline_values[(oldest + i) % TIMELINE_SIZE];
+		}
+		return timeline;
+	}
+
+	@Override
+	public long[] getLoadFactorTimestamps() {
+		int count = (int) Math.min(m_timeline_count, TIMELINE_SIZE);
+		int oldest = (int) ((m_timeline_count - count) % TIMELINE_SIZE);
+		long[] timestamps = new long[count];
+		for (int i = 0; i < count; ++i) {
+			timestamps[i] = m_timeline_times[(oldest + i) % TIMELINE_SIZE];
+		}
+		return timestamps;
+	}
+
+	@Override
+	public void reset() {
+		for (long[] histogram : m_histograms) {
+			Arrays.fill(histogram, 0);
+		}
+		m_max_chain_length = 0;
+		m_resize_count = 0;
+		m_resize_time = 0;
+		m_modification_count = 0;
+		m_timeline_count = 0;
+	}
+}
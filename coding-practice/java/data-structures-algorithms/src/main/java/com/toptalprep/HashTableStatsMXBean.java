@@ -0,0 +1,84 @@
+package com.toptalprep;
+
+/**
+ * The runtime statistics of a hash table, which can be polled directly
+ * or through JMX once registered (see {@link HashTableStats#register}).
+ *
+ * The probe length histograms count the operations by the number of
+ * array cells (open addressing) or bucket mappings (separate chaining)
+ * they have examined. The element at index i counts the operations that
+ * examined i cells or mappings, and the last element counts all the
+ * operations that examined at least as many.
+ */
+public interface HashTableStatsMXBean {
+	/**
+	 * @return The probe length histogram of find() and containsKey().
+	 */
+	long[] getFindProbeHistogram();
+
+	/**
+	 * @return The probe length histogram of map().
+	 */
+	long[] getMapProbeHistogram();
+
+	/**
+	 * @return The probe length histogram of unmap().
+	 */
+	long[] getUnmapProbeHistogram();
+
+	/**
+	 * @return The number of mappings in the longest bucket a mapping has
+	 *         been added to since the last re-size, or 0 for the tables
+	 *         that don't chain the mappings.
+	 */
+	int getMaxChainLength();
+
+	/**
+	 * @return The fraction of the array cells holding removed mappings, or
+	 *         0 for the tables that don't leave removed mappings behind.
+	 */
+	double getTombstoneRatio();
+
+	/**
+	 * @return The number of times the table has been re-sized.
+	 */
+	long getResizeCount();
+
+	/**
+	 * @return The total time in nanoseconds spent re-sizing the table.
+	 */
+	long getResizeTimeNanos();
+
+	/**
+	 * @return The number of mappings in the table.
+	 */
+	int getSize();
+
+	/**
+	 * @return The length of the underlying array.
+	 */
+	int getCapacity();
+
+	/**
+	 * @return The current occupancy of the table, i.e. its size divided
+	 *         by its capacity.
+	 */
+	double getLoadFactor();
+
+	/**
+	 * @return The occupancies sampled periodically and at every re-size,
+	 *         oldest first.
+	 */
+	double[] getLoadFactorTimeline();
+
+	/**
+	 * @return The times in milliseconds since the epoch at which the
+	 *         elements of getLoadFactorTimeline() have been sampled.
+	 */
+	long[] getLoadFactorTimestamps();
+
+	/**
+	 * Clears the histograms, the counters and the timeline.
+	 */
+	void reset();
+}
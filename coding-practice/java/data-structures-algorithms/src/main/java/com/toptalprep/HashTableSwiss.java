@@ -0,0 +1,830 @@
+package com.toptalprep;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Hash table implementation modeled after the Swiss table.
+ *
+ * The array cells are divided into groups of 8. Besides the keys and the
+ * values, the table keeps one control byte per cell:
+ *
+ * - EMPTY (0x80) if the cell has never been used since the last re-size,
+ * - DELETED (0xFE) if the cell holds a removed mapping,
+ * - a 7-bit fingerprint (0x00 - 0x7F) if the cell holds a mapping, which
+ *   is the lowest 7 bits of the mixed key hash.
+ *
+ * The 8 control bytes of a group are packed into a single long word, so a
+ * lookup loads one word and compares all 8 fingerprints against the key's
+ * fingerprint at once using SWAR (SIMD within a register) bit tricks. Only
+ * the cells whose fingerprints match are compared by key, which on average
+ * happens for 1 in 128 non-matching cells. A lookup stops at the first
+ * group that has an EMPTY cell, so a lookup for a key that isn't mapped
+ * usually inspects a single control word and never touches the keys.
+ *
+ * The fingerprint of a key is the lowest 7 bits of the mixed key hash,
+ * and its home group is determined by the bits right above them (the
+ * mixed hash shifted right by 7 and masked to the number of groups, or
+ * reduced by the FAST_RANGE index reducer if requested). As the two
+ * don't share any bits, the keys of the same group are unlikely to share
+ * the fingerprint. The groups are probed quadratically (the i-th probed
+ * group is i * (i + 1) / 2 groups away from the home group) which visits
+ * every group once as the number of groups is a power of two.
+ *
+ * Unmapping a key sets its control byte to EMPTY if its group has an
+ * EMPTY cell (no lookup ever probed past such a group) and to DELETED
+ * otherwise. The DELETED cells are reused by new mappings and dropped
+ * when the table is re-sized.
+ *
+ * @note The class supports NULL as a key.
+ */
+public class HashTableSwiss<KeyT, ValueT> extends HashTableBase<KeyT, ValueT> {
+	private static final int GROUP_SIZE = 8;
+
+	private static final long EMPTY = 0x80L;
+	private static final long DELETED = 0xFEL;
+
+	/**
+	 * Repeats the given byte in every byte of a long word.
+	 */
+	private static final long LSBS = 0x0101010101010101L;
+
+	/**
+	 * The most significant bit of every byte of a long word.
+	 */
+	private static final long MSBS = 0x8080808080808080L;
+
+	private static final long ALL_EMPTY = EMPTY * LSBS;
+
+	/**
+	 * The control words, one per group. The control byte of the cell at
+	 * index (group * 8 + i) is the i-th least significant byte of the
+	 * group's word.
+	 */
+	protected long[] m_control;
+
+	/**
+	 * The values of the mappings. The keys are stored in {@link HashTableBase#m_array}
+	 * at the same indices. As the control bytes tell which cells are used,
+	 * the NULL key is stored as is.
+	 */
+	protected Object[] m_values;
+
+	/**
+	 * The lower 32 bits of the key hashes, as returned by computeHash, of
+	 * the mappings at the same indices. They are compared before the keys
+	 * are and reused when the table is re-sized. That's sufficient since
+	 * computeHash returns values below 2^32 for all keys but NULL, whose
+	 * hash is computed.
+	 */
+	protected int[] m_hashes;
+
+	/**
+	 * The number of DELETED cells.
+	 */
+	protected int m_deleted_count;
+
+	/**
+	 * The state of the batch being probed by probeBatch(), allocated by
+	 * the first batch operation. For every key of the batch, m_batch_groups
+	 * holds its home group, m_batch_controls holds the control word of the
+	 * home group, m_batch_indexes holds the array index of its mapping (see
+	 * probeBatch()) and m_batch_keys holds the stored key of the mapping.
+	 */
+	private int[] m_batch_groups;
+	private long[] m_batch_controls;
+	private int[] m_batch_indexes;
+	private Object[] m_batch_keys;
+
+	/**
+	 * Constructs a HashTableSwiss instance with initial capacity of 16
+	 * elements and load factor of 0.875.
+	 */
+	public HashTableSwiss() {
+		this(16, 0.875f);
+	}
+
+	/**
+	 * Constructs a HashTableSwiss instance with given initial capacity
+	 * and load factor of 0.875.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero.
+	 */
+	public HashTableSwiss(int initial_capacity) throws IllegalArgumentException {
+		this(initial_capacity, 0.875f);
+	}
+
+	/**
+	 * Constructs a HashTableSwiss instance with given initial capacity
+	 * and load factor.
+	 *
+	 * The capacity is rounded up to a power of two that is at least 8 (the
+	 * size of the group). The number of mappings cannot be greater than
+	 * the size of the table, hence load factor is capped to 1.0.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table, including the DELETED cells, before it is
+	 *                          re-sized. This value represents a percentage and falls
+	 *                          within a range [0.0, 1.0].
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative.
+	 */
+	public HashTableSwiss(int initial_capacity, float load_factor) throws IllegalArgumentException {
+		this(initial_capacity, load_factor, new HashTableOption[0]);
+	}
+
+	/**
+	 * Constructs a HashTableSwiss instance with given initial capacity,
+	 * load factor and options.
+	 *
+	 * The capacity is rounded up to a power of two that is at least 8 (the
+	 * size of the group). The number of mappings cannot be greater than
+	 * the size of the table, hence load factor is capped to 1.0. The key
+	 * hash is spread by the hash mixer before it is mixed by the table
+	 * itself, and the index reducer maps the hashes to the groups rather
+	 * than to the array cells.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table, including the DELETED cells, before it is
+	 *                          re-sized. This value represents a percentage and falls
+	 *                          within a range [0.0, 1.0].
+	 * @param options           The options that configure the table. The
+	 *                          {@link HashTableBase.HashMixer},
+	 *                          {@link HashTableBase.IndexReducer} and
+	 *                          {@link HashTableBase.ValueIndexMode} options are
+	 *                          recognized (see
+	 *                          {@link HashTableBase#HashTableBase(int, float, HashTableOption...)}).
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative.
+	 */
+	public HashTableSwiss(int initial_capacity, float load_factor, HashTableOption... options)
+			throws IllegalArgumentException {
+		super(computeCapacity(initial_capacity), load_factor > 1.0f ? 1.0f : load_factor, options);
+		allocateArrays(m_array.length);
+	}
+
+	/**
+	 * Rounds the requested capacity up to a power of two that is at
+	 * least GROUP_SIZE. Non-positive capacities are returned as is so
+	 * that {@link HashTableBase#HashTableBase(int, float)} rejects them.
+	 *
+	 * @throws IllegalArgumentException if the rounded capacity overflows
+	 *         the integer type.
+	 */
+	private static int computeCapacity(int requested_capacity) throws IllegalArgumentException {
+		if (requested_capacity <= 0) {
+			return requested_capacity;
+		}
+
+		if (requested_capacity > (1 << 30)) {
+			throw new IllegalArgumentException("initial_capacity is too large");
+		}
+
+		int capacity = GROUP_SIZE;
+		while (capacity < requested_capacity) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	/**
+	 * Allocates the arrays for the given capacity and marks every cell
+	 * as EMPTY.
+	 */
+	private void allocateArrays(int capacity) {
+		m_array = new Object[capacity];
+		m_values = new Object[capacity];
+		m_hashes = new int[capacity];
+		m_control = new long[capacity / GROUP_SIZE];
+		Arrays.fill(m_control, ALL_EMPTY);
+		m_deleted_count = 0;
+	}
+
+	/**
+	 * Mixes the bits of the key hash.
+	 *
+	 * The key hash is multiplied by a 64-bit constant derived from the
+	 * golden ratio, which spreads every input bit over the upper bits
+	 * of the product, and the upper half is then folded into the lower
+	 * half so that both the fingerprint and the group index depend on
+	 * all the bits of the key hash.
+	 */
+	private static long mixHash(long key_hash) {
+		long mixed_hash = key_hash * 0x9E3779B97F4A7C15L;
+		return mixed_hash ^ (mixed_hash >>> 32);
+	}
+
+	/**
+	 * Returns the 7-bit fingerprint of the mixed hash, i.e. its lowest 7
+	 * bits.
+	 */
+	private static long fingerprint(long mixed_hash) {
+		return mixed_hash & 0x7FL;
+	}
+
+	/**
+	 * Returns the home group of the mixed hash, taken from the bits above
+	 * the fingerprint. As the number of groups is a power of 2, the
+	 * {@link HashTableBase.IndexReducer#MODULO} and
+	 * {@link HashTableBase.IndexReducer#MASK} reducers both mask the bits.
+	 */
+	private int homeGroup(long mixed_hash) {
+		if (m_index_reducer == IndexReducer.FAST_RANGE) {
+			return m_index_reducer.reduce(mixed_hash >>> 7, m_control.length);
+		}
+		return (int)(mixed_hash >>> 7) & (m_control.length - 1);
+	}
+
+	/**
+	 * Returns a word with the most significant bit set in every byte of
+	 * the control word that is equal to the given byte.
+	 *
+	 * XOR-ing the word with the repeated byte zeroes the matching bytes.
+	 * Subtracting 1 from each byte sets the most significant bit of the
+	 * zero bytes, and masking with the inverted word drops the bytes whose
+	 * most significant bit was set before. A borrow from a zero byte might
+	 * produce a false positive in the byte that follows it, so the keys
+	 * of the matching cells must be compared anyway.
+	 */
+	private static long matchByte(long control_word, long value) {
+		long xored = control_word ^ (value * LSBS);
+		return (xored - LSBS) & ~xored & MSBS;
+	}
+
+	/**
+	 * Returns a word with the most significant bit set in every EMPTY byte
+	 * of the control word. EMPTY is the only control byte that has the most
+	 * significant bit set and the second least significant bit cleared.
+	 */
+	private static long matchEmpty(long control_word) {
+		return control_word & ~(control_word << 6) & MSBS;
+	}
+
+	/**
+	 * Returns a word with the most significant bit set in every EMPTY or
+	 * DELETED byte of the control word.
+	 */
+	private static long matchEmptyOrDeleted(long control_word) {
+		return control_word & MSBS;
+	}
+
+	/**
+	 * Returns the index within the group of the lowest byte set in the
+	 * match word.
+	 */
+	private static int lowestMatch(long match) {
+		return Long.numberOfTrailingZeros(match) >>> 3;
+	}
+
+	/**
+	 * Returns the control byte of the cell at the given index.
+	 */
+	private long controlByte(int index) {
+		return (m_control[index / GROUP_SIZE] >>> ((index % GROUP_SIZE) * 8)) & 0xFFL;
+	}
+
+	/**
+	 * Sets the control byte of the cell at the given index.
+	 */
+	private void setControlByte(int index, long value) {
+		int shift = (index % GROUP_SIZE) * 8;
+		int group = index / GROUP_SIZE;
+		m_control[group] = (m_control[group] & ~(0xFFL << shift)) | (value << shift);
+	}
+
+	/**
+	 * Returns true if the key at the given index is equal to the given key.
+	 * Note that true is returned if both keys are null. The cached hashes
+	 * are compared first.
+	 */
+	private boolean keyEqualsAt(int index, long key_hash, KeyT key) {
+		if (m_hashes[index] != (int) key_hash) {
+			return false;
+		}
+		Object stored_key = m_array[index];
+		return stored_key == key || (stored_key != null && stored_key.equals(key));
+	}
+
+	/**
+	 * Finds the array index of the mapping with the given key.
+	 *
+	 * @param key_hash  The hash of the key as returned by computeHash.
+	 * @param key       The key to search for.
+	 *
+	 * @return The array index of the mapping, or -1 if key isn't mapped.
+	 */
+	private int findIndex(long key_hash, KeyT key) {
+		long mixed_hash = mixHash(key_hash);
+		long key_fingerprint = fingerprint(mixed_hash);
+		int group_mask = m_control.length - 1;
+		int group = homeGroup(mixed_hash);
+
+		for (int probe = 1; probe <= m_control.length; ++probe) {
+			long control_word = m_control[group];
+
+			// Compare the keys whose fingerprints match
+			for (long match = matchByte(control_word, key_fingerprint); match != 0; match &= match - 1) {
+				int index = group * GROUP_SIZE + lowestMatch(match);
+				if (keyEqualsAt(index, key_hash, key)) {
+					return index;
+				}
+			}
+
+			if (matchEmpty(control_word) != 0) {
+				// The key would have been placed in this group
+				return -1;
+			}
+			group = (group + probe) & group_mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the first EMPTY or DELETED cell in the probe sequence of the
+	 * given hash. The table is re-sized before it gets completely full,
+	 * so such a cell always exists.
+	 */
+	private int findFreeIndex(long mixed_hash) {
+		int group_mask = m_control.length - 1;
+		int group = homeGroup(mixed_hash);
+
+		for (int probe = 1; ; ++probe) {
+			long match = matchEmptyOrDeleted(m_control[group]);
+			if (match != 0) {
+				return group * GROUP_SIZE + lowestMatch(match);
+			}
+			group = (group + probe) & group_mask;
+		}
+	}
+
+	/**
+	 * Checks whether given key is present in the map.
+	 *
+	 * Time complexity of this operation is O(1) in best-case scenario when
+	 * key is found in its home group. Otherwise, the complexity is O(G)
+	 * where G is the number of groups probed. A key that isn't mapped is
+	 * usually rejected by inspecting the control word of its home group.
+	 *
+	 * @param key  The key to search for.
+	 *
+	 * @return True if key is found, false otherwise.
+	 */
+	public boolean containsKey(KeyT key) {
+		return containsKey(computeHash(key), key);
+	}
+
+	/**
+	 * @see HashTableBase#containsKey(long, Object)
+	 */
+	@Override
+	protected boolean containsKey(long key_hash, KeyT key) {
+		// Handle the case of an empty hash table right away
+		if (isEmpty()) {
+			return false;
+		}
+		return findIndex(key_hash, key) != -1;
+	}
+
+	/**
+	 * Linearly scans the table searching for the specified value.
+	 *
+	 * Time complexity of this operation is O(N) where N is the current
+	 * size of the underlying array.
+	 *
+	 * In the {@link HashTableBase.ValueIndexMode#REFCOUNT} mode the value
+	 * is looked up in the value index instead, which takes constant
+	 * expected time.
+	 *
+	 * @param ref_value  The value to search for.
+	 *
+	 * @return True if the hash table contains the given value, false
+	 *         otherwise.
+	 */
+	public boolean containsValue(ValueT ref_value) {
+		if (m_value_counts != null) {
+			return m_value_counts.containsKey(ref_value);
+		}
+
+		for (int group = 0; group < m_control.length; ++group) {
+			// Every byte without the most significant bit holds a mapping
+			for (long match = ~m_control[group] & MSBS; match != 0; match &= match - 1) {
+				Object value = m_values[group * GROUP_SIZE + lowestMatch(match)];
+				if ((ref_value != null && ref_value.equals(value)) || ref_value == value) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Passes the mapping stored at the given array index to the action,
+	 * unless the cell is EMPTY or DELETED.
+	 *
+	 * @see HashTableBase#forEachAt(Object[], int, BiConsumer)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void forEachAt(Object[] array, int index, BiConsumer<? super KeyT, ? super ValueT> action) {
+		// The cells in use have the most significant bit of their control byte cleared
+		if ((controlByte(index) & EMPTY) == 0) {
+			action.accept((KeyT) array[index], (ValueT) m_values[index]);
+		}
+	}
+
+	/**
+	 * Returns the value that given key maps to.
+	 *
+	 * @param key  The key whose mapping is to be found.
+	 *
+	 * @return The value that key maps to of keys is present in the hash
+	 *         table, null otherwise. Note that null might also be returned
+	 *         if the key is present in the table but maps to a null value.
+	 */
+	public ValueT find(KeyT key) {
+		return find(computeHash(key), key);
+	}
+
+	/**
+	 * @see HashTableBase#find(long, Object)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected ValueT find(long key_hash, KeyT key) {
+		// Handle the case of an empty hash table right away
+		if (isEmpty()) {
+			return null;
+		}
+
+		int index = findIndex(key_hash, key);
+		return index != -1 ? (ValueT) m_values[index] : null;
+	}
+
+	/**
+	 * Probes the keys of a batch in three stages. The mixed hash and the
+	 * home group of every key are computed first. The control words of
+	 * the home groups of the whole batch are then loaded, so the cache
+	 * misses of the different keys overlap. The keys are resolved last
+	 * against the loaded control words: the cells whose fingerprints match
+	 * are compared by key, a key that isn't found in a group with an EMPTY
+	 * cell isn't mapped, and only the remaining keys continue probing the
+	 * following groups.
+	 *
+	 * Once the method returns, m_batch_indexes[i] holds the array index of
+	 * the mapping of keys[start + i], or -1 if the key isn't mapped, and
+	 * m_batch_keys[i] holds the key stored in that cell. The callers clear
+	 * m_batch_keys once they're done with the batch, so that it doesn't
+	 * keep the keys reachable.
+	 */
+	private void probeBatch(KeyT[] keys, int start, int end, long[] key_hashes) {
+		if (m_batch_groups == null) {
+			m_batch_groups = new int[BATCH_SIZE];
+			m_batch_controls = new long[BATCH_SIZE];
+			m_batch_indexes = new int[BATCH_SIZE];
+			m_batch_keys = new Object[BATCH_SIZE];
+		}
+		int batch_size = end - start;
+
+		for (int i = 0; i < batch_size; ++i) {
+			m_batch_groups[i] = homeGroup(mixHash(key_hashes[i]));
+		}
+
+		for (int i = 0; i < batch_size; ++i) {
+			m_batch_controls[i] = m_control[m_batch_groups[i]];
+		}
+
+		for (int i = 0; i < batch_size; ++i) {
+			KeyT key = keys[start + i];
+			long key_hash = key_hashes[i];
+			long control_word = m_batch_controls[i];
+			int index = -1;
+			for (long match = matchByte(control_word, fingerprint(mixHash(key_hash))); match != 0; match &= match - 1) {
+				int match_index = m_batch_groups[i] * GROUP_SIZE + lowestMatch(match);
+				if (keyEqualsAt(match_index, key_hash, key)) {
+					index = match_index;
+					break;
+				}
+			}
+
+			if (index == -1 && matchEmpty(control_word) == 0) {
+				// The key might have been placed in one of the following groups
+				index = findIndex(key_hash, key);
+			}
+			m_batch_indexes[i] = index;
+			m_batch_keys[i] = index != -1 ? m_array[index] : null;
+		}
+	}
+
+	/**
+	 * Probes the batch in stages (see probeBatch()).
+	 *
+	 * @see HashTableBase#findBatch(Object[], int, int, long[], Object[])
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void findBatch(KeyT[] keys, int start, int end, long[] key_hashes, ValueT[] out) {
+		probeBatch(keys, start, end, key_hashes);
+		for (int i = start; i < end; ++i) {
+			int index = m_batch_indexes[i - start];
+			out[i] = index != -1 ? (ValueT) m_values[index] : null;
+			m_batch_keys[i - start] = null;
+		}
+	}
+
+	/**
+	 * Probes the batch in stages (see probeBatch()).
+	 *
+	 * @see HashTableBase#containsBatch(Object[], int, int, long[])
+	 */
+	@Override
+	protected boolean containsBatch(KeyT[] keys, int start, int end, long[] key_hashes) {
+		probeBatch(keys, start, end, key_hashes);
+		boolean found_all = true;
+		for (int i = 0; i < end - start; ++i) {
+			found_all &= m_batch_indexes[i] != -1;
+			m_batch_keys[i] = null;
+		}
+		return found_all;
+	}
+
+	/**
+	 * Probes the batch in stages (see probeBatch()) and updates the values
+	 * of the mappings found in place. A mapping that is no longer in the
+	 * cell it was found in (because a mapping inserted before it re-sized
+	 * the table) is mapped by map(), as are the keys that aren't mapped.
+	 *
+	 * @see HashTableBase#mapBatch(Object[], Object[], int, int, long[])
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void mapBatch(KeyT[] keys, ValueT[] values, int start, int end, long[] key_hashes)
+			throws ArithmeticException {
+		probeBatch(keys, start, end, key_hashes);
+		for (int i = start; i < end; ++i) {
+			int index = m_batch_indexes[i - start];
+			Object stored_key = m_batch_keys[i - start];
+			m_batch_keys[i - start] = null;
+			// A cell in use that holds the same key object holds the same
+			// mapping, as every key is mapped at most once
+			if (index != -1 && index < m_array.length && (controlByte(index) & EMPTY) == 0 &&
+					m_array[index] == stored_key) {
+				ValueT previous_value = (ValueT) m_values[index];
+				m_values[index] = values[i];
+				replaceValue(previous_value, values[i]);
+			}
+			else {
+				map(key_hashes[i - start], keys[i], values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Re-sizes the table if needed and moves all the existing mappings
+	 * to the new location in the newly allocated arrays.
+	 *
+	 * The DELETED cells count towards the occupancy. If the mappings alone
+	 * occupy less than half of the load factor, the table is re-hashed
+	 * into arrays of the same size, which drops the DELETED cells.
+	 * Otherwise the arrays are doubled.
+	 *
+	 * @throws ArithmeticException if integer overflow happens when array
+	 * size is increased.
+	 */
+	private void resizeTable() throws ArithmeticException {
+		// If current table occupancy is lower than the load factor we
+		// don't need to resize the table
+		float occupancy = (float) (m_size + m_deleted_count) / m_array.length;
+		if (occupancy < m_load_factor) {
+			return;
+		}
+
+		int new_size = m_array.length;
+		if ((float) m_size / m_array.length >= m_load_factor / 2) {
+			new_size = 2 * m_array.length;
+			if (new_size < 0) {
+				throw new ArithmeticException("Increased array size overflows the integer type");
+			}
+		}
+
+		resizeTo(new_size);
+	}
+
+	/**
+	 * @see HashTableBase#removedCount()
+	 */
+	@Override
+	protected int removedCount() {
+		return m_deleted_count;
+	}
+
+	/**
+	 * Re-hashes the table into arrays of the given length, dropping the
+	 * DELETED cells.
+	 *
+	 * @see HashTableBase#resizeTo(int)
+	 */
+	@Override
+	protected void resizeTo(int array_length) {
+		long start_time = resizeStarted();
+		Object[] old_keys = m_array;
+		Object[] old_values = m_values;
+		int[] old_hashes = m_hashes;
+		long[] old_control = m_control;
+		allocateArrays(array_length);
+
+		// Re-insert every mapping using its cached hash
+		for (int group = 0; group < old_control.length; ++group) {
+			for (long match = ~old_control[group] & MSBS; match != 0; match &= match - 1) {
+				int old_index = group * GROUP_SIZE + lowestMatch(match);
+				long key_hash = old_keys[old_index] != null ?
+						old_hashes[old_index] & 0xFFFFFFFFL : computeHash(null);
+				long mixed_hash = mixHash(key_hash);
+				int index = findFreeIndex(mixed_hash);
+				m_array[index] = old_keys[old_index];
+				m_values[index] = old_values[old_index];
+				m_hashes[index] = old_hashes[old_index];
+				setControlByte(index, fingerprint(mixed_hash));
+			}
+		}
+		resizeFinished(start_time);
+	}
+
+	/**
+	 * Maps the key to value if the key is not already mapped in the table,
+	 * or updates the value if the key is already mapped.
+	 *
+	 * If the key isn't mapped, the new mapping is placed in the first EMPTY
+	 * or DELETED cell of its probe sequence.
+	 *
+	 * @param key    The key to be placed in the hash table.
+	 * @param value  The value to which key is mapped to.
+	 *
+	 * @return Returns the previous value that given key was mapped to, or
+	 *         null if key didn't have mapping. The null might also be
+	 *         returned if the key was previously mapped to a null value.
+	 *
+	 * @throws ArithmeticException {@link HashTableSwiss#resizeTable()}
+	 */
+	public ValueT map(KeyT key, ValueT value) throws ArithmeticException {
+		return map(computeHash(key), key, value);
+	}
+
+	/**
+	 * @see HashTableBase#map(long, Object, Object)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected ValueT map(long key_hash, KeyT key, ValueT value) throws ArithmeticException {
+		int index = findIndex(key_hash, key);
+		if (index != -1) {
+			// The key already has a mapping in the table. Update the value
+			// it's mapped to and return the previous value.
+			ValueT previous_value = (ValueT) m_values[index];
+			m_values[index] = value;
+			replaceValue(previous_value, value);
+			return previous_value;
+		}
+
+		long mixed_hash = mixHash(key_hash);
+		index = findFreeIndex(mixed_hash);
+		if (controlByte(index) == DELETED) {
+			--m_deleted_count;
+		}
+		m_array[index] = key;
+		m_values[index] = value;
+		m_hashes[index] = (int) key_hash;
+		setControlByte(index, fingerprint(mixed_hash));
+		++m_size;
+		retainValue(value);
+
+		// Resize the table if needed
+		resizeTable();
+
+		return null;
+	}
+
+	/**
+	 * Removes the mapping at the given array index.
+	 *
+	 * If the group has an EMPTY cell, no lookup has ever continued past
+	 * the group, so the cell can be marked EMPTY. Otherwise it is marked
+	 * DELETED so that the lookups keep probing the following groups.
+	 *
+	 * @param index  The array index of the mapping to remove.
+	 */
+	@SuppressWarnings("unchecked")
+	private void removeMappingAt(int index) {
+		releaseValue((ValueT) m_values[index]);
+		if (matchEmpty(m_control[index / GROUP_SIZE]) != 0) {
+			setControlByte(index, EMPTY);
+		}
+		else {
+			setControlByte(index, DELETED);
+			++m_deleted_count;
+		}
+
+		// Drop the references so that they can be garbage collected
+		m_array[index] = null;
+		m_values[index] = null;
+		--m_size;
+	}
+
+	/**
+	 * Removes the mapping with the given key.
+	 *
+	 * @param key  The key to unmap.
+	 *
+	 * @return Returns the value that key was mapped to, or NULL if key didn't
+	 *         have a mapping. NULL might also be returned if key was mapped
+	 *         to a NULL value.
+	 */
+	@SuppressWarnings("unchecked")
+	public ValueT unmap(KeyT key) {
+		if (isEmpty()) {
+			return null;
+		}
+
+		int index = findIndex(computeHash(key), key);
+		if (index == -1) {
+			return null;
+		}
+
+		ValueT removed_value = (ValueT) m_values[index];
+		removeMappingAt(index);
+		return removed_value;
+	}
+
+	/**
+	 * Removes the mapping with the key if it maps to the specified value.
+	 *
+	 * @param key    The key to unmap.
+	 * @param value  The value to compare against.
+	 *
+	 * @return Returns true if the mapping is removed from the table, false
+	 *         otherwise.
+	 */
+	public boolean unmap(KeyT key, ValueT value) {
+		if (isEmpty()) {
+			return false;
+		}
+
+		int index = findIndex(computeHash(key), key);
+		if (index == -1) {
+			return false;
+		}
+
+		Object current_value = m_values[index];
+		if ((value != null && value.equals(current_value)) || value == current_value) {
+			removeMappingAt(index);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Remaps the key to the specified value.
+	 *
+	 * If the key isn't found in the hash table the method has no effect.
+	 * This is the difference between map and remap methods.
+	 *
+	 * @param key    The key to remap.
+	 * @param value  The value that key is remapped to.
+	 *
+	 * @return The value that key was mapped to or null if the key had
+	 *         no mapping. Null return value may also indicate that key
+	 *         was previously mapped to the null value.
+	 */
+	@SuppressWarnings("unchecked")
+	public ValueT remap(KeyT key, ValueT value) {
+		if (isEmpty()) {
+			return null;
+		}
+
+		int index = findIndex(computeHash(key), key);
+		if (index == -1) {
+			return null;
+		}
+
+		ValueT previous_value = (ValueT) m_values[index];
+		m_values[index] = value;
+		replaceValue(previous_value, value);
+		return previous_value;
+	}
+
+	/**
+	 * Clears the table so that it contains no keys.
+	 *
+	 * The underlying arrays are shrank to the initial capacity.
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		allocateArrays(m_initial_capacity);
+	}
+}
@@ -0,0 +1,470 @@
+package com.toptalprep;
+
+/**
+ * Hash table that maps primitive int keys to primitive int values.
+ *
+ * The table offers the same map/find/unmap/remap semantics as the
+ * {@link HashTable} implementations, but instead of storing a
+ * {@link HashTableBase.KeyValuePair} object (and two boxed Integer objects)
+ * per mapping, the keys and values are stored in two flat int arrays.
+ * A mapping is therefore stored in 8 bytes and creating it allocates
+ * no objects at all, which considerably reduces the memory footprint
+ * and the GC pressure of large tables.
+ *
+ * Collisions are resolved using linear probing. Because the key array
+ * cannot hold a REMOVED_KEY marker object like
+ * {@link HashTableOpenAddressing} does, the unmapped entries are removed
+ * using backward-shift deletion: the mappings that follow the removed one
+ * in the same cluster are moved back so that the cluster has no holes.
+ * As a consequence, the table never contains removed mappings that need
+ * to be skipped while probing.
+ *
+ * The key {@link #FREE_KEY} marks an empty array cell. Zero is used for
+ * this purpose because newly allocated Java arrays are already zeroed, so
+ * the arrays never need to be filled after allocation. The FREE_KEY is
+ * nonetheless a valid key; its mapping is stored outside of the arrays.
+ *
+ * As primitive values cannot be null, the methods that would return null
+ * in the {@link HashTable} interface return the missing value instead
+ * (see {@link #getMissingValue()}), which is 0 unless specified otherwise.
+ */
+public class IntIntHashTable {
+	/**
+	 * The key value used to mark an empty array cell.
+	 */
+	protected static final int FREE_KEY = 0;
+
+	protected int m_size;
+	protected final int m_initial_capacity;
+	protected final float m_load_factor;
+	protected final int m_missing_value;
+	protected int[] m_keys;
+	protected int[] m_values;
+
+	/**
+	 * Whether FREE_KEY is mapped and the value it maps to. These are
+	 * stored separately as FREE_KEY cannot be placed in m_keys array.
+	 */
+	protected boolean m_free_key_mapped;
+	protected int m_free_key_value;
+
+	/**
+	 * Constructs an IntIntHashTable instance with initial capacity
+	 * of 11 elements, load factor of 0.75 and missing value of 0.
+	 */
+	public IntIntHashTable() {
+		this(11, 0.75f, 0);
+	}
+
+	/**
+	 * Constructs an IntIntHashTable instance with given initial capacity,
+	 * load factor of 0.75 and missing value of 0.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero.
+	 */
+	public IntIntHashTable(int initial_capacity) throws IllegalArgumentException {
+		this(initial_capacity, 0.75f, 0);
+	}
+
+	/**
+	 * Constructs an IntIntHashTable instance with given initial capacity
+	 * and load factor, and missing value of 0.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table before it is re-sized. This value represents
+	 *                          a percentage and falls within a range [0.0, 1.0].
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative.
+	 */
+	public IntIntHashTable(int initial_capacity, float load_factor)
+			throws IllegalArgumentException {
+		this(initial_capacity, load_factor, 0);
+	}
+
+	/**
+	 * Constructs an IntIntHashTable instance with given initial capacity,
+	 * load factor and missing value.
+	 *
+	 * @param initial_capacity  The hash table's initial capacity.
+	 * @param load_factor       The load factor determines the maximal occupancy of
+	 *                          the table before it is re-sized. This value represents
+	 *                          a percentage and falls within a range [0.0, 1.0]. Load
+	 *                          factor greater than 1.0 is capped to 1.0.
+	 * @param missing_value     The value returned by the methods that look up a key
+	 *                          which has no mapping.
+	 *
+	 * @throws IllegalArgumentException if initial_capacity is less or equal to zero
+	 *         or load_factor is negative.
+	 */
+	public IntIntHashTable(int initial_capacity, float load_factor, int missing_value)
+			throws IllegalArgumentException {
+		if (initial_capacity <= 0) {
+			throw new IllegalArgumentException("initial_capacity must be positive");
+		}
+
+		if (load_factor < 0.0f) {
+			throw new IllegalArgumentException("load_factor must be non-negative");
+		}
+
+		m_size = 0;
+		m_initial_capacity = initial_capacity;
+		m_load_factor = load_factor > 1.0f ? 1.0f : load_factor;
+		m_missing_value = missing_value;
+		m_keys = new int[m_initial_capacity];
+		m_values = new int[m_initial_capacity];
+		m_free_key_mapped = false;
+		m_free_key_value = 0;
+	}
+
+	/**
+	 * Maps the key to the array index.
+	 *
+	 * The key hash is computed and mapped to the array index the same
+	 * way {@link HashTableBase#computeHash(Object)} and
+	 * {@link HashTableBase#mapHashToIndex(long)} do it for an Integer key,
+	 * but without boxing the key.
+	 *
+	 * @param key  The key.
+	 *
+	 * @return The array index where key maps to.
+	 */
+	protected int mapKeyToIndex(int key) {
+		long key_hash = (long) Integer.hashCode(key) + Integer.MAX_VALUE + 1L;
+		return (int)(key_hash % m_keys.length);
+	}
+
+	/**
+	 * Finds the array index of the mapping with the given key.
+	 *
+	 * @param key  The key to search for. Must not be FREE_KEY.
+	 *
+	 * @return The array index of the mapping or -1 if key isn't mapped.
+	 */
+	protected int findIndex(int key) {
+		int index = mapKeyToIndex(key);
+
+		// Starting at the array index where the given key should map to,
+		// iterate until either: 1) an empty array cell is found which means
+		// that key is not mapped, 2) we iterate over every element of the
+		// array without finding the key, or 3) we find the key.
+		int counter = 0;
+		while (counter++ < m_keys.length && m_keys[index] != FREE_KEY) {
+			if (m_keys[index] == key) {
+				return index;
+			}
+			index = (index + 1) % m_keys.length;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the value returned by methods that look up a key which
+	 * has no mapping.
+	 *
+	 * @return The missing value.
+	 */
+	public int getMissingValue() {
+		return m_missing_value;
+	}
+
+	/**
+	 * Checks whether given key is present in the map.
+	 *
+	 * @param key  The key to search for.
+	 *
+	 * @return True if key is found, false otherwise.
+	 */
+	public boolean containsKey(int key) {
+		if (key == FREE_KEY) {
+			return m_free_key_mapped;
+		}
+		return findIndex(key) != -1;
+	}
+
+	/**
+	 * Linearly scans the table searching for the specified value.
+	 *
+	 * Time complexity of this operation is O(N) where N is the current
+	 * size of the underlying arrays.
+	 *
+	 * @param ref_value  The value to search for.
+	 *
+	 * @return True if the hash table contains the given value, false
+	 *         otherwise.
+	 */
+	public boolean containsValue(int ref_value) {
+		if (m_free_key_mapped && m_free_key_value == ref_value) {
+			return true;
+		}
+
+		for (int i = 0; i < m_keys.length; ++i) {
+			if (m_keys[i] != FREE_KEY && m_values[i] == ref_value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the value that given key maps to.
+	 *
+	 * @param key  The key whose mapping is to be found.
+	 *
+	 * @return The value that key maps to if key is present in the hash
+	 *         table, the missing value otherwise. Note that the missing
+	 *         value might also be returned if the key is mapped to it.
+	 */
+	public int find(int key) {
+		if (key == FREE_KEY) {
+			return m_free_key_mapped ? m_free_key_value : m_missing_value;
+		}
+
+		int index = findIndex(key);
+		return index != -1 ? m_values[index] : m_missing_value;
+	}
+
+	/**
+	 * Re-sizes the table if needed and moves all the existing mappings
+	 * to the new location in the newly allocated arrays.
+	 *
+	 * @throws ArithmeticException if integer overflow happens when array
+	 * size is increased.
+	 */
+	private void resizeTable() throws ArithmeticException {
+		// The mapping of FREE_KEY doesn't occupy an array cell
+		int array_size = m_free_key_mapped ? m_size - 1 : m_size;
+		float occupancy = (float) array_size / m_keys.length;
+		if (occupancy < m_load_factor) {
+			return;
+		}
+
+		int[] old_keys = m_keys;
+		int[] old_values = m_values;
+		int doubled_size = 2 * old_keys.length;
+		if (doubled_size < 0) {
+			throw new ArithmeticException("Increased array size overflows the integer type");
+		}
+		m_keys = new int[doubled_size];
+		m_values = new int[doubled_size];
+
+		// Move each mapping to a new location. An empty cell must exist
+		// as we doubled the capacity of the arrays.
+		for (int i = 0; i < old_keys.length; ++i) {
+			if (old_keys[i] != FREE_KEY) {
+				int index = mapKeyToIndex(old_keys[i]);
+				while (m_keys[index] != FREE_KEY) {
+					index = (index + 1) % m_keys.length;
+				}
+				m_keys[index] = old_keys[i];
+				m_values[index] = old_values[i];
+			}
+		}
+	}
+
+	/**
+	 * Maps the key to value if the key is not already mapped in the table,
+	 * or updates the value if the key is already mapped.
+	 *
+	 * @param key    The key to be placed in the hash table.
+	 * @param value  The value to which key is mapped to.
+	 *
+	 * @return Returns the previous value that given key was mapped to, or
+	 *         the missing value if key didn't have mapping.
+	 *
+	 * @throws ArithmeticException {@link IntIntHashTable#resizeTable()}
+	 */
+	public int map(int key, int value) throws ArithmeticException {
+		if (key == FREE_KEY) {
+			int previous_value = m_free_key_mapped ? m_free_key_value : m_missing_value;
+			if (!m_free_key_mapped) {
+				m_free_key_mapped = true;
+				++m_size;
+			}
+			m_free_key_value = value;
+			return previous_value;
+		}
+
+		int index = mapKeyToIndex(key);
+
+		// Starting at the array index where key maps to, find either the
+		// key or the first empty cell. The table is re-sized before it gets
+		// completely full, so an empty cell must exist.
+		while (m_keys[index] != FREE_KEY) {
+			if (m_keys[index] == key) {
+				int previous_value = m_values[index];
+				m_values[index] = value;
+				return previous_value;
+			}
+			index = (index + 1) % m_keys.length;
+		}
+
+		m_keys[index] = key;
+		m_values[index] = value;
+		++m_size;
+
+		// Resize the table if needed
+		resizeTable();
+
+		return m_missing_value;
+	}
+
+	/**
+	 * Removes the mapping at the given array index using backward-shift
+	 * deletion.
+	 *
+	 * Every mapping that follows the removed one within the same cluster
+	 * is checked and moved into the hole if the hole lies on its probe
+	 * path (that is, cyclically between the index where its key maps to
+	 * and its current index). The hole then moves to the vacated cell.
+	 * This repeats until an empty cell is reached.
+	 *
+	 * @param index  The array index of the mapping to remove.
+	 */
+	private void removeAt(int index) {
+		int hole = index;
+		int current = index;
+		while (true) {
+			current = (current + 1) % m_keys.length;
+			if (m_keys[current] == FREE_KEY) {
+				break;
+			}
+
+			int home = mapKeyToIndex(m_keys[current]);
+			boolean stays = hole <= current ?
+					(hole < home && home <= current) :
+					(hole < home || home <= current);
+
+			if (!stays) {
+				m_keys[hole] = m_keys[current];
+				m_values[hole] = m_values[current];
+				hole = current;
+			}
+		}
+		m_keys[hole] = FREE_KEY;
+		m_values[hole] = 0;
+		--m_size;
+	}
+
+	/**
+	 * Removes the mapping with the given key.
+	 *
+	 * @param key  The key to unmap.
+	 *
+	 * @return Returns the value that key was mapped to, or the missing
+	 *         value if key didn't have a mapping.
+	 */
+	public int unmap(int key) {
+		if (key == FREE_KEY) {
+			if (!m_free_key_mapped) {
+				return m_missing_value;
+			}
+			m_free_key_mapped = false;
+			--m_size;
+			return m_free_key_value;
+		}
+
+		int index = findIndex(key);
+		if (index == -1) {
+			return m_missing_value;
+		}
+
+		int removed_value = m_values[index];
+		removeAt(index);
+		return removed_value;
+	}
+
+	/**
+	 * Removes the mapping with the key if it maps to the specified value.
+	 *
+	 * @param key    The key to unmap.
+	 * @param value  The value to compare against.
+	 *
+	 * @return Returns true if the mapping is removed from the table, false
+	 *         otherwise.
+	 */
+	public boolean unmap(int key, int value) {
+		if (key == FREE_KEY) {
+			if (m_free_key_mapped && m_free_key_value == value) {
+				m_free_key_mapped = false;
+				--m_size;
+				return true;
+			}
+			return false;
+		}
+
+		int index = findIndex(key);
+		if (index == -1 || m_values[index] != value) {
+			return false;
+		}
+
+		removeAt(index);
+		return true;
+	}
+
+	/**
+	 * Remaps the key to the specified value.
+	 *
+	 * If the key isn't found in the hash table the method has no effect.
+	 * This is the difference between map and remap methods.
+	 *
+	 * @param key    The key to remap.
+	 * @param value  The value that key is remapped to.
+	 *
+	 * @return The value that key was mapped to or the missing value if
+	 *         the key had no mapping.
+	 */
+	public int remap(int key, int value) {
+		if (key == FREE_KEY) {
+			if (!m_free_key_mapped) {
+				return m_missing_value;
+			}
+			int previous_value = m_free_key_value;
+			m_free_key_value = value;
+			return previous_value;
+		}
+
+		int index = findIndex(key);
+		if (index == -1) {
+			return m_missing_value;
+		}
+
+		int previous_value = m_values[index];
+		m_values[index] = value;
+		return previous_value;
+	}
+
+	/**
+	 * The number of keys in the hash table.
+	 *
+	 * @return The number of keys.
+	 */
+	public int size() {
+		return m_size;
+	}
+
+	/**
+	 * Clears the table so that it contains no keys.
+	 *
+	 * The underlying arrays are shrank to the initial capacity.
+	 */
+	public void clear() {
+		m_size = 0;
+		m_keys = new int[m_initial_capacity];
+		m_values = new int[m_initial_capacity];
+		m_free_key_mapped = false;
+		m_free_key_value = 0;
+	}
+
+	/**
+	 * Whether table is empty.
+	 *
+	 * @return True if table is empty, false otherwise.
+	 */
+	public boolean isEmpty() {
+		return m_size == 0;
+	}
+}
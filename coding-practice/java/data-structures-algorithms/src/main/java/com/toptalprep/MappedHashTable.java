@@ -0,0 +1,1048 @@
+package com.toptalprep;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+/**
+ * Hash table that maps fixed-width byte keys to byte sequence values and
+ * keeps both the index and the records in memory-mapped files, so that
+ * a table can be re-opened without being re-built.
+ *
+ * The table is stored in four files. The data file holds the records in
+ * slabs of slab_size bytes, where a record consists of the value length
+ * (-1 for the NULL value), the key bytes and the value bytes. The index
+ * file holds a header that describes the table as of its last checkpoint,
+ * and the index itself is kept in two shadow index files next to it (with
+ * the ".0" and ".1" suffixes). The shadow file the header points to holds
+ * the index of the last checkpoint, and the other one holds the copy that
+ * the table modifies. The index is an open addressing table that uses
+ * linear probing the same way {@link ByteBufferHashTable} does: every cell
+ * holds the 64-bit hash of the key and the reference to its record.
+ * Re-opening a table that was closed (or checkpointed and not modified
+ * since) only maps the files, and the pages are read in by the operating
+ * system as the table is used.
+ *
+ * The records are never modified once written, so the lookups return
+ * zero-copy read-only views of the mapped data file that stay intact
+ * until {@link #clear()} is called. The space of the replaced and the
+ * removed records isn't reclaimed.
+ *
+ * The changes reach the files whenever the operating system writes the
+ * mapped pages back, but a table is always re-opened as it was at its last
+ * {@link #force()} checkpoint (which {@link #close()} also performs), so
+ * the changes made after it are discarded if the process crashes. The
+ * records written after a checkpoint lie past its end of the data, and
+ * the modified index is the other shadow copy, so neither can damage the
+ * checkpoint. A checkpoint switches the header to the modified index and
+ * then copies the index pages modified since the previous checkpoint to
+ * the other shadow file, so its cost is proportional to the number of the
+ * modified pages. Only re-opening a table after a crash copies the whole
+ * index, as it isn't known which pages of the modified copy were written
+ * back. {@link #clear()} re-uses the space of the records and therefore
+ * checkpoints the table as well.
+ *
+ * The index file holds two header records, which are written in turns.
+ * Every record carries a sequence number and a checksum, and a table is
+ * opened from the valid record with the highest sequence number, so a
+ * record torn by a crash is ignored in favor of the previous one.
+ *
+ * The index can hold up to 2^30 cells. NULL keys are not allowed.
+ */
+public class MappedHashTable implements HashTable<ByteBuffer, ByteBuffer>, Closeable {
+	/**
+	 * The default size of the slabs that store the records.
+	 */
+	public static final int DEFAULT_SLAB_SIZE = 1 << 26;
+
+	/**
+	 * The layout of a header record of the index file. The file holds two
+	 * records of HEADER_SIZE bytes, and the record with sequence number n
+	 * is written to the slot n % 2. The checksum is the CRC32 of the bytes
+	 * that precede it. The clean flag is set if the modified shadow index
+	 * file is the same as the checkpointed one.
+	 */
+	private static final int MAGIC = 0x54504854;
+	private static final int VERSION = 3;
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 4;
+	private static final int SEQUENCE_OFFSET = 8;
+	private static final int CHECKPOINT_OFFSET = 16;
+	private static final int CLEAN_OFFSET = 20;
+	private static final int KEY_SIZE_OFFSET = 24;
+	private static final int SLAB_SIZE_OFFSET = 28;
+	private static final int INITIAL_CAPACITY_OFFSET = 32;
+	private static final int LOAD_FACTOR_OFFSET = 36;
+	private static final int CAPACITY_OFFSET = 40;
+	private static final int SIZE_OFFSET = 44;
+	private static final int REMOVED_COUNT_OFFSET = 48;
+	private static final int SLAB_COUNT_OFFSET = 52;
+	private static final int SLAB_POSITION_OFFSET = 56;
+	private static final int CHECKSUM_OFFSET = 60;
+	private static final int HEADER_SIZE = 64;
+
+	/**
+	 * The index is mapped in regions of 2^26 cells (1GB), as a single
+	 * MappedByteBuffer can't be bigger than 2GB.
+	 */
+	private static final int CELL_SIZE = 16;
+	private static final int INDEX_REGION_SHIFT = 26;
+	private static final int INDEX_REGION_CELLS = 1 << INDEX_REGION_SHIFT;
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	/**
+	 * The modified index cells are tracked in pages of 2^8 cells (4KB).
+	 */
+	private static final int INDEX_PAGE_SHIFT = 8;
+	private static final int INDEX_PAGE_CELLS = 1 << INDEX_PAGE_SHIFT;
+
+	/**
+	 * The record references that mark an empty index cell and a removed
+	 * mapping, and the value length stored for the NULL value.
+	 *
+	 * @see ByteBufferHashTable
+	 */
+	private static final long EMPTY = 0L;
+	private static final long REMOVED = -1L;
+	private static final int NULL_VALUE_LENGTH = -1;
+
+	/**
+	 * The size of the record header (the value length).
+	 */
+	private static final int RECORD_HEADER_SIZE = 4;
+
+	protected final Path m_data_path;
+	protected final Path m_index_path;
+	protected final int m_key_size;
+	protected final int m_slab_size;
+	protected final int m_initial_capacity;
+	protected final float m_load_factor;
+
+	protected int m_size;
+	protected int m_removed_count;
+	protected int m_capacity;
+
+	/**
+	 * The slabs of the data file. Only the first m_slab_count slabs are in
+	 * use, the rest are kept mapped for re-use after clear(). The slab
+	 * number stored in a record reference is the slab's index plus one.
+	 */
+	protected final ArrayList<MappedByteBuffer> m_slabs;
+	protected int m_slab_count;
+	protected int m_slab_position;
+
+	/**
+	 * The index file holds only the header records, and m_index_channel is
+	 * the shadow index file the table modifies, i.e. the one m_checkpoint
+	 * (0 or 1) doesn't point to. m_sequence is the sequence number of the
+	 * last header record written.
+	 */
+	protected FileChannel m_data_channel;
+	protected FileChannel m_header_channel;
+	protected FileChannel m_index_channel;
+	protected MappedByteBuffer[] m_index_regions;
+	protected int m_checkpoint;
+	protected long m_sequence;
+
+	/**
+	 * Whether the table was modified after the last checkpoint, and the
+	 * index pages modified since then.
+	 */
+	protected boolean m_dirty;
+	protected BitSet m_dirty_pages;
+
+	/**
+	 * Opens the table stored at the given path, or creates an empty one
+	 * with initial capacity of 16 elements, load factor of 0.75 and the
+	 * default slab size.
+	 *
+	 * @see MappedHashTable#MappedHashTable(Path, int, int, float, int)
+	 */
+	public MappedHashTable(Path path, int key_size) throws IllegalArgumentException, IOException {
+		this(path, key_size, 16, 0.75f, DEFAULT_SLAB_SIZE);
+	}
+
+	/**
+	 * Opens the table stored at the given path, or creates an empty one if
+	 * there's no table there.
+	 *
+	 * The initial capacity, the load factor and the slab size of an existing
+	 * table are read from its index file. An existing table is opened as it
+	 * was at its last checkpoint.
+	 *
+	 * @param path              The path of the data file. The index is
+	 *                          stored next to it, in the file with the
+	 *                          ".index" suffix.
+	 * @param key_size          The number of bytes of every key.
+	 * @param initial_capacity  The initial capacity of the new table. It is
+	 *                          rounded up to a power of 2.
+	 * @param load_factor       The load factor of the new table. This value
+	 *                          represents a percentage and falls within a range
+	 *                          [0.0, 1.0]. Load factor greater than 1.0 is capped
+	 *                          to 1.0.
+	 * @param slab_size         The size of the slabs of the new table. A record
+	 *                          must fit into a single slab.
+	 *
+	 * @throws IllegalArgumentException if key_size, initial_capacity or
+	 *         slab_size is less or equal to zero, initial_capacity is bigger
+	 *         than 2^30, load_factor is negative, or if the existing table
+	 *         has a different key size.
+	 * @throws IOException if the files can't be opened or created, or if the
+	 *         existing table is corrupted.
+	 */
+	public MappedHashTable(Path path, int key_size, int initial_capacity, float load_factor, int slab_size)
+			throws IllegalArgumentException, IOException {
+		if (key_size <= 0) {
+			throw new IllegalArgumentException("key_size must be positive");
+		}
+
+		if (initial_capacity <= 0 || initial_capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("initial_capacity must be within (0, 2^30]");
+		}
+
+		if (load_factor < 0.0f) {
+			throw new IllegalArgumentException("load_factor must be non-negative");
+		}
+
+		if (slab_size <= 0) {
+			throw new IllegalArgumentException("slab_size must be positive");
+		}
+
+		m_data_path = path;
+		m_index_path = path.resolveSibling(path.getFileName() + ".index");
+		m_key_size = key_size;
+		m_slabs = new ArrayList<MappedByteBuffer>();
+
+		boolean exists = Files.exists(m_index_path);
+		m_data_channel = FileChannel.open(m_data_path,
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		if (!exists) {
+			m_slab_size = slab_size;
+			m_initial_capacity = Math.max(2, Integer.highestOneBit(initial_capacity - 1) << 1);
+			m_load_factor = load_factor > 1.0f ? 1.0f : load_factor;
+			createTable();
+			return;
+		}
+
+		m_header_channel = FileChannel.open(m_index_path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		ByteBuffer header = readHeader();
+		if (header == null) {
+			throw new IOException("The index file isn't a hash table index");
+		}
+
+		if (header.getInt(KEY_SIZE_OFFSET) != key_size) {
+			throw new IllegalArgumentException("The table has keys of " + header.getInt(KEY_SIZE_OFFSET) + " bytes");
+		}
+
+		m_sequence = header.getLong(SEQUENCE_OFFSET);
+		m_checkpoint = header.getInt(CHECKPOINT_OFFSET);
+		m_slab_size = header.getInt(SLAB_SIZE_OFFSET);
+		m_initial_capacity = header.getInt(INITIAL_CAPACITY_OFFSET);
+		m_load_factor = header.getFloat(LOAD_FACTOR_OFFSET);
+		m_capacity = header.getInt(CAPACITY_OFFSET);
+		m_size = header.getInt(SIZE_OFFSET);
+		m_removed_count = header.getInt(REMOVED_COUNT_OFFSET);
+		m_slab_count = header.getInt(SLAB_COUNT_OFFSET);
+		m_slab_position = header.getInt(SLAB_POSITION_OFFSET);
+		Path checkpoint_path = shadowIndexPath(m_checkpoint);
+		if (!Files.exists(checkpoint_path) || Files.size(checkpoint_path) < (long) m_capacity * CELL_SIZE ||
+				m_data_channel.size() < (long) m_slab_count * m_slab_size) {
+			throw new IOException("The table files are truncated");
+		}
+
+		// The changes made after the last checkpoint are discarded
+		openWorkingIndex(header.getInt(CLEAN_OFFSET) != 0);
+		for (int i = 0; i < m_slab_count; ++i) {
+			m_slabs.add(mapSlab(i));
+		}
+	}
+
+	/**
+	 * Reads the header records of the index file.
+	 *
+	 * @return The valid header record with the highest sequence number, or
+	 *         null if neither of the records is valid.
+	 */
+	private ByteBuffer readHeader() throws IOException {
+		ByteBuffer newest_record = null;
+		for (int slot = 0; slot < 2; ++slot) {
+			ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE);
+			long position = (long) slot * HEADER_SIZE;
+			while (record.hasRemaining()) {
+				int read = m_header_channel.read(record, position + record.position());
+				if (read < 0) {
+					break;
+				}
+			}
+
+			if (!record.hasRemaining() && record.getInt(MAGIC_OFFSET) == MAGIC &&
+					record.getInt(VERSION_OFFSET) == VERSION && record.getInt(CHECKSUM_OFFSET) == checksumOf(record) &&
+					(record.getInt(CHECKPOINT_OFFSET) & ~1) == 0 &&
+					(newest_record == null || record.getLong(SEQUENCE_OFFSET) > newest_record.getLong(SEQUENCE_OFFSET))) {
+				newest_record = record;
+			}
+		}
+		return newest_record;
+	}
+
+	/**
+	 * Returns the CRC32 of the bytes of the header record that precede the
+	 * checksum.
+	 */
+	private static int checksumOf(ByteBuffer record) {
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), 0, CHECKSUM_OFFSET);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Writes a header record that describes the table as it is now, and
+	 * forces it to the disk. The record is written to the slot that doesn't
+	 * hold the last record with a single positional write, so if the write
+	 * is torn by a crash, the last record remains valid.
+	 *
+	 * @param checkpoint  The shadow index file that holds the checkpointed
+	 *                    index.
+	 * @param clean       Whether the other shadow index file is the same as
+	 *                    the checkpointed one.
+	 */
+	private void writeHeader(int checkpoint, boolean clean) throws IOException {
+		ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE);
+		++m_sequence;
+		record.putInt(MAGIC_OFFSET, MAGIC);
+		record.putInt(VERSION_OFFSET, VERSION);
+		record.putLong(SEQUENCE_OFFSET, m_sequence);
+		record.putInt(CHECKPOINT_OFFSET, checkpoint);
+		record.putInt(CLEAN_OFFSET, clean ? 1 : 0);
+		record.putInt(KEY_SIZE_OFFSET, m_key_size);
+		record.putInt(SLAB_SIZE_OFFSET, m_slab_size);
+		record.putInt(INITIAL_CAPACITY_OFFSET, m_initial_capacity);
+		record.putFloat(LOAD_FACTOR_OFFSET, m_load_factor);
+		record.putInt(CAPACITY_OFFSET, m_capacity);
+		record.putInt(SIZE_OFFSET, m_size);
+		record.putInt(REMOVED_COUNT_OFFSET, m_removed_count);
+		record.putInt(SLAB_COUNT_OFFSET, m_slab_count);
+		record.putInt(SLAB_POSITION_OFFSET, m_slab_position);
+		record.putInt(CHECKSUM_OFFSET, checksumOf(record));
+
+		long position = (m_sequence & 1) * HEADER_SIZE;
+		while (record.hasRemaining()) {
+			m_header_channel.write(record, position + record.position());
+		}
+		m_header_channel.force(false);
+	}
+
+	/**
+	 * Creates the files of an empty table. The header is written to a
+	 * temporary file that replaces the index file once the first
+	 * checkpoint is on the disk, so a table whose creation didn't complete
+	 * is created anew.
+	 */
+	private void createTable() throws IOException {
+		Path temporary_path = m_index_path.resolveSibling(m_index_path.getFileName() + ".tmp");
+		m_header_channel = FileChannel.open(temporary_path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		// The first checkpoint is taken from the shadow index file 0
+		m_checkpoint = 1;
+		createIndex(m_initial_capacity, false);
+		force();
+		Files.move(temporary_path, m_index_path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns the path of the shadow index file with the given number.
+	 */
+	private Path shadowIndexPath(int shadow) {
+		return m_index_path.resolveSibling(m_index_path.getFileName() + "." + shadow);
+	}
+
+	/**
+	 * Maps the other shadow index file than the checkpointed one, which
+	 * the table modifies. Unless the header says it's clean, the file might
+	 * hold the changes made after the checkpoint, so the checkpointed index
+	 * is copied over it first.
+	 *
+	 * @param clean  Whether the header says that the other shadow index
+	 *               file is the same as the checkpointed one.
+	 */
+	private void openWorkingIndex(boolean clean) throws IOException {
+		Path working_path = shadowIndexPath(1 - m_checkpoint);
+		if (!clean || !Files.exists(working_path) || Files.size(working_path) < (long) m_capacity * CELL_SIZE) {
+			Files.copy(shadowIndexPath(m_checkpoint), working_path, StandardCopyOption.REPLACE_EXISTING);
+			clean = false;
+		}
+		m_index_channel = FileChannel.open(working_path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		m_index_regions = mapIndexRegions(m_index_channel, m_capacity);
+		m_dirty_pages = new BitSet(pageCount(m_capacity));
+
+		if (!clean) {
+			// The next re-open doesn't have to copy the index again
+			m_index_channel.force(false);
+			writeHeader(m_checkpoint, true);
+		}
+	}
+
+	/**
+	 * Returns the number of index pages of the index of the given capacity.
+	 */
+	private static int pageCount(int capacity) {
+		return (capacity + INDEX_PAGE_CELLS - 1) >>> INDEX_PAGE_SHIFT;
+	}
+
+	/**
+	 * Copies the index pages modified since the last checkpoint to the
+	 * checkpointed shadow index file, which then is the same as the modified
+	 * one, and forces the file to the disk.
+	 */
+	private void copyDirtyPages() throws IOException {
+		try (FileChannel channel = FileChannel.open(shadowIndexPath(m_checkpoint),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long index_size = (long) m_capacity * CELL_SIZE;
+			if (channel.size() > index_size) {
+				channel.truncate(index_size);
+			}
+
+			int page = m_dirty_pages.nextSetBit(0);
+			while (page != -1 && page < pageCount(m_capacity)) {
+				// Copy the run of the modified pages, up to the end of the region
+				int first_cell = page << INDEX_PAGE_SHIFT;
+				int region_end = ((first_cell >>> INDEX_REGION_SHIFT) + 1) << INDEX_REGION_SHIFT;
+				int end_page = Math.min(m_dirty_pages.nextClearBit(page), region_end >>> INDEX_PAGE_SHIFT);
+				int end_cell = Math.min(end_page << INDEX_PAGE_SHIFT, m_capacity);
+
+				ByteBuffer cells = m_index_regions[first_cell >>> INDEX_REGION_SHIFT].duplicate();
+				cells.limit(cellOffsetOf(end_cell - 1) + CELL_SIZE);
+				cells.position(cellOffsetOf(first_cell));
+				long position = (long) first_cell * CELL_SIZE;
+				while (cells.hasRemaining()) {
+					channel.write(cells, position + cells.position() - cellOffsetOf(first_cell));
+				}
+				page = m_dirty_pages.nextSetBit(end_page);
+			}
+			channel.force(false);
+		}
+		m_dirty_pages.clear();
+	}
+
+	/**
+	 * Maps the index cells of the given shadow index file.
+	 */
+	private static MappedByteBuffer[] mapIndexRegions(FileChannel channel, int capacity) throws IOException {
+		MappedByteBuffer[] regions = new MappedByteBuffer[(capacity + INDEX_REGION_CELLS - 1) / INDEX_REGION_CELLS];
+		for (int i = 0; i < regions.length; ++i) {
+			int region_cells = Math.min(INDEX_REGION_CELLS, capacity - i * INDEX_REGION_CELLS);
+			regions[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+					(long) i * INDEX_REGION_CELLS * CELL_SIZE, (long) region_cells * CELL_SIZE);
+		}
+		return regions;
+	}
+
+	/**
+	 * Maps the slab with the given index, growing the data file if needed.
+	 */
+	private MappedByteBuffer mapSlab(int slab_index) throws IOException {
+		return m_data_channel.map(FileChannel.MapMode.READ_WRITE, (long) slab_index * m_slab_size, m_slab_size);
+	}
+
+	/**
+	 * Replaces the index with an empty index of the given capacity. If
+	 * rehash is true, the mappings of the current index are moved to the
+	 * new one.
+	 *
+	 * The new index is written to a temporary file that then replaces the
+	 * modified shadow index file, as the current index is read while the
+	 * new one is built. The index of the last checkpoint isn't touched.
+	 */
+	private void createIndex(int capacity, boolean rehash) throws IOException {
+		Path working_path = shadowIndexPath(1 - m_checkpoint);
+		Path temporary_path = working_path.resolveSibling(working_path.getFileName() + ".tmp");
+		FileChannel channel = FileChannel.open(temporary_path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		MappedByteBuffer[] regions = mapIndexRegions(channel, capacity);
+
+		if (rehash) {
+			for (int i = 0; i < m_capacity; ++i) {
+				long reference = referenceAt(i);
+				if (reference != EMPTY && reference != REMOVED) {
+					// The cached hash is reused, so the records aren't touched
+					long key_hash = hashAt(i);
+					int index = (int)(key_hash & (capacity - 1));
+					while (regions[index >>> INDEX_REGION_SHIFT].getLong(cellOffsetOf(index) + 8) != EMPTY) {
+						index = (index + 1) & (capacity - 1);
+					}
+					regions[index >>> INDEX_REGION_SHIFT].putLong(cellOffsetOf(index), key_hash);
+					regions[index >>> INDEX_REGION_SHIFT].putLong(cellOffsetOf(index) + 8, reference);
+				}
+			}
+		}
+
+		if (m_index_channel != null) {
+			m_index_channel.close();
+		}
+		Files.move(temporary_path, working_path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		m_index_channel = channel;
+		m_index_regions = regions;
+		m_capacity = capacity;
+		m_removed_count = 0;
+		m_dirty = true;
+		m_dirty_pages = new BitSet(pageCount(capacity));
+		m_dirty_pages.set(0, pageCount(capacity));
+	}
+
+	private static int cellOffsetOf(int index) {
+		return (index & (INDEX_REGION_CELLS - 1)) * CELL_SIZE;
+	}
+
+	private long hashAt(int index) {
+		return m_index_regions[index >>> INDEX_REGION_SHIFT].getLong(cellOffsetOf(index));
+	}
+
+	private long referenceAt(int index) {
+		return m_index_regions[index >>> INDEX_REGION_SHIFT].getLong(cellOffsetOf(index) + 8);
+	}
+
+	private void setReferenceAt(int index, long reference) {
+		m_index_regions[index >>> INDEX_REGION_SHIFT].putLong(cellOffsetOf(index) + 8, reference);
+		m_dirty_pages.set(index >>> INDEX_PAGE_SHIFT);
+	}
+
+	private void setCellAt(int index, long hash, long reference) {
+		m_index_regions[index >>> INDEX_REGION_SHIFT].putLong(cellOffsetOf(index), hash);
+		setReferenceAt(index, reference);
+	}
+
+	/**
+	 * Whether the index cell holds a mapping.
+	 */
+	private static boolean isLive(long reference) {
+		return reference != EMPTY && reference != REMOVED;
+	}
+
+	private ByteBuffer slabOf(long reference) {
+		return m_slabs.get((int)(reference >>> 32) - 1);
+	}
+
+	private static int offsetOf(long reference) {
+		return (int) reference;
+	}
+
+	private int valueLengthOf(long reference) {
+		return slabOf(reference).getInt(offsetOf(reference));
+	}
+
+	private ByteBuffer keyView(long reference) {
+		return ByteBufferHashTable.view(slabOf(reference), offsetOf(reference) + RECORD_HEADER_SIZE, m_key_size);
+	}
+
+	private ByteBuffer valueView(long reference) {
+		int value_length = valueLengthOf(reference);
+		if (value_length == NULL_VALUE_LENGTH) {
+			return null;
+		}
+		return ByteBufferHashTable.view(
+				slabOf(reference), offsetOf(reference) + RECORD_HEADER_SIZE + m_key_size, value_length);
+	}
+
+	/**
+	 * Computes the hash of the key, rejecting the keys of the wrong size.
+	 *
+	 * @throws IllegalArgumentException if key is NULL or doesn't have
+	 *         key_size bytes remaining.
+	 */
+	private long computeHash(ByteBuffer key) throws IllegalArgumentException {
+		if (key == null || key.remaining() != m_key_size) {
+			throw new IllegalArgumentException("key must have " + m_key_size + " bytes remaining");
+		}
+		return ByteBufferHashTable.hashBytes(key, key.position(), m_key_size);
+	}
+
+	private boolean keyEquals(long reference, ByteBuffer key) {
+		return ByteBufferHashTable.bytesEqual(
+				slabOf(reference), offsetOf(reference) + RECORD_HEADER_SIZE, key, key.position(), m_key_size);
+	}
+
+	/**
+	 * Whether the record has the given value. Two NULL values are equal.
+	 */
+	private boolean valueEquals(long reference, ByteBuffer value) {
+		int value_length = valueLengthOf(reference);
+		if (value == null || value_length == NULL_VALUE_LENGTH) {
+			return value == null && value_length == NULL_VALUE_LENGTH;
+		}
+		return value_length == value.remaining() && ByteBufferHashTable.bytesEqual(slabOf(reference),
+				offsetOf(reference) + RECORD_HEADER_SIZE + m_key_size, value, value.position(), value_length);
+	}
+
+	/**
+	 * Marks the table as modified after the last checkpoint. The first
+	 * modification clears the clean flag of the header before the modified
+	 * shadow index file is touched, so that a table re-opened after a crash
+	 * doesn't rely on the file.
+	 *
+	 * @throws UncheckedIOException if the header can't be written.
+	 */
+	private void markDirty() throws UncheckedIOException {
+		if (m_dirty) {
+			return;
+		}
+
+		try {
+			writeHeader(m_checkpoint, false);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		m_dirty = true;
+	}
+
+	/**
+	 * Writes a record with the given key and value at the end of the last
+	 * slab, or in a new slab if the last slab doesn't have enough space.
+	 *
+	 * @return The reference to the record.
+	 *
+	 * @throws IllegalArgumentException if the record doesn't fit into a slab.
+	 * @throws UncheckedIOException if the data file can't be grown.
+	 */
+	private long writeRecord(ByteBuffer key, ByteBuffer value) throws IllegalArgumentException, UncheckedIOException {
+		int value_length = value != null ? value.remaining() : NULL_VALUE_LENGTH;
+		long record_size = (long) RECORD_HEADER_SIZE + m_key_size + Math.max(0, value_length);
+		if (record_size > m_slab_size) {
+			throw new IllegalArgumentException("The value doesn't fit into a slab");
+		}
+
+		if (m_slab_count == 0 || m_slab_size - m_slab_position < record_size) {
+			if (m_slab_count == m_slabs.size()) {
+				try {
+					m_slabs.add(mapSlab(m_slab_count));
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			++m_slab_count;
+			m_slab_position = 0;
+		}
+
+		MappedByteBuffer slab = m_slabs.get(m_slab_count - 1);
+		long reference = ((long) m_slab_count << 32) | m_slab_position;
+		slab.putInt(m_slab_position, value_length);
+
+		// Copy the bytes through duplicates so that no position is changed
+		ByteBuffer target = slab.duplicate();
+		target.position(m_slab_position + RECORD_HEADER_SIZE);
+		target.put(key.duplicate());
+		if (value != null) {
+			target.put(value.duplicate());
+		}
+
+		m_slab_position += (int) record_size;
+		return reference;
+	}
+
+	/**
+	 * Finds the index cell of the mapping with the given key.
+	 *
+	 * @return The index of the cell, or -1 if key isn't mapped.
+	 */
+	private int findIndex(long key_hash, ByteBuffer key) {
+		int index = (int)(key_hash & (m_capacity - 1));
+		int counter = 0;
+		while (counter++ < m_capacity) {
+			long reference = referenceAt(index);
+			if (reference == EMPTY) {
+				return -1;
+			}
+
+			if (reference != REMOVED && hashAt(index) == key_hash && keyEquals(reference, key)) {
+				return index;
+			}
+			index = (index + 1) & (m_capacity - 1);
+		}
+		return -1;
+	}
+
+	/**
+	 * Re-sizes the index if the mappings and the removed mappings exceed
+	 * the load factor, or if no empty cell would be left.
+	 *
+	 * @see ByteBufferHashTable
+	 *
+	 * @throws ArithmeticException if the index can't grow any further.
+	 * @throws UncheckedIOException if the new index can't be written.
+	 */
+	private void resizeIndex() throws ArithmeticException, UncheckedIOException {
+		int occupied_cells = m_size + m_removed_count;
+		if (occupied_cells <= m_load_factor * m_capacity && occupied_cells < m_capacity) {
+			return;
+		}
+
+		int new_capacity = m_capacity;
+		if (m_size >= m_removed_count) {
+			if (m_capacity >= MAX_CAPACITY) {
+				throw new ArithmeticException("Increased array size overflows the integer type");
+			}
+			new_capacity = 2 * m_capacity;
+		}
+
+		try {
+			createIndex(new_capacity, true);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes all the changes to the disk, making them the checkpoint the
+	 * table is re-opened from.
+	 *
+	 * The slabs and the modified index are written first, and then a
+	 * header record that points to the modified index, so the checkpoint
+	 * only moves once all of its data reached the disk. The index pages
+	 * modified since the previous checkpoint are then copied to the other
+	 * shadow index file, and a header record that points back to it and
+	 * marks the modified index clean is written. The table keeps modifying
+	 * the same shadow index file from now on.
+	 *
+	 * @throws IOException if the changes can't be written.
+	 */
+	public void force() throws IOException {
+		if (!m_dirty) {
+			return;
+		}
+
+		for (int i = 0; i < m_slab_count; ++i) {
+			m_slabs.get(i).force();
+		}
+		for (MappedByteBuffer region : m_index_regions) {
+			region.force();
+		}
+
+		writeHeader(1 - m_checkpoint, false);
+		copyDirtyPages();
+		writeHeader(m_checkpoint, true);
+		m_dirty = false;
+	}
+
+	/**
+	 * Checkpoints the table and closes its files. The table must not be
+	 * used afterwards.
+	 *
+	 * @throws IOException if the changes can't be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			force();
+		}
+		finally {
+			m_data_channel.close();
+			m_header_channel.close();
+			m_index_channel.close();
+		}
+	}
+
+	/**
+	 * Checks whether given key is present in the map.
+	 *
+	 * @param key  The key to search for.
+	 *
+	 * @return True if key is found, false otherwise.
+	 *
+	 * @throws IllegalArgumentException if key doesn't have key_size bytes.
+	 */
+	@Override
+	public boolean containsKey(ByteBuffer key) throws IllegalArgumentException {
+		return findIndex(computeHash(key), key) != -1;
+	}
+
+	/**
+	 * Linearly scans the table searching for the specified value.
+	 *
+	 * Time complexity of this operation is O(N) where N is the capacity
+	 * of the index.
+	 *
+	 * @param ref_value  The value to search for.
+	 *
+	 * @return True if the hash table contains the given value, false
+	 *         otherwise.
+	 */
+	@Override
+	public boolean containsValue(ByteBuffer ref_value) {
+		for (int i = 0; i < m_capacity; ++i) {
+			long reference = referenceAt(i);
+			if (isLive(reference) && valueEquals(reference, ref_value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the value that given key maps to.
+	 *
+	 * @param key  The key whose mapping is to be found.
+	 *
+	 * @return A read-only view of the value that key maps to if key is
+	 *         present in the hash table, null otherwise. Note that null
+	 *         might also be returned if the key is present in the table
+	 *         but maps to a null value.
+	 *
+	 * @throws IllegalArgumentException if key doesn't have key_size bytes.
+	 */
+	@Override
+	public ByteBuffer find(ByteBuffer key) throws IllegalArgumentException {
+		int index = findIndex(computeHash(key), key);
+		return index != -1 ? valueView(referenceAt(index)) : null;
+	}
+
+	/**
+	 * Maps the key to value if the key is not already mapped in the table,
+	 * or updates the value if the key is already mapped.
+	 *
+	 * @param key    The key to be placed in the hash table.
+	 * @param value  The value to which key is mapped to.
+	 *
+	 * @return A read-only view of the previous value that given key was
+	 *         mapped to, or null if key didn't have mapping. The null might
+	 *         also be returned if the key was previously mapped to a null
+	 *         value.
+	 *
+	 * @throws IllegalArgumentException if key doesn't have key_size bytes or
+	 *         the record doesn't fit into a slab.
+	 * @throws ArithmeticException if the index can't grow any further.
+	 * @throws UncheckedIOException if the files can't be grown.
+	 */
+	@Override
+	public ByteBuffer map(ByteBuffer key, ByteBuffer value)
+			throws IllegalArgumentException, ArithmeticException, UncheckedIOException {
+		long key_hash = computeHash(key);
+		markDirty();
+		int index = (int)(key_hash & (m_capacity - 1));
+
+		// The first removed mapping on the way is replaced, unless the key
+		// is found later on.
+		int new_mapping_index = -1;
+		int counter = 0;
+		while (counter++ < m_capacity) {
+			long reference = referenceAt(index);
+			if (reference == EMPTY) {
+				if (new_mapping_index == -1) {
+					new_mapping_index = index;
+				}
+				break;
+			}
+			else if (reference == REMOVED) {
+				if (new_mapping_index == -1) {
+					new_mapping_index = index;
+				}
+			}
+			else if (hashAt(index) == key_hash && keyEquals(reference, key)) {
+				ByteBuffer previous_value = valueView(reference);
+				setReferenceAt(index, writeRecord(key, value));
+				return previous_value;
+			}
+			index = (index + 1) & (m_capacity - 1);
+		}
+
+		// The index is always re-sized before its last empty cell is taken
+		assert(new_mapping_index != -1);
+		long reference = writeRecord(key, value);
+		if (referenceAt(new_mapping_index) == REMOVED) {
+			--m_removed_count;
+		}
+		setCellAt(new_mapping_index, key_hash, reference);
+		++m_size;
+
+		resizeIndex();
+		return null;
+	}
+
+	/**
+	 * Removes the mapping at the given index cell.
+	 *
+	 * @return A read-only view of the value of the removed mapping.
+	 */
+	private ByteBuffer removeMappingAt(int index) {
+		markDirty();
+		ByteBuffer removed_value = valueView(referenceAt(index));
+		setReferenceAt(index, REMOVED);
+		++m_removed_count;
+		--m_size;
+		return removed_value;
+	}
+
+	/**
+	 * Removes the mapping with the given key.
+	 *
+	 * @param key  The key to unmap.
+	 *
+	 * @return A read-only view of the value that key was mapped to, or null
+	 *         if key didn't have a mapping. Null might also be returned if
+	 *         key was mapped to a null value.
+	 *
+	 * @throws IllegalArgumentException if key doesn't have key_size bytes.
+	 * @throws UncheckedIOException if the header can't be written.
+	 */
+	@Override
+	public ByteBuffer unmap(ByteBuffer key) throws IllegalArgumentException, UncheckedIOException {
+		int index = findIndex(computeHash(key), key);
+		return index != -1 ? removeMappingAt(index) : null;
+	}
+
+	/**
+	 * Removes the mapping with the key if it maps to the specified value.
+	 *
+	 * @param key    The key to unmap.
+	 * @param value  The value to compare against.
+	 *
+	 * @return Returns true if the mapping is removed from the table, false
+	 *         otherwise.
+	 *
+	 * @throws IllegalArgumentException if key doesn't have key_size bytes.
+	 * @throws UncheckedIOException if the header can't be written.
+	 */
+	@Override
+	public boolean unmap(ByteBuffer key, ByteBuffer value) throws IllegalArgumentException, UncheckedIOException {
+		int index = findIndex(computeHash(key), key);
+		if (index == -1 || !valueEquals(referenceAt(index), value)) {
+			return false;
+		}
+		removeMappingAt(index);
+		return true;
+	}
+
+	/**
+	 * Remaps the key to the specified value.
+	 *
+	 * If the key isn't found in the hash table the method has no effect.
+	 * This is the difference between map and remap methods.
+	 *
+	 * @param key    The key to remap.
+	 * @param value  The value that key is remapped to.
+	 *
+	 * @return A read-only view of the value that key was mapped to or null
+	 *         if the key had no mapping. Null return value may also indicate
+	 *         that key was previously mapped to the null value.
+	 *
+	 * @throws IllegalArgumentException if key doesn't have key_size bytes or
+	 *         the record doesn't fit into a slab.
+	 * @throws UncheckedIOException if the data file can't be grown.
+	 */
+	@Override
+	public ByteBuffer remap(ByteBuffer key, ByteBuffer value) throws IllegalArgumentException, UncheckedIOException {
+		int index = findIndex(computeHash(key), key);
+		if (index == -1) {
+			return null;
+		}
+
+		markDirty();
+		ByteBuffer previous_value = valueView(referenceAt(index));
+		setReferenceAt(index, writeRecord(key, value));
+		return previous_value;
+	}
+
+	/**
+	 * Returns an iterator over the mappings of the table. The keys and the
+	 * values are returned as read-only views.
+	 *
+	 * @see HashTable#iterator()
+	 */
+	@Override
+	public Iterator<Map.Entry<ByteBuffer, ByteBuffer>> iterator() {
+		return new Iterator<Map.Entry<ByteBuffer, ByteBuffer>>() {
+			private int m_next_index = findLive(0);
+
+			/**
+			 * Returns the index of the first cell at or after the given one
+			 * that holds a mapping, or m_capacity if there's no such cell.
+			 */
+			private int findLive(int index) {
+				while (index < m_capacity && !isLive(referenceAt(index))) {
+					++index;
+				}
+				return index;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return m_next_index < m_capacity;
+			}
+
+			@Override
+			public Map.Entry<ByteBuffer, ByteBuffer> next() {
+				if (m_next_index >= m_capacity) {
+					throw new NoSuchElementException();
+				}
+
+				long reference = referenceAt(m_next_index);
+				m_next_index = findLive(m_next_index + 1);
+				return new AbstractMap.SimpleImmutableEntry<ByteBuffer, ByteBuffer>(
+						keyView(reference), valueView(reference));
+			}
+		};
+	}
+
+	/**
+	 * The number of keys in the hash table.
+	 *
+	 * @return The number of keys.
+	 */
+	@Override
+	public int size() {
+		return m_size;
+	}
+
+	/**
+	 * Clears the table so that it contains no keys.
+	 *
+	 * The index is shrank to its initial capacity. The data file keeps its
+	 * size and its slabs are re-used, so the views returned before the
+	 * table was cleared may show the new records. The new records would
+	 * overwrite the records of the last checkpoint, so the cleared table is
+	 * checkpointed right away.
+	 *
+	 * @throws UncheckedIOException if the new index or the checkpoint can't
+	 *         be written.
+	 */
+	@Override
+	public void clear() throws UncheckedIOException {
+		markDirty();
+		try {
+			createIndex(m_initial_capacity, false);
+			m_size = 0;
+			m_slab_count = 0;
+			m_slab_position = 0;
+			force();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Whether table is empty.
+	 *
+	 * @return True if table is empty, false otherwise.
+	 */
+	@Override
+	public boolean isEmpty() {
+		return m_size == 0;
+	}
+}
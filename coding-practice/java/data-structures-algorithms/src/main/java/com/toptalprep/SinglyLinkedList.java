@@ -261,6 +261,13 @@ public class SinglyLinkedList<T> implements Iterable<T> {
     private class SinglyLinkedListIterator implements Iterator<T> {
     	Link current_link;
     	
+    	/**
+    	 * The link returned by the last call to next(), or null if it has
+    	 * been removed, and the link that precedes it.
+    	 */
+    	Link returned_link;
+    	Link previous_link;
+    	
     	public SinglyLinkedListIterator(SinglyLinkedList<T> list) {
     		current_link = list.m_head;
     	}
@@ -276,9 +283,33 @@ public class SinglyLinkedList<T> implements Iterable<T> {
             	throw new NoSuchElementException("Reached the end of the list");
             }
             
-            T data = current_link.m_data;
+            if (returned_link != null) {
+            	previous_link = returned_link;
+            }
+            returned_link = current_link;
             current_link = current_link.m_next;
-            return data;
+            return returned_link.m_data;
+        }
+        
+        /**
+         * Unlinks the link returned by the last call to next() from the
+         * list in O(1) time, as its predecessor is known.
+         */
+        @Override
+        public void remove() {
+            if (returned_link == null) {
+            	throw new IllegalStateException("next() hasn't been called since the last removal");
+            }
+            
+            if (previous_link == null) {
+            	// Removing the head
+            	m_head = returned_link.m_next;
+            }
+            else {
+            	previous_link.m_next = returned_link.m_next;
+            }
+            returned_link = null;
+            --m_size;
         }
     }
 }
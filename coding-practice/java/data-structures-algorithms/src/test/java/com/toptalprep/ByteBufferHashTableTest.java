@@ -0,0 +1,331 @@
+package com.toptalprep;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for the ByteBufferHashTable class.
+ */
+public class ByteBufferHashTableTest {
+	private static ByteBuffer bytes(String text) {
+		return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String text(ByteBuffer buffer) {
+		if (buffer == null) {
+			return null;
+		}
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Tests that exception is thrown when hash table is created with 0 initial capacity.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unused")
+	public void createTableWithZeroInitialCapacity() {
+		ByteBufferHashTable table = new ByteBufferHashTable(0);
+	}
+
+	/**
+	 * Tests that exception is thrown when hash table is created with negative load factor.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unused")
+	public void createTableWithNegativeLoadFactor() {
+		ByteBufferHashTable table = new ByteBufferHashTable(10, -0.5f);
+	}
+
+	/**
+	 * Tests that exception is thrown when hash table is created with 0 slab size.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unused")
+	public void createTableWithZeroSlabSize() {
+		ByteBufferHashTable table = new ByteBufferHashTable(10, 0.75f, 0);
+	}
+
+	/**
+	 * Tests that exception is thrown when the initial capacity exceeds the
+	 * maximal capacity of either kind of the index storage. The maximal
+	 * off-heap capacity is beyond the 2^27 cells a single 2GB direct buffer
+	 * can hold.
+	 */
+	@Test
+	public void createTableBeyondMaxCapacity() {
+		try {
+			new ByteBufferHashTable(ByteBufferHashTable.MAX_ON_HEAP_CAPACITY + 1, 0.75f, 64,
+					ByteBufferHashTable.IndexStorage.ON_HEAP);
+			fail("The on-heap index can't hold more than MAX_ON_HEAP_CAPACITY cells");
+		}
+		catch (IllegalArgumentException e) {
+		}
+
+		try {
+			new ByteBufferHashTable(ByteBufferHashTable.MAX_OFF_HEAP_CAPACITY + 1, 0.75f, 64,
+					ByteBufferHashTable.IndexStorage.OFF_HEAP);
+			fail("The off-heap index can't hold more than MAX_OFF_HEAP_CAPACITY cells");
+		}
+		catch (IllegalArgumentException e) {
+		}
+		assertTrue(ByteBufferHashTable.MAX_OFF_HEAP_CAPACITY > Integer.MAX_VALUE / 16 + 1);
+	}
+
+	/**
+	 * Grows an off-heap index across several direct buffer segments and
+	 * asserts that the mappings in every segment are found, iterated and
+	 * unmapped.
+	 */
+	@Test
+	public void offHeapIndexSpansSegments() {
+		ByteBufferHashTable table = new ByteBufferHashTable(16, 0.75f, 1 << 16, ByteBufferHashTable.IndexStorage.OFF_HEAP);
+		int count = 200000;
+		for (int i = 0; i < count; ++i) {
+			table.map(bytes("key" + i), bytes("value" + i));
+		}
+		assertEquals(count, table.size());
+		// The index has at least 4 segments of 2^16 cells (16 bytes each)
+		assertTrue(table.offHeapBytes() >= 4L * (1 << 16) * 16);
+
+		for (int i = 0; i < count; ++i) {
+			assertEquals("value" + i, text(table.find(bytes("key" + i))));
+		}
+		int visited = 0;
+		for (Map.Entry<ByteBuffer, ByteBuffer> mapping : table) {
+			assertNotNull(mapping.getKey());
+			++visited;
+		}
+		assertEquals(count, visited);
+
+		for (int i = 0; i < count; i += 2) {
+			assertEquals("value" + i, text(table.unmap(bytes("key" + i))));
+		}
+		assertEquals(count / 2, table.size());
+		for (int i = 0; i < count; ++i) {
+			assertEquals(i % 2 == 0 ? null : "value" + i, text(table.find(bytes("key" + i))));
+		}
+	}
+
+	/**
+	 * Tests that exception is thrown when NULL key is mapped.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void mapNullKey() {
+		new ByteBufferHashTable().map(null, bytes("value"));
+	}
+
+	/**
+	 * Looks up a mapping using heap, direct and little-endian buffers that
+	 * hold the key at different positions, and asserts that the lookups
+	 * leave the buffers untouched.
+	 */
+	@Test
+	public void findKeyInAnyKindOfBuffer() {
+		ByteBufferHashTable table = new ByteBufferHashTable(16, 0.75f, 64, ByteBufferHashTable.IndexStorage.OFF_HEAP);
+		String key = "a key longer than a single long";
+		table.map(bytes(key), bytes("value"));
+
+		byte[] key_bytes = key.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer direct = ByteBuffer.allocateDirect(key_bytes.length + 5);
+		direct.position(3);
+		direct.put(key_bytes);
+		direct.limit(3 + key_bytes.length);
+		direct.position(3);
+
+		ByteBuffer little_endian = ByteBuffer.allocate(key_bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+		little_endian.put(key_bytes);
+		little_endian.flip();
+
+		for (ByteBuffer lookup : new ByteBuffer[] { bytes(key), direct, little_endian }) {
+			int position = lookup.position();
+			int limit = lookup.limit();
+			assertTrue(table.containsKey(lookup));
+			assertEquals("value", text(table.find(lookup)));
+			assertEquals(position, lookup.position());
+			assertEquals(limit, lookup.limit());
+		}
+
+		assertFalse(table.containsKey(bytes(key.substring(1))));
+		assertFalse(table.containsKey(bytes("")));
+	}
+
+	/**
+	 * Asserts that the empty key and the NULL and empty values are distinct
+	 * mappings.
+	 */
+	@Test
+	public void mapEmptyKeyAndNullValue() {
+		ByteBufferHashTable table = new ByteBufferHashTable();
+		assertNull(table.map(bytes(""), null));
+		assertTrue(table.containsKey(bytes("")));
+		assertTrue(table.containsValue(null));
+		assertFalse(table.containsValue(bytes("")));
+		assertNull(table.find(bytes("")));
+
+		assertNull(table.remap(bytes(""), bytes("")));
+		assertTrue(table.containsValue(bytes("")));
+		assertFalse(table.containsValue(null));
+		assertFalse(table.unmap(bytes(""), null));
+		assertTrue(table.unmap(bytes(""), bytes("")));
+		assertTrue(table.isEmpty());
+	}
+
+	/**
+	 * Asserts that the returned views are read-only and keep showing the
+	 * same bytes after the mapping is updated, removed and compacted.
+	 */
+	@Test
+	public void returnedViewsAreStable() {
+		ByteBufferHashTable table = new ByteBufferHashTable(4, 0.75f, 32);
+		table.map(bytes("key"), bytes("first"));
+		ByteBuffer first = table.find(bytes("key"));
+		assertTrue(first.isReadOnly());
+		try {
+			first.put(0, (byte) 0);
+			fail("The view must be read-only");
+		}
+		catch (ReadOnlyBufferException e) {
+		}
+
+		ByteBuffer previous = table.map(bytes("key"), bytes("other"));
+		assertEquals("first", text(previous));
+		assertEquals("first", text(first));
+		assertEquals("other", text(table.unmap(bytes("key"))));
+
+		table.map(bytes("key"), bytes("third"));
+		table.compact();
+		assertEquals("first", text(first));
+		assertEquals("third", text(table.find(bytes("key"))));
+	}
+
+	/**
+	 * Asserts that the garbage records are reclaimed once they take more
+	 * space than the live ones.
+	 */
+	@Test
+	public void garbageRecordsAreCompacted() {
+		ByteBufferHashTable table = new ByteBufferHashTable(16, 0.75f, 256);
+		for (int i = 0; i < 10000; ++i) {
+			table.map(bytes("key" + (i % 4)), bytes("value" + i));
+		}
+		assertEquals(4, table.size());
+		assertTrue(table.offHeapBytes() <= 4 * 256);
+
+		for (int i = 0; i < 4; ++i) {
+			assertEquals("value" + (9996 + i), text(table.find(bytes("key" + i))));
+		}
+	}
+
+	/**
+	 * Maps records bigger than a slab, which get slabs of their own.
+	 */
+	@Test
+	public void mapRecordsBiggerThanSlab() {
+		ByteBufferHashTable table = new ByteBufferHashTable(4, 0.75f, 16);
+		StringBuilder value = new StringBuilder();
+		for (int i = 0; i < 100; ++i) {
+			value.append(i);
+			table.map(bytes("key" + i), bytes(value.toString()));
+		}
+
+		value.setLength(0);
+		for (int i = 0; i < 100; ++i) {
+			value.append(i);
+			assertEquals(value.toString(), text(table.find(bytes("key" + i))));
+		}
+	}
+
+	/**
+	 * Asserts that the iterator visits every mapping exactly once.
+	 */
+	@Test
+	public void iterationVisitsEveryMapping() {
+		ByteBufferHashTable table = new ByteBufferHashTable(3, 0.5f, 128);
+		Map<String, String> expected = new HashMap<String, String>();
+		for (int i = 0; i < 300; ++i) {
+			String value = i % 7 == 0 ? null : "value" + i;
+			table.map(bytes("key" + i), value != null ? bytes(value) : null);
+			expected.put("key" + i, value);
+		}
+		for (int i = 0; i < 300; i += 3) {
+			table.unmap(bytes("key" + i));
+			expected.remove("key" + i);
+		}
+
+		Map<String, String> visited = new HashMap<String, String>();
+		for (Map.Entry<ByteBuffer, ByteBuffer> mapping : table) {
+			assertFalse(visited.containsKey(text(mapping.getKey())));
+			visited.put(text(mapping.getKey()), text(mapping.getValue()));
+		}
+		assertEquals(expected, visited);
+	}
+
+	/**
+	 * Performs a random sequence of operations on both the hash table and
+	 * java.util.HashMap and asserts that they always agree, for both kinds
+	 * of the index storage.
+	 */
+	@Test
+	public void randomOperationsMatchReferenceMap() {
+		for (ByteBufferHashTable.IndexStorage storage : ByteBufferHashTable.IndexStorage.values()) {
+			ByteBufferHashTable table = new ByteBufferHashTable(5, 0.9f, 512, storage);
+			Map<String, String> reference = new HashMap<String, String>();
+			Random random = new Random(7);
+
+			for (int i = 0; i < 20000; ++i) {
+				String key = "key" + random.nextInt(500);
+				String value = random.nextInt(10) == 0 ? null : Long.toString(random.nextLong(), random.nextInt(30) + 2);
+				ByteBuffer value_bytes = value != null ? bytes(value) : null;
+
+				switch (random.nextInt(6)) {
+				case 0:
+				case 1:
+					assertEquals(reference.put(key, value), text(table.map(bytes(key), value_bytes)));
+					break;
+
+				case 2:
+					assertEquals(reference.remove(key), text(table.unmap(bytes(key))));
+					break;
+
+				case 3:
+					String expected = reference.containsKey(key) ? reference.put(key, value) : null;
+					assertEquals(expected, text(table.remap(bytes(key), value_bytes)));
+					break;
+
+				case 4:
+					String current = reference.get(key);
+					boolean matches = reference.containsKey(key) && (current == null ? value == null : current.equals(value));
+					if (matches) {
+						reference.remove(key);
+					}
+					assertEquals(matches, table.unmap(bytes(key), value_bytes));
+					break;
+
+				default:
+					assertEquals(reference.get(key), text(table.find(bytes(key))));
+					assertEquals(reference.containsKey(key), table.containsKey(bytes(key)));
+				}
+				assertEquals(reference.size(), table.size());
+			}
+
+			for (String value : reference.values()) {
+				assertTrue(table.containsValue(value != null ? bytes(value) : null));
+			}
+
+			table.clear();
+			assertTrue(table.isEmpty());
+			assertFalse(table.containsKey(bytes("key1")));
+		}
+	}
+}
@@ -0,0 +1,278 @@
+package com.toptalprep;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Multi-threaded tests for the thread-safe HashTable implementations.
+ *
+ * The single-threaded behavior of these implementations is covered by
+ * HashTableTest.
+ */
+@RunWith(value = Parameterized.class)
+public class ConcurrentHashTableTest {
+	/**
+	 * Lists all thread-safe HashTable interface implementations.
+	 */
+	enum ConcurrentHashTableImplementation {
+		CONCURRENT_SEPARATE_CHAINING,
+		CONCURRENT_OPEN_ADDRESSING
+	}
+
+	private static final int THREAD_COUNT = 8;
+
+	/**
+	 * Returns a collection containing an enum value for each thread-safe
+	 * HashTable implementation.
+	 */
+	@SuppressWarnings("rawtypes")
+	@Parameters
+	public static Collection getHashTableImplementationEnums() {
+		Object[][] implementation_enums = new Object[ConcurrentHashTableImplementation.values().length][1];
+		for (int i = 0; i < ConcurrentHashTableImplementation.values().length; ++i) {
+			implementation_enums[i][0] = ConcurrentHashTableImplementation.values()[i];
+		}
+		return Arrays.asList(implementation_enums);
+	}
+
+	/**
+	 * The HashTable implementation tested by current test fixture.
+	 */
+	private ConcurrentHashTableImplementation m_implementation;
+
+	/**
+	 * Initializes the test fixture.
+	 *
+	 * @param implementation  The HashTable implementation to be tested.
+	 */
+	public ConcurrentHashTableTest(ConcurrentHashTableImplementation implementation) {
+		m_implementation = implementation;
+	}
+
+	/**
+	 * Create a new HashTable instance with the given initial capacity. The
+	 * type is determined by the value of m_implementation member.
+	 */
+	private <KeyT, ValueT> HashTable<KeyT, ValueT> newHashTableInstance(int initial_capacity) {
+		switch (m_implementation) {
+		case CONCURRENT_SEPARATE_CHAINING:
+			return new ConcurrentHashTableSeparateChaining<KeyT, ValueT>(initial_capacity);
+
+		case CONCURRENT_OPEN_ADDRESSING:
+			return new ConcurrentHashTableOpenAddressing<KeyT, ValueT>(initial_capacity);
+
+		default:
+			assertTrue("Unknown hash table implementation", false);
+			return null;
+		}
+	}
+
+	/**
+	 * Runs every task on its own thread, starting them all at the same
+	 * time, and rethrows the first failure.
+	 */
+	private static void runConcurrently(List<Callable<Void>> tasks) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+		try {
+			final CountDownLatch start_latch = new CountDownLatch(1);
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (final Callable<Void> task : tasks) {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						start_latch.await();
+						return task.call();
+					}
+				}));
+			}
+
+			start_latch.countDown();
+			for (Future<Void> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Threads map disjoint key ranges into a table that starts small, so
+	 * the table is re-sized many times while the keys are being mapped.
+	 * Each thread checks that its own keys remain visible throughout.
+	 */
+	@Test
+	public void mapDisjointKeysWhileTableResizes() throws Exception {
+		final HashTable<Integer, Integer> table = newHashTableInstance(1);
+		final int keys_per_thread = 5000;
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int t = 0; t < THREAD_COUNT; ++t) {
+			final int first_key = t * keys_per_thread;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int key = first_key; key < first_key + keys_per_thread; ++key) {
+						assertNull(table.map(key, -key));
+						assertEquals(Integer.valueOf(-key), table.find(key));
+
+						// Keys mapped earlier must not get lost while the table is migrated
+						int earlier_key = first_key + (key - first_key) / 2;
+						assertEquals(Integer.valueOf(-earlier_key), table.find(earlier_key));
+					}
+					return null;
+				}
+			});
+		}
+		runConcurrently(tasks);
+
+		assertEquals(THREAD_COUNT * keys_per_thread, table.size());
+		for (int key = 0; key < THREAD_COUNT * keys_per_thread; ++key) {
+			assertTrue(table.containsKey(key));
+			assertEquals(Integer.valueOf(-key), table.find(key));
+		}
+	}
+
+	/**
+	 * Every thread owns a subset of keys that it randomly maps, remaps and
+	 * unmaps, keeping track of the expected state. The keys of all threads
+	 * share the buckets, so the threads contend on the same locks.
+	 */
+	@Test
+	public void randomOperationsOnInterleavedKeys() throws Exception {
+		final HashTable<Integer, Integer> table = newHashTableInstance(4);
+		final int keys_per_thread = 256;
+		final Integer[][] expected_values = new Integer[THREAD_COUNT][keys_per_thread];
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int t = 0; t < THREAD_COUNT; ++t) {
+			final int thread_index = t;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					Random random = new Random(thread_index);
+					Integer[] expected = expected_values[thread_index];
+					for (int i = 0; i < 20000; ++i) {
+						int slot = random.nextInt(keys_per_thread);
+						// Keys of different threads are interleaved
+						int key = slot * THREAD_COUNT + thread_index;
+						int value = random.nextInt(1000);
+
+						switch (random.nextInt(4)) {
+						case 0:
+						case 1:
+							assertEquals(expected[slot], table.map(key, value));
+							expected[slot] = value;
+							break;
+
+						case 2:
+							assertEquals(expected[slot], table.unmap(key));
+							expected[slot] = null;
+							break;
+
+						default:
+							assertEquals(expected[slot], table.remap(key, value));
+							if (expected[slot] != null) {
+								expected[slot] = value;
+							}
+							break;
+						}
+						assertEquals(expected[slot], table.find(key));
+					}
+					return null;
+				}
+			});
+		}
+		runConcurrently(tasks);
+
+		int expected_size = 0;
+		for (int t = 0; t < THREAD_COUNT; ++t) {
+			for (int slot = 0; slot < keys_per_thread; ++slot) {
+				int key = slot * THREAD_COUNT + t;
+				Integer expected = expected_values[t][slot];
+				assertEquals(expected != null, table.containsKey(key));
+				assertEquals(expected, table.find(key));
+				if (expected != null) {
+					++expected_size;
+				}
+			}
+		}
+		assertEquals(expected_size, table.size());
+	}
+
+	/**
+	 * Readers must never observe a key mapped to a value that was never
+	 * mapped to it, even while writers keep re-sizing the table.
+	 */
+	@Test
+	public void readersSeeConsistentMappingsWhileWritersResize() throws Exception {
+		final HashTable<Integer, String> table = newHashTableInstance(1);
+		final int key_count = 64;
+		for (int key = 0; key < key_count; ++key) {
+			table.map(key, key + ":0");
+		}
+
+		final AtomicBoolean writers_done = new AtomicBoolean(false);
+		final CountDownLatch writers_latch = new CountDownLatch(THREAD_COUNT / 2);
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int t = 0; t < THREAD_COUNT / 2; ++t) {
+			final int thread_index = t;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					try {
+						// Remap the shared keys and grow the table with the thread's own keys
+						for (int i = 1; i <= 5000; ++i) {
+							int key = i % key_count;
+							table.remap(key, key + ":" + i);
+							table.map(key_count + thread_index * 5000 + i, "filler");
+						}
+					}
+					finally {
+						writers_latch.countDown();
+						if (writers_latch.getCount() == 0) {
+							writers_done.set(true);
+						}
+					}
+					return null;
+				}
+			});
+		}
+
+		for (int t = 0; t < THREAD_COUNT / 2; ++t) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					while (!writers_done.get()) {
+						for (int key = 0; key < key_count; ++key) {
+							String value = table.find(key);
+							assertNotNull(value);
+							assertTrue(value.startsWith(key + ":"));
+						}
+					}
+					return null;
+				}
+			});
+		}
+		runConcurrently(tasks);
+
+		assertEquals(key_count + (THREAD_COUNT / 2) * 5000, table.size());
+	}
+}
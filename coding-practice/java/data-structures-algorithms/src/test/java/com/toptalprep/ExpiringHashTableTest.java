@@ -0,0 +1,132 @@
+package com.toptalprep;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for the ExpiringHashTable class.
+ */
+public class ExpiringHashTableTest {
+	/**
+	 * Tests that exception is thrown when table is created with 0 time to live.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unused")
+	public void createTableWithZeroTimeToLive() {
+		ExpiringHashTable<Integer, String> table = new ExpiringHashTable<Integer, String>(0);
+	}
+
+	/**
+	 * Asserts that the mappings expire exactly once their time to live
+	 * passes, and that writing a mapping restarts its time to live.
+	 */
+	@Test
+	public void mappingsExpireAfterTimeToLive() {
+		long[] now = { 1000L };
+		ExpiringHashTable<Integer, String> table = new ExpiringHashTable<Integer, String>(100L, () -> now[0]);
+		table.map(1, "one");
+		table.map(2, "two", 5000L);
+		table.map(3, "three", 1L);
+
+		now[0] += 1;
+		assertFalse(table.containsKey(3));
+		assertEquals(2, table.size());
+
+		now[0] += 50;
+		assertEquals("one", table.map(1, "uno"));
+
+		now[0] += 99;
+		assertEquals("uno", table.find(1));
+		now[0] += 1;
+		assertNull(table.find(1));
+		assertEquals(2, table.expiredCount());
+
+		now[0] += 4848;
+		assertTrue(table.containsKey(2));
+		now[0] += 1;
+		assertTrue(table.isEmpty());
+		assertNull(table.remap(2, "dos"));
+	}
+
+	/**
+	 * Asserts that a jump of the clock far into the future expires every
+	 * mapping whose time has passed, on every level of the wheel.
+	 */
+	@Test
+	public void clockJumpExpiresMappingsOnEveryLevel() {
+		long[] now = { -123456789L };
+		ExpiringHashTable<Integer, Integer> table = new ExpiringHashTable<Integer, Integer>(10L, () -> now[0]);
+		long[] times_to_live = { 1L, 63L, 64L, 4095L, 4096L, 300000L, 1L << 30, 1L << 36, 1L << 40 };
+		for (int i = 0; i < times_to_live.length; ++i) {
+			table.map(i, i, times_to_live[i]);
+		}
+
+		now[0] += (1L << 30) - 1;
+		table.cleanUp();
+		assertEquals(3, table.size());
+		assertTrue(table.containsKey(6));
+
+		now[0] += 1;
+		assertEquals(2, table.size());
+
+		now[0] += (1L << 40);
+		assertTrue(table.isEmpty());
+		assertEquals(times_to_live.length, table.expiredCount());
+	}
+
+	/**
+	 * Performs random operations while the clock advances by random steps
+	 * and asserts that the table agrees with a HashMap of expiration times.
+	 */
+	@Test
+	public void randomOperationsMatchReferenceMap() {
+		long[] now = { 0L };
+		ExpiringHashTable<Integer, Integer> table = new ExpiringHashTable<Integer, Integer>(500L, () -> now[0]);
+		Map<Integer, long[]> reference = new HashMap<Integer, long[]>();
+		Random random = new Random(5);
+
+		for (int i = 0; i < 50000; ++i) {
+			now[0] += random.nextInt(10) == 0 ? random.nextInt(5000) : random.nextInt(3);
+			reference.values().removeIf(mapping -> mapping[1] <= now[0]);
+
+			Integer key = random.nextInt(300);
+			switch (random.nextInt(4)) {
+			case 0:
+			case 1:
+				long time_to_live = 1 + random.nextInt(random.nextBoolean() ? 100 : 100000);
+				long[] previous = reference.put(key, new long[] { i, now[0] + time_to_live });
+				Integer previous_value = previous != null ? (int) previous[0] : null;
+				assertEquals(previous_value, table.map(key, i, time_to_live));
+				break;
+
+			case 2:
+				previous = reference.remove(key);
+				assertEquals(previous != null ? Integer.valueOf((int) previous[0]) : null, table.unmap(key));
+				break;
+
+			default:
+				previous = reference.get(key);
+				assertEquals(previous != null ? Integer.valueOf((int) previous[0]) : null, table.find(key));
+			}
+			assertEquals(reference.size(), table.size());
+		}
+
+		int visited = 0;
+		for (Map.Entry<Integer, Integer> mapping : table) {
+			assertEquals(Integer.valueOf((int) reference.get(mapping.getKey())[0]), mapping.getValue());
+			++visited;
+		}
+		assertEquals(reference.size(), visited);
+
+		table.clear();
+		assertTrue(table.isEmpty());
+		now[0] += 1L << 20;
+		table.cleanUp();
+		assertTrue(table.isEmpty());
+	}
+}
@@ -0,0 +1,238 @@
+package com.toptalprep;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for the HashTableCache class.
+ */
+public class HashTableCacheTest {
+	/**
+	 * Tests that exception is thrown when cache is created with 0 capacity.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unused")
+	public void createCacheWithZeroCapacity() {
+		HashTableCache<Integer, Integer> cache = new HashTableCache<Integer, Integer>(0);
+	}
+
+	/**
+	 * Asserts that the least recently used key is evicted.
+	 */
+	@Test
+	public void lruEvictsLeastRecentlyUsedKey() {
+		HashTableCache<Integer, String> cache = new HashTableCache<Integer, String>(3);
+		cache.put(1, "one");
+		cache.put(2, "two");
+		cache.put(3, "three");
+		assertEquals("one", cache.get(1));
+
+		cache.put(4, "four");
+		assertFalse(cache.containsKey(2));
+		assertTrue(cache.containsKey(1));
+		assertEquals(3, cache.size());
+		assertEquals(1, cache.evictionCount());
+
+		assertNull(cache.get(2));
+		assertEquals(1, cache.hitCount());
+		assertEquals(1, cache.missCount());
+	}
+
+	/**
+	 * Performs random operations on an LRU cache and on a LinkedHashMap in
+	 * access order with the same capacity, and asserts that they agree.
+	 */
+	@Test
+	public void lruMatchesLinkedHashMap() {
+		final int capacity = 50;
+		HashTableCache<Integer, Integer> cache = new HashTableCache<Integer, Integer>(capacity);
+		Map<Integer, Integer> reference = new LinkedHashMap<Integer, Integer>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+				return size() > capacity;
+			}
+		};
+		Random random = new Random(3);
+
+		for (int i = 0; i < 20000; ++i) {
+			Integer key = random.nextInt(150);
+			switch (random.nextInt(4)) {
+			case 0:
+			case 1:
+				Integer value = random.nextInt();
+				assertEquals(reference.put(key, value), cache.put(key, value));
+				break;
+
+			case 2:
+				assertEquals(reference.get(key), cache.get(key));
+				break;
+
+			default:
+				assertEquals(reference.remove(key), cache.remove(key));
+			}
+			assertEquals(reference.size(), cache.size());
+		}
+	}
+
+	/**
+	 * Evicts and removes keys whose hash codes collide in groups, together
+	 * with the NULL key, and asserts that the remaining keys are still
+	 * found after their clusters in the index were shifted back.
+	 */
+	@Test
+	public void evictionsKeepCollidingKeysReachable() {
+		final int capacity = 40;
+		HashTableCache<Long, Long> cache = new HashTableCache<Long, Long>(capacity);
+		Map<Long, Long> reference = new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+				return size() > capacity;
+			}
+		};
+		Random random = new Random(11);
+
+		for (int i = 0; i < 20000; ++i) {
+			// Long.hashCode() XORs the halves of the key, so the hash code
+			// of every key is its group and the groups have 10 keys each
+			long group = random.nextInt(10);
+			long member = random.nextInt(10);
+			Long key = random.nextInt(50) == 0 ? null : (member << 32) | (group ^ member);
+			switch (random.nextInt(4)) {
+			case 0:
+			case 1:
+				assertEquals(reference.put(key, (long) i), cache.put(key, (long) i));
+				break;
+
+			case 2:
+				assertEquals(reference.get(key), cache.get(key));
+				break;
+
+			default:
+				assertEquals(reference.remove(key), cache.remove(key));
+			}
+			assertEquals(reference.size(), cache.size());
+		}
+
+		for (Map.Entry<Long, Long> mapping : reference.entrySet()) {
+			assertTrue(cache.containsKey(mapping.getKey()));
+		}
+		cache.clear();
+		assertTrue(cache.isEmpty());
+		assertFalse(cache.containsKey(null));
+	}
+
+	/**
+	 * Asserts that the least frequently used key is evicted, and the least
+	 * recently used one among the equally used keys.
+	 */
+	@Test
+	public void lfuEvictsLeastFrequentlyUsedKey() {
+		HashTableCache<Integer, String> cache =
+				new HashTableCache<Integer, String>(3, HashTableCache.EvictionPolicy.LFU);
+		cache.put(1, "one");
+		cache.put(2, "two");
+		cache.put(3, "three");
+		cache.get(1);
+		cache.get(1);
+		cache.get(3);
+
+		cache.put(4, "four");
+		assertFalse(cache.containsKey(2));
+
+		cache.put(5, "five");
+		assertFalse(cache.containsKey(4));
+		assertTrue(cache.containsKey(1));
+		assertTrue(cache.containsKey(3));
+		assertTrue(cache.containsKey(5));
+
+		assertEquals("three", cache.remove(3));
+		cache.put(6, "six");
+		cache.put(7, "seven");
+		assertFalse(cache.containsKey(5));
+		assertEquals(3, cache.size());
+		assertEquals(3, cache.evictionCount());
+	}
+
+	/**
+	 * Asserts that a W-TinyLFU cache keeps the popular keys cached through
+	 * a scan of keys that are used only once, which flushes an LRU cache.
+	 */
+	@Test
+	public void tinyLfuSurvivesScan() {
+		HashTableCache<Integer, Integer> lru_cache = new HashTableCache<Integer, Integer>(100);
+		HashTableCache<Integer, Integer> tiny_lfu_cache =
+				new HashTableCache<Integer, Integer>(100, HashTableCache.EvictionPolicy.W_TINY_LFU);
+
+		for (HashTableCache<Integer, Integer> cache : Arrays.asList(lru_cache, tiny_lfu_cache)) {
+			for (int round = 0; round < 5; ++round) {
+				for (int key = 0; key < 50; ++key) {
+					cache.get(key, k -> k * 2);
+				}
+			}
+			for (int key = 1000; key < 2000; ++key) {
+				cache.get(key, k -> k * 2);
+			}
+			assertTrue(cache.size() <= 100);
+		}
+
+		int lru_hot_keys = 0;
+		int tiny_lfu_hot_keys = 0;
+		for (int key = 0; key < 50; ++key) {
+			lru_hot_keys += lru_cache.containsKey(key) ? 1 : 0;
+			tiny_lfu_hot_keys += tiny_lfu_cache.containsKey(key) ? 1 : 0;
+		}
+		assertEquals(0, lru_hot_keys);
+		assertTrue(tiny_lfu_hot_keys >= 45);
+		assertEquals(Integer.valueOf(20), tiny_lfu_cache.get(10));
+	}
+
+	/**
+	 * Performs random operations with a loader on caches of every policy
+	 * and asserts that the values are always correct and the counters add
+	 * up.
+	 */
+	@Test
+	public void everyPolicyReturnsLoadedValues() {
+		for (HashTableCache.EvictionPolicy policy : HashTableCache.EvictionPolicy.values()) {
+			HashTableCache<Integer, Integer> cache = new HashTableCache<Integer, Integer>(64, policy);
+			Random random = new Random(11);
+			int loads = 0;
+			for (int i = 0; i < 20000; ++i) {
+				// Skewed keys, so that some keys are more popular than others
+				int key = (int) Math.abs(random.nextGaussian() * 100);
+				int[] load_count = { 0 };
+				assertEquals(Integer.valueOf(-key), cache.get(key, k -> {
+					++load_count[0];
+					return -k;
+				}));
+				loads += load_count[0];
+				if (random.nextInt(20) == 0) {
+					cache.remove(random.nextInt(100));
+				}
+				assertTrue(cache.size() <= 64);
+			}
+
+			assertEquals(20000, cache.hitCount() + cache.missCount());
+			assertEquals(loads, cache.missCount());
+			assertTrue(cache.hitCount() > 0);
+			assertTrue(cache.evictionCount() > 0);
+
+			cache.clear();
+			assertTrue(cache.isEmpty());
+			assertEquals(0, cache.hitCount());
+			assertNull(cache.get(1));
+			cache.put(null, 5);
+			assertEquals(Integer.valueOf(5), cache.get(null));
+		}
+	}
+}
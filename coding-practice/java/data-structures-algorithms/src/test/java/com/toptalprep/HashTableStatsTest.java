@@ -0,0 +1,172 @@
+package com.toptalprep;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Unit tests for the HashTableStats class. The tests run only if the
+ * statistics are enabled, which the build does in a separate surefire
+ * execution for this class only.
+ */
+public class HashTableStatsTest {
+	@Before
+	public void assumeStatsEnabled() {
+		assumeTrue(HashTableStats.ENABLED);
+	}
+
+	private static long sum(long[] histogram) {
+		long sum = 0;
+		for (long count : histogram) {
+			sum += count;
+		}
+		return sum;
+	}
+
+	/**
+	 * Asserts that every operation of the open addressing and separate
+	 * chaining tables is counted in the histogram of its type.
+	 */
+	@Test
+	public void histogramsCountOperations() {
+		List<HashTableBase<Integer, Integer>> tables = new ArrayList<HashTableBase<Integer, Integer>>();
+		tables.add(new HashTableLinearProbe<Integer, Integer>());
+		tables.add(new HashTableSeparateChaining<Integer, Integer>());
+		for (HashTableBase<Integer, Integer> table : tables) {
+			for (int i = 0; i < 100; ++i) {
+				table.map(i, i);
+			}
+			for (int i = 0; i < 150; ++i) {
+				table.find(i);
+			}
+			for (int i = 0; i < 30; ++i) {
+				table.unmap(i);
+			}
+
+			HashTableStats stats = table.stats();
+			assertEquals(100, sum(stats.getMapProbeHistogram()));
+			assertEquals(150, sum(stats.getFindProbeHistogram()));
+			assertEquals(30, sum(stats.getUnmapProbeHistogram()));
+			assertEquals(HashTableStats.HISTOGRAM_SIZE, stats.getMapProbeHistogram().length);
+			assertEquals(70, stats.getSize());
+
+			stats.reset();
+			assertEquals(0, sum(stats.getFindProbeHistogram()));
+			assertEquals(0, stats.getResizeCount());
+		}
+	}
+
+	/**
+	 * Asserts that the re-sizes are counted and timed, and that every
+	 * re-size samples the occupancy.
+	 */
+	@Test
+	public void resizesAreCountedAndSampled() {
+		HashTableBase<Integer, Integer> table = new HashTableDoubleHashing<Integer, Integer>(13, 0.5f);
+		HashTableStats stats = table.stats();
+		for (int i = 0; i < 1000; ++i) {
+			table.map(i, i);
+		}
+
+		assertTrue(stats.getResizeCount() >= 6);
+		assertTrue(stats.getResizeTimeNanos() > 0);
+		double[] timeline = stats.getLoadFactorTimeline();
+		assertEquals(stats.getResizeCount(), timeline.length);
+		assertEquals(timeline.length, stats.getLoadFactorTimestamps().length);
+		for (double load_factor : timeline) {
+			assertTrue(load_factor > 0.0 && load_factor <= 0.5);
+		}
+		assertEquals(1000.0 / stats.getCapacity(), stats.getLoadFactor(), 1e-9);
+
+		// The timeline keeps only the most recent samples
+		for (int i = 0; i < 100 * HashTableStats.TIMELINE_SAMPLE_INTERVAL; ++i) {
+			table.map(i % 1000, i);
+		}
+		assertEquals(HashTableStats.TIMELINE_SIZE, stats.getLoadFactorTimeline().length);
+	}
+
+	/**
+	 * Asserts that the removed mappings left in an open addressing table
+	 * are reported as tombstones.
+	 */
+	@Test
+	public void tombstoneRatioTracksRemovedMappings() {
+		HashTableOpenAddressing<Integer, Integer> table = new HashTableLinearProbe<Integer, Integer>(100, 0.75f);
+		for (int i = 0; i < 50; ++i) {
+			table.map(i, i);
+		}
+		for (int i = 0; i < 20; ++i) {
+			table.unmap(i);
+		}
+		assertEquals(20.0 / table.stats().getCapacity(), table.stats().getTombstoneRatio(), 1e-9);
+
+		table.compact();
+		assertEquals(0.0, table.stats().getTombstoneRatio(), 0.0);
+		assertEquals(0.0, new HashTableSeparateChaining<Integer, Integer>().stats().getTombstoneRatio(), 0.0);
+	}
+
+	/**
+	 * Asserts that the keys that collide are reported as a long chain and
+	 * a long probe sequence.
+	 */
+	@Test
+	public void collidingKeysLengthenChains() {
+		HashTableSeparateChaining<Long, Integer> table = new HashTableSeparateChaining<Long, Integer>(1024);
+		for (int i = 0; i < 20; ++i) {
+			// Long.hashCode() is the same for all these keys
+			table.map(((long) i << 32) | i, i);
+		}
+		table.map(12345L, -1);
+
+		HashTableStats stats = table.stats();
+		assertEquals(20, stats.getMaxChainLength());
+
+		// The colliding keys are kept in a tree, so the lookup examines
+		// more than a single mapping but less than all of them
+		table.find(19L << 32 | 19);
+		long[] histogram = stats.getFindProbeHistogram();
+		assertEquals(1, sum(histogram));
+		assertEquals(0, histogram[0] + histogram[1] + sum(Arrays.copyOfRange(histogram, 20, histogram.length)));
+		assertEquals(0, new HashTableLinearProbe<Integer, Integer>().stats().getMaxChainLength());
+	}
+
+	/**
+	 * Registers the statistics with the platform MBean server and reads
+	 * them back through JMX.
+	 */
+	@Test
+	public void statsAreReadableThroughJmx() throws JMException {
+		HashTableBase<String, Integer> table = new HashTableLinearProbe<String, Integer>();
+		table.map("one", 1);
+		table.map("two", 2);
+
+		ObjectName object_name = table.stats().register("statsAreReadableThroughJmx");
+		try {
+			assertEquals(2, ManagementFactory.getPlatformMBeanServer().getAttribute(object_name, "Size"));
+			long[] histogram =
+					(long[]) ManagementFactory.getPlatformMBeanServer().getAttribute(object_name, "MapProbeHistogram");
+			assertEquals(2, sum(histogram));
+
+			try {
+				table.stats().register("statsAreReadableThroughJmx");
+				fail("Registering the same name twice must fail");
+			}
+			catch (JMException e) {
+			}
+		}
+		finally {
+			HashTableStats.unregister(object_name);
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(object_name));
+	}
+}
@@ -1,18 +1,30 @@
 package com.toptalprep;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
 import java.util.OptionalInt;
+import java.util.Random;
 import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * Unit tests for the various implementations of the HashTable interface.
@@ -26,7 +38,38 @@ public class HashTableTest {
 		HASH_TABLE_LINEAR_PROBE,
 		HASH_TABLE_QUADRATIC_PROBE,
 		HASH_TABLE_DOUBLE_HASHING,
-		HASH_TABLE_SEPARATE_CHAINING
+		HASH_TABLE_SEPARATE_CHAINING,
+		HASH_TABLE_LINEAR_PROBE_PARALLEL_ARRAYS,
+		HASH_TABLE_QUADRATIC_PROBE_PARALLEL_ARRAYS,
+		HASH_TABLE_DOUBLE_HASHING_PARALLEL_ARRAYS,
+		HASH_TABLE_ROBIN_HOOD,
+		HASH_TABLE_CONCURRENT_SEPARATE_CHAINING,
+		HASH_TABLE_CONCURRENT_OPEN_ADDRESSING,
+		HASH_TABLE_LINEAR_PROBE_INCREMENTAL_RESIZE,
+		HASH_TABLE_DOUBLE_HASHING_PARALLEL_ARRAYS_INCREMENTAL_RESIZE,
+		HASH_TABLE_SEPARATE_CHAINING_INCREMENTAL_RESIZE,
+		HASH_TABLE_SWISS,
+		HASH_TABLE_CUCKOO,
+		HASH_TABLE_HOPSCOTCH,
+		HASH_TABLE_QUADRATIC_PROBE_FIBONACCI_MASK,
+		HASH_TABLE_LINEAR_PROBE_MURMUR3_FAST_RANGE,
+		HASH_TABLE_DOUBLE_HASHING_XXHASH,
+		HASH_TABLE_SEPARATE_CHAINING_FIBONACCI_FAST_RANGE,
+		HASH_TABLE_SEPARATE_CHAINING_INTRUSIVE_CHAINS,
+		HASH_TABLE_SEPARATE_CHAINING_INTRUSIVE_CHAINS_INCREMENTAL_RESIZE,
+		HASH_TABLE_LINEAR_PROBE_VALUE_INDEX_INCREMENTAL_RESIZE,
+		HASH_TABLE_DOUBLE_HASHING_PARALLEL_ARRAYS_VALUE_INDEX,
+		HASH_TABLE_SEPARATE_CHAINING_VALUE_INDEX_INCREMENTAL_RESIZE,
+		HASH_TABLE_DOUBLE_HASHING_AUTO_SHRINK,
+		HASH_TABLE_SEPARATE_CHAINING_INCREMENTAL_RESIZE_AUTO_SHRINK,
+		HASH_TABLE_ROBIN_HOOD_MURMUR3_FAST_RANGE,
+		HASH_TABLE_HOPSCOTCH_XXHASH,
+		HASH_TABLE_CUCKOO_FIBONACCI_FAST_RANGE,
+		HASH_TABLE_SWISS_FIBONACCI_MASK,
+		HASH_TABLE_ROBIN_HOOD_VALUE_INDEX,
+		HASH_TABLE_HOPSCOTCH_VALUE_INDEX,
+		HASH_TABLE_CUCKOO_VALUE_INDEX,
+		HASH_TABLE_SWISS_VALUE_INDEX
 	}
 	
 	/**
@@ -75,6 +118,99 @@ public class HashTableTest {
 		case HASH_TABLE_SEPARATE_CHAINING:
 			return new HashTableSeparateChaining<KeyT, ValueT>();
 			
+		case HASH_TABLE_LINEAR_PROBE_PARALLEL_ARRAYS:
+			return new HashTableLinearProbe<KeyT, ValueT>(11, 0.75f, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS);
+			
+		case HASH_TABLE_QUADRATIC_PROBE_PARALLEL_ARRAYS:
+			return new HashTableQuadraticProbe<KeyT, ValueT>(16, 0.75f, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS);
+			
+		case HASH_TABLE_DOUBLE_HASHING_PARALLEL_ARRAYS:
+			return new HashTableDoubleHashing<KeyT, ValueT>(13, 0.75f, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS);
+			
+		case HASH_TABLE_ROBIN_HOOD:
+			return new HashTableRobinHood<KeyT, ValueT>();
+			
+		case HASH_TABLE_CONCURRENT_SEPARATE_CHAINING:
+			return new ConcurrentHashTableSeparateChaining<KeyT, ValueT>();
+			
+		case HASH_TABLE_CONCURRENT_OPEN_ADDRESSING:
+			return new ConcurrentHashTableOpenAddressing<KeyT, ValueT>();
+			
+		case HASH_TABLE_LINEAR_PROBE_INCREMENTAL_RESIZE:
+			return new HashTableLinearProbe<KeyT, ValueT>(11, 0.75f, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_DOUBLE_HASHING_PARALLEL_ARRAYS_INCREMENTAL_RESIZE:
+			return new HashTableDoubleHashing<KeyT, ValueT>(13, 0.75f, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_INCREMENTAL_RESIZE:
+			return new HashTableSeparateChaining<KeyT, ValueT>(11, 0.75f, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_SWISS:
+			return new HashTableSwiss<KeyT, ValueT>();
+			
+		case HASH_TABLE_CUCKOO:
+			return new HashTableCuckoo<KeyT, ValueT>();
+			
+		case HASH_TABLE_HOPSCOTCH:
+			return new HashTableHopscotch<KeyT, ValueT>();
+			
+		case HASH_TABLE_QUADRATIC_PROBE_FIBONACCI_MASK:
+			return new HashTableQuadraticProbe<KeyT, ValueT>(16, 0.75f, HashTableBase.HashMixer.FIBONACCI, HashTableBase.IndexReducer.MASK);
+			
+		case HASH_TABLE_LINEAR_PROBE_MURMUR3_FAST_RANGE:
+			return new HashTableLinearProbe<KeyT, ValueT>(11, 0.75f, HashTableBase.HashMixer.MURMUR3, HashTableBase.IndexReducer.FAST_RANGE);
+			
+		case HASH_TABLE_DOUBLE_HASHING_XXHASH:
+			return new HashTableDoubleHashing<KeyT, ValueT>(13, 0.75f, HashTableBase.HashMixer.XXHASH);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_FIBONACCI_FAST_RANGE:
+			return new HashTableSeparateChaining<KeyT, ValueT>(11, 0.75f, HashTableBase.HashMixer.FIBONACCI, HashTableBase.IndexReducer.FAST_RANGE);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_INTRUSIVE_CHAINS:
+			return new HashTableSeparateChaining<KeyT, ValueT>(11, 0.75f, HashTableSeparateChaining.BucketMode.INTRUSIVE_CHAINS);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_INTRUSIVE_CHAINS_INCREMENTAL_RESIZE:
+			return new HashTableSeparateChaining<KeyT, ValueT>(11, 0.75f, HashTableSeparateChaining.BucketMode.INTRUSIVE_CHAINS, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_LINEAR_PROBE_VALUE_INDEX_INCREMENTAL_RESIZE:
+			return new HashTableLinearProbe<KeyT, ValueT>(11, 0.75f, HashTableBase.ValueIndexMode.REFCOUNT, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_DOUBLE_HASHING_PARALLEL_ARRAYS_VALUE_INDEX:
+			return new HashTableDoubleHashing<KeyT, ValueT>(13, 0.75f, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS, HashTableBase.ValueIndexMode.REFCOUNT);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_VALUE_INDEX_INCREMENTAL_RESIZE:
+			return new HashTableSeparateChaining<KeyT, ValueT>(11, 0.75f, HashTableBase.ValueIndexMode.REFCOUNT, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_DOUBLE_HASHING_AUTO_SHRINK:
+			return new HashTableDoubleHashing<KeyT, ValueT>(13, 0.75f, HashTableBase.ShrinkMode.AUTOMATIC);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_INCREMENTAL_RESIZE_AUTO_SHRINK:
+			return new HashTableSeparateChaining<KeyT, ValueT>(11, 0.75f, HashTableBase.ResizeMode.INCREMENTAL, HashTableBase.ShrinkMode.AUTOMATIC);
+			
+		case HASH_TABLE_ROBIN_HOOD_MURMUR3_FAST_RANGE:
+			return new HashTableRobinHood<KeyT, ValueT>(11, 0.9f, HashTableBase.HashMixer.MURMUR3, HashTableBase.IndexReducer.FAST_RANGE);
+			
+		case HASH_TABLE_HOPSCOTCH_XXHASH:
+			return new HashTableHopscotch<KeyT, ValueT>(32, 0.95f, HashTableBase.HashMixer.XXHASH);
+			
+		case HASH_TABLE_CUCKOO_FIBONACCI_FAST_RANGE:
+			return new HashTableCuckoo<KeyT, ValueT>(16, 0.9f, HashTableBase.HashMixer.FIBONACCI, HashTableBase.IndexReducer.FAST_RANGE);
+			
+		case HASH_TABLE_SWISS_FIBONACCI_MASK:
+			return new HashTableSwiss<KeyT, ValueT>(16, 0.875f, HashTableBase.HashMixer.FIBONACCI, HashTableBase.IndexReducer.MASK);
+			
+		case HASH_TABLE_ROBIN_HOOD_VALUE_INDEX:
+			return new HashTableRobinHood<KeyT, ValueT>(11, 0.9f, HashTableBase.ValueIndexMode.REFCOUNT);
+			
+		case HASH_TABLE_HOPSCOTCH_VALUE_INDEX:
+			return new HashTableHopscotch<KeyT, ValueT>(32, 0.95f, HashTableBase.ValueIndexMode.REFCOUNT);
+			
+		case HASH_TABLE_CUCKOO_VALUE_INDEX:
+			return new HashTableCuckoo<KeyT, ValueT>(16, 0.9f, HashTableBase.ValueIndexMode.REFCOUNT);
+			
+		case HASH_TABLE_SWISS_VALUE_INDEX:
+			return new HashTableSwiss<KeyT, ValueT>(16, 0.875f, HashTableBase.ValueIndexMode.REFCOUNT);
+			
 		default:
 			assertTrue("Unknown hash table implementation", false);
 			return null;
@@ -99,6 +235,99 @@ public class HashTableTest {
 		case HASH_TABLE_SEPARATE_CHAINING:
 			return new HashTableSeparateChaining<KeyT, ValueT>(initial_capacity);
 			
+		case HASH_TABLE_LINEAR_PROBE_PARALLEL_ARRAYS:
+			return new HashTableLinearProbe<KeyT, ValueT>(initial_capacity, 0.75f, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS);
+			
+		case HASH_TABLE_QUADRATIC_PROBE_PARALLEL_ARRAYS:
+			return new HashTableQuadraticProbe<KeyT, ValueT>(initial_capacity, 0.75f, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS);
+			
+		case HASH_TABLE_DOUBLE_HASHING_PARALLEL_ARRAYS:
+			return new HashTableDoubleHashing<KeyT, ValueT>(initial_capacity, 0.75f, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS);
+			
+		case HASH_TABLE_ROBIN_HOOD:
+			return new HashTableRobinHood<KeyT, ValueT>(initial_capacity);
+			
+		case HASH_TABLE_CONCURRENT_SEPARATE_CHAINING:
+			return new ConcurrentHashTableSeparateChaining<KeyT, ValueT>(initial_capacity);
+			
+		case HASH_TABLE_CONCURRENT_OPEN_ADDRESSING:
+			return new ConcurrentHashTableOpenAddressing<KeyT, ValueT>(initial_capacity);
+			
+		case HASH_TABLE_LINEAR_PROBE_INCREMENTAL_RESIZE:
+			return new HashTableLinearProbe<KeyT, ValueT>(initial_capacity, 0.75f, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_DOUBLE_HASHING_PARALLEL_ARRAYS_INCREMENTAL_RESIZE:
+			return new HashTableDoubleHashing<KeyT, ValueT>(initial_capacity, 0.75f, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_INCREMENTAL_RESIZE:
+			return new HashTableSeparateChaining<KeyT, ValueT>(initial_capacity, 0.75f, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_SWISS:
+			return new HashTableSwiss<KeyT, ValueT>(initial_capacity);
+			
+		case HASH_TABLE_CUCKOO:
+			return new HashTableCuckoo<KeyT, ValueT>(initial_capacity);
+			
+		case HASH_TABLE_HOPSCOTCH:
+			return new HashTableHopscotch<KeyT, ValueT>(initial_capacity);
+			
+		case HASH_TABLE_QUADRATIC_PROBE_FIBONACCI_MASK:
+			return new HashTableQuadraticProbe<KeyT, ValueT>(initial_capacity, 0.75f, HashTableBase.HashMixer.FIBONACCI, HashTableBase.IndexReducer.MASK);
+			
+		case HASH_TABLE_LINEAR_PROBE_MURMUR3_FAST_RANGE:
+			return new HashTableLinearProbe<KeyT, ValueT>(initial_capacity, 0.75f, HashTableBase.HashMixer.MURMUR3, HashTableBase.IndexReducer.FAST_RANGE);
+			
+		case HASH_TABLE_DOUBLE_HASHING_XXHASH:
+			return new HashTableDoubleHashing<KeyT, ValueT>(initial_capacity, 0.75f, HashTableBase.HashMixer.XXHASH);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_FIBONACCI_FAST_RANGE:
+			return new HashTableSeparateChaining<KeyT, ValueT>(initial_capacity, 0.75f, HashTableBase.HashMixer.FIBONACCI, HashTableBase.IndexReducer.FAST_RANGE);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_INTRUSIVE_CHAINS:
+			return new HashTableSeparateChaining<KeyT, ValueT>(initial_capacity, 0.75f, HashTableSeparateChaining.BucketMode.INTRUSIVE_CHAINS);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_INTRUSIVE_CHAINS_INCREMENTAL_RESIZE:
+			return new HashTableSeparateChaining<KeyT, ValueT>(initial_capacity, 0.75f, HashTableSeparateChaining.BucketMode.INTRUSIVE_CHAINS, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_LINEAR_PROBE_VALUE_INDEX_INCREMENTAL_RESIZE:
+			return new HashTableLinearProbe<KeyT, ValueT>(initial_capacity, 0.75f, HashTableBase.ValueIndexMode.REFCOUNT, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_DOUBLE_HASHING_PARALLEL_ARRAYS_VALUE_INDEX:
+			return new HashTableDoubleHashing<KeyT, ValueT>(initial_capacity, 0.75f, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS, HashTableBase.ValueIndexMode.REFCOUNT);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_VALUE_INDEX_INCREMENTAL_RESIZE:
+			return new HashTableSeparateChaining<KeyT, ValueT>(initial_capacity, 0.75f, HashTableBase.ValueIndexMode.REFCOUNT, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_DOUBLE_HASHING_AUTO_SHRINK:
+			return new HashTableDoubleHashing<KeyT, ValueT>(initial_capacity, 0.75f, HashTableBase.ShrinkMode.AUTOMATIC);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_INCREMENTAL_RESIZE_AUTO_SHRINK:
+			return new HashTableSeparateChaining<KeyT, ValueT>(initial_capacity, 0.75f, HashTableBase.ResizeMode.INCREMENTAL, HashTableBase.ShrinkMode.AUTOMATIC);
+			
+		case HASH_TABLE_ROBIN_HOOD_MURMUR3_FAST_RANGE:
+			return new HashTableRobinHood<KeyT, ValueT>(initial_capacity, 0.9f, HashTableBase.HashMixer.MURMUR3, HashTableBase.IndexReducer.FAST_RANGE);
+			
+		case HASH_TABLE_HOPSCOTCH_XXHASH:
+			return new HashTableHopscotch<KeyT, ValueT>(initial_capacity, 0.95f, HashTableBase.HashMixer.XXHASH);
+			
+		case HASH_TABLE_CUCKOO_FIBONACCI_FAST_RANGE:
+			return new HashTableCuckoo<KeyT, ValueT>(initial_capacity, 0.9f, HashTableBase.HashMixer.FIBONACCI, HashTableBase.IndexReducer.FAST_RANGE);
+			
+		case HASH_TABLE_SWISS_FIBONACCI_MASK:
+			return new HashTableSwiss<KeyT, ValueT>(initial_capacity, 0.875f, HashTableBase.HashMixer.FIBONACCI, HashTableBase.IndexReducer.MASK);
+			
+		case HASH_TABLE_ROBIN_HOOD_VALUE_INDEX:
+			return new HashTableRobinHood<KeyT, ValueT>(initial_capacity, 0.9f, HashTableBase.ValueIndexMode.REFCOUNT);
+			
+		case HASH_TABLE_HOPSCOTCH_VALUE_INDEX:
+			return new HashTableHopscotch<KeyT, ValueT>(initial_capacity, 0.95f, HashTableBase.ValueIndexMode.REFCOUNT);
+			
+		case HASH_TABLE_CUCKOO_VALUE_INDEX:
+			return new HashTableCuckoo<KeyT, ValueT>(initial_capacity, 0.9f, HashTableBase.ValueIndexMode.REFCOUNT);
+			
+		case HASH_TABLE_SWISS_VALUE_INDEX:
+			return new HashTableSwiss<KeyT, ValueT>(initial_capacity, 0.875f, HashTableBase.ValueIndexMode.REFCOUNT);
+			
 		default:
 			assertTrue("Unknown hash table implementation", false);
 			return null;
@@ -124,6 +353,99 @@ public class HashTableTest {
 		case HASH_TABLE_SEPARATE_CHAINING:
 			return new HashTableSeparateChaining<KeyT, ValueT>(initial_capacity, load_factor);
 			
+		case HASH_TABLE_LINEAR_PROBE_PARALLEL_ARRAYS:
+			return new HashTableLinearProbe<KeyT, ValueT>(initial_capacity, load_factor, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS);
+			
+		case HASH_TABLE_QUADRATIC_PROBE_PARALLEL_ARRAYS:
+			return new HashTableQuadraticProbe<KeyT, ValueT>(initial_capacity, load_factor, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS);
+			
+		case HASH_TABLE_DOUBLE_HASHING_PARALLEL_ARRAYS:
+			return new HashTableDoubleHashing<KeyT, ValueT>(initial_capacity, load_factor, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS);
+			
+		case HASH_TABLE_ROBIN_HOOD:
+			return new HashTableRobinHood<KeyT, ValueT>(initial_capacity, load_factor);
+			
+		case HASH_TABLE_CONCURRENT_SEPARATE_CHAINING:
+			return new ConcurrentHashTableSeparateChaining<KeyT, ValueT>(initial_capacity, load_factor);
+			
+		case HASH_TABLE_CONCURRENT_OPEN_ADDRESSING:
+			return new ConcurrentHashTableOpenAddressing<KeyT, ValueT>(initial_capacity, load_factor);
+			
+		case HASH_TABLE_LINEAR_PROBE_INCREMENTAL_RESIZE:
+			return new HashTableLinearProbe<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_DOUBLE_HASHING_PARALLEL_ARRAYS_INCREMENTAL_RESIZE:
+			return new HashTableDoubleHashing<KeyT, ValueT>(initial_capacity, load_factor, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_INCREMENTAL_RESIZE:
+			return new HashTableSeparateChaining<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_SWISS:
+			return new HashTableSwiss<KeyT, ValueT>(initial_capacity, load_factor);
+			
+		case HASH_TABLE_CUCKOO:
+			return new HashTableCuckoo<KeyT, ValueT>(initial_capacity, load_factor);
+			
+		case HASH_TABLE_HOPSCOTCH:
+			return new HashTableHopscotch<KeyT, ValueT>(initial_capacity, load_factor);
+			
+		case HASH_TABLE_QUADRATIC_PROBE_FIBONACCI_MASK:
+			return new HashTableQuadraticProbe<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.HashMixer.FIBONACCI, HashTableBase.IndexReducer.MASK);
+			
+		case HASH_TABLE_LINEAR_PROBE_MURMUR3_FAST_RANGE:
+			return new HashTableLinearProbe<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.HashMixer.MURMUR3, HashTableBase.IndexReducer.FAST_RANGE);
+			
+		case HASH_TABLE_DOUBLE_HASHING_XXHASH:
+			return new HashTableDoubleHashing<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.HashMixer.XXHASH);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_FIBONACCI_FAST_RANGE:
+			return new HashTableSeparateChaining<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.HashMixer.FIBONACCI, HashTableBase.IndexReducer.FAST_RANGE);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_INTRUSIVE_CHAINS:
+			return new HashTableSeparateChaining<KeyT, ValueT>(initial_capacity, load_factor, HashTableSeparateChaining.BucketMode.INTRUSIVE_CHAINS);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_INTRUSIVE_CHAINS_INCREMENTAL_RESIZE:
+			return new HashTableSeparateChaining<KeyT, ValueT>(initial_capacity, load_factor, HashTableSeparateChaining.BucketMode.INTRUSIVE_CHAINS, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_LINEAR_PROBE_VALUE_INDEX_INCREMENTAL_RESIZE:
+			return new HashTableLinearProbe<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.ValueIndexMode.REFCOUNT, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_DOUBLE_HASHING_PARALLEL_ARRAYS_VALUE_INDEX:
+			return new HashTableDoubleHashing<KeyT, ValueT>(initial_capacity, load_factor, HashTableOpenAddressing.StorageMode.PARALLEL_ARRAYS, HashTableBase.ValueIndexMode.REFCOUNT);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_VALUE_INDEX_INCREMENTAL_RESIZE:
+			return new HashTableSeparateChaining<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.ValueIndexMode.REFCOUNT, HashTableBase.ResizeMode.INCREMENTAL);
+			
+		case HASH_TABLE_DOUBLE_HASHING_AUTO_SHRINK:
+			return new HashTableDoubleHashing<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.ShrinkMode.AUTOMATIC);
+			
+		case HASH_TABLE_SEPARATE_CHAINING_INCREMENTAL_RESIZE_AUTO_SHRINK:
+			return new HashTableSeparateChaining<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.ResizeMode.INCREMENTAL, HashTableBase.ShrinkMode.AUTOMATIC);
+			
+		case HASH_TABLE_ROBIN_HOOD_MURMUR3_FAST_RANGE:
+			return new HashTableRobinHood<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.HashMixer.MURMUR3, HashTableBase.IndexReducer.FAST_RANGE);
+			
+		case HASH_TABLE_HOPSCOTCH_XXHASH:
+			return new HashTableHopscotch<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.HashMixer.XXHASH);
+			
+		case HASH_TABLE_CUCKOO_FIBONACCI_FAST_RANGE:
+			return new HashTableCuckoo<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.HashMixer.FIBONACCI, HashTableBase.IndexReducer.FAST_RANGE);
+			
+		case HASH_TABLE_SWISS_FIBONACCI_MASK:
+			return new HashTableSwiss<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.HashMixer.FIBONACCI, HashTableBase.IndexReducer.MASK);
+			
+		case HASH_TABLE_ROBIN_HOOD_VALUE_INDEX:
+			return new HashTableRobinHood<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.ValueIndexMode.REFCOUNT);
+			
+		case HASH_TABLE_HOPSCOTCH_VALUE_INDEX:
+			return new HashTableHopscotch<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.ValueIndexMode.REFCOUNT);
+			
+		case HASH_TABLE_CUCKOO_VALUE_INDEX:
+			return new HashTableCuckoo<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.ValueIndexMode.REFCOUNT);
+			
+		case HASH_TABLE_SWISS_VALUE_INDEX:
+			return new HashTableSwiss<KeyT, ValueT>(initial_capacity, load_factor, HashTableBase.ValueIndexMode.REFCOUNT);
+			
 		default:
 			assertTrue("Unknown hash table implementation", false);
 			return null;
@@ -1460,4 +1782,857 @@ public class HashTableTest {
 		// value in the table
 		assertFalse(table.containsValue(mapping_to_remove.m_value));
 	}
+	
+	/**
+	 * Performs a long random sequence of map/unmap/remap operations on a small
+	 * key range, so that keys are constantly mapped and unmapped, and asserts
+	 * that the hash table always agrees with java.util.HashMap.
+	 */
+	@Test
+	public void churnMatchesReferenceMap() {
+		HashTable<Integer, Integer> table = newHashTableInstance(3, 0.75f);
+		Map<Integer, Integer> reference = new HashMap<Integer, Integer>();
+		Random random = new Random(42);
+		
+		for (int i = 0; i < 20000; ++i) {
+			Integer key = random.nextInt(100) == 0 ? null : random.nextInt(300) - 150;
+			Integer value = random.nextInt(1000);
+			
+			switch (random.nextInt(6)) {
+			case 0:
+			case 1:
+				assertEquals(reference.put(key, value), table.map(key, value));
+				break;
+				
+			case 2:
+				assertEquals(reference.remove(key), table.unmap(key));
+				break;
+				
+			case 3:
+				boolean expected_removal = reference.containsKey(key) && value.equals(reference.get(key));
+				if (expected_removal) {
+					reference.remove(key);
+				}
+				assertEquals(expected_removal, table.unmap(key, value));
+				break;
+				
+			case 4:
+				assertEquals(reference.containsKey(key) ? reference.put(key, value) : null, table.remap(key, value));
+				break;
+				
+			default:
+				assertEquals(reference.get(key), table.find(key));
+				assertEquals(reference.containsKey(key), table.containsKey(key));
+			}
+			assertEquals(reference.size(), table.size());
+		}
+		
+		for (Map.Entry<Integer, Integer> mapping : reference.entrySet()) {
+			assertEquals(mapping.getValue(), table.find(mapping.getKey()));
+		}
+	}
+	
+	/**
+	 * Unmaps most of the keys from an open addressing table and asserts that
+	 * compact() drops the removed mappings without changing the array size
+	 * and that the remaining mappings are still found.
+	 */
+	@Test
+	public void compactOpenAddressingTable() {
+		HashTable<Integer, Integer> table = newHashTableInstance();
+		assumeTrue(table instanceof HashTableOpenAddressing);
+		HashTableOpenAddressing<Integer, Integer> open_addressing_table =
+				(HashTableOpenAddressing<Integer, Integer>) table;
+		
+		for (int i = 0; i < 200; ++i) {
+			table.map(i, -i);
+		}
+		for (int i = 0; i < 200; ++i) {
+			if (i % 5 != 0) {
+				assertEquals(Integer.valueOf(-i), table.unmap(i));
+			}
+		}
+		table.map(null, 1000);
+		
+		int array_length = open_addressing_table.m_array.length;
+		assertTrue(open_addressing_table.m_removed_count > 0);
+		open_addressing_table.compact();
+		assertEquals(0, open_addressing_table.m_removed_count);
+		assertEquals(array_length, open_addressing_table.m_array.length);
+		assertEquals(41, table.size());
+		
+		for (int i = 0; i < 200; ++i) {
+			assertEquals(i % 5 == 0 ? Integer.valueOf(-i) : null, table.find(i));
+		}
+		assertEquals(Integer.valueOf(1000), table.find(null));
+		
+		// The cells left empty don't keep the values of moved mappings
+		if (open_addressing_table.m_parallel_arrays) {
+			for (int i = 0; i < array_length; ++i) {
+				if (open_addressing_table.m_array[i] == null) {
+					assertNull(open_addressing_table.m_values[i]);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Keeps mapping and unmapping keys in a table with load factor of 1.0,
+	 * and asserts that the removed mappings never fill up all the free
+	 * array cells of an open addressing table.
+	 */
+	@Test
+	public void churnDoesNotFillTableWithRemovedMappings() {
+		HashTable<Integer, Integer> table = newHashTableInstance(16, 1.0f);
+		assumeTrue(table instanceof HashTableOpenAddressing);
+		HashTableOpenAddressing<Integer, Integer> open_addressing_table =
+				(HashTableOpenAddressing<Integer, Integer>) table;
+		
+		for (int i = 0; i < 5000; ++i) {
+			table.map(i, i);
+			if (i >= 8) {
+				assertEquals(Integer.valueOf(i - 8), table.unmap(i - 8));
+			}
+			
+			assertTrue(
+					open_addressing_table.m_size + open_addressing_table.m_removed_count <
+					open_addressing_table.m_array.length);
+		}
+		assertEquals(8, table.size());
+		assertTrue(open_addressing_table.m_array.length < 64);
+	}
+	
+	/**
+	 * Keeps the number of live mappings of an open addressing table just
+	 * below the load factor while replacing them with new keys, and asserts
+	 * that the table grows instead of re-hashing itself in place on almost
+	 * every insert.
+	 */
+	@Test
+	public void churnBelowLoadFactorDoesNotRehashOnEveryInsert() {
+		HashTable<Integer, Integer> table = newHashTableInstance(1024, 0.75f);
+		assumeTrue(table instanceof HashTableOpenAddressing);
+		HashTableOpenAddressing<Integer, Integer> open_addressing_table =
+				(HashTableOpenAddressing<Integer, Integer>) table;
+		
+		int key_count = (int) (0.75f * open_addressing_table.m_array.length) - 1;
+		for (int i = 0; i < key_count; ++i) {
+			table.map(i, i);
+		}
+		
+		// Every re-hash drops all the removed mappings
+		int rehash_count = 0;
+		for (int i = 0; i < 10000; ++i) {
+			assertEquals(Integer.valueOf(i), table.unmap(i));
+			table.map(key_count + i, key_count + i);
+			if (open_addressing_table.m_removed_count == 0) {
+				++rehash_count;
+			}
+		}
+		assertTrue(rehash_count < 100);
+		
+		assertEquals(key_count, table.size());
+		for (int i = 10000; i < 10000 + key_count; ++i) {
+			assertEquals(Integer.valueOf(i), table.find(i));
+		}
+	}
+	
+	/**
+	 * Asserts that the incremental re-size moves the mappings over several
+	 * operations while the keys remain accessible in the meantime.
+	 */
+	@Test
+	public void incrementalResizeKeepsMappingsAccessible() {
+		HashTable<Integer, Integer> table = newHashTableInstance(64, 0.75f);
+		assumeTrue(m_implementation.name().endsWith("_INCREMENTAL_RESIZE"));
+		HashTableBase<Integer, Integer> base_table = (HashTableBase<Integer, Integer>) table;
+		
+		// Map the keys until the re-size starts
+		int key = 0;
+		while (base_table.m_old_array == null) {
+			table.map(key, key);
+			++key;
+		}
+		int old_array_length = base_table.m_old_array.length;
+		
+		// Keep modifying the table until the re-size completes
+		int operation_count = 0;
+		while (base_table.m_old_array != null) {
+			for (int i = 0; i < key; ++i) {
+				assertEquals(Integer.valueOf(i), table.find(i));
+			}
+			assertTrue(table.containsValue(0));
+			
+			assertEquals(Integer.valueOf(0), table.remap(0, 0));
+			++operation_count;
+		}
+		
+		// Every operation moves a bounded number of cells
+		assertTrue(operation_count > 1);
+		assertTrue(operation_count <= old_array_length);
+		assertEquals(key, table.size());
+		for (int i = 0; i < key; ++i) {
+			assertEquals(Integer.valueOf(i), table.unmap(i));
+		}
+		assertTrue(table.isEmpty());
+	}
+	
+	/**
+	 * Asserts that the MASK index reducer is accepted only by the tables
+	 * whose array length is guaranteed to be a power of 2.
+	 */
+	@Test
+	public void maskIndexReducerRequiresPowerOfTwoArrayLength() {
+		assumeTrue(m_implementation == HashTableImplementation.HASH_TABLE_QUADRATIC_PROBE_FIBONACCI_MASK);
+		
+		// Quadratic probing rounds the capacity up to a power of 2
+		HashTableQuadraticProbe<Integer, Integer> quadratic_probe_table =
+				new HashTableQuadraticProbe<Integer, Integer>(10, 0.75f, HashTableBase.IndexReducer.MASK);
+		assertEquals(16, quadratic_probe_table.m_array.length);
+		
+		try {
+			new HashTableLinearProbe<Integer, Integer>(10, 0.75f, HashTableBase.IndexReducer.MASK);
+			fail("MASK index reducer accepted with a capacity that isn't a power of 2");
+		}
+		catch (IllegalArgumentException e) {
+		}
+		
+		try {
+			new HashTableDoubleHashing<Integer, Integer>(16, 0.75f, HashTableBase.IndexReducer.MASK);
+			fail("MASK index reducer accepted with prime array lengths");
+		}
+		catch (IllegalArgumentException e) {
+		}
+		
+		// The Swiss table rounds the capacity up to a power of 2 as well,
+		// while the Robin Hood table uses the capacity as is
+		HashTableSwiss<Integer, Integer> swiss_table =
+				new HashTableSwiss<Integer, Integer>(10, 0.75f, HashTableBase.IndexReducer.MASK);
+		assertEquals(16, swiss_table.m_array.length);
+		
+		try {
+			new HashTableRobinHood<Integer, Integer>(10, 0.75f, HashTableBase.IndexReducer.MASK);
+			fail("MASK index reducer accepted with a capacity that isn't a power of 2");
+		}
+		catch (IllegalArgumentException e) {
+		}
+	}
+	
+	/**
+	 * Maps more keys with the same hash than fit in the two buckets and
+	 * the stash of a cuckoo table or in the neighborhood of a hopscotch
+	 * table, together with keys whose hashes differ,
+	 * and asserts that the table doesn't grow without bounds and keeps all
+	 * the keys accessible. The keys are the strings of "Aa" and "BB" pairs,
+	 * which have the same hashCode().
+	 */
+	@Test
+	public void mapManyKeysWithIdenticalHash() {
+		HashTable<String, Integer> table = newHashTableInstance(16, 0.75f);
+		
+		int pair_count = 6;
+		int key_count = 1 << pair_count;
+		String[] keys = new String[key_count];
+		for (int i = 0; i < key_count; ++i) {
+			StringBuilder key = new StringBuilder();
+			for (int pair = 0; pair < pair_count; ++pair) {
+				key.append((i >>> pair & 1) == 0 ? "Aa" : "BB");
+			}
+			keys[i] = key.toString();
+			assertEquals(keys[0].hashCode(), keys[i].hashCode());
+		}
+		
+		for (int i = 0; i < key_count; ++i) {
+			assertNull(table.map(keys[i], i));
+			assertNull(table.map(Integer.toString(i), -i));
+		}
+		assertEquals(2 * key_count, table.size());
+		if (table instanceof HashTableBase) {
+			assertTrue(((HashTableBase<String, Integer>) table).m_array.length < 4096);
+		}
+		
+		for (int i = 0; i < key_count; ++i) {
+			assertEquals(Integer.valueOf(i), table.find(keys[i]));
+			assertEquals(Integer.valueOf(-i), table.find(Integer.toString(i)));
+		}
+		assertTrue(table.containsValue(key_count - 1));
+		
+		for (int i = 0; i < key_count; i += 2) {
+			assertEquals(Integer.valueOf(i), table.unmap(keys[i]));
+			assertFalse(table.containsKey(keys[i]));
+		}
+		for (int i = 1; i < key_count; i += 2) {
+			assertEquals(Integer.valueOf(i), table.remap(keys[i], i + 1));
+			assertEquals(Integer.valueOf(i + 1), table.find(keys[i]));
+		}
+		assertEquals(key_count + key_count / 2, table.size());
+	}
+	
+	/**
+	 * Maps many keys with the same hash, both Comparable and not, into a
+	 * separate chaining table. The bucket they share must be converted to
+	 * a tree, keep all the keys accessible and be converted back to a list
+	 * as the keys are unmapped.
+	 */
+	@Test
+	@SuppressWarnings("rawtypes")
+	public void collidingKeysAreStoredInTreeBucket() {
+		/**
+		 * A key whose hash code is the same for all instances.
+		 */
+		class CollidingKey {
+			final int m_id;
+			
+			CollidingKey(int id) {
+				m_id = id;
+			}
+			
+			@Override
+			public boolean equals(Object obj) {
+				return obj instanceof CollidingKey && ((CollidingKey) obj).m_id == m_id;
+			}
+			
+			@Override
+			public int hashCode() {
+				return 42;
+			}
+		}
+		
+		/**
+		 * A Comparable key whose hash code is the same for all instances.
+		 */
+		class ComparableCollidingKey extends CollidingKey implements Comparable<ComparableCollidingKey> {
+			ComparableCollidingKey(int id) {
+				super(id);
+			}
+			
+			@Override
+			public int compareTo(ComparableCollidingKey other) {
+				return Integer.compare(m_id, other.m_id);
+			}
+		}
+		
+		HashTable<Object, Integer> table = newHashTableInstance(64, 0.75f);
+		assumeTrue(table instanceof HashTableSeparateChaining);
+		HashTableSeparateChaining<Object, Integer> chaining_table = (HashTableSeparateChaining<Object, Integer>) table;
+		
+		int key_count = 200;
+		for (int i = 0; i < key_count; ++i) {
+			assertNull(table.map(i % 2 == 0 ? new CollidingKey(i) : new ComparableCollidingKey(i), i));
+		}
+		table.map(null, -1);
+		
+		int tree_bucket_count = 0;
+		for (Object bucket : chaining_table.m_array) {
+			if (bucket instanceof HashTableSeparateChaining.TreeBucket) {
+				++tree_bucket_count;
+				// The chain nodes moved into the tree must not keep their links
+				for (Object mapping : (Iterable) bucket) {
+					if (mapping instanceof HashTableSeparateChaining.ChainNode) {
+						assertNull(((HashTableSeparateChaining.ChainNode) mapping).m_next);
+					}
+				}
+			}
+		}
+		assertEquals(1, tree_bucket_count);
+		
+		assertEquals(key_count + 1, table.size());
+		for (int i = 0; i < key_count; ++i) {
+			Object key = i % 2 == 0 ? new CollidingKey(i) : new ComparableCollidingKey(i);
+			assertEquals(Integer.valueOf(i), table.find(key));
+			assertEquals(Integer.valueOf(i), table.remap(key, i + 1));
+		}
+		assertEquals(Integer.valueOf(-1), table.find(null));
+		assertFalse(table.containsKey(new CollidingKey(key_count)));
+		assertFalse(table.unmap(new ComparableCollidingKey(1), 0));
+		
+		// Unmap the keys in a scattered order
+		for (int i = 0; i < key_count; ++i) {
+			int id = (i * 7) % key_count;
+			Object key = id % 2 == 0 ? new CollidingKey(id) : new ComparableCollidingKey(id);
+			assertEquals(Integer.valueOf(id + 1), table.unmap(key));
+			assertFalse(table.containsKey(key));
+		}
+		assertEquals(1, table.size());
+		
+		for (Object bucket : chaining_table.m_array) {
+			assertFalse(bucket instanceof HashTableSeparateChaining.TreeBucket);
+		}
+	}
+	
+	/**
+	 * Maps keys that count their hashCode() calls into a table that has to
+	 * grow several times. The key hashes are cached in the table's entries,
+	 * so each key must be hashed only once, when it's mapped, no matter how
+	 * many times the table is re-sized.
+	 */
+	@Test
+	public void keyHashIsComputedOncePerMapping() {
+		final int[] hash_code_calls = {0};
+		
+		/**
+		 * A key that counts the calls to its hashCode().
+		 */
+		class CountingKey {
+			final int m_id;
+			
+			CountingKey(int id) {
+				m_id = id;
+			}
+			
+			@Override
+			public boolean equals(Object obj) {
+				return obj instanceof CountingKey && ((CountingKey) obj).m_id == m_id;
+			}
+			
+			@Override
+			public int hashCode() {
+				++hash_code_calls[0];
+				return m_id * 31;
+			}
+		}
+		
+		HashTable<CountingKey, Integer> table = newHashTableInstance();
+		assumeTrue(table instanceof HashTableBase);
+		
+		int key_count = 1000;
+		for (int i = 0; i < key_count; ++i) {
+			assertNull(table.map(new CountingKey(i), i));
+		}
+		assertEquals(key_count, hash_code_calls[0]);
+		
+		for (int i = 0; i < key_count; ++i) {
+			assertEquals(Integer.valueOf(i), table.find(new CountingKey(i)));
+		}
+		assertEquals(2 * key_count, hash_code_calls[0]);
+	}
+	
+	/**
+	 * Maps, finds and checks the keys in batches (whose size isn't a multiple
+	 * of the batch size used by the tables) and compares the results with
+	 * the ones of the single key operations. The batches of a table this
+	 * small are probed key by key, so the check is repeated with the tables
+	 * that probe them in stages from any array length.
+	 */
+	@Test
+	public void batchOperationsMatchSingleKeyOperations() {
+		checkBatchOperations(newHashTableInstance());
+		
+		HashTable<Integer, Integer> table = newHashTableInstance();
+		if (table instanceof HashTableBase) {
+			((HashTableBase<Integer, Integer>) table).m_staged_batch_min_length = 0;
+			checkBatchOperations(table);
+		}
+	}
+	
+	/**
+	 * Maps the keys to the table in batches, then maps as many new keys (so
+	 * that the table grows in the middle of the batches) and compares the
+	 * results of the batch operations with the ones of the single key
+	 * operations.
+	 */
+	private void checkBatchOperations(HashTable<Integer, Integer> table) {
+		int key_count = 1000;
+		Integer[] keys = new Integer[key_count];
+		Integer[] values = new Integer[key_count];
+		for (int i = 0; i < key_count; ++i) {
+			// Every 10th key is mapped twice, the last value must win
+			keys[i] = i % 10 == 9 ? i - 1 : i;
+			values[i] = -i;
+		}
+		keys[0] = null;
+		
+		assertTrue(table.containsAll(new Integer[0]));
+		assertFalse(table.containsAll(keys));
+		table.mapAll(keys, values);
+		assertEquals(key_count - key_count / 10, table.size());
+		assertTrue(table.containsAll(keys));
+		assertTrue(table.containsValue(-9));
+		assertFalse(table.containsValue(-8));
+		
+		Integer[] out = new Integer[key_count + 1];
+		Integer[] lookup_keys = Arrays.copyOf(keys, key_count + 1);
+		lookup_keys[key_count] = key_count;
+		table.findAll(lookup_keys, out);
+		for (int i = 0; i < key_count + 1; ++i) {
+			assertEquals(table.find(lookup_keys[i]), out[i]);
+		}
+		assertEquals(Integer.valueOf(-9), out[8]);
+		assertNull(out[key_count]);
+		assertFalse(table.containsAll(lookup_keys));
+		
+		// Half of the keys are already mapped and the other half grows the
+		// table in the middle of the batches
+		Integer[] remapped_keys = new Integer[2 * key_count];
+		Integer[] remapped_values = new Integer[2 * key_count];
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		for (int i = 0; i < 2 * key_count; ++i) {
+			remapped_keys[i] = i % 2 == 0 ? keys[i / 2] : Integer.valueOf(key_count + i);
+			remapped_values[i] = i;
+			expected.put(remapped_keys[i], remapped_values[i]);
+		}
+		table.mapAll(remapped_keys, remapped_values);
+		assertEquals(expected.size(), table.size());
+		for (Map.Entry<Integer, Integer> mapping : expected.entrySet()) {
+			assertEquals(mapping.getValue(), table.find(mapping.getKey()));
+		}
+		assertTrue(table.containsAll(remapped_keys));
+		assertTrue(table.containsValue(2 * key_count - 2));
+		assertFalse(table.containsValue(-9));
+		
+		try {
+			table.findAll(keys, new Integer[key_count - 1]);
+			fail("findAll must reject arrays of different lengths");
+		}
+		catch (IllegalArgumentException e) {
+		}
+		
+		try {
+			table.mapAll(keys, new Integer[key_count + 1]);
+			fail("mapAll must reject arrays of different lengths");
+		}
+		catch (IllegalArgumentException e) {
+		}
+	}
+	
+	/**
+	 * Maps and unmaps keys (so that the open addressing tables contain
+	 * removed mappings and the incrementally re-sized tables are in the
+	 * middle of a re-size), and asserts that the iterator, both forEach
+	 * methods and a parallel stream all visit every mapping exactly once.
+	 */
+	@Test
+	public void iterationVisitsEveryMapping() {
+		HashTable<Integer, Integer> table = newHashTableInstance();
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		for (int i = 0; i < 3000; ++i) {
+			table.map(i, -i);
+			expected.put(i, -i);
+		}
+		for (int i = 0; i < 3000; i += 3) {
+			table.unmap(i);
+			expected.remove(i);
+		}
+		table.map(null, 1);
+		expected.put(null, 1);
+		
+		Map<Integer, Integer> iterated = new HashMap<Integer, Integer>();
+		for (Map.Entry<Integer, Integer> mapping : table) {
+			assertNull(iterated.put(mapping.getKey(), mapping.getValue()));
+		}
+		assertEquals(expected, iterated);
+		
+		Map<Integer, Integer> visited = new HashMap<Integer, Integer>();
+		table.forEach((key, value) -> assertNull(visited.put(key, value)));
+		assertEquals(expected, visited);
+		
+		visited.clear();
+		table.forEach(mapping -> assertNull(visited.put(mapping.getKey(), mapping.getValue())));
+		assertEquals(expected, visited);
+		
+		Map<Integer, Integer> streamed = StreamSupport.stream(table.spliterator(), true)
+				.collect(HashMap::new, (map, mapping) -> map.put(mapping.getKey(), mapping.getValue()), Map::putAll);
+		assertEquals(expected, streamed);
+		assertEquals(expected.size(), StreamSupport.stream(table.spliterator(), true).count());
+		
+		Iterator<Map.Entry<Integer, Integer>> iterator = table.iterator();
+		iterator.next();
+		try {
+			iterator.remove();
+			fail("The mappings must not be removable via the iterator");
+		}
+		catch (UnsupportedOperationException e) {
+		}
+		assertEquals(expected.size(), table.size());
+	}
+	
+	/**
+	 * Performs random operations on keys that share values and asserts
+	 * after every operation that containsValue() agrees with a HashMap.
+	 * This exercises the value reference counts of the tables in the
+	 * {@link HashTableBase.ValueIndexMode#REFCOUNT} mode.
+	 */
+	@Test
+	public void containsValueTracksSharedValues() {
+		HashTable<Integer, Integer> table = newHashTableInstance();
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		Random random = new Random(17);
+		
+		for (int i = 0; i < 5000; ++i) {
+			Integer key = random.nextInt(200);
+			Integer value = random.nextInt(20) == 0 ? null : random.nextInt(30);
+			switch (random.nextInt(4)) {
+			case 0:
+			case 1:
+				assertEquals(expected.put(key, value), table.map(key, value));
+				break;
+				
+			case 2:
+				assertEquals(expected.containsKey(key) ? expected.put(key, value) : null, table.remap(key, value));
+				break;
+				
+			default:
+				if (random.nextBoolean()) {
+					assertEquals(expected.remove(key), table.unmap(key));
+				}
+				else {
+					boolean removed = expected.containsKey(key) && Objects.equals(expected.get(key), value);
+					if (removed) {
+						expected.remove(key);
+					}
+					assertEquals(removed, table.unmap(key, value));
+				}
+			}
+			
+			Integer probed_value = random.nextInt(20) == 0 ? null : random.nextInt(30);
+			assertEquals(expected.containsValue(probed_value), table.containsValue(probed_value));
+		}
+		
+		for (int value = 0; value < 30; ++value) {
+			assertEquals(expected.containsValue(value), table.containsValue(value));
+		}
+		
+		if (table instanceof HashTableBase && ((HashTableBase<Integer, Integer>) table).m_value_counts != null) {
+			// Every count must match the number of mappings with the value
+			HashTableSeparateChaining<Integer, int[]> value_counts =
+					((HashTableBase<Integer, Integer>) table).m_value_counts;
+			Map<Integer, Integer> expected_counts = new HashMap<Integer, Integer>();
+			for (Integer value : expected.values()) {
+				expected_counts.merge(value, 1, Integer::sum);
+			}
+			assertEquals(expected_counts.size(), value_counts.size());
+			for (Map.Entry<Integer, Integer> count : expected_counts.entrySet()) {
+				assertEquals(count.getValue().intValue(), value_counts.find(count.getKey())[0]);
+			}
+		}
+		
+		table.clear();
+		for (int value = 0; value < 30; ++value) {
+			assertFalse(table.containsValue(value));
+		}
+		assertFalse(table.containsValue(null));
+	}
+	
+	/**
+	 * Asserts that mapping as many keys as requested via ensureCapacity()
+	 * doesn't re-size the table again.
+	 */
+	@Test
+	public void ensureCapacityPresizesTable() {
+		HashTable<Integer, Integer> table = newHashTableInstance(3, 0.75f);
+		assumeTrue(table instanceof HashTableBase);
+		HashTableBase<Integer, Integer> base = (HashTableBase<Integer, Integer>) table;
+		
+		table.map(-1, -1);
+		int key_count = 1000;
+		base.ensureCapacity(key_count + 1);
+		int array_length = base.m_array.length;
+		assertTrue(array_length > key_count);
+		
+		for (int i = 0; i < key_count; ++i) {
+			table.map(i, i);
+		}
+		
+		// Cuckoo and hopscotch tables also re-size when a mapping can't be
+		// placed, no matter what the occupancy is
+		if (!(table instanceof HashTableCuckoo) && !(table instanceof HashTableHopscotch)) {
+			assertEquals(array_length, base.m_array.length);
+		}
+		
+		base.ensureCapacity(10);
+		assertTrue(base.m_array.length >= array_length);
+		assertEquals(key_count + 1, table.size());
+		for (int i = -1; i < key_count; ++i) {
+			assertEquals(Integer.valueOf(i), table.find(i));
+		}
+	}
+	
+	/**
+	 * Asserts that trimToSize() shrinks the table once most of its mappings
+	 * are removed, and that the remaining mappings are still found.
+	 */
+	@Test
+	public void trimToSizeShrinksTable() {
+		HashTable<Integer, Integer> table = newHashTableInstance(8, 0.75f);
+		assumeTrue(table instanceof HashTableBase);
+		HashTableBase<Integer, Integer> base = (HashTableBase<Integer, Integer>) table;
+		
+		int key_count = 2000;
+		for (int i = 0; i < key_count; ++i) {
+			table.map(i, i);
+		}
+		for (int i = 10; i < key_count; ++i) {
+			table.unmap(i);
+		}
+		int array_length = base.m_array.length;
+		
+		base.trimToSize();
+		assertTrue(base.m_array.length < array_length);
+		assertEquals(10, table.size());
+		for (int i = 0; i < key_count; ++i) {
+			assertEquals(i < 10 ? Integer.valueOf(i) : null, table.find(i));
+		}
+		
+		table.clear();
+		base.trimToSize();
+		table.map(null, -1);
+		assertEquals(Integer.valueOf(-1), table.find(null));
+	}
+	
+	/**
+	 * Asserts that a table in the {@link HashTableBase.ShrinkMode#AUTOMATIC}
+	 * mode shrinks as the mappings are removed, and that mapping and
+	 * unmapping a key around the re-size threshold doesn't re-size it.
+	 */
+	@Test
+	public void automaticShrinkReleasesArray() {
+		HashTable<Integer, Integer> table = newHashTableInstance(16, 0.75f);
+		assumeTrue(table instanceof HashTableBase && ((HashTableBase<Integer, Integer>) table).m_auto_shrink);
+		HashTableBase<Integer, Integer> base = (HashTableBase<Integer, Integer>) table;
+		
+		int key_count = 4000;
+		for (int i = 0; i < key_count; ++i) {
+			table.map(i, i);
+		}
+		int array_length = base.m_array.length;
+		for (int i = 100; i < key_count; ++i) {
+			assertEquals(Integer.valueOf(i), table.unmap(i));
+		}
+		assertTrue(base.m_array.length * 8 <= array_length);
+		
+		// Fill the table up to just below the threshold, then repeatedly
+		// cross it back and forth
+		int threshold_key = 100;
+		while (table.size() + 1 < 0.75f * base.m_array.length) {
+			table.map(threshold_key, threshold_key);
+			++threshold_key;
+		}
+		table.map(threshold_key, threshold_key);
+		table.unmap(threshold_key);
+		int resized_length = base.m_array.length;
+		for (int i = 0; i < 100; ++i) {
+			table.map(threshold_key, threshold_key);
+			table.unmap(threshold_key);
+			assertEquals(resized_length, base.m_array.length);
+		}
+		
+		for (int i = 0; i < threshold_key; ++i) {
+			assertEquals(Integer.valueOf(i), table.find(i));
+		}
+		assertEquals(threshold_key, table.size());
+	}
+
+	/**
+	 * Writes a snapshot of the table, loads it into an empty table of the
+	 * same kind and into a separate chaining table, and asserts that both
+	 * hold the same mappings as the original table.
+	 */
+	@Test
+	public void snapshotRoundTripsMappings() throws IOException {
+		HashTable<Integer, String> table = newHashTableInstance();
+		assumeTrue(table instanceof HashTableBase);
+		
+		Map<Integer, String> expected = new HashMap<Integer, String>();
+		for (int i = 0; i < 1000; ++i) {
+			String value = i % 10 == 0 ? null : "value" + i;
+			table.map(i, value);
+			expected.put(i, value);
+		}
+		table.map(null, "null key");
+		expected.put(null, "null key");
+		
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		((HashTableBase<Integer, String>) table).writeSnapshot(stream, HashTableCodec.INTEGER, HashTableCodec.STRING);
+		
+		HashTable<Integer, String> loaded_table = newHashTableInstance();
+		HashTable<Integer, String> chaining_table = new HashTableSeparateChaining<Integer, String>();
+		chaining_table.map(5000, "kept");
+		for (HashTable<Integer, String> target : Arrays.asList(loaded_table, chaining_table)) {
+			((HashTableBase<Integer, String>) target).readSnapshot(
+					new ByteArrayInputStream(stream.toByteArray()), HashTableCodec.INTEGER, HashTableCodec.STRING);
+		}
+		
+		assertEquals(expected.size(), loaded_table.size());
+		assertEquals(expected.size() + 1, chaining_table.size());
+		assertEquals("kept", chaining_table.find(5000));
+		for (Map.Entry<Integer, String> mapping : expected.entrySet()) {
+			assertTrue(loaded_table.containsKey(mapping.getKey()));
+			assertEquals(mapping.getValue(), loaded_table.find(mapping.getKey()));
+			assertEquals(mapping.getValue(), chaining_table.find(mapping.getKey()));
+		}
+		
+		try {
+			((HashTableBase<Integer, String>) loaded_table).readSnapshot(
+					new ByteArrayInputStream(new byte[12]), HashTableCodec.INTEGER, HashTableCodec.STRING);
+			fail("The snapshot header must be validated");
+		}
+		catch (IOException e) {
+		}
+	}
+	
+	/**
+	 * Loads snapshots whose string length field is corrupted. The lengths
+	 * that are negative or too big for an array, and the lengths that run
+	 * past the end of the snapshot, must fail with an IOException rather
+	 * than allocate the claimed length.
+	 */
+	@Test
+	public void snapshotWithCorruptedStringLengthIsRejected() throws IOException {
+		HashTable<Integer, String> table = newHashTableInstance();
+		assumeTrue(table instanceof HashTableBase);
+		table.map(1, "one");
+		
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		((HashTableBase<Integer, String>) table).writeSnapshot(stream, HashTableCodec.INTEGER, HashTableCodec.STRING);
+		byte[] snapshot = stream.toByteArray();
+		
+		// The string length follows the header, the flags and the key
+		for (int length : new int[] {-1, Integer.MAX_VALUE, Integer.MAX_VALUE - 8, 4}) {
+			ByteBuffer.wrap(snapshot).putInt(17, length);
+			HashTableBase<Integer, String> loaded_table =
+					(HashTableBase<Integer, String>) this.<Integer, String>newHashTableInstance();
+			try {
+				loaded_table.readSnapshot(new ByteArrayInputStream(snapshot), HashTableCodec.INTEGER, HashTableCodec.STRING);
+				fail("The string length " + length + " must be rejected");
+			}
+			catch (IOException e) {
+			}
+		}
+	}
+	
+	/**
+	 * Loads snapshots whose size field claims more and fewer mappings than
+	 * the snapshot holds. The table must not be re-sized for the claimed
+	 * size, and no more than the claimed number of mappings must be read.
+	 */
+	@Test
+	public void snapshotWithCorruptedSizeIsRejected() throws IOException {
+		HashTable<Integer, Integer> table = newHashTableInstance();
+		assumeTrue(table instanceof HashTableBase);
+		for (int i = 0; i < 100; ++i) {
+			table.map(i, i);
+		}
+		
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		((HashTableBase<Integer, Integer>) table).writeSnapshot(stream, HashTableCodec.INTEGER, HashTableCodec.INTEGER);
+		byte[] snapshot = stream.toByteArray();
+		
+		// The size follows the magic and the version
+		ByteBuffer.wrap(snapshot).putInt(8, Integer.MAX_VALUE);
+		HashTableBase<Integer, Integer> loaded_table = (HashTableBase<Integer, Integer>) this.<Integer, Integer>newHashTableInstance();
+		try {
+			loaded_table.readSnapshot(new ByteArrayInputStream(snapshot), HashTableCodec.INTEGER, HashTableCodec.INTEGER);
+			fail("A snapshot shorter than its size must fail to load");
+		}
+		catch (EOFException e) {
+		}
+		// The mappings are mapped in batches, so the last batch read is lost
+		assertTrue(loaded_table.m_array.length <= 4 * HashTableBase.SNAPSHOT_MAX_PRESIZE);
+		assertTrue(loaded_table.size() <= 100);
+		
+		ByteBuffer.wrap(snapshot).putInt(8, 10);
+		loaded_table = (HashTableBase<Integer, Integer>) this.<Integer, Integer>newHashTableInstance();
+		loaded_table.readSnapshot(new ByteArrayInputStream(snapshot), HashTableCodec.INTEGER, HashTableCodec.INTEGER);
+		assertEquals(10, loaded_table.size());
+	}
 }
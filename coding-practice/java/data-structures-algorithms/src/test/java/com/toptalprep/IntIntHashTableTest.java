@@ -0,0 +1,159 @@
+package com.toptalprep;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for the IntIntHashTable class.
+ */
+public class IntIntHashTableTest {
+	/**
+	 * Tests that exception is thrown when hash table is created with 0 initial capacity.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unused")
+	public void createTableWithZeroInitialCapacity() {
+		IntIntHashTable table = new IntIntHashTable(0);
+	}
+
+	/**
+	 * Tests that exception is thrown when hash table is created with negative load factor.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unused")
+	public void createTableWithNegativeLoadFactor() {
+		IntIntHashTable table = new IntIntHashTable(10, -0.5f);
+	}
+
+	/**
+	 * Asserts that the missing value is returned for keys that have no mapping.
+	 */
+	@Test
+	public void missingValueIsReturnedForUnmappedKeys() {
+		IntIntHashTable table = new IntIntHashTable(11, 0.75f, -1);
+		assertEquals(-1, table.find(5));
+		assertEquals(-1, table.unmap(5));
+		assertEquals(-1, table.remap(5, 10));
+		assertEquals(-1, table.map(5, 10));
+		assertEquals(10, table.find(5));
+		assertEquals(-1, table.find(0));
+	}
+
+	/**
+	 * Exercises the key that is used to mark the empty array cells.
+	 */
+	@Test
+	public void mapAndUnmapFreeKey() {
+		IntIntHashTable table = new IntIntHashTable();
+		assertFalse(table.containsKey(0));
+		assertFalse(table.containsValue(0));
+
+		table.map(0, 42);
+		assertTrue(table.containsKey(0));
+		assertTrue(table.containsValue(42));
+		assertEquals(42, table.find(0));
+		assertEquals(1, table.size());
+
+		assertEquals(42, table.remap(0, 43));
+		assertFalse(table.unmap(0, 42));
+		assertTrue(table.unmap(0, 43));
+		assertFalse(table.containsKey(0));
+		assertTrue(table.isEmpty());
+	}
+
+	/**
+	 * Unmaps keys from the middle of a cluster and asserts that the keys
+	 * that follow them in the cluster are still reachable.
+	 */
+	@Test
+	public void unmapKeysFromClusters() {
+		IntIntHashTable table = new IntIntHashTable(16, 1.0f);
+
+		// With the initial capacity of 16 these keys all map to the same
+		// array index, so they form a single cluster that wraps around
+		// the end of the array.
+		int[] keys = { 15, 31, 47, 63, 79 };
+		for (int key : keys) {
+			table.map(key, key * 10);
+		}
+
+		assertEquals(310, table.unmap(31));
+		assertFalse(table.containsKey(31));
+		for (int key : new int[] { 15, 47, 63, 79 }) {
+			assertEquals(key * 10, table.find(key));
+		}
+
+		assertEquals(150, table.unmap(15));
+		assertEquals(790, table.unmap(79));
+		assertEquals(470, table.find(47));
+		assertEquals(630, table.find(63));
+		assertEquals(2, table.size());
+	}
+
+	/**
+	 * Maps enough keys to resize the table several times and then clears it.
+	 */
+	@Test
+	public void resizeAndClearTable() {
+		IntIntHashTable table = new IntIntHashTable(3, 0.5f);
+		for (int i = -100; i < 100; ++i) {
+			table.map(i * 10007, i);
+		}
+		assertEquals(200, table.size());
+
+		for (int i = -100; i < 100; ++i) {
+			assertEquals(i, table.find(i * 10007));
+		}
+
+		table.clear();
+		assertTrue(table.isEmpty());
+		assertFalse(table.containsKey(1000003));
+		assertFalse(table.containsKey(0));
+	}
+
+	/**
+	 * Performs a random sequence of operations on both the hash table and
+	 * java.util.HashMap and asserts that they always agree.
+	 */
+	@Test
+	public void randomOperationsMatchReferenceMap() {
+		IntIntHashTable table = new IntIntHashTable(5, 0.9f, Integer.MIN_VALUE);
+		Map<Integer, Integer> reference = new HashMap<Integer, Integer>();
+		Random random = new Random(7);
+
+		for (int i = 0; i < 20000; ++i) {
+			int key = random.nextInt(500) - 250;
+			int value = random.nextInt();
+			Integer expected;
+
+			switch (random.nextInt(5)) {
+			case 0:
+			case 1:
+				expected = reference.put(key, value);
+				assertEquals(expected != null ? expected : Integer.MIN_VALUE, table.map(key, value));
+				break;
+
+			case 2:
+				expected = reference.remove(key);
+				assertEquals(expected != null ? expected : Integer.MIN_VALUE, table.unmap(key));
+				break;
+
+			case 3:
+				expected = reference.containsKey(key) ? reference.put(key, value) : null;
+				assertEquals(expected != null ? expected : Integer.MIN_VALUE, table.remap(key, value));
+				break;
+
+			default:
+				expected = reference.get(key);
+				assertEquals(expected != null ? expected : Integer.MIN_VALUE, table.find(key));
+				assertEquals(expected != null, table.containsKey(key));
+			}
+			assertEquals(reference.size(), table.size());
+		}
+	}
+}
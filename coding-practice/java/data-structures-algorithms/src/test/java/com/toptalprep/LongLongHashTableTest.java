@@ -0,0 +1,159 @@
+package com.toptalprep;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for the LongLongHashTable class.
+ */
+public class LongLongHashTableTest {
+	/**
+	 * Tests that exception is thrown when hash table is created with 0 initial capacity.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unused")
+	public void createTableWithZeroInitialCapacity() {
+		LongLongHashTable table = new LongLongHashTable(0);
+	}
+
+	/**
+	 * Tests that exception is thrown when hash table is created with negative load factor.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unused")
+	public void createTableWithNegativeLoadFactor() {
+		LongLongHashTable table = new LongLongHashTable(10, -0.5f);
+	}
+
+	/**
+	 * Asserts that the missing value is returned for keys that have no mapping.
+	 */
+	@Test
+	public void missingValueIsReturnedForUnmappedKeys() {
+		LongLongHashTable table = new LongLongHashTable(11, 0.75f, -1L);
+		assertEquals(-1L, table.find(5L));
+		assertEquals(-1L, table.unmap(5L));
+		assertEquals(-1L, table.remap(5L, 10L));
+		assertEquals(-1L, table.map(5L, 10L));
+		assertEquals(10L, table.find(5L));
+		assertEquals(-1L, table.find(0L));
+	}
+
+	/**
+	 * Exercises the key that is used to mark the empty array cells.
+	 */
+	@Test
+	public void mapAndUnmapFreeKey() {
+		LongLongHashTable table = new LongLongHashTable();
+		assertFalse(table.containsKey(0L));
+		assertFalse(table.containsValue(0L));
+
+		table.map(0L, 42L);
+		assertTrue(table.containsKey(0L));
+		assertTrue(table.containsValue(42L));
+		assertEquals(42L, table.find(0L));
+		assertEquals(1, table.size());
+
+		assertEquals(42L, table.remap(0L, 43L));
+		assertFalse(table.unmap(0L, 42L));
+		assertTrue(table.unmap(0L, 43L));
+		assertFalse(table.containsKey(0L));
+		assertTrue(table.isEmpty());
+	}
+
+	/**
+	 * Unmaps keys from the middle of a cluster and asserts that the keys
+	 * that follow them in the cluster are still reachable.
+	 */
+	@Test
+	public void unmapKeysFromClusters() {
+		LongLongHashTable table = new LongLongHashTable(16, 1.0f);
+
+		// With the initial capacity of 16 these keys all map to the same
+		// array index, so they form a single cluster that wraps around
+		// the end of the array.
+		long[] keys = { 15L, 31L, 47L, 63L, 79L };
+		for (long key : keys) {
+			table.map(key, key * 10L);
+		}
+
+		assertEquals(310L, table.unmap(31L));
+		assertFalse(table.containsKey(31L));
+		for (long key : new long[] { 15L, 47L, 63L, 79L }) {
+			assertEquals(key * 10L, table.find(key));
+		}
+
+		assertEquals(150L, table.unmap(15L));
+		assertEquals(790L, table.unmap(79L));
+		assertEquals(470L, table.find(47L));
+		assertEquals(630L, table.find(63L));
+		assertEquals(2, table.size());
+	}
+
+	/**
+	 * Maps enough keys to resize the table several times and then clears it.
+	 */
+	@Test
+	public void resizeAndClearTable() {
+		LongLongHashTable table = new LongLongHashTable(3, 0.5f);
+		for (long i = -100L; i < 100L; ++i) {
+			table.map(i * 1000003L, i);
+		}
+		assertEquals(200, table.size());
+
+		for (long i = -100L; i < 100L; ++i) {
+			assertEquals(i, table.find(i * 1000003L));
+		}
+
+		table.clear();
+		assertTrue(table.isEmpty());
+		assertFalse(table.containsKey(1000003L));
+		assertFalse(table.containsKey(0L));
+	}
+
+	/**
+	 * Performs a random sequence of operations on both the hash table and
+	 * java.util.HashMap and asserts that they always agree.
+	 */
+	@Test
+	public void randomOperationsMatchReferenceMap() {
+		LongLongHashTable table = new LongLongHashTable(5, 0.9f, Long.MIN_VALUE);
+		Map<Long, Long> reference = new HashMap<Long, Long>();
+		Random random = new Random(7);
+
+		for (int i = 0; i < 20000; ++i) {
+			long key = random.nextInt(500) - 250;
+			long value = random.nextLong();
+			Long expected;
+
+			switch (random.nextInt(5)) {
+			case 0:
+			case 1:
+				expected = reference.put(key, value);
+				assertEquals(expected != null ? expected : Long.MIN_VALUE, table.map(key, value));
+				break;
+
+			case 2:
+				expected = reference.remove(key);
+				assertEquals(expected != null ? expected : Long.MIN_VALUE, table.unmap(key));
+				break;
+
+			case 3:
+				expected = reference.containsKey(key) ? reference.put(key, value) : null;
+				assertEquals(expected != null ? expected : Long.MIN_VALUE, table.remap(key, value));
+				break;
+
+			default:
+				expected = reference.get(key);
+				assertEquals(expected != null ? expected : Long.MIN_VALUE, table.find(key));
+				assertEquals(expected != null, table.containsKey(key));
+			}
+			assertEquals(reference.size(), table.size());
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package com.toptalprep;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for the MappedHashTable class.
+ */
+public class MappedHashTableTest {
+	@Rule
+	public TemporaryFolder m_folder = new TemporaryFolder();
+
+	private static ByteBuffer key(long key) {
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		buffer.putLong(0, key);
+		return buffer;
+	}
+
+	private static ByteBuffer bytes(String text) {
+		return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String text(ByteBuffer buffer) {
+		if (buffer == null) {
+			return null;
+		}
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private Path tablePath() {
+		return m_folder.getRoot().toPath().resolve("table");
+	}
+
+	/**
+	 * Tests that exception is thrown when hash table is created with 0 key size.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unused")
+	public void createTableWithZeroKeySize() throws IOException {
+		MappedHashTable table = new MappedHashTable(tablePath(), 0);
+	}
+
+	/**
+	 * Tests that exception is thrown when hash table is created with negative load factor.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unused")
+	public void createTableWithNegativeLoadFactor() throws IOException {
+		MappedHashTable table = new MappedHashTable(tablePath(), 8, 16, -0.5f, 1024);
+	}
+
+	/**
+	 * Tests that exception is thrown when a key of the wrong size is mapped.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void mapKeyOfWrongSize() throws IOException {
+		try (MappedHashTable table = new MappedHashTable(tablePath(), 8)) {
+			table.map(bytes("short"), bytes("value"));
+		}
+	}
+
+	/**
+	 * Tests that exception is thrown when a table is re-opened with a
+	 * different key size.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void reopenTableWithDifferentKeySize() throws IOException {
+		new MappedHashTable(tablePath(), 8).close();
+		new MappedHashTable(tablePath(), 4).close();
+	}
+
+	/**
+	 * Simulates a crash by modifying a table after its last checkpoint and
+	 * re-opening it without closing it first, and asserts that the table
+	 * is re-opened as it was at the checkpoint, for a checkpoint taken
+	 * before and after the index was re-sized.
+	 */
+	@Test
+	public void reopenTableAfterCrash() throws IOException {
+		MappedHashTable crashed_table = new MappedHashTable(tablePath(), 8, 4, 0.75f, 256);
+		for (long i = 0; i < 100; ++i) {
+			crashed_table.map(key(i), bytes("value" + i));
+		}
+		crashed_table.force();
+
+		// The index is re-sized, and records are written after the checkpoint
+		for (long i = 0; i < 50; ++i) {
+			crashed_table.remap(key(i), bytes("new value" + i));
+			crashed_table.unmap(key(i + 50));
+		}
+		for (long i = 100; i < 1000; ++i) {
+			crashed_table.map(key(i), bytes("value" + i));
+		}
+
+		MappedHashTable table = new MappedHashTable(tablePath(), 8);
+		assertEquals(100, table.size());
+		for (long i = 0; i < 1000; ++i) {
+			assertEquals(i < 100 ? "value" + i : null, text(table.find(key(i))));
+		}
+
+		// The recovered table is modified, crashes again before the index
+		// is re-sized and is recovered from its own checkpoint
+		for (long i = 100; i < 1000; ++i) {
+			table.map(key(i), bytes("other value" + i));
+		}
+		table.unmap(key(0L));
+		table.force();
+		table.map(key(0L), bytes("value0"));
+		table.unmap(key(1L));
+
+		try (MappedHashTable reopened_table = new MappedHashTable(tablePath(), 8)) {
+			assertEquals(999, reopened_table.size());
+			assertFalse(reopened_table.containsKey(key(0L)));
+			assertEquals("value1", text(reopened_table.find(key(1L))));
+			assertEquals("other value999", text(reopened_table.find(key(999L))));
+
+			int visited = 0;
+			for (Map.Entry<ByteBuffer, ByteBuffer> mapping : reopened_table) {
+				assertNotNull(mapping.getValue());
+				++visited;
+			}
+			assertEquals(999, visited);
+		}
+	}
+
+	/**
+	 * Maps enough keys to resize the index several times, re-opens the
+	 * table and asserts that every mapping is found.
+	 */
+	@Test
+	public void reopenTable() throws IOException {
+		try (MappedHashTable table = new MappedHashTable(tablePath(), 8, 3, 0.5f, 256)) {
+			for (long i = 0; i < 1000; ++i) {
+				table.map(key(i), i % 10 == 0 ? null : bytes("value" + i));
+			}
+			table.unmap(key(5L));
+			table.force();
+			assertTrue(table.unmap(key(7L), bytes("value7")));
+		}
+
+		try (MappedHashTable table = new MappedHashTable(tablePath(), 8)) {
+			assertEquals(998, table.size());
+			assertFalse(table.containsKey(key(5L)));
+			assertFalse(table.containsKey(key(7L)));
+			for (long i = 0; i < 1000; ++i) {
+				if (i != 5L && i != 7L) {
+					assertTrue(table.containsKey(key(i)));
+					assertEquals(i % 10 == 0 ? null : "value" + i, text(table.find(key(i))));
+				}
+			}
+			assertTrue(table.containsValue(null));
+			assertTrue(table.containsValue(bytes("value999")));
+
+			int visited = 0;
+			for (Map.Entry<ByteBuffer, ByteBuffer> mapping : table) {
+				assertEquals(8, mapping.getKey().remaining());
+				++visited;
+			}
+			assertEquals(998, visited);
+
+			table.clear();
+			assertTrue(table.isEmpty());
+			table.map(key(1L), bytes("one"));
+		}
+
+		try (MappedHashTable table = new MappedHashTable(tablePath(), 8)) {
+			assertEquals(1, table.size());
+			assertEquals("one", text(table.find(key(1L))));
+			assertFalse(table.containsKey(key(2L)));
+		}
+	}
+
+	/**
+	 * Closes a table, corrupts the newest header record of its index file
+	 * and asserts that the table is re-opened from the previous record.
+	 * Corrupting both records makes the index file invalid.
+	 */
+	@Test
+	public void reopenTableWithCorruptedHeader() throws IOException {
+		try (MappedHashTable table = new MappedHashTable(tablePath(), 8, 16, 0.75f, 256)) {
+			for (long i = 0; i < 100; ++i) {
+				table.map(key(i), bytes("value" + i));
+			}
+		}
+
+		Path index_path = m_folder.getRoot().toPath().resolve("table.index");
+		byte[] header = Files.readAllBytes(index_path);
+		ByteBuffer records = ByteBuffer.wrap(header);
+		int newest_record = records.getLong(8) > records.getLong(64 + 8) ? 0 : 64;
+		header[newest_record + 44] ^= 1;
+		Files.write(index_path, header);
+
+		try (MappedHashTable table = new MappedHashTable(tablePath(), 8)) {
+			assertEquals(100, table.size());
+			for (long i = 0; i < 100; ++i) {
+				assertEquals("value" + i, text(table.find(key(i))));
+			}
+		}
+
+		header = Files.readAllBytes(index_path);
+		header[44] ^= 1;
+		header[64 + 44] ^= 1;
+		Files.write(index_path, header);
+		try {
+			new MappedHashTable(tablePath(), 8).close();
+			fail("The corrupted index file wasn't rejected");
+		}
+		catch (IOException e) {
+		}
+	}
+
+	/**
+	 * Re-opens a table that was closed and asserts that neither of the
+	 * shadow index files is written, i.e. the index isn't copied.
+	 */
+	@Test
+	public void reopenTableWithoutCopyingIndex() throws IOException {
+		try (MappedHashTable table = new MappedHashTable(tablePath(), 8, 1024, 0.75f, 256)) {
+			for (long i = 0; i < 500; ++i) {
+				table.map(key(i), bytes("value" + i));
+			}
+		}
+
+		Path[] shadow_paths = {
+			m_folder.getRoot().toPath().resolve("table.index.0"),
+			m_folder.getRoot().toPath().resolve("table.index.1")
+		};
+		for (Path shadow_path : shadow_paths) {
+			Files.setLastModifiedTime(shadow_path, FileTime.fromMillis(0));
+		}
+
+		try (MappedHashTable table = new MappedHashTable(tablePath(), 8)) {
+			assertEquals(500, table.size());
+			assertEquals("value42", text(table.find(key(42L))));
+		}
+		for (Path shadow_path : shadow_paths) {
+			assertEquals(0, Files.getLastModifiedTime(shadow_path).toMillis());
+		}
+	}
+
+	/**
+	 * Tests that exception is thrown when a record doesn't fit into a slab.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void mapValueBiggerThanSlab() throws IOException {
+		try (MappedHashTable table = new MappedHashTable(tablePath(), 8, 16, 0.75f, 32)) {
+			table.map(key(1L), ByteBuffer.allocate(32));
+		}
+	}
+
+	/**
+	 * Performs a random sequence of operations on both the hash table and
+	 * java.util.HashMap, re-opening the table every now and then, and
+	 * asserts that they always agree.
+	 */
+	@Test
+	public void randomOperationsMatchReferenceMap() throws IOException {
+		Map<Long, String> reference = new HashMap<Long, String>();
+		Random random = new Random(7);
+		MappedHashTable table = new MappedHashTable(tablePath(), 8, 5, 0.9f, 1024);
+
+		for (int i = 0; i < 20000; ++i) {
+			long key = random.nextInt(500) - 250;
+			String value = random.nextInt(10) == 0 ? null : Long.toString(random.nextLong());
+
+			switch (random.nextInt(5)) {
+			case 0:
+			case 1:
+				assertEquals(reference.put(key, value), text(table.map(key(key), value != null ? bytes(value) : null)));
+				break;
+
+			case 2:
+				assertEquals(reference.remove(key), text(table.unmap(key(key))));
+				break;
+
+			case 3:
+				String expected = reference.containsKey(key) ? reference.put(key, value) : null;
+				assertEquals(expected, text(table.remap(key(key), value != null ? bytes(value) : null)));
+				break;
+
+			default:
+				assertEquals(reference.get(key), text(table.find(key(key))));
+				assertEquals(reference.containsKey(key), table.containsKey(key(key)));
+			}
+			assertEquals(reference.size(), table.size());
+
+			if (i % 5000 == 4999) {
+				table.close();
+				table = new MappedHashTable(tablePath(), 8);
+			}
+		}
+		table.close();
+	}
+}
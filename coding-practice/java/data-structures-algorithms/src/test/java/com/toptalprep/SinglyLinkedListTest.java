@@ -3,6 +3,7 @@ package com.toptalprep;
 import static org.junit.Assert.*;
 
 import java.util.Arrays;
+import java.util.Iterator;
 
 import org.junit.Test;
 
@@ -485,6 +486,46 @@ public class SinglyLinkedListTest {
     	}
     }
 
+    /**
+     * Removes every other element, including the head and the tail, using
+     * the iterator, and asserts that removing twice in a row fails.
+     */
+    @Test
+    public void testIteratorRemove() {
+    	SinglyLinkedList<Integer> list = new SinglyLinkedList<Integer>();
+    	for (int i = 0; i < 9; ++i) {
+    		list.pushBack(i);
+    	}
+    	
+    	Iterator<Integer> iterator = list.iterator();
+    	while (iterator.hasNext()) {
+    		if (iterator.next() % 2 == 0) {
+    			iterator.remove();
+    			try {
+    				iterator.remove();
+    				fail("Removing the same element twice must fail");
+    			}
+    			catch (IllegalStateException e) {
+    			}
+    		}
+    	}
+    	
+    	assertEquals(4, list.size());
+    	int expected_value = 1;
+    	for (Integer value : list) {
+    		assertEquals(Integer.valueOf(expected_value), value);
+    		expected_value += 2;
+    	}
+    	
+    	// Remove the rest, which leaves the list empty
+    	for (iterator = list.iterator(); iterator.hasNext();) {
+    		iterator.next();
+    		iterator.remove();
+    	}
+    	assertTrue(list.isEmpty());
+    	assertEquals(0, list.size());
+    }
+
     /**
      * Tests the clear method.
      */